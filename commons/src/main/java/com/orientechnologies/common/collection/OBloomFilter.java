@@ -0,0 +1,296 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.common.collection;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of 64-bit hash codes which grows together with amount of added keys. When the last segment of filter is filled up to
+ * its capacity new segment with twice bigger capacity and twice lower false positive rate is added, so overall false positive rate
+ * stays below the requested one. Bits are set by CAS, so keys may be added concurrently with each other and with lookups.
+ *
+ * Filter can not forget keys, removed keys only increase false positive rate. If memory limit does not allow to add new segment
+ * filter becomes saturated and reports that every key may be contained.
+ */
+public class OBloomFilter {
+  private static final int    FORMAT_VERSION       = 1;
+  private static final double TIGHTENING_RATIO     = 0.5;
+  private static final double LN2                  = Math.log(2);
+
+  private final double        falsePositiveRate;
+  private final long          maxMemory;
+
+  private volatile Segment[]  segments;
+  private volatile boolean    saturated;
+
+  /**
+   * @param initialCapacity
+   *          Amount of keys the first segment is sized for.
+   * @param falsePositiveRate
+   *          Upper bound of probability that absent key is reported as contained.
+   * @param maxMemory
+   *          Maximum amount of bytes which bits of all segments may occupy.
+   */
+  public OBloomFilter(long initialCapacity, double falsePositiveRate, long maxMemory) {
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+      throw new IllegalArgumentException("False positive rate should be between 0 and 1 but was " + falsePositiveRate);
+
+    this.falsePositiveRate = falsePositiveRate;
+    this.maxMemory = maxMemory;
+
+    final Segment segment = Segment.create(Math.max(initialCapacity, 1), falsePositiveRate * (1 - TIGHTENING_RATIO), maxMemory);
+    if (segment == null) {
+      segments = new Segment[0];
+      saturated = true;
+    } else
+      segments = new Segment[] { segment };
+  }
+
+  private OBloomFilter(double falsePositiveRate, long maxMemory, Segment[] segments, boolean saturated) {
+    this.falsePositiveRate = falsePositiveRate;
+    this.maxMemory = maxMemory;
+    this.segments = segments;
+    this.saturated = saturated;
+  }
+
+  /**
+   * Adds key to the filter. Bits of key which is already reported as contained, even falsely, are never cleared, so such key is
+   * not added again and does not consume capacity of filter.
+   * 
+   * @return false if key might be already contained in the filter.
+   */
+  public boolean add(long hashCode) {
+    if (saturated)
+      return false;
+
+    final long hash = mix(hashCode);
+    if (mightContainHash(hash))
+      return false;
+
+    final Segment[] currentSegments = segments;
+    Segment segment = currentSegments[currentSegments.length - 1];
+    if (segment.count.incrementAndGet() > segment.capacity) {
+      segment = grow(segment);
+      if (segment == null)
+        return false;
+    }
+
+    segment.set(hash);
+    return true;
+  }
+
+  public boolean mightContain(long hashCode) {
+    if (saturated)
+      return true;
+
+    return mightContainHash(mix(hashCode));
+  }
+
+  public boolean isSaturated() {
+    return saturated;
+  }
+
+  public double getFalsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  /**
+   * @return amount of bytes occupied by bits of filter.
+   */
+  public long getMemoryUsage() {
+    long memory = 0;
+    for (Segment segment : segments)
+      memory += segment.getMemoryUsage();
+
+    return memory;
+  }
+
+  public void toStream(DataOutput output) throws IOException {
+    final Segment[] currentSegments = segments;
+
+    output.writeInt(FORMAT_VERSION);
+    output.writeDouble(falsePositiveRate);
+    output.writeLong(maxMemory);
+    output.writeBoolean(saturated);
+    output.writeInt(currentSegments.length);
+
+    for (Segment segment : currentSegments) {
+      output.writeLong(segment.capacity);
+      output.writeLong(segment.count.get());
+      output.writeDouble(segment.falsePositiveRate);
+      output.writeInt(segment.hashFunctions);
+      output.writeInt(segment.words.length());
+
+      for (int i = 0; i < segment.words.length(); i++)
+        output.writeLong(segment.words.get(i));
+    }
+  }
+
+  public static OBloomFilter fromStream(DataInput input) throws IOException {
+    final int version = input.readInt();
+    if (version != FORMAT_VERSION)
+      throw new IOException("Unsupported version of Bloom filter format " + version);
+
+    final double falsePositiveRate = input.readDouble();
+    final long maxMemory = input.readLong();
+    final boolean saturated = input.readBoolean();
+    final Segment[] segments = new Segment[input.readInt()];
+
+    for (int i = 0; i < segments.length; i++) {
+      final long capacity = input.readLong();
+      final long count = input.readLong();
+      final double segmentFalsePositiveRate = input.readDouble();
+      final int hashFunctions = input.readInt();
+      final AtomicLongArray words = new AtomicLongArray(input.readInt());
+
+      for (int n = 0; n < words.length(); n++)
+        words.set(n, input.readLong());
+
+      segments[i] = new Segment(capacity, segmentFalsePositiveRate, hashFunctions, words);
+      segments[i].count.set(count);
+    }
+
+    if (segments.length == 0 && !saturated)
+      throw new IOException("Bloom filter does not contain any segment");
+
+    return new OBloomFilter(falsePositiveRate, maxMemory, segments, saturated);
+  }
+
+  private boolean mightContainHash(long hash) {
+    for (Segment segment : segments)
+      if (segment.get(hash))
+        return true;
+
+    return false;
+  }
+
+  private synchronized Segment grow(Segment full) {
+    if (saturated)
+      return null;
+
+    final Segment[] currentSegments = segments;
+    final Segment last = currentSegments[currentSegments.length - 1];
+    if (last != full) {
+      // SEGMENT WAS ADDED BY OTHER THREAD
+      last.count.incrementAndGet();
+      return last;
+    }
+
+    final Segment segment = Segment.create(full.capacity * 2, full.falsePositiveRate * TIGHTENING_RATIO, maxMemory
+        - getMemoryUsage());
+    if (segment == null) {
+      saturated = true;
+      return null;
+    }
+
+    segment.count.incrementAndGet();
+
+    final Segment[] newSegments = new Segment[currentSegments.length + 1];
+    System.arraycopy(currentSegments, 0, newSegments, 0, currentSegments.length);
+    newSegments[currentSegments.length] = segment;
+    segments = newSegments;
+
+    return segment;
+  }
+
+  /**
+   * Finalization step of MurmurHash3, spreads bits of hash code which may be already used to distribute the same keys somewhere else.
+   */
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+
+    return hash;
+  }
+
+  private static final class Segment {
+    private final long            capacity;
+    private final double          falsePositiveRate;
+    private final int             hashFunctions;
+    private final long            bitsCount;
+    private final AtomicLongArray words;
+    private final AtomicLong      count = new AtomicLong();
+
+    private Segment(long capacity, double falsePositiveRate, int hashFunctions, AtomicLongArray words) {
+      this.capacity = capacity;
+      this.falsePositiveRate = falsePositiveRate;
+      this.hashFunctions = hashFunctions;
+      this.words = words;
+      this.bitsCount = ((long) words.length()) << 6;
+    }
+
+    /**
+     * @return new segment or null if even minimal segment does not fit into memory limit.
+     */
+    private static Segment create(long capacity, double falsePositiveRate, long maxMemory) {
+      long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+
+      final long maxBits = Math.min(maxMemory, Integer.MAX_VALUE * 8L) * 8;
+      if (maxBits < 64)
+        return null;
+
+      if (bits > maxBits)
+        bits = maxBits;
+
+      final int wordsCount = (int) ((bits + 63) >>> 6);
+      if (wordsCount == 0)
+        return null;
+
+      final int hashFunctions = Math.max(1, (int) Math.round(((double) wordsCount * 64 / capacity) * LN2));
+      return new Segment(capacity, falsePositiveRate, hashFunctions, new AtomicLongArray(wordsCount));
+    }
+
+    private void set(long hash) {
+      final long secondHash = mix(hash) | 1;
+
+      for (int i = 0; i < hashFunctions; i++) {
+        final long bitIndex = ((hash + i * secondHash) & Long.MAX_VALUE) % bitsCount;
+        final int wordIndex = (int) (bitIndex >>> 6);
+        final long mask = 1L << bitIndex;
+
+        while (true) {
+          final long word = words.get(wordIndex);
+          if ((word & mask) != 0 || words.compareAndSet(wordIndex, word, word | mask))
+            break;
+        }
+      }
+    }
+
+    private boolean get(long hash) {
+      final long secondHash = mix(hash) | 1;
+
+      for (int i = 0; i < hashFunctions; i++) {
+        final long bitIndex = ((hash + i * secondHash) & Long.MAX_VALUE) % bitsCount;
+        if ((words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0)
+          return false;
+      }
+
+      return true;
+    }
+
+    private long getMemoryUsage() {
+      return ((long) words.length()) << 3;
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.io.ObjectOutputStream;
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -282,6 +283,39 @@ public abstract class OMVRBTree<K, V> extends AbstractMap<K, V> implements ONavi
 
   }
 
+  /**
+   * Returns values of several keys at once. Keys are expected in ascending order, so node found for the previous key is searched
+   * first if the next key lies between its first and last keys, tree is traversed again only when key is outside of the current
+   * node.
+   * 
+   * @param sortedKeys
+   *          Keys sorted in ascending order
+   * @return values in the same order as keys, null if key is absent
+   */
+  public List<V> getAll(final List<? extends K> sortedKeys) {
+    final List<V> result = new ArrayList<V>(sortedKeys.size());
+    OMVRBTreeEntry<K, V> node = null;
+
+    for (K key : sortedKeys) {
+      if (key == null || getTreeSize() == 0) {
+        result.add(null);
+        continue;
+      }
+
+      if (node != null && node.getSize() > 0 && compare(key, node.getFirstKey()) >= 0 && compare(key, node.getLastKey()) <= 0) {
+        // KEY IS INSIDE OF THE PREVIOUS NODE: SEARCH ONLY INSIDE IT
+        final V value = node.search(key);
+        result.add(pageItemFound ? value : null);
+        continue;
+      }
+
+      node = getEntry(key, true, PartialSearchMode.NONE);
+      result.add(node != null && pageItemFound ? node.getValue() : null);
+    }
+
+    return result;
+  }
+
   public Comparator<? super K> comparator() {
     return comparator;
   }
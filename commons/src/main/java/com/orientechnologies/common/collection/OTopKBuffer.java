@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.common.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps only the first K items in order of comparator among all the items added to it, so the first K items of big stream can be
+ * found without keeping whole stream in memory. Items are kept in the heap which root is the greatest kept item, so every item is
+ * added in O(log K) time.
+ *
+ * Result is the same as result of stable sort of all the added items: if several items are equal, items added earlier come first.
+ */
+public class OTopKBuffer<T> {
+  private final int                   capacity;
+  private final Comparator<? super T> comparator;
+  private final List<Item<T>>         heap = new ArrayList<Item<T>>();
+  private long                        added;
+
+  public OTopKBuffer(final int capacity, final Comparator<? super T> comparator) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("Capacity should be positive but was " + capacity);
+
+    this.capacity = capacity;
+    this.comparator = comparator;
+  }
+
+  /**
+   * @return false if item is rejected because buffer is full and all the kept items precede it.
+   */
+  public boolean add(final T value) {
+    final Item<T> item = new Item<T>(value, added++);
+
+    if (heap.size() < capacity) {
+      heap.add(item);
+      siftUp(heap.size() - 1);
+      return true;
+    }
+
+    if (compare(item, heap.get(0)) >= 0)
+      return false;
+
+    heap.set(0, item);
+    siftDown(0);
+    return true;
+  }
+
+  public int size() {
+    return heap.size();
+  }
+
+  /**
+   * @return amount of items passed to {@link #add(Object)}, including rejected ones.
+   */
+  public long getAddedCount() {
+    return added;
+  }
+
+  /**
+   * @return kept items in order of comparator.
+   */
+  public List<T> toSortedList() {
+    final List<Item<T>> items = new ArrayList<Item<T>>(heap);
+    Collections.sort(items, new Comparator<Item<T>>() {
+      public int compare(final Item<T> itemOne, final Item<T> itemTwo) {
+        return OTopKBuffer.this.compare(itemOne, itemTwo);
+      }
+    });
+
+    final List<T> result = new ArrayList<T>(items.size());
+    for (Item<T> item : items)
+      result.add(item.value);
+
+    return result;
+  }
+
+  private int compare(final Item<T> itemOne, final Item<T> itemTwo) {
+    final int result = comparator.compare(itemOne.value, itemTwo.value);
+    if (result != 0)
+      return result;
+
+    return itemOne.order < itemTwo.order ? -1 : (itemOne.order == itemTwo.order ? 0 : 1);
+  }
+
+  private void siftUp(int index) {
+    final Item<T> item = heap.get(index);
+
+    while (index > 0) {
+      final int parentIndex = (index - 1) >>> 1;
+      final Item<T> parent = heap.get(parentIndex);
+      if (compare(item, parent) <= 0)
+        break;
+
+      heap.set(index, parent);
+      index = parentIndex;
+    }
+
+    heap.set(index, item);
+  }
+
+  private void siftDown(int index) {
+    final Item<T> item = heap.get(index);
+    final int size = heap.size();
+
+    while (true) {
+      int childIndex = (index << 1) + 1;
+      if (childIndex >= size)
+        break;
+
+      if (childIndex + 1 < size && compare(heap.get(childIndex + 1), heap.get(childIndex)) > 0)
+        childIndex++;
+
+      final Item<T> child = heap.get(childIndex);
+      if (compare(item, child) >= 0)
+        break;
+
+      heap.set(index, child);
+      index = childIndex;
+    }
+
+    heap.set(index, item);
+  }
+
+  private static final class Item<T> {
+    private final T    value;
+    private final long order;
+
+    private Item(final T value, final long order) {
+      this.value = value;
+      this.order = order;
+    }
+  }
+}
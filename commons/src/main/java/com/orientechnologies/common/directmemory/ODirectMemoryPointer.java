@@ -1,5 +1,8 @@
 package com.orientechnologies.common.directmemory;
 
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+
 import com.orientechnologies.common.serialization.types.*;
 
 /**
@@ -7,6 +10,19 @@ import com.orientechnologies.common.serialization.types.*;
  * @since 10/19/13
  */
 public class ODirectMemoryPointer {
+  private static final Constructor<?> DIRECT_BUFFER_CONSTRUCTOR;
+  static {
+    Constructor<?> constructor;
+    try {
+      constructor = Class.forName("java.nio.DirectByteBuffer").getDeclaredConstructor(long.class, int.class);
+      constructor.setAccessible(true);
+    } catch (Throwable e) {
+      constructor = null;
+    }
+
+    DIRECT_BUFFER_CONSTRUCTOR = constructor;
+  }
+
   private final boolean       SAFE_MODE    = !Boolean.valueOf(System.getProperty("memory.directMemory.unsafeMode"));
 
   private final ODirectMemory directMemory = ODirectMemoryFactory.INSTANCE.directMemory();
@@ -131,6 +147,33 @@ public class ODirectMemoryPointer {
     directMemory.moveData(dataPointer + srcOffset, destPointer.getDataPointer() + destOffset, len);
   }
 
+  /**
+   * @return <code>true</code> if JVM allows to access allocated memory by {@link #asByteBuffer(long, int)}.
+   */
+  public static boolean isByteBufferViewSupported() {
+    return DIRECT_BUFFER_CONSTRUCTOR != null;
+  }
+
+  /**
+   * Creates direct {@link ByteBuffer} which shares memory with this pointer, so data can be passed to or from NIO channels without
+   * intermediate copy. Buffer should not be used once pointer is freed.
+   * 
+   * @return direct buffer or <code>null</code> if such buffers are not supported by JVM.
+   */
+  public ByteBuffer asByteBuffer(long offset, int length) {
+    if (SAFE_MODE)
+      rangeCheck(offset, length);
+
+    if (DIRECT_BUFFER_CONSTRUCTOR == null)
+      return null;
+
+    try {
+      return (ByteBuffer) DIRECT_BUFFER_CONSTRUCTOR.newInstance(dataPointer + offset, length);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
   private void rangeCheck(long offset, long size) {
     if (offset < 0)
       throw new ODirectMemoryViolationException("Negative offset was provided");
@@ -79,12 +79,20 @@ public enum OGlobalConfiguration {
   DISK_WRITE_CACHE_FLUSH_LOCK_TIMEOUT("storage.diskCache.writeCacheFlushLockTimeout",
       "Maximum amount of time till write cache will be wait before page flush in ms.", Integer.class, -1),
 
+  DISK_WRITE_CACHE_FLUSH_THREADS("storage.diskCache.writeCacheFlushThreads",
+      "Amount of threads which flush pages of write cache, pages of the same file are always flushed by the same thread",
+      Integer.class, 1),
+
   STORAGE_CONFIGURATION_SYNC_ON_UPDATE("storage.configuration.syncOnUpdate",
       "Should we perform force sync of storage configuration for each update", Boolean.class, true),
 
   STORAGE_COMPRESSION_METHOD("storage.compressionMethod", "Record compression method is used in storage."
       + " Possible values : gzip, nothing, snappy, snappy-native. Default is snappy.", String.class, "snappy"),
 
+  DISK_CACHE_PAGE_COMPRESSION("storage.diskCache.pageCompression", "Compression method which is applied to the pages of"
+      + " paginated storage when they are written to the disk. Possible values : gzip, nothing, snappy. Default is nothing.",
+      String.class, "nothing"),
+
   USE_WAL("storage.useWAL", "Whether WAL should be used in paginated storage", Boolean.class, true),
 
   WAL_SYNC_ON_PAGE_FLUSH("storage.wal.syncOnPageFlush", "Should we perform force sync during WAL page flush", Boolean.class, true),
@@ -99,17 +107,32 @@ public enum OGlobalConfiguration {
 
   WAL_COMMIT_TIMEOUT("storage.wal.commitTimeout", "Maximum interval between WAL commits (in ms.)", Integer.class, 1000),
 
+  WAL_SYNC_ON_COMMIT("storage.wal.syncOnCommit", "Whether transaction commit should wait till its records are flushed to the disk."
+      + " Concurrent commits are grouped and share single WAL flush.", Boolean.class, false),
+
   WAL_SHUTDOWN_TIMEOUT("storage.wal.shutdownTimeout", "Maximum wait interval between events when background flush thread"
       + " will receive shutdown command and when background flush will be stopped (in ms.)", Integer.class, 10000),
 
   WAL_FUZZY_CHECKPOINT_INTERVAL("storage.wal.fuzzyCheckpointInterval", "Interval between fuzzy checkpoints (in seconds)",
       Integer.class, 2592000),
 
+  WAL_RECOVERY_TARGET_SIZE("storage.wal.recoveryTargetSize", "Maximum amount of write ahead log (in megabytes) which should be"
+      + " replayed after crash. Oldest pages of write cache are flushed and fuzzy checkpoints are made in background to keep it"
+      + " under this limit, so log segments before the checkpoint are removed. 0 or negative value switches it off.",
+      Integer.class, 0),
+
+  WAL_RECOVERY_TARGET_TIME("storage.wal.recoveryTargetTime", "Maximum age (in seconds) of changes which are not flushed to the"
+      + " disk and should be restored from write ahead log after crash. 0 or negative value switches it off.", Integer.class, 0),
+
   WAL_REPORT_AFTER_OPERATIONS_DURING_RESTORE(
       "storage.wal.reportAfterOperationsDuringRestore",
       "Amount of processed log operations, after which status of data restore procedure will be printed 0 or negative value, means that status will not be printed",
       Integer.class, 10000),
 
+  WAL_RESTORE_THREADS("storage.wal.restoreThreads", "Amount of threads which apply page changes during data restore,"
+      + " changes of the same page are always applied by the same thread. 1 or less means that changes are applied by the thread"
+      + " which reads write ahead log", Integer.class, 1),
+
   WAL_READ_CACHE_SIZE("storage.wal.readCacheSize", "Size of WAL read cache in amount of pages", Integer.class, 1000),
 
   WAL_FUZZY_CHECKPOINT_SHUTDOWN_TIMEOUT("storage.wal.fuzzyCheckpointShutdownWait",
@@ -127,8 +150,35 @@ public enum OGlobalConfiguration {
   STORAGE_MAKE_FULL_CHECKPOINT_AFTER_CLUSTER_CREATE("storage.makeFullCheckpointAfterClusterCreate",
       "Indicates whether full checkpoint should be performed if storage was opened.", Boolean.class, true),
 
+  STORAGE_CONCURRENT_COMMIT("storage.concurrentCommit",
+      "Allows transactions which modify different clusters and indexes to be committed in parallel. "
+          + "Records of the transaction which is being committed stay locked till commit completes, so readers wait for them",
+      Boolean.class, false),
+
+  STORAGE_CONCURRENT_COMMIT_LOCK_TIMEOUT("storage.concurrentCommit.lockTimeout",
+      "Maximum time in milliseconds concurrently committed transaction waits for cluster of record added to it during commit, if"
+          + " the cluster precedes already locked ones. The transaction is rolled back on timeout and may be retried. 0 means"
+          + " default timeout of storage locks",
+      Integer.class, 1000),
+
   DISK_CACHE_PAGE_SIZE("storage.diskCache.pageSize", "Size of page of disk buffer in kilobytes", Integer.class, 64),
 
+  DISK_CACHE_IMPL("storage.diskCache.impl", "Implementation of disk cache which is used by paginated storage."
+      + " Possible values : 2q (2Q cache guarded by single lock), segmented (lock striped 2Q cache). Default is 2q.",
+      String.class, "2q"),
+
+  DISK_CACHE_SEGMENTS("storage.diskCache.segments", "Amount of independently locked segments of disk cache,"
+      + " used only by segmented disk cache implementation, is rounded up to the nearest power of two.", Integer.class, Runtime
+      .getRuntime().availableProcessors() * 4),
+
+  DISK_CACHE_READ_AHEAD_PAGES("storage.diskCache.readAheadPages",
+      "Amount of pages which are loaded in background once sequential read of file is detected, 0 disables read-ahead",
+      Integer.class, 0),
+
+  DISK_CACHE_DIRECT_READ("storage.diskCache.directRead",
+      "Read pages from the disk directly into off-heap memory of disk cache without intermediate heap buffers", Boolean.class,
+      false),
+
   PAGINATED_STORAGE_LOWEST_FREELIST_BOUNDARY("storage.lowestFreeListBound", "The minimal amount of free space (in kb)"
       + " in page which is tracked in paginated storage", Integer.class, 16),
 
@@ -262,6 +312,26 @@ public enum OGlobalConfiguration {
   INDEX_NOTUNIQUE_USE_SBTREE_CONTAINER_BY_DEFAULT("index.notunique.useSBTreeContainerByDefault",
       "Prefer SBTree based algorithm instead MVRBTree for storing sets of RID", Boolean.class, true),
 
+  INDEX_REBUILD_THREADS("index.rebuild.threads", "Amount of threads which scan clusters and extract keys during index rebuild,"
+      + " each thread scans its own clusters. 1 or less means that clusters are scanned by the thread which rebuilds the index",
+      Integer.class, Runtime.getRuntime().availableProcessors()),
+
+  INDEX_ONLINE_BUILD_TX_TIMEOUT("index.onlineBuild.txTimeout",
+      "Maximum time in milliseconds online index build waits for transactions which were begun before it, the build fails if they"
+          + " are not completed in this time", Integer.class, 60000),
+
+  INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE("index.bloomFilter.falsePositiveRate",
+      "Probability that lookup of absent key is not rejected by Bloom filter of index keys, is used by indexes which enable Bloom"
+          + " filter in their metadata without own rate", Float.class, 0.01f),
+
+  INDEX_BLOOM_FILTER_MAX_MEMORY("index.bloomFilter.maxMemory",
+      "Maximum amount of memory in kilobytes which Bloom filter of keys of single index may occupy, filter which does not fit into"
+          + " it stops rejecting lookups until index is reopened", Integer.class, 16384),
+
+  INDEX_BLOOM_FILTER_INITIAL_CAPACITY("index.bloomFilter.initialCapacity",
+      "Amount of keys Bloom filter of empty index is sized for, bigger segments are added to the filter when more keys are added",
+      Integer.class, 65536),
+
   // TREEMAP
   MVRBTREE_TIMEOUT("mvrbtree.timeout", "Maximum timeout to get lock against the OMVRB-Tree", Integer.class, 5000),
 
@@ -306,6 +376,22 @@ public enum OGlobalConfiguration {
       "Maximum size of value which can be put in SBTree without creation link to standalone page in bytes (40960 by default)",
       Integer.class, 40960),
 
+  SBTREE_BULK_LOAD("sbtree.bulkLoad",
+      "Whether SBTree index is built from sorted keys bottom-up during its creation and rebuild instead of insertion of keys one by one",
+      Boolean.class, true),
+
+  SBTREE_BULK_LOAD_FILL_FACTOR("sbtree.bulkLoadFillFactor", "Part of page of SBTree which is filled by entries during bulk load",
+      Float.class, 0.9f),
+
+  SBTREE_BULK_LOAD_SORT_BUFFER("sbtree.bulkLoadSortBuffer",
+      "Amount of index entries which are sorted in memory during bulk load of SBTree, the rest are sorted in temporary files",
+      Integer.class, 500000),
+
+  SBTREE_KEY_COMPRESSION("sbtree.keyCompression",
+      "Whether common part of keys of SBTree leaf bucket is stored only once per bucket and keys of non-leaf buckets are truncated to shortest separators of their children."
+          + " Leaf buckets written with compression use new page layout, so database can not be opened by versions which do not support it",
+      Boolean.class, false),
+
   SBTREEBONSAI_BUCKET_SIZE("sbtreebonsai.bucketSize",
       "Size of bucket in OSBTreeBonsai in kB. Contract: bucketSize < storagePageSize, storagePageSize % bucketSize == 0.",
       Integer.class, 2),
@@ -477,6 +563,24 @@ public enum OGlobalConfiguration {
   // COMMAND
   COMMAND_TIMEOUT("command.timeout", "Default timeout for commands expressed in milliseconds", Long.class, 0),
 
+  COMMAND_PARSED_CACHE_SIZE("command.parsedCache.size",
+      "Maximum number of distinct SQL statements which parsed conditions are kept per database for reuse. 0 = disabled",
+      Integer.class, 1000),
+
+  COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY("command.groupBy.maxGroupsInMemory",
+      "Maximum number of groups GROUP BY keeps in memory before they are moved to temporary files. Groups are moved also when free memory is low. -1 = no limit",
+      Integer.class, -1),
+
+  COMMAND_PARALLEL_SCAN_THREADS("command.parallelScan.threads",
+      "Amount of threads which load and filter records of class for SELECT with PARALLEL keyword, each thread scans its own ranges"
+          + " of cluster positions. 1 or less means that class is scanned by the thread which executes the query", Integer.class,
+      Runtime.getRuntime().availableProcessors()),
+
+  COMMAND_COMPILED_CONDITIONS("command.compiledConditions",
+      "Evaluates WHERE conditions through predicates compiled once per execution, which compare fields with constants without"
+          + " conversions and skip the right side of AND/OR when the result is already known. false evaluates the parsed conditions",
+      Boolean.class, true),
+
   // CLIENT
   CLIENT_CHANNEL_MIN_POOL("client.channel.minPool", "Minimum pool size", Integer.class, 1),
 
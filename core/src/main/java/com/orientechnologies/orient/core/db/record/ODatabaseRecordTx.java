@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.db.record;
 
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.orient.core.db.ODatabaseListener;
+import com.orientechnologies.orient.core.exception.OCommitDurabilityException;
 import com.orientechnologies.orient.core.exception.OTransactionBlockedException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
@@ -114,6 +115,11 @@ public class ODatabaseRecordTx extends ODatabaseRecordAbstract {
 
     try {
       currentTx.commit();
+    } catch (OCommitDurabilityException e) {
+      // TRANSACTION IS APPLIED AND VISIBLE, ONLY ITS DURABILITY IS NOT GUARANTEED, SO IT IS NOT ROLLED BACK AND LISTENERS ARE
+      // NOTIFIED ABOUT COMMIT
+      notifyAfterTxCommit();
+      throw e;
     } catch (RuntimeException e) {
       // WAKE UP ROLLBACK LISTENERS
       for (ODatabaseListener listener : underlying.browseListeners())
@@ -134,6 +140,12 @@ public class ODatabaseRecordTx extends ODatabaseRecordAbstract {
       throw e;
     }
 
+    notifyAfterTxCommit();
+
+    return this;
+  }
+
+  private void notifyAfterTxCommit() {
     // WAKE UP LISTENERS
     for (ODatabaseListener listener : underlying.browseListeners())
       try {
@@ -146,8 +158,6 @@ public class ODatabaseRecordTx extends ODatabaseRecordAbstract {
                 "Error after the transaction has been committed. The transaction remains valid. The exception caught was on execution of %s.onAfterTxCommit()",
                 t, OTransactionBlockedException.class, listener.getClass());
       }
-
-    return this;
   }
 
   public ODatabaseRecord rollback() {
@@ -174,6 +184,19 @@ public class ODatabaseRecordTx extends ODatabaseRecordAbstract {
     return this;
   }
 
+  @Override
+  public void close() {
+    // TRANSACTION LEFT OPEN IS DISCARDED, OTHERWISE IT STAYS ACTIVE FOREVER AND BLOCKS ONLINE INDEX BUILDS OF THE STORAGE
+    if (currentTx != null && currentTx.isActive())
+      try {
+        currentTx.close();
+      } catch (Exception e) {
+        OLogManager.instance().error(this, "Error on closing the active transaction of database '%s'", e, getName());
+      }
+
+    super.close();
+  }
+
   public OTransaction getTransaction() {
     return currentTx;
   }
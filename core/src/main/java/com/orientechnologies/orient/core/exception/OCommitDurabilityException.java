@@ -0,0 +1,30 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.exception;
+
+/**
+ * Thrown by commit when transaction is applied to the storage and is visible to other transactions, but its records could not be
+ * flushed to the write ahead log, so the transaction may be lost on crash. Unlike other commit errors the transaction is not rolled
+ * back and should not be retried.
+ */
+public class OCommitDurabilityException extends OStorageException {
+
+	private static final long	serialVersionUID	= 6142217839318302470L;
+
+	public OCommitDurabilityException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
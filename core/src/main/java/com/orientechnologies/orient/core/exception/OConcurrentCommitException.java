@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.exception;
+
+import com.orientechnologies.common.concur.ONeedRetryException;
+
+/**
+ * Thrown when transaction could not lock clusters of records added to it during commit because they are locked by concurrently
+ * committed transaction. The transaction is rolled back and may be executed again.
+ */
+public class OConcurrentCommitException extends ONeedRetryException {
+
+	private static final long	serialVersionUID	= -3297166384512092145L;
+
+	public OConcurrentCommitException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.OMultiValueChangeEvent;
 import com.orientechnologies.orient.core.db.record.OMultiValueChangeTimeLine;
@@ -42,6 +43,7 @@ import com.orientechnologies.orient.core.exception.ORecordNotFoundException;
 import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 import com.orientechnologies.orient.core.version.ORecordVersion;
 
 /**
@@ -94,9 +96,9 @@ public class OClassIndexManager extends ODocumentHookAbstract {
         if (key instanceof Collection) {
           for (final Object keyItem : (Collection<?>) key)
             if (keyItem != null)
-              index.put(keyItem, rid);
+              putIndexKey(index, keyItem, rid);
         } else if (key != null)
-          index.put(key, rid);
+          putIndexKey(index, key, rid);
       }
 
     }
@@ -286,10 +288,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
           final Object newValue = indexDefinition.getDocumentValueToIndex(iRecord);
 
           if (origValue != null)
-            index.remove(origValue, iRecord);
+            removeIndexKey(index, origValue, iRecord);
 
           if (newValue != null)
-            index.put(newValue, iRecord.placeholder());
+            putIndexKey(index, newValue, iRecord.placeholder());
         } else {
           final OMultiValueChangeTimeLine<?, ?> multiValueChangeTimeLine = iRecord.getCollectionTimeLine(multiValueField);
           if (multiValueChangeTimeLine == null) {
@@ -312,10 +314,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
               }
 
               for (final Object keyToRemove : keysToRemove.keySet())
-                index.remove(keyToRemove, iRecord);
+                removeIndexKey(index, keyToRemove, iRecord);
 
               for (final Object keyToAdd : keysToAdd.keySet())
-                index.put(keyToAdd, iRecord.placeholder());
+                putIndexKey(index, keyToAdd, iRecord.placeholder());
             } else {
               final OTrackedMultiValue fieldValue = iRecord.field(multiValueField);
               final Object restoredMultiValue = fieldValue
@@ -357,10 +359,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
       }
 
       for (final Object keyToRemove : keysToRemove.keySet())
-        index.remove(keyToRemove, iRecord);
+        removeIndexKey(index, keyToRemove, iRecord);
 
       for (final Object keyToAdd : keysToAdd.keySet())
-        index.put(keyToAdd, iRecord.placeholder());
+        putIndexKey(index, keyToAdd, iRecord.placeholder());
 
     } else {
       final Object origValue = indexDefinition.createValue(iRecord.getOriginalValue(indexField));
@@ -381,13 +383,13 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
       for (final Object valueToRemove : valuesToRemove) {
         if (valueToRemove != null) {
-          index.remove(valueToRemove, iRecord);
+          removeIndexKey(index, valueToRemove, iRecord);
         }
       }
 
       for (final Object valueToAdd : valuesToAdd) {
         if (valueToAdd != null) {
-          index.put(valueToAdd, iRecord);
+          putIndexKey(index, valueToAdd, iRecord);
         }
       }
     } else {
@@ -395,10 +397,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
       if (newValue instanceof Collection) {
         for (final Object newValueItem : (Collection<?>) newValue) {
-          index.put(newValueItem, iRecord.placeholder());
+          putIndexKey(index, newValueItem, iRecord.placeholder());
         }
       } else if (newValue != null) {
-        index.put(newValue, iRecord.placeholder());
+        putIndexKey(index, newValue, iRecord.placeholder());
       }
     }
   }
@@ -447,10 +449,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     if (origValue instanceof Collection) {
       for (final Object valueItem : (Collection<?>) origValue) {
         if (valueItem != null)
-          index.remove(valueItem, iRecord);
+          removeIndexKey(index, valueItem, iRecord);
       }
     } else if (origValue != null) {
-      index.remove(origValue, iRecord);
+      removeIndexKey(index, origValue, iRecord);
     }
   }
 
@@ -502,6 +504,10 @@ public class OClassIndexManager extends ODocumentHookAbstract {
 
   private static void checkIndexedPropertiesOnCreation(final ODocument iRecord, final Collection<OIndex<?>> iIndexes) {
     for (final OIndex<?> index : iIndexes) {
+      // INDEX WHICH IS BUILT ONLINE CHECKS ITS CONSTRAINTS WHEN LOGGED CHANGES ARE APPLIED
+      if (index.getInternal().isBuildingOnline())
+        continue;
+
       final Object key = index.getDefinition().getDocumentValueToIndex(iRecord);
       if (key instanceof Collection) {
         for (final Object keyItem : (Collection<?>) key) {
@@ -521,6 +527,9 @@ public class OClassIndexManager extends ODocumentHookAbstract {
       return;
 
     for (final OIndex<?> index : iIndexes) {
+      if (index.getInternal().isBuildingOnline())
+        continue;
+
       final OIndexDefinition indexDefinition = index.getDefinition();
       final List<String> indexFields = indexDefinition.getFields();
       for (final String indexField : indexFields) {
@@ -541,6 +550,29 @@ public class OClassIndexManager extends ODocumentHookAbstract {
     }
   }
 
+  private static void putIndexKey(final OIndex<?> index, final Object key, final OIdentifiable value) {
+    if (!logOnlineBuildChange(index, OPERATION.PUT, key, value))
+      index.put(key, value);
+  }
+
+  private static void removeIndexKey(final OIndex<?> index, final Object key, final OIdentifiable value) {
+    if (!logOnlineBuildChange(index, OPERATION.REMOVE, key, value))
+      index.remove(key, value);
+  }
+
+  /**
+   * Stores change in side log of index which is built online. Changes done inside of transaction are not logged here, they are
+   * logged when transaction is committed to the index.
+   */
+  private static boolean logOnlineBuildChange(final OIndex<?> index, final OPERATION operation, final Object key,
+      final OIdentifiable value) {
+    final OIndexInternal<?> indexInternal = index.getInternal();
+    if (!indexInternal.isBuildingOnline() || ODatabaseRecordThreadLocal.INSTANCE.get().getTransaction().isActive())
+      return false;
+
+    return indexInternal.logOnlineBuildChange(operation, key, value);
+  }
+
   private static ODocument checkForLoading(final ODocument iRecord) {
     if (iRecord.getInternalStatus() == ORecordElement.STATUS.NOT_LOADED) {
       try {
@@ -38,6 +38,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
  * <li>NOTUNIQUE</li>
  * <li>FULLTEXT</li>
  * <li>DICTIONARY</li>
+ * <li>FULLTEXT_RANKED</li>
  * </ul>
  */
 public class ODefaultIndexFactory implements OIndexFactory {
@@ -56,6 +57,7 @@ public class ODefaultIndexFactory implements OIndexFactory {
     types.add(OClass.INDEX_TYPE.NOTUNIQUE.toString());
     types.add(OClass.INDEX_TYPE.FULLTEXT.toString());
     types.add(OClass.INDEX_TYPE.DICTIONARY.toString());
+    types.add(OClass.INDEX_TYPE.FULLTEXT_RANKED.toString());
     TYPES = Collections.unmodifiableSet(types);
   }
 
@@ -66,6 +68,7 @@ public class ODefaultIndexFactory implements OIndexFactory {
    * <li>NOTUNIQUE</li>
    * <li>FULLTEXT</li>
    * <li>DICTIONARY</li>
+   * <li>FULLTEXT_RANKED</li>
    * </ul>
    */
   public Set<String> getTypes() {
@@ -117,6 +120,9 @@ public class ODefaultIndexFactory implements OIndexFactory {
           valueContainerAlgorithm);
     } else if (OClass.INDEX_TYPE.DICTIONARY.toString().equals(indexType)) {
       return new OIndexDictionary(indexType, MVRBTREE_ALGORITHM, new OMVRBTreeIndexEngine<OIdentifiable>(), valueContainerAlgorithm);
+    } else if (OClass.INDEX_TYPE.FULLTEXT_RANKED.toString().equals(indexType)) {
+      return new OIndexFullTextRanked(indexType, MVRBTREE_ALGORITHM, new OMVRBTreeIndexEngine<Set<OIdentifiable>>(),
+          valueContainerAlgorithm);
     }
 
     throw new OConfigurationException("Unsupported type : " + indexType);
@@ -131,6 +137,9 @@ public class ODefaultIndexFactory implements OIndexFactory {
       return new OIndexFullText(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(), valueContainerAlgorithm);
     } else if (OClass.INDEX_TYPE.DICTIONARY.toString().equals(indexType)) {
       return new OIndexDictionary(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<OIdentifiable>(), valueContainerAlgorithm);
+    } else if (OClass.INDEX_TYPE.FULLTEXT_RANKED.toString().equals(indexType)) {
+      return new OIndexFullTextRanked(indexType, SBTREE_ALGORITHM, new OSBTreeIndexEngine<Set<OIdentifiable>>(),
+          valueContainerAlgorithm);
     }
 
     throw new OConfigurationException("Unsupported type : " + indexType);
@@ -17,8 +17,11 @@ package com.orientechnologies.orient.core.index;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -27,9 +30,25 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.concur.OTimeoutException;
 import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.concur.resource.OSharedResourceAdaptiveExternal;
 import com.orientechnologies.common.listener.OProgressListener;
@@ -38,6 +57,7 @@ import com.orientechnologies.orient.core.annotation.ODocumentInstance;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.ORecordElement;
@@ -47,7 +67,9 @@ import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OTransactionException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.engine.OMVRBTreeIndexEngine;
+import com.orientechnologies.orient.core.index.engine.OSBTreeIndexEngine;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.index.sbtree.OSBTreeBulkLoadSorter;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.ORecord;
@@ -59,6 +81,7 @@ import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
 import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
+import com.orientechnologies.orient.core.tx.OTransactionOptimistic;
 
 /**
  * Handles indexing when records change.
@@ -72,6 +95,21 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
   protected static final String        CONFIG_MAP_RID   = "mapRid";
   protected static final String        CONFIG_CLUSTERS  = "clusters";
 
+  private static final int             REBUILD_BATCH_SIZE        = 1000;
+  private static final long            REBUILD_PROGRESS_INTERVAL = 100;
+
+  private static final Comparator<Map.Entry<Object, ORID>> REBUILD_BATCH_COMPARATOR = new Comparator<Map.Entry<Object, ORID>>() {
+    @Override
+    public int compare(Map.Entry<Object, ORID> entryOne, Map.Entry<Object, ORID> entryTwo) {
+      if (entryOne.getKey() == null)
+        return entryTwo.getKey() == null ? 0 : -1;
+      if (entryTwo.getKey() == null)
+        return 1;
+
+      return ODefaultComparator.INSTANCE.compare(entryOne.getKey(), entryTwo.getKey());
+    }
+  };
+
   private String                       name;
   protected String                     type;
   private String                       algorithm;
@@ -89,6 +127,9 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   private Thread                       rebuildThread    = null;
 
+  private final Object                 onlineBuildLock  = new Object();
+  private volatile List<OnlineBuildChange> onlineBuildChanges = null;
+
   private ThreadLocal<IndexTxSnapshot> txSnapshot       = new ThreadLocal<IndexTxSnapshot>() {
                                                           @Override
                                                           protected IndexTxSnapshot initialValue() {
@@ -119,6 +160,30 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     return key;
   }
 
+  /**
+   * Applies collation to the keys and sorts them in ascending order, so index engine may look them up in a single pass. Null keys
+   * can not be sorted, so they are skipped here and should be looked up by {@link OIndexEngine#get(Object)}, see
+   * {@link #containsNullKey(Collection)}.
+   */
+  protected List<Object> getSortedCollatingKeys(final Collection<?> keys) {
+    final List<Object> sortedKeys = new ArrayList<Object>(keys.size());
+    for (Object key : keys) {
+      if (key != null)
+        sortedKeys.add(getCollatingValue(key));
+    }
+
+    Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
+    return sortedKeys;
+  }
+
+  protected static boolean containsNullKey(final Collection<?> keys) {
+    for (Object key : keys)
+      if (key == null)
+        return true;
+
+    return false;
+  }
+
   public void flush() {
     acquireSharedLock();
     try {
@@ -138,6 +203,14 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     }
   }
 
+  /**
+   * @return Definition of keys which are stored in index engine. Usually they are keys of index, but indexes which transform keys
+   *         before they are stored (like full-text indexes which split text into terms) override this method.
+   */
+  protected OIndexDefinition getEngineKeyDefinition() {
+    return indexDefinition;
+  }
+
   /**
    * Creates the index.
    * 
@@ -162,7 +235,7 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
       else
         this.clustersToIndex = new HashSet<String>(clustersToIndex);
 
-      indexEngine.create(this.name, indexDefinition, clusterIndexName, valueSerializer, isAutomatic());
+      indexEngine.create(this.name, getEngineKeyDefinition(), clusterIndexName, valueSerializer, isAutomatic());
 
       if (rebuild)
         rebuild(progressListener);
@@ -183,6 +256,40 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     return this;
   }
 
+  /**
+   * Enables Bloom filter of index engine if it is requested by index metadata, should be called before index is created or loaded.
+   * 
+   * @see OIndexManagerShared#METADATA_BLOOM_FILTER
+   */
+  public void configureBloomFilter(final ODocument metadata) {
+    if (metadata == null)
+      return;
+
+    final Object bloomFilter = metadata.field(OIndexManagerShared.METADATA_BLOOM_FILTER);
+    if (bloomFilter == null || Boolean.FALSE.equals(bloomFilter))
+      return;
+
+    double falsePositiveRate = OGlobalConfiguration.INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE.getValueAsFloat();
+    long maxMemory = OGlobalConfiguration.INDEX_BLOOM_FILTER_MAX_MEMORY.getValueAsLong();
+
+    if (bloomFilter instanceof ODocument) {
+      final Number rate = ((ODocument) bloomFilter).field(OIndexManagerShared.METADATA_BLOOM_FILTER_FALSE_POSITIVE_RATE);
+      if (rate != null)
+        falsePositiveRate = rate.doubleValue();
+
+      final Number memory = ((ODocument) bloomFilter).field(OIndexManagerShared.METADATA_BLOOM_FILTER_MAX_MEMORY);
+      if (memory != null)
+        maxMemory = memory.longValue();
+    } else if (!Boolean.TRUE.equals(bloomFilter))
+      throw new OIndexException("Field '" + OIndexManagerShared.METADATA_BLOOM_FILTER
+          + "' of index metadata should be either boolean or document but was '" + bloomFilter + "'");
+
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+      throw new OIndexException("False positive rate of Bloom filter should be between 0 and 1 but was " + falsePositiveRate);
+
+    indexEngine.enableBloomFilter(falsePositiveRate, maxMemory * 1024);
+  }
+
   public boolean loadFromConfiguration(final ODocument config) {
     acquireExclusiveLock();
     try {
@@ -198,8 +305,10 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
       final ORID rid = config.field(CONFIG_MAP_RID, ORID.class);
 
+      configureBloomFilter(config.<ODocument> field("metadata"));
+
       try {
-        indexEngine.load(rid, name, indexDefinition, isAutomatic());
+        indexEngine.load(rid, name, getEngineKeyDefinition(), isAutomatic());
       } catch (Exception e) {
         if (onCorruptionRepairDatabase(null, "load", "Index will be rebuilt")) {
           if (isAutomatic() && getDatabase().getStorage() instanceof OStorageEmbedded)
@@ -207,7 +316,8 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
             OLogManager.instance().warn(this, "Cannot load index '%s' from storage (rid=%s): rebuilt it from scratch", getName(),
                 rid);
           try {
-            rebuild();
+            // INDEX MANAGER IS BEING LOADED, SO WORKERS CAN NOT OPEN OWN DATABASE INSTANCES TO SCAN CLUSTERS IN PARALLEL
+            rebuild(new OIndexRebuildOutputListener(this), false);
           } catch (Throwable t) {
             OLogManager.instance().error(this,
                 "Cannot rebuild index '%s' from storage (rid=%s) because '" + t + "'. The index will be removed in configuration",
@@ -218,6 +328,19 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         }
       }
 
+      if (Boolean.TRUE.equals(config.field(OIndexInternal.CONFIG_ONLINE_BUILD))) {
+        OLogManager.instance().warn(this, "Online build of index '%s' was not completed: rebuilt it from scratch", getName());
+        try {
+          rebuild(new OIndexRebuildOutputListener(this), false);
+          configuration.removeField(OIndexInternal.CONFIG_ONLINE_BUILD);
+        } catch (Throwable t) {
+          OLogManager.instance().error(this,
+              "Cannot rebuild index '%s' because '" + t + "'. The index will be removed in configuration", getName());
+          // REMOVE IT
+          return false;
+        }
+      }
+
       return true;
     } finally {
       releaseExclusiveLock();
@@ -512,8 +635,14 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   /**
    * Populates the index with all the existent records. Uses the massive insert intent to speed up and keep the consumed memory low.
+   * Clusters are scanned in parallel by {@link OGlobalConfiguration#INDEX_REBUILD_THREADS} threads if index is stored in embedded
+   * storage.
    */
   public long rebuild(final OProgressListener iProgressListener) {
+    return rebuild(iProgressListener, true);
+  }
+
+  private long rebuild(final OProgressListener iProgressListener, final boolean parallelScanAllowed) {
     long documentIndexed = 0;
 
     final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
@@ -525,97 +654,491 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         rebuildThread = Thread.currentThread();
         rebuilding = true;
 
+        documentIndexed = populate(iProgressListener, parallelScanAllowed);
+
+        if (iProgressListener != null)
+          iProgressListener.onCompletition(this, true);
+
+      } catch (final Exception e) {
+        if (iProgressListener != null)
+          iProgressListener.onCompletition(this, false);
+
         try {
           indexEngine.clear();
-        } catch (Exception e) {
+        } catch (Exception e2) {
           // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
         }
 
-        int documentNum = 0;
-        long documentTotal = 0;
+        throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
 
-        for (final String cluster : clustersToIndex)
-          documentTotal += getDatabase().countClusterElements(cluster);
+      } finally {
+        rebuilding = false;
+        rebuildThread = null;
 
-        if (iProgressListener != null)
-          iProgressListener.onBegin(this, documentTotal);
+        if (intentInstalled)
+          getDatabase().declareIntent(null);
 
-        for (final String clusterName : clustersToIndex)
-          try {
-            for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
-              if (Thread.interrupted())
-                throw new OCommandExecutionException("The index rebuild has been interrupted");
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
 
-              if (record instanceof ODocument) {
-                final ODocument doc = (ODocument) record;
+    return documentIndexed;
+  }
 
-                if (indexDefinition == null)
-                  throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
-                      + indexDefinition + ")");
+  @Override
+  public void prepareOnlineBuild() {
+    synchronized (onlineBuildLock) {
+      onlineBuildChanges = new ArrayList<OnlineBuildChange>();
+      rebuilding = true;
+    }
+  }
 
-                final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+  @Override
+  public long buildOnline(final OProgressListener iProgressListener) {
+    if (!isBuildingOnline())
+      throw new OIndexException("Index '" + name + "' is not prepared for online build");
 
-                if (fieldValue != null) {
-                  try {
-                    if (fieldValue instanceof Collection) {
-                      for (final Object fieldValueItem : (Collection<?>) fieldValue) {
-                        put(fieldValueItem, doc);
-                      }
-                    } else
-                      put(fieldValue, doc);
-                  } catch (OIndexException e) {
-                    OLogManager.instance().error(
-                        this,
-                        "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
-                            + " Rebuild will continue from this point.", e, fieldValue, doc.getIdentity());
-                  }
+    final long documentIndexed;
+    final boolean intentInstalled = getDatabase().declareIntent(new OIntentMassiveInsert());
+    try {
+      rebuildThread = Thread.currentThread();
 
-                  ++documentIndexed;
+      // RECORDS SAVED BY TRANSACTIONS WHICH WERE BEGUN BEFORE INDEX BECAME VISIBLE HAVE NO CHANGES OF THIS INDEX, SO THE SCAN
+      // STARTS WHEN SUCH TRANSACTIONS ARE COMPLETED AND FINDS THEIR RECORDS
+      try {
+        OTransactionOptimistic.waitForActiveTransactions(getDatabase().getStorage(),
+            OGlobalConfiguration.INDEX_ONLINE_BUILD_TX_TIMEOUT.getValueAsInteger());
+      } catch (OTimeoutException e) {
+        throw new OIndexException("Online build of index '" + name + "' cannot start: " + e.getMessage(), e);
+      }
+
+      // THE START POINT IS THE MOMENT WHEN SIDE LOG WAS CREATED, ALL CHANGES DONE AFTER IT ARE REPLAYED OVER SCANNED RECORDS
+      documentIndexed = populate(iProgressListener, true);
+
+      // CATCH UP WITHOUT BLOCKING OF WRITERS UNTIL SIDE LOG BECOMES SHORT
+      List<OnlineBuildChange> changes;
+      do {
+        synchronized (onlineBuildLock) {
+          changes = onlineBuildChanges;
+          onlineBuildChanges = new ArrayList<OnlineBuildChange>();
+        }
+
+        applyOnlineBuildChanges(changes);
+      } while (changes.size() > REBUILD_BATCH_SIZE);
+
+      // INDEX LOCK IS ACQUIRED BEFORE LOG LOCK, THE SAME ORDER IS USED BY TRANSACTIONS WHICH ARE COMMITTED TO THE INDEX
+      acquireExclusiveLock();
+      try {
+        synchronized (onlineBuildLock) {
+          applyOnlineBuildChanges(onlineBuildChanges);
+
+          onlineBuildChanges = null;
+          rebuilding = false;
+          rebuildThread = null;
+        }
+      } finally {
+        releaseExclusiveLock();
+      }
+
+      if (iProgressListener != null)
+        iProgressListener.onCompletition(this, true);
+
+    } catch (final Exception e) {
+      if (iProgressListener != null)
+        iProgressListener.onCompletition(this, false);
+
+      // INDEX STAYS IN REBUILDING STATE, SO IT IS NOT USED BY QUERIES UNTIL IT IS REMOVED OR REBUILT
+      synchronized (onlineBuildLock) {
+        onlineBuildChanges = null;
+        rebuildThread = null;
+      }
+
+      try {
+        indexEngine.clear();
+      } catch (Exception e2) {
+        // IGNORE EXCEPTION: CONTENT OF THE INDEX IS NOT VALID ANYWAY
+      }
+
+      throw new OIndexException("Error on online build of the index for clusters: " + clustersToIndex, e);
+    } finally {
+      if (intentInstalled)
+        getDatabase().declareIntent(null);
+    }
+
+    return documentIndexed;
+  }
+
+  @Override
+  public boolean isBuildingOnline() {
+    return onlineBuildChanges != null;
+  }
+
+  @Override
+  public boolean logOnlineBuildChange(final OPERATION operation, final Object key, final OIdentifiable value) {
+    synchronized (onlineBuildLock) {
+      if (onlineBuildChanges == null)
+        return false;
+
+      onlineBuildChanges.add(new OnlineBuildChange(operation, key, value != null ? value.getIdentity() : null));
+      return true;
+    }
+  }
+
+  /**
+   * Applies logged changes to the index. Violation of index constraints, for example duplicated key of unique index which was not
+   * checked while the index was built, fails the build.
+   */
+  private void applyOnlineBuildChanges(final List<OnlineBuildChange> changes) {
+    for (OnlineBuildChange change : changes)
+      switch (change.operation) {
+      case PUT:
+        put(change.key, change.value);
+        break;
+      case REMOVE:
+        if (change.value == null)
+          remove(change.key);
+        else
+          remove(change.key, change.value);
+        break;
+      case CLEAR:
+        clear();
+        break;
+      }
+  }
+
+  /**
+   * Clears the index and fills it by keys of all records of indexed clusters, caller is responsible for locking of the index.
+   */
+  private long populate(final OProgressListener iProgressListener, final boolean parallelScanAllowed) throws Exception {
+    long documentIndexed = 0;
+
+    try {
+      indexEngine.clear();
+    } catch (Exception e) {
+      // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
+    }
+
+    int documentNum = 0;
+    long documentTotal = 0;
+
+    for (final String cluster : clustersToIndex)
+      documentTotal += getDatabase().countClusterElements(cluster);
+
+    if (iProgressListener != null)
+      iProgressListener.onBegin(this, documentTotal);
+
+    final int rebuildThreads = Math.min(OGlobalConfiguration.INDEX_REBUILD_THREADS.getValueAsInteger(), clustersToIndex.size());
+    final boolean parallelScan = parallelScanAllowed && rebuildThreads > 1
+        && getDatabase().getStorage() instanceof OStorageEmbedded;
+
+    if (parallelScan && indexDefinition == null)
+      throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
+          + indexDefinition + ")");
+
+    if (indexEngine instanceof OSBTreeIndexEngine && isBulkLoadSupported()
+        && OGlobalConfiguration.SBTREE_BULK_LOAD.getValueAsBoolean()) {
+      if (parallelScan)
+        documentIndexed = parallelBulkLoad(iProgressListener, documentTotal, rebuildThreads);
+      else
+        documentIndexed = bulkLoad(iProgressListener, documentTotal);
+    } else if (parallelScan)
+      documentIndexed = parallelPut(iProgressListener, documentTotal, rebuildThreads);
+    else {
+      for (final String clusterName : clustersToIndex)
+        try {
+          for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
+            if (Thread.interrupted())
+              throw new OCommandExecutionException("The index rebuild has been interrupted");
+
+            if (record instanceof ODocument) {
+              final ODocument doc = (ODocument) record;
+
+              if (indexDefinition == null)
+                throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
+                    + indexDefinition + ")");
+
+              final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+              if (fieldValue != null) {
+                try {
+                  if (fieldValue instanceof Collection) {
+                    for (final Object fieldValueItem : (Collection<?>) fieldValue) {
+                      put(fieldValueItem, doc);
+                    }
+                  } else
+                    put(fieldValue, doc);
+                } catch (OIndexException e) {
+                  OLogManager.instance().error(
+                      this,
+                      "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
+                          + " Rebuild will continue from this point.", e, fieldValue, doc.getIdentity());
                 }
-              }
-              documentNum++;
 
-              if (iProgressListener != null)
-                iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+                ++documentIndexed;
+              }
             }
-          } catch (NoSuchElementException e) {
-            // END OF CLUSTER REACHED, IGNORE IT
+            documentNum++;
+
+            if (iProgressListener != null)
+              iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
           }
+        } catch (NoSuchElementException e) {
+          // END OF CLUSTER REACHED, IGNORE IT
+        }
+    }
 
-        if (indexEngine instanceof OMVRBTreeIndexEngine)
-          flush();
+    if (indexEngine instanceof OMVRBTreeIndexEngine)
+      flush();
 
-        unload();
+    unload();
 
-        if (iProgressListener != null)
-          iProgressListener.onCompletition(this, true);
+    return documentIndexed;
+  }
 
-      } catch (final Exception e) {
-        if (iProgressListener != null)
-          iProgressListener.onCompletition(this, false);
+  /**
+   * Populates the index by bulk load. Keys of all records are sorted first, then records indexed by the same key are merged into
+   * single value and entries are loaded into the index engine in ascending order of their keys.
+   */
+  private long bulkLoad(final OProgressListener iProgressListener, final long documentTotal) {
+    final OSBTreeIndexEngine<T> sbTreeIndexEngine = (OSBTreeIndexEngine<T>) indexEngine;
+    final OSBTreeBulkLoadSorter<Object> sorter = sbTreeIndexEngine.createBulkLoadSorter();
+    try {
+      long documentIndexed = 0;
+      int documentNum = 0;
 
+      for (final String clusterName : clustersToIndex)
         try {
-          indexEngine.clear();
-        } catch (Exception e2) {
-          // IGNORE EXCEPTION: IF THE REBUILD WAS LAUNCHED IN CASE OF RID INVALID CLEAR ALWAYS GOES IN ERROR
+          for (final ORecord<?> record : getDatabase().browseCluster(clusterName)) {
+            if (Thread.interrupted())
+              throw new OCommandExecutionException("The index rebuild has been interrupted");
+
+            if (record instanceof ODocument) {
+              final ODocument doc = (ODocument) record;
+
+              if (indexDefinition == null)
+                throw new OConfigurationException("Index '" + name + "' cannot be rebuilt because has no a valid definition ("
+                    + indexDefinition + ")");
+
+              final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+              if (fieldValue != null) {
+                if (fieldValue instanceof Collection) {
+                  for (final Object fieldValueItem : (Collection<?>) fieldValue)
+                    if (fieldValueItem != null)
+                      sorter.add(getCollatingValue(fieldValueItem), doc.getIdentity());
+                } else
+                  sorter.add(getCollatingValue(fieldValue), doc.getIdentity());
+
+                ++documentIndexed;
+              }
+            }
+            documentNum++;
+
+            if (iProgressListener != null)
+              iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+          }
+        } catch (NoSuchElementException e) {
+          // END OF CLUSTER REACHED, IGNORE IT
         }
 
-        throw new OIndexException("Error on rebuilding the index for clusters: " + clustersToIndex, e);
+      sbTreeIndexEngine.bulkLoad(new BulkLoadEntriesIterator(sorter.sortedIterator()));
 
-      } finally {
-        rebuilding = false;
-        rebuildThread = null;
+      return documentIndexed;
+    } finally {
+      sorter.close();
+    }
+  }
 
-        if (intentInstalled)
-          getDatabase().declareIntent(null);
+  /**
+   * Populates the index by bulk load like {@link #bulkLoad(OProgressListener, long)}, but clusters are scanned by several workers.
+   * Each worker extracts keys into its own sorter and sorts them when scan is completed, sorted keys of all workers are merged by
+   * the rebuild thread during load.
+   */
+  private long parallelBulkLoad(final OProgressListener iProgressListener, final long documentTotal, final int threads)
+      throws InterruptedException, ExecutionException {
+    final OSBTreeIndexEngine<T> sbTreeIndexEngine = (OSBTreeIndexEngine<T>) indexEngine;
+    final int sortBuffer = Math.max(OGlobalConfiguration.SBTREE_BULK_LOAD_SORT_BUFFER.getValueAsInteger() / threads, 1);
 
-        releaseExclusiveLock();
+    final String databaseURL = getDatabase().getURL();
+    final Queue<String> clusters = new ConcurrentLinkedQueue<String>(clustersToIndex);
+    final AtomicLong documentNum = new AtomicLong();
+
+    final List<OSBTreeBulkLoadSorter<Object>> sorters = new ArrayList<OSBTreeBulkLoadSorter<Object>>(threads);
+    final List<Iterator<Map.Entry<Object, OIdentifiable>>> sortedIterators = Collections
+        .synchronizedList(new ArrayList<Iterator<Map.Entry<Object, OIdentifiable>>>(threads));
+    final List<Future<Long>> workers = new ArrayList<Future<Long>>(threads);
+
+    final ExecutorService executor = createRebuildExecutor(threads);
+    try {
+      for (int i = 0; i < threads; i++) {
+        final OSBTreeBulkLoadSorter<Object> sorter = sbTreeIndexEngine.createBulkLoadSorter(sortBuffer);
+        sorters.add(sorter);
+
+        workers.add(executor.submit(new RebuildWorker(databaseURL, clusters, documentNum) {
+          @Override
+          protected void addKey(Object key, ORID rid) {
+            // INDEX IS LOCKED BY REBUILD THREAD, SO DEFINITION IS ACCESSED DIRECTLY INSTEAD OF getCollatingValue()
+            if (key != null)
+              sorter.add(indexDefinition.getCollate().transform(key), rid);
+          }
+
+          @Override
+          protected void scanCompleted() {
+            sortedIterators.add(sorter.sortedIterator());
+          }
+        }));
+      }
+
+      long documentIndexed = 0;
+      for (Future<Long> worker : workers) {
+        while (true)
+          try {
+            documentIndexed += worker.get(REBUILD_PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+            break;
+          } catch (TimeoutException e) {
+            reportRebuildProgress(iProgressListener, documentNum.get(), documentTotal);
+          }
       }
+
+      reportRebuildProgress(iProgressListener, documentNum.get(), documentTotal);
+
+      sbTreeIndexEngine.bulkLoad(new BulkLoadEntriesIterator(OSBTreeBulkLoadSorter.merge(sortedIterators)));
+
+      return documentIndexed;
     } finally {
-      modificationLock.releaseModificationLock();
+      stopRebuildExecutor(executor);
+
+      for (OSBTreeBulkLoadSorter<Object> sorter : sorters)
+        sorter.close();
     }
+  }
 
-    return documentIndexed;
+  /**
+   * Populates the index by ordinary puts, but clusters are scanned by several workers. Workers pass extracted keys to the rebuild
+   * thread in batches, each batch is sorted by key, so pages of tree based indexes are accessed in order.
+   */
+  private long parallelPut(final OProgressListener iProgressListener, final long documentTotal, final int threads)
+      throws InterruptedException, ExecutionException {
+    final String databaseURL = getDatabase().getURL();
+    final Queue<String> clusters = new ConcurrentLinkedQueue<String>(clustersToIndex);
+    final AtomicLong documentNum = new AtomicLong();
+
+    final BlockingQueue<List<Map.Entry<Object, ORID>>> batches = new ArrayBlockingQueue<List<Map.Entry<Object, ORID>>>(
+        threads * 2);
+    final List<Future<Long>> workers = new ArrayList<Future<Long>>(threads);
+
+    final ExecutorService executor = createRebuildExecutor(threads);
+    try {
+      for (int i = 0; i < threads; i++)
+        workers.add(executor.submit(new RebuildWorker(databaseURL, clusters, documentNum) {
+          private List<Map.Entry<Object, ORID>> batch = new ArrayList<Map.Entry<Object, ORID>>(REBUILD_BATCH_SIZE);
+
+          @Override
+          protected void addKey(Object key, ORID rid) throws InterruptedException {
+            batch.add(new AbstractMap.SimpleImmutableEntry<Object, ORID>(key, rid));
+            if (batch.size() >= REBUILD_BATCH_SIZE)
+              flushBatch();
+          }
+
+          @Override
+          protected void scanCompleted() throws InterruptedException {
+            if (!batch.isEmpty())
+              flushBatch();
+          }
+
+          private void flushBatch() throws InterruptedException {
+            Collections.sort(batch, REBUILD_BATCH_COMPARATOR);
+            batches.put(batch);
+            batch = new ArrayList<Map.Entry<Object, ORID>>(REBUILD_BATCH_SIZE);
+          }
+        }));
+
+      // ALL BATCHES ARE QUEUED BEFORE WORKER IS COMPLETED, SO QUEUE IS CHECKED ONLY AFTER COMPLETION OF WORKERS
+      while (!rebuildWorkersCompleted(workers) || !batches.isEmpty()) {
+        final List<Map.Entry<Object, ORID>> batch = batches.poll(REBUILD_PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+        if (batch == null)
+          continue;
+
+        for (Map.Entry<Object, ORID> entry : batch)
+          try {
+            put(entry.getKey(), entry.getValue());
+          } catch (OIndexException e) {
+            OLogManager.instance().error(
+                this,
+                "Exception during index rebuild. Exception was caused by following key/ value pair - key %s, value %s."
+                    + " Rebuild will continue from this point.", e, entry.getKey(), entry.getValue());
+          }
+
+        reportRebuildProgress(iProgressListener, documentNum.get(), documentTotal);
+      }
+
+      long documentIndexed = 0;
+      for (Future<Long> worker : workers)
+        documentIndexed += worker.get();
+
+      return documentIndexed;
+    } finally {
+      stopRebuildExecutor(executor);
+    }
+  }
+
+  private static boolean rebuildWorkersCompleted(List<Future<Long>> workers) throws InterruptedException, ExecutionException {
+    for (Future<Long> worker : workers) {
+      if (!worker.isDone())
+        return false;
+
+      // FAIL FAST IF ANY OF WORKERS IS FAILED
+      worker.get();
+    }
+
+    return true;
+  }
+
+  private void reportRebuildProgress(final OProgressListener iProgressListener, final long documentNum, final long documentTotal) {
+    if (iProgressListener != null)
+      iProgressListener.onProgress(this, documentNum, documentNum * 100f / documentTotal);
+  }
+
+  private ExecutorService createRebuildExecutor(final int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger workerCounter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        final Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        thread.setName("Index Rebuild Worker #" + workerCounter.incrementAndGet() + " (" + name + ")");
+        return thread;
+      }
+    });
+  }
+
+  private void stopRebuildExecutor(final ExecutorService executor) {
+    // WORKERS ARE INTERRUPTED IF REBUILD IS FAILED, THEY SHOULD BE STOPPED BEFORE SORTERS ARE CLOSED
+    executor.shutdownNow();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+        OLogManager.instance().warn(this, "Workers of rebuild of index '%s' were not stopped in time", name);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return <code>true</code> if index can be populated by bulk load, in such case {@link #bulkLoadValue(Object, List)} should
+   *         be implemented.
+   */
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
+  /**
+   * @return value which is stored in the index engine during bulk load for passed in key, records indexed by this key are sorted.
+   */
+  protected T bulkLoadValue(Object key, List<OIdentifiable> values) {
+    throw new UnsupportedOperationException("bulkLoadValue");
   }
 
   public boolean remove(final Object key, final OIdentifiable value) {
@@ -840,6 +1363,11 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
         configuration.field(ALGORITHM, algorithm);
         configuration.field(VALUE_CONTAINER_ALGORITHM, valueContainerAlgorithm);
 
+        if (isBuildingOnline())
+          configuration.field(OIndexInternal.CONFIG_ONLINE_BUILD, true);
+        else
+          configuration.removeField(OIndexInternal.CONFIG_ONLINE_BUILD);
+
       } finally {
         configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
       }
@@ -852,11 +1380,16 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
 
   @SuppressWarnings("unchecked")
   public void addTxOperation(final ODocument operationDocument) {
-    checkForRebuild();
-
     if (operationDocument == null)
       return;
 
+    if (isBuildingOnline()) {
+      addTxOperationToOnlineBuildLog(operationDocument);
+      return;
+    }
+
+    checkForRebuild();
+
     acquireExclusiveLock();
     try {
       indexEngine.startTransaction();
@@ -872,24 +1405,7 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
       final Collection<ODocument> entries = operationDocument.field("entries");
       final Map<Object, Object> snapshot = indexTxSnapshot.indexSnapshot;
       for (final ODocument entry : entries) {
-        final String serializedKey = OStringSerializerHelper.decode((String) entry.field("k"));
-        final Object key;
-        try {
-          final ODocument keyContainer = new ODocument();
-          keyContainer.setLazyLoad(false);
-
-          keyContainer.fromString(serializedKey);
-
-          final Object storedKey = keyContainer.field("key");
-          if (storedKey instanceof List)
-            key = new OCompositeKey((List<? extends Comparable<?>>) storedKey);
-          else if (Boolean.TRUE.equals(keyContainer.field("binary"))) {
-            key = OStreamSerializerAnyStreamable.INSTANCE.fromStream((byte[]) storedKey);
-          } else
-            key = storedKey;
-        } catch (IOException ioe) {
-          throw new OTransactionException("Error during index changes deserialization. ", ioe);
-        }
+        final Object key = deserializeTxKey(entry);
 
         final List<ODocument> operations = entry.field("ops");
         if (operations != null) {
@@ -917,6 +1433,66 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     }
   }
 
+  /**
+   * Stores changes of transaction in side log of online build, they are applied to the index when it is built. Transaction is
+   * already committed to the storage at this point, so changes are not rolled back.
+   */
+  private void addTxOperationToOnlineBuildLog(final ODocument operationDocument) {
+    final List<OnlineBuildChange> changes = new ArrayList<OnlineBuildChange>();
+
+    final Boolean clearAll = operationDocument.field("clear");
+    if (clearAll != null && clearAll)
+      changes.add(new OnlineBuildChange(OPERATION.CLEAR, null, null));
+
+    final Collection<ODocument> entries = operationDocument.field("entries");
+    for (final ODocument entry : entries) {
+      final Object key = deserializeTxKey(entry);
+
+      final List<ODocument> operations = entry.field("ops");
+      if (operations != null)
+        for (final ODocument op : operations) {
+          final int operation = (Integer) op.rawField("o");
+          final OIdentifiable value = op.field("v", OType.LINK);
+
+          if (operation == OPERATION.PUT.ordinal())
+            changes.add(new OnlineBuildChange(OPERATION.PUT, key, value.getIdentity()));
+          else if (operation == OPERATION.REMOVE.ordinal())
+            changes.add(new OnlineBuildChange(OPERATION.REMOVE, key, value != null ? value.getIdentity() : null));
+        }
+    }
+
+    synchronized (onlineBuildLock) {
+      if (onlineBuildChanges != null) {
+        onlineBuildChanges.addAll(changes);
+        return;
+      }
+    }
+
+    // ONLINE BUILD IS COMPLETED IN THE MEANTIME
+    addTxOperation(operationDocument);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object deserializeTxKey(final ODocument entry) {
+    final String serializedKey = OStringSerializerHelper.decode((String) entry.field("k"));
+    try {
+      final ODocument keyContainer = new ODocument();
+      keyContainer.setLazyLoad(false);
+
+      keyContainer.fromString(serializedKey);
+
+      final Object storedKey = keyContainer.field("key");
+      if (storedKey instanceof List)
+        return new OCompositeKey((List<? extends Comparable<?>>) storedKey);
+      else if (Boolean.TRUE.equals(keyContainer.field("binary")))
+        return OStreamSerializerAnyStreamable.INSTANCE.fromStream((byte[]) storedKey);
+      else
+        return storedKey;
+    } catch (IOException ioe) {
+      throw new OTransactionException("Error during index changes deserialization. ", ioe);
+    }
+  }
+
   @Override
   public void commit() {
     acquireExclusiveLock();
@@ -1135,4 +1711,121 @@ public abstract class OIndexAbstract<T> extends OSharedResourceAdaptiveExternal
     public Map<Object, Object> indexSnapshot = new HashMap<Object, Object>();
     public boolean             clear         = false;
   }
+
+  private static final class OnlineBuildChange {
+    private final OPERATION operation;
+    private final Object    key;
+    private final ORID      value;
+
+    private OnlineBuildChange(OPERATION operation, Object key, ORID value) {
+      this.operation = operation;
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * Scans clusters during parallel rebuild of the index. Each worker opens its own database instance and takes clusters from queue
+   * shared with other workers until all clusters are scanned, keys of scanned records are passed to {@link #addKey(Object, ORID)}.
+   */
+  private abstract class RebuildWorker implements Callable<Long> {
+    private final String        databaseURL;
+    private final Queue<String> clusters;
+    private final AtomicLong    documentNum;
+
+    private RebuildWorker(String databaseURL, Queue<String> clusters, AtomicLong documentNum) {
+      this.databaseURL = databaseURL;
+      this.clusters = clusters;
+      this.documentNum = documentNum;
+    }
+
+    @Override
+    public Long call() throws Exception {
+      final ODatabaseDocumentTx database = new ODatabaseDocumentTx(databaseURL);
+      database.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+      database.open("admin", "nopass");
+      try {
+        database.declareIntent(new OIntentMassiveInsert());
+
+        long documentIndexed = 0;
+        String clusterName;
+
+        while ((clusterName = clusters.poll()) != null)
+          try {
+            for (final ORecord<?> record : database.browseCluster(clusterName)) {
+              if (Thread.currentThread().isInterrupted())
+                throw new OCommandExecutionException("The index rebuild has been interrupted");
+
+              if (record instanceof ODocument) {
+                final ODocument doc = (ODocument) record;
+                final Object fieldValue = indexDefinition.getDocumentValueToIndex(doc);
+
+                if (fieldValue != null) {
+                  if (fieldValue instanceof Collection) {
+                    for (final Object fieldValueItem : (Collection<?>) fieldValue)
+                      addKey(fieldValueItem, doc.getIdentity());
+                  } else
+                    addKey(fieldValue, doc.getIdentity());
+
+                  ++documentIndexed;
+                }
+              }
+
+              documentNum.incrementAndGet();
+            }
+          } catch (NoSuchElementException e) {
+            // END OF CLUSTER REACHED, IGNORE IT
+          }
+
+        scanCompleted();
+
+        return documentIndexed;
+      } finally {
+        database.close();
+      }
+    }
+
+    protected abstract void addKey(Object key, ORID rid) throws InterruptedException;
+
+    protected abstract void scanCompleted() throws InterruptedException;
+  }
+
+  /**
+   * Merges sorted pairs of key and record which have the same key into entries of the index engine.
+   */
+  private final class BulkLoadEntriesIterator implements Iterator<Map.Entry<Object, T>> {
+    private final Iterator<Map.Entry<Object, OIdentifiable>> sortedEntries;
+    private Map.Entry<Object, OIdentifiable>                 nextEntry;
+
+    private BulkLoadEntriesIterator(Iterator<Map.Entry<Object, OIdentifiable>> sortedEntries) {
+      this.sortedEntries = sortedEntries;
+      nextEntry = sortedEntries.hasNext() ? sortedEntries.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextEntry != null;
+    }
+
+    @Override
+    public Map.Entry<Object, T> next() {
+      if (nextEntry == null)
+        throw new NoSuchElementException();
+
+      final Object key = nextEntry.getKey();
+      final List<OIdentifiable> values = new ArrayList<OIdentifiable>();
+
+      do {
+        values.add(nextEntry.getValue());
+        nextEntry = sortedEntries.hasNext() ? sortedEntries.next() : null;
+      } while (nextEntry != null && ODefaultComparator.INSTANCE.compare(key, nextEntry.getKey()) == 0);
+
+      return new AbstractMap.SimpleImmutableEntry<Object, T>(key, bulkLoadValue(key, values));
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("remove");
+    }
+  }
 }
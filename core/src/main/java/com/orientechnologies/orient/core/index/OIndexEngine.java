@@ -16,6 +16,17 @@ import com.orientechnologies.orient.core.serialization.serializer.stream.OStream
 public interface OIndexEngine<V> {
   void init();
 
+  /**
+   * Enables Bloom filter of index keys which is checked before key is searched in the index, should be called before engine is
+   * created or loaded. Engines which keep whole index in memory ignore it.
+   * 
+   * @param falsePositiveRate
+   *          Probability that lookup of absent key is not rejected by the filter.
+   * @param maxMemory
+   *          Maximum amount of bytes the filter may occupy.
+   */
+  void enableBloomFilter(double falsePositiveRate, long maxMemory);
+
   void flush();
 
   void create(String indexName, OIndexDefinition indexDefinition, String clusterIndexName, OStreamSerializer valueSerializer,
@@ -65,6 +76,17 @@ public interface OIndexEngine<V> {
 
   void put(Object key, V value);
 
+  /**
+   * Fetches values of several keys at once. Keys are passed in ascending order, so engine may continue search of the next key from
+   * the position of the previous one instead of starting from the root.
+   */
+  void getValues(Collection<?> sortedKeys, ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener);
+
+  /**
+   * Fetches entries of several keys at once, see {@link #getValues(Collection, ValuesTransformer, ValuesResultListener)}.
+   */
+  void getEntries(Collection<?> sortedKeys, ValuesTransformer<V> transformer, EntriesResultListener entriesResultListener);
+
   void getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
       ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener);
 
@@ -56,6 +56,15 @@ public class OIndexFullText extends OIndexMultiValues {
     stopWords = new HashSet<String>(OStringSerializerHelper.split(DEF_STOP_WORDS, ' '));
   }
 
+  /**
+   * Keys of full-text index are produced by splitting of indexed values into words during {@link #put(Object, OIdentifiable)},
+   * so this index is not populated by bulk load.
+   */
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
   /**
    * Indexes a value and save the index. Splits the value in single words and index each one. Save of the index is responsibility of
    * the caller.
@@ -0,0 +1,862 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import com.orientechnologies.common.collection.OCompositeKey;
+import com.orientechnologies.common.listener.OProgressListener;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextAnalyzer;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPostingList;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextStatistics;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerFullTextPostingList;
+
+/**
+ * Full-text index which ranks search results. Indexed text is split into terms by {@link OFullTextAnalyzer} which is configured by
+ * "analyzer" field of index metadata. Posting list of each term is split into blocks ({@link OFullTextPostingList}) which are
+ * stored under composite key [term, cluster id, block number], so postings of a record are found without search and change of
+ * record rewrites single block per term. All terms of a record are updated at once under single lock.
+ * <p>
+ * Besides postings index keeps amount of indexed records and total length of their texts, so search results are ranked by BM25
+ * formula, see {@link #search(Object, int)}. Record which is indexed by several texts (for example by items of collection) is
+ * counted once, for that each block of records is accompanied by block under key ["", cluster id, block number] which keeps amount
+ * and total length of texts of each record. {@link #get(Object)} returns records which contain all terms of passed in text.
+ */
+public class OIndexFullTextRanked extends OIndexMultiValues {
+  public static final String         CONFIG_ANALYZER = "analyzer";
+
+  /**
+   * Parameters of BM25 ranking formula: saturation of term frequency and normalization by length of text.
+   */
+  private static final double        BM25_K1         = 1.2;
+  private static final double        BM25_B          = 0.75;
+
+  /**
+   * Statistics are kept separately for each cluster of records, so changes of records of different clusters do not rewrite the same
+   * key. Analyzer never produces empty terms and blocks have non-negative numbers, so keys of statistics do not clash with keys of
+   * posting lists and of blocks of amounts of texts of records.
+   */
+  private static final int           STATISTICS_CLUSTER_ID = -1;
+
+  /**
+   * Term of keys of blocks which keep amount of texts of each record.
+   */
+  private static final String        DOCUMENTS_TERM  = "";
+
+  /**
+   * Orders search results by score, records with the same score are ordered by record ids in descending order, so they are
+   * returned in ascending order of record ids.
+   */
+  private static final Comparator<Map.Entry<ORID, Double>> SCORE_COMPARATOR = new Comparator<Map.Entry<ORID, Double>>() {
+    @Override
+    public int compare(Map.Entry<ORID, Double> entryOne, Map.Entry<ORID, Double> entryTwo) {
+      final int result = entryOne.getValue().compareTo(entryTwo.getValue());
+      if (result != 0)
+        return result;
+
+      return entryTwo.getKey().compareTo(entryOne.getKey());
+    }
+  };
+
+  private volatile OFullTextAnalyzer analyzer        = new OFullTextAnalyzer();
+
+  public OIndexFullTextRanked(String typeId, String algorithm, OIndexEngine<Set<OIdentifiable>> indexEngine,
+      String valueContainerAlgorithm) {
+    super(typeId, algorithm, indexEngine, valueContainerAlgorithm);
+  }
+
+  /**
+   * Sets configuration of analyzer, should be called before index is created.
+   * 
+   * @see OFullTextAnalyzer
+   */
+  public void setAnalyzer(ODocument analyzerConfiguration) {
+    analyzer = new OFullTextAnalyzer(analyzerConfiguration);
+  }
+
+  public OFullTextAnalyzer getAnalyzer() {
+    return analyzer;
+  }
+
+  @Override
+  protected OIndexDefinition getEngineKeyDefinition() {
+    return new OSimpleKeyIndexDefinition(OType.STRING, OType.INTEGER, OType.LONG);
+  }
+
+  /**
+   * Keys of index are produced by splitting of indexed values into terms during {@link #put(Object, OIdentifiable)}, so this index
+   * is not populated by bulk load.
+   */
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return false;
+  }
+
+  @Override
+  public OIndexMultiValues create(String name, OIndexDefinition indexDefinition, String clusterIndexName,
+      Set<String> clustersToIndex, boolean rebuild, OProgressListener progressListener) {
+    if (indexDefinition == null || indexDefinition.getFields().size() > 1)
+      throw new OIndexException(type + " indexes cannot be used as composite ones.");
+
+    return (OIndexMultiValues) super.create(name, indexDefinition, clusterIndexName, clustersToIndex, rebuild, progressListener,
+        OStreamSerializerFullTextPostingList.INSTANCE);
+  }
+
+  @Override
+  public OIndexInternal<?> create(String name, OIndexDefinition indexDefinition, String clusterIndexName,
+      Set<String> clustersToIndex, boolean rebuild, OProgressListener progressListener, OStreamSerializer valueSerializer) {
+    return create(name, indexDefinition, clusterIndexName, clustersToIndex, rebuild, progressListener);
+  }
+
+  @Override
+  public boolean loadFromConfiguration(ODocument config) {
+    // ANALYZER IS NEEDED IF INDEX IS REBUILT DURING LOAD
+    analyzer = new OFullTextAnalyzer((ODocument) config.field(CONFIG_ANALYZER));
+    return super.loadFromConfiguration(config);
+  }
+
+  @Override
+  public ODocument updateConfiguration() {
+    super.updateConfiguration();
+    configuration.setInternalStatus(ORecordElement.STATUS.UNMARSHALLING);
+
+    try {
+      configuration.field(CONFIG_ANALYZER, analyzer.toConfiguration(), OType.EMBEDDED);
+    } finally {
+      configuration.setInternalStatus(ORecordElement.STATUS.LOADED);
+    }
+    return configuration;
+  }
+
+  /**
+   * Splits text into terms and adds record to posting lists of all of them.
+   */
+  @Override
+  public OIndexFullTextRanked put(Object key, final OIdentifiable iSingleValue) {
+    checkForRebuild();
+
+    if (key == null)
+      return this;
+
+    key = getCollatingValue(key);
+    final List<String> terms = analyzer.analyze(key.toString());
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        if (!iSingleValue.getIdentity().isValid())
+          ((ORecord<?>) iSingleValue).save();
+
+        putTerms(terms, iSingleValue.getIdentity(), null);
+        return this;
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  @Override
+  protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
+    if (key == null)
+      return;
+
+    key = getCollatingValue(key);
+    putTerms(analyzer.analyze(key.toString()), value.getIdentity(), snapshot);
+  }
+
+  /**
+   * Splits text into terms and removes record from posting lists of all of them.
+   * 
+   * @return <code>true</code> if record was indexed by at least one of terms.
+   */
+  @Override
+  public boolean remove(Object key, final OIdentifiable value) {
+    checkForRebuild();
+
+    if (key == null)
+      return false;
+
+    key = getCollatingValue(key);
+    final List<String> terms = analyzer.analyze(key.toString());
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        return removeTerms(terms, value.getIdentity(), null);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  @Override
+  protected void removeFromSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
+    if (key == null)
+      return;
+
+    key = getCollatingValue(key);
+    removeTerms(analyzer.analyze(key.toString()), value.getIdentity(), snapshot);
+  }
+
+  /**
+   * Removes posting lists of all terms of passed in text. Each record found in them is treated as record which lost indexed text
+   * of the same length as passed in one, so it is not counted in statistics any more if it has no other indexed texts.
+   */
+  @Override
+  public boolean remove(Object key) {
+    checkForRebuild();
+
+    if (key == null)
+      return false;
+
+    key = getCollatingValue(key);
+    // LENGTH OF TEXT IS AMOUNT OF ALL ITS TERMS INCLUDING REPEATED ONES, THE SAME AS IT IS COUNTED BY PUT
+    final List<String> analyzedTerms = analyzer.analyze(key.toString());
+    final Set<String> terms = new HashSet<String>(analyzedTerms);
+
+    modificationLock.requestModificationLock();
+    try {
+      acquireExclusiveLock();
+      try {
+        final Set<ORID> rids = new HashSet<ORID>();
+        for (String term : terms)
+          for (OFullTextPostingList block : loadPostingList(term)) {
+            indexEngine.remove(blockKey(term, block.getClusterId(), block.getBlockNumber()));
+            collectRids(block, rids);
+          }
+
+        for (ORID rid : rids)
+          removeDocumentText(rid, analyzedTerms.size(), true, null);
+
+        return !rids.isEmpty();
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      modificationLock.releaseModificationLock();
+    }
+  }
+
+  @Override
+  protected void removeFromSnapshot(Object key, Map<Object, Object> snapshot) {
+    if (key == null)
+      return;
+
+    key = getCollatingValue(key);
+    // LENGTH OF TEXT IS AMOUNT OF ALL ITS TERMS INCLUDING REPEATED ONES, THE SAME AS IT IS COUNTED BY PUT
+    final List<String> analyzedTerms = analyzer.analyze(key.toString());
+    final Set<String> terms = new HashSet<String>(analyzedTerms);
+    final Set<ORID> rids = new HashSet<ORID>();
+
+    for (String term : terms) {
+      for (OFullTextPostingList block : loadPostingList(term)) {
+        final OCompositeKey blockKey = blockKey(term, block.getClusterId(), block.getBlockNumber());
+        // BLOCK MAY BE ALREADY CHANGED BY TRANSACTION
+        final Object snapshotValue = snapshot.get(blockKey);
+        if (snapshotValue == null)
+          collectRids(block, rids);
+
+        snapshot.put(blockKey, RemovedValue.INSTANCE);
+      }
+
+      for (Map.Entry<Object, Object> entry : snapshot.entrySet())
+        if (entry.getKey() instanceof OCompositeKey && term.equals(((OCompositeKey) entry.getKey()).getKeys().get(0))) {
+          if (entry.getValue() instanceof OFullTextPostingList)
+            collectRids((OFullTextPostingList) entry.getValue(), rids);
+
+          entry.setValue(RemovedValue.INSTANCE);
+        }
+    }
+
+    for (ORID rid : rids)
+      removeDocumentText(rid, analyzedTerms.size(), true, snapshot);
+  }
+
+  /**
+   * @return Records which contain all terms of passed in text.
+   */
+  @Override
+  public Set<OIdentifiable> get(Object key) {
+    checkForRebuild();
+
+    if (key == null)
+      return Collections.emptySet();
+
+    key = getCollatingValue(key);
+    final Set<String> terms = new LinkedHashSet<String>(analyzer.analyze(key.toString()));
+
+    acquireSharedLock();
+    try {
+      Set<OIdentifiable> result = null;
+
+      for (String term : terms) {
+        final Set<OIdentifiable> termRecords = new HashSet<OIdentifiable>();
+        for (OFullTextPostingList block : loadPostingList(term))
+          if (result == null)
+            termRecords.addAll(block);
+          else
+            for (OIdentifiable identifiable : block)
+              if (result.contains(identifiable))
+                termRecords.add(identifiable);
+
+        result = termRecords;
+        if (result.isEmpty())
+          break;
+      }
+
+      if (result == null)
+        return Collections.emptySet();
+
+      return result;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long count(Object key) {
+    return get(key).size();
+  }
+
+  @Override
+  public boolean contains(Object key) {
+    return !get(key).isEmpty();
+  }
+
+  @Override
+  public void getValues(Collection<?> iKeys, IndexValuesResultListener resultListener) {
+    for (Object key : iKeys)
+      for (OIdentifiable identifiable : get(key))
+        if (!resultListener.addResult(identifiable))
+          return;
+  }
+
+  @Override
+  public void getEntries(Collection<?> iKeys, IndexEntriesResultListener resultListener) {
+    for (Object key : iKeys)
+      for (OIdentifiable identifiable : get(key)) {
+        final ODocument document = new ODocument();
+        document.field("key", key);
+        document.field("rid", identifiable.getIdentity());
+        document.unsetDirty();
+
+        if (!resultListener.addResult(document))
+          return;
+      }
+  }
+
+  /**
+   * Finds records which contain at least one term of query and ranks them using BM25 formula: terms which are met in fewer records,
+   * are met more times in record text and shorter texts give higher rank.
+   * 
+   * @param query
+   *          Text to search, it is split into terms by the same analyzer which is used for indexed texts.
+   * @param maxResults
+   *          Maximum amount of records to return, or -1 to return all found records.
+   * @return Found records with their scores, in order of descending score.
+   */
+  public Map<OIdentifiable, Double> search(Object query, int maxResults) {
+    if (maxResults == 0)
+      return Collections.emptyMap();
+
+    return selectTopResults(score(query), maxResults);
+  }
+
+  /**
+   * The same as {@link #search(Object, int)} but records are sorted lazily during iteration using heap, so when only first K
+   * records are read (for example because other conditions of query are applied to found records until limit of query is
+   * reached), only K records are sorted.
+   * 
+   * @return Found records in order of descending score.
+   */
+  public Collection<OIdentifiable> search(Object query) {
+    final Map<ORID, Double> scores = score(query);
+
+    return new AbstractCollection<OIdentifiable>() {
+      @Override
+      public Iterator<OIdentifiable> iterator() {
+        final PriorityQueue<Map.Entry<ORID, Double>> rankedResults = new PriorityQueue<Map.Entry<ORID, Double>>(Math.max(
+            scores.size(), 1), Collections.reverseOrder(SCORE_COMPARATOR));
+        rankedResults.addAll(scores.entrySet());
+
+        return new Iterator<OIdentifiable>() {
+          @Override
+          public boolean hasNext() {
+            return !rankedResults.isEmpty();
+          }
+
+          @Override
+          public OIdentifiable next() {
+            if (rankedResults.isEmpty())
+              throw new NoSuchElementException();
+
+            return rankedResults.poll().getKey();
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("remove");
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return scores.size();
+      }
+    };
+  }
+
+  /**
+   * @return Amount of indexed records, record which is indexed by several texts is counted once.
+   */
+  public long getDocuments() {
+    checkForRebuild();
+
+    acquireSharedLock();
+    try {
+      return loadTotalStatistics().getDocuments();
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * @return Average amount of terms in indexed records, which is used to normalize scores by length of records.
+   */
+  public double getAverageLength() {
+    checkForRebuild();
+
+    acquireSharedLock();
+    try {
+      return loadTotalStatistics().getAverageLength();
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * @return Scores of records which contain at least one term of query.
+   */
+  private Map<ORID, Double> score(Object query) {
+    checkForRebuild();
+
+    if (query == null)
+      return Collections.emptyMap();
+
+    query = getCollatingValue(query);
+    final Set<String> terms = new LinkedHashSet<String>(analyzer.analyze(query.toString()));
+
+    final Map<ORID, Double> scores = new HashMap<ORID, Double>();
+
+    acquireSharedLock();
+    try {
+      final OFullTextStatistics statistics = loadTotalStatistics();
+      final double documents = statistics.getDocuments();
+      final double averageLength = statistics.getAverageLength();
+
+      for (String term : terms) {
+        final List<OFullTextPostingList> postingList = loadPostingList(term);
+
+        long termDocuments = 0;
+        for (OFullTextPostingList block : postingList)
+          termDocuments += block.size();
+
+        if (termDocuments == 0)
+          continue;
+
+        final double idf = Math.log(1 + (documents - termDocuments + 0.5) / (termDocuments + 0.5));
+
+        for (OFullTextPostingList block : postingList)
+          for (int i = 0; i < block.size(); i++) {
+            final int frequency = block.getFrequency(i);
+            final double lengthNorm = averageLength > 0 ? 1 - BM25_B + BM25_B * block.getLength(i) / averageLength : 1;
+            final double score = idf * frequency * (BM25_K1 + 1) / (frequency + BM25_K1 * lengthNorm);
+
+            final ORID rid = block.getRid(i);
+            final Double previousScore = scores.get(rid);
+            scores.put(rid, previousScore == null ? score : previousScore + score);
+          }
+      }
+    } finally {
+      releaseSharedLock();
+    }
+
+    return scores;
+  }
+
+  /**
+   * @return Amount of postings in posting lists of all terms.
+   */
+  @Override
+  public long getSize() {
+    acquireSharedLock();
+    try {
+      final long size = super.getSize();
+
+      long documents = 0;
+      for (OFullTextPostingList block : loadPostingList(DOCUMENTS_TERM))
+        documents += block.size();
+
+      return size - documents;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public long getKeySize() {
+    checkForRebuild();
+
+    acquireSharedLock();
+    try {
+      long terms = 0;
+      Object previousTerm = null;
+
+      for (Object key : indexEngine.keys()) {
+        final Object term = ((OCompositeKey) key).getKeys().get(0);
+        if (!term.equals(previousTerm) && !DOCUMENTS_TERM.equals(term))
+          terms++;
+
+        previousTerm = term;
+      }
+
+      return terms;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public boolean hasRangeQuerySupport() {
+    return false;
+  }
+
+  @Override
+  public void getValuesBetween(Object iRangeFrom, boolean fromInclusive, Object iRangeTo, boolean toInclusive,
+      IndexValuesResultListener resultListener) {
+    throw new UnsupportedOperationException("Range queries are not supported by " + type + " index");
+  }
+
+  @Override
+  public void getValuesMajor(Object iRangeFrom, boolean isInclusive, IndexValuesResultListener valuesResultListener) {
+    throw new UnsupportedOperationException("Range queries are not supported by " + type + " index");
+  }
+
+  @Override
+  public void getValuesMinor(Object iRangeTo, boolean isInclusive, IndexValuesResultListener resultListener) {
+    throw new UnsupportedOperationException("Range queries are not supported by " + type + " index");
+  }
+
+  @Override
+  public void getEntriesMajor(Object iRangeFrom, boolean isInclusive, IndexEntriesResultListener entriesResultListener) {
+    throw new UnsupportedOperationException("Range queries are not supported by " + type + " index");
+  }
+
+  @Override
+  public void getEntriesMinor(Object iRangeTo, boolean isInclusive, IndexEntriesResultListener entriesResultListener) {
+    throw new UnsupportedOperationException("Range queries are not supported by " + type + " index");
+  }
+
+  @Override
+  public void getEntriesBetween(Object iRangeFrom, Object iRangeTo, boolean inclusive,
+      IndexEntriesResultListener indexEntriesResultListener) {
+    throw new UnsupportedOperationException("Range queries are not supported by " + type + " index");
+  }
+
+  public boolean canBeUsedInEqualityOperators() {
+    return false;
+  }
+
+  public boolean supportsOrderedIterations() {
+    return false;
+  }
+
+  /**
+   * Adds record to posting lists of terms, record is counted in statistics if it was not indexed by any other text before.
+   * 
+   * @param snapshot
+   *          Transaction snapshot to which changes are applied, or <code>null</code> if changes are applied to the index.
+   */
+  private void putTerms(List<String> terms, ORID rid, Map<Object, Object> snapshot) {
+    if (terms.isEmpty())
+      return;
+
+    for (Map.Entry<String, Integer> termFrequency : countFrequencies(terms).entrySet()) {
+      final OCompositeKey key = blockKey(termFrequency.getKey(), rid.getClusterId(),
+          OFullTextPostingList.blockNumber(rid.getClusterPosition().longValue()));
+
+      OFullTextPostingList block = (OFullTextPostingList) loadValue(key, snapshot);
+      if (block == null)
+        block = new OFullTextPostingList(rid.getClusterId());
+
+      block.put(rid, termFrequency.getValue(), terms.size());
+      storeValue(key, block, snapshot);
+    }
+
+    final OCompositeKey documentsKey = documentsKey(rid);
+    OFullTextPostingList documents = (OFullTextPostingList) loadValue(documentsKey, snapshot);
+    if (documents == null)
+      documents = new OFullTextPostingList(rid.getClusterId());
+
+    final OFullTextStatistics statistics = loadStatistics(rid.getClusterId(), snapshot);
+
+    // FREQUENCY OF RECORD IS AMOUNT OF ITS INDEXED TEXTS, LENGTH IS THEIR TOTAL LENGTH
+    final int index = documents.indexOf(rid);
+    if (index < 0) {
+      documents.put(rid, 1, terms.size());
+      statistics.addDocument(terms.size());
+    } else {
+      documents.put(rid, documents.getFrequency(index) + 1, documents.getLength(index) + terms.size());
+      statistics.addLength(terms.size());
+    }
+
+    storeValue(documentsKey, documents, snapshot);
+    storeValue(statisticsKey(rid.getClusterId()), statistics, snapshot);
+  }
+
+  private boolean removeTerms(List<String> terms, ORID rid, Map<Object, Object> snapshot) {
+    boolean removed = false;
+    for (String term : new HashSet<String>(terms)) {
+      final OCompositeKey key = blockKey(term, rid.getClusterId(),
+          OFullTextPostingList.blockNumber(rid.getClusterPosition().longValue()));
+
+      final OFullTextPostingList block = (OFullTextPostingList) loadValue(key, snapshot);
+      if (block != null && block.remove(rid)) {
+        storeValue(key, block, snapshot);
+        removed = true;
+      }
+    }
+
+    if (!terms.isEmpty())
+      removeDocumentText(rid, terms.size(), removed, snapshot);
+
+    return removed;
+  }
+
+  /**
+   * Removes one of indexed texts of record from statistics, record is not counted any more if it has no other indexed texts.
+   * 
+   * @param removed
+   *          Whether record was removed from posting lists, used when amount of texts of record is not known because index was
+   *          populated before it was tracked.
+   */
+  private void removeDocumentText(ORID rid, int length, boolean removed, Map<Object, Object> snapshot) {
+    final OCompositeKey documentsKey = documentsKey(rid);
+    final OFullTextPostingList documents = (OFullTextPostingList) loadValue(documentsKey, snapshot);
+    final int index = documents != null ? documents.indexOf(rid) : -1;
+
+    if (index < 0 && !removed)
+      return;
+
+    final OFullTextStatistics statistics = loadStatistics(rid.getClusterId(), snapshot);
+    if (index < 0)
+      statistics.removeDocument(length);
+    else if (documents.getFrequency(index) > 1) {
+      documents.put(rid, documents.getFrequency(index) - 1, Math.max(documents.getLength(index) - length, 0));
+      statistics.removeLength(length);
+      storeValue(documentsKey, documents, snapshot);
+    } else {
+      statistics.removeDocument(documents.getLength(index));
+      documents.remove(rid);
+      storeValue(documentsKey, documents, snapshot);
+    }
+
+    storeValue(statisticsKey(rid.getClusterId()), statistics, snapshot);
+  }
+
+  private Set<OIdentifiable> loadValue(Object key, Map<Object, Object> snapshot) {
+    if (snapshot == null)
+      return indexEngine.get(key);
+
+    // SNAPSHOT CONTAINS ONLY VALUES OF THIS INDEX OR MARKS OF REMOVED VALUES
+    final Object snapshotValue = snapshot.get(key);
+    if (snapshotValue instanceof OFullTextPostingList)
+      return (OFullTextPostingList) snapshotValue;
+    if (snapshotValue instanceof OFullTextStatistics)
+      return (OFullTextStatistics) snapshotValue;
+    if (snapshotValue != null)
+      return null;
+
+    // VALUE IS COPIED BECAUSE IT IS CHANGED BEFORE TRANSACTION IS COMMITTED
+    final Set<OIdentifiable> value = indexEngine.get(key);
+    if (value instanceof OFullTextPostingList)
+      return new OFullTextPostingList((OFullTextPostingList) value);
+    if (value instanceof OFullTextStatistics)
+      return new OFullTextStatistics((OFullTextStatistics) value);
+
+    return value;
+  }
+
+  private void storeValue(Object key, Set<OIdentifiable> value, Map<Object, Object> snapshot) {
+    if (value instanceof OFullTextPostingList && value.isEmpty()) {
+      if (snapshot == null)
+        indexEngine.remove(key);
+      else
+        snapshot.put(key, RemovedValue.INSTANCE);
+    } else {
+      if (snapshot == null)
+        indexEngine.put(key, value);
+      else
+        snapshot.put(key, value);
+    }
+  }
+
+  private OFullTextStatistics loadStatistics(int clusterId, Map<Object, Object> snapshot) {
+    final OFullTextStatistics statistics = (OFullTextStatistics) loadValue(statisticsKey(clusterId), snapshot);
+    return statistics != null ? statistics : new OFullTextStatistics();
+  }
+
+  /**
+   * @return Sum of statistics of all clusters.
+   */
+  private OFullTextStatistics loadTotalStatistics() {
+    final OFullTextStatistics total = new OFullTextStatistics();
+    final OCompositeKey statisticsKey = new OCompositeKey(DOCUMENTS_TERM, STATISTICS_CLUSTER_ID);
+
+    indexEngine.getValuesBetween(statisticsKey, true, statisticsKey, true, new OIndexEngine.ValuesTransformer<Set<OIdentifiable>>() {
+      @Override
+      public Collection<OIdentifiable> transformFromValue(Set<OIdentifiable> value) {
+        if (value instanceof OFullTextStatistics)
+          total.add((OFullTextStatistics) value);
+        return Collections.emptyList();
+      }
+
+      @Override
+      public Set<OIdentifiable> transformToValue(Collection<OIdentifiable> collection) {
+        throw new UnsupportedOperationException("transformToValue");
+      }
+    }, new OIndexEngine.ValuesResultListener() {
+      @Override
+      public boolean addResult(OIdentifiable identifiable) {
+        return true;
+      }
+    });
+
+    return total;
+  }
+
+  /**
+   * @return Blocks of posting list of term in order of record ids.
+   */
+  private List<OFullTextPostingList> loadPostingList(String term) {
+    final List<OFullTextPostingList> blocks = new ArrayList<OFullTextPostingList>();
+    final OCompositeKey termKey = new OCompositeKey(term);
+
+    indexEngine.getValuesBetween(termKey, true, termKey, true, new OIndexEngine.ValuesTransformer<Set<OIdentifiable>>() {
+      @Override
+      public Collection<OIdentifiable> transformFromValue(Set<OIdentifiable> value) {
+        // STATISTICS ARE STORED UNDER EMPTY TERM TOGETHER WITH AMOUNTS OF TEXTS OF RECORDS
+        if (value instanceof OFullTextPostingList)
+          blocks.add((OFullTextPostingList) value);
+        return Collections.emptyList();
+      }
+
+      @Override
+      public Set<OIdentifiable> transformToValue(Collection<OIdentifiable> collection) {
+        throw new UnsupportedOperationException("transformToValue");
+      }
+    }, new OIndexEngine.ValuesResultListener() {
+      @Override
+      public boolean addResult(OIdentifiable identifiable) {
+        return true;
+      }
+    });
+
+    return blocks;
+  }
+
+  private static OCompositeKey blockKey(String term, int clusterId, long blockNumber) {
+    return new OCompositeKey(term, clusterId, blockNumber);
+  }
+
+  private static OCompositeKey statisticsKey(int clusterId) {
+    return new OCompositeKey(DOCUMENTS_TERM, STATISTICS_CLUSTER_ID, -(clusterId + 1L));
+  }
+
+  private static OCompositeKey documentsKey(ORID rid) {
+    return blockKey(DOCUMENTS_TERM, rid.getClusterId(), OFullTextPostingList.blockNumber(rid.getClusterPosition().longValue()));
+  }
+
+  private static void collectRids(OFullTextPostingList block, Set<ORID> rids) {
+    for (int i = 0; i < block.size(); i++)
+      rids.add(block.getRid(i));
+  }
+
+  private static Map<String, Integer> countFrequencies(List<String> terms) {
+    final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+    for (String term : terms) {
+      final Integer frequency = frequencies.get(term);
+      frequencies.put(term, frequency == null ? 1 : frequency + 1);
+    }
+
+    return frequencies;
+  }
+
+  /**
+   * Selects records with highest scores using heap of limited size, so only <code>maxResults</code> records are sorted.
+   */
+  private static Map<OIdentifiable, Double> selectTopResults(Map<ORID, Double> scores, int maxResults) {
+    final int limit = maxResults < 0 ? scores.size() : Math.min(maxResults, scores.size());
+    final PriorityQueue<Map.Entry<ORID, Double>> topResults = new PriorityQueue<Map.Entry<ORID, Double>>(Math.max(limit, 1),
+        SCORE_COMPARATOR);
+
+    for (Map.Entry<ORID, Double> entry : scores.entrySet()) {
+      if (topResults.size() < limit)
+        topResults.add(entry);
+      else if (limit > 0 && SCORE_COMPARATOR.compare(entry, topResults.peek()) > 0) {
+        topResults.poll();
+        topResults.add(entry);
+      }
+    }
+
+    final List<Map.Entry<ORID, Double>> sortedResults = new ArrayList<Map.Entry<ORID, Double>>(topResults);
+    Collections.sort(sortedResults, Collections.reverseOrder(SCORE_COMPARATOR));
+
+    final Map<OIdentifiable, Double> result = new LinkedHashMap<OIdentifiable, Double>();
+    for (Map.Entry<ORID, Double> entry : sortedResults)
+      result.put(entry.getKey(), entry.getValue());
+
+    return result;
+  }
+}
@@ -18,8 +18,11 @@ package com.orientechnologies.orient.core.index;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.db.ODatabaseListener;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransactionIndexChanges.OPERATION;
 
 /**
  * Interface to handle index.
@@ -38,6 +41,7 @@ public interface OIndexInternal<T> extends OIndex<T>, Iterable<Entry<Object, T>>
   public static final String CONFIG_NAME               = "name";
   public static final String INDEX_DEFINITION          = "indexDefinition";
   public static final String INDEX_DEFINITION_CLASS    = "indexDefinitionClass";
+  public static final String CONFIG_ONLINE_BUILD       = "onlineBuild";
 
   /**
    * Loads the index giving the configuration.
@@ -127,6 +131,30 @@ public interface OIndexInternal<T> extends OIndex<T>, Iterable<Entry<Object, T>>
 
   public void postCommit();
 
+  /**
+   * Switches index to online build mode. Index is marked as rebuilding and changes of indexed records are stored in side log by
+   * {@link #logOnlineBuildChange(OPERATION, Object, OIdentifiable)} instead of the index itself. Should be called before index
+   * becomes visible to other threads, so changes done after this call are not missed by {@link #buildOnline(OProgressListener)}.
+   */
+  public void prepareOnlineBuild();
+
+  /**
+   * Populates index prepared by {@link #prepareOnlineBuild()} without blocking of modifications of indexed records. Changes logged
+   * during population are applied after it and index is switched to active state atomically with application of last of them.
+   * 
+   * @return amount of indexed records.
+   */
+  public long buildOnline(OProgressListener iProgressListener);
+
+  public boolean isBuildingOnline();
+
+  /**
+   * Stores change of indexed record in side log if index is built online.
+   * 
+   * @return <code>false</code> if index is not built online, in such case change should be applied to the index directly.
+   */
+  public boolean logOnlineBuildChange(OPERATION operation, Object key, OIdentifiable value);
+
   public final class IndexMetadata {
     private final String           name;
     private final OIndexDefinition indexDefinition;
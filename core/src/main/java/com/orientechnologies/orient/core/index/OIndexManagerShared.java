@@ -33,9 +33,11 @@ import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchemaShared;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OCluster;
 import com.orientechnologies.orient.core.storage.OCluster.ATTRIBUTES;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 import com.orientechnologies.orient.core.storage.impl.local.OClusterLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocal;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
@@ -57,6 +59,22 @@ import java.util.Set;
  * 
  */
 public class OIndexManagerShared extends OIndexManagerAbstract implements OIndexManager {
+  /**
+   * Field of index metadata which requests online build of index: records of indexed class may be modified while index is built,
+   * index is not used by queries until it is built.
+   */
+  public static final String   METADATA_ONLINE_BUILD = "online";
+
+  /**
+   * Field of index metadata which enables Bloom filter of index keys, lookups of keys rejected by the filter do not access the index.
+   * Value is either true or document which may override {@link OGlobalConfiguration#INDEX_BLOOM_FILTER_FALSE_POSITIVE_RATE} and
+   * {@link OGlobalConfiguration#INDEX_BLOOM_FILTER_MAX_MEMORY} by {@link #METADATA_BLOOM_FILTER_FALSE_POSITIVE_RATE} and
+   * {@link #METADATA_BLOOM_FILTER_MAX_MEMORY} fields.
+   */
+  public static final String   METADATA_BLOOM_FILTER                     = "bloomFilter";
+  public static final String   METADATA_BLOOM_FILTER_FALSE_POSITIVE_RATE = "falsePositiveRate";
+  public static final String   METADATA_BLOOM_FILTER_MAX_MEMORY          = "maxMemory";
+
   private static final boolean useSBTree             = OGlobalConfiguration.INDEX_USE_SBTREE_BY_DEFAULT.getValueAsBoolean();
 
   private static final long    serialVersionUID      = 1L;
@@ -140,7 +158,24 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
         }
       }
 
-      index.create(iName, indexDefinition, clusterName, clustersToIndex, true, iProgressListener);
+      if (metadata != null && index instanceof OIndexAbstract)
+        // ENGINE SHOULD KNOW ABOUT FILTER BEFORE INDEX IS POPULATED
+        ((OIndexAbstract<?>) index).configureBloomFilter(metadata);
+
+      if (metadata != null && index instanceof OIndexFullTextRanked)
+        // ANALYZER SHOULD BE CONFIGURED BEFORE INDEX IS POPULATED
+        ((OIndexFullTextRanked) index).setAnalyzer((ODocument) metadata.field(OIndexFullTextRanked.CONFIG_ANALYZER));
+
+      final boolean onlineBuild = metadata != null && Boolean.TRUE.equals(metadata.field(METADATA_ONLINE_BUILD))
+          && indexDefinition != null && indexDefinition.getClassName() != null && storage instanceof OStorageEmbedded;
+
+      if (onlineBuild) {
+        // INDEX IS POPULATED IN BACKGROUND, CHANGES OF RECORDS ARE LOGGED SINCE THE MOMENT INDEX BECOMES VISIBLE
+        index.create(iName, indexDefinition, clusterName, clustersToIndex, false, iProgressListener);
+        index.prepareOnlineBuild();
+      } else
+        index.create(iName, indexDefinition, clusterName, clustersToIndex, true, iProgressListener);
+
       addIndexInternal(index);
 
       if (metadata != null) {
@@ -151,6 +186,9 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
       setDirty();
       save();
 
+      if (onlineBuild)
+        startOnlineBuild(index, iProgressListener);
+
       return index;
     } finally {
       releaseExclusiveLock();
@@ -214,6 +252,7 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
       final Map<String, OIndex<?>> oldIndexes = new HashMap<String, OIndex<?>>(indexes);
 
       clearMetadata();
+      OSQLStatementCache.invalidateDatabase(getDatabase());
       final Collection<ODocument> idxs = document.field(CONFIG_INDEXES);
 
       if (idxs != null) {
@@ -243,8 +282,12 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
                 oldIndexes.remove(normalizedName);
               }
             } else {
+              // INDEX WHOSE ONLINE BUILD WAS NOT COMPLETED IS REBUILT DURING LOAD AND ITS CONFIGURATION LOSES ONLINE BUILD FLAG
+              final boolean onlineBuildInterrupted = Boolean.TRUE.equals(d.field(OIndexInternal.CONFIG_ONLINE_BUILD));
+
               if (((OIndexInternal<?>) index).loadFromConfiguration(d)) {
                 addIndexInternal(index);
+                configUpdated |= onlineBuildInterrupted;
               } else {
                 indexConfigurationIterator.remove();
                 configUpdated = true;
@@ -468,6 +511,46 @@ public class OIndexManagerShared extends OIndexManagerAbstract implements OIndex
       waitTillIndexRestore();
   }
 
+  /**
+   * Builds index in background thread which uses its own database instance, index is removed if build is failed.
+   */
+  private void startOnlineBuild(final OIndexInternal<?> index, final OProgressListener progressListener) {
+    final String databaseURL = getDatabase().getURL();
+
+    final Runnable onlineBuildTask = new Runnable() {
+      @Override
+      public void run() {
+        final ODatabaseDocumentTx newDb = new ODatabaseDocumentTx(databaseURL);
+        newDb.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+        newDb.open("admin", "nopass");
+
+        try {
+          final long documentIndexed = index.buildOnline(progressListener);
+
+          // STORE CONFIGURATION OF INDEX WITHOUT ONLINE BUILD FLAG
+          acquireExclusiveLock();
+          try {
+            setDirty();
+            save();
+          } finally {
+            releaseExclusiveLock();
+          }
+
+          OLogManager.instance().info(this, "Online build of index %s was successfully finished, %d records were indexed.",
+              index.getName(), documentIndexed);
+        } catch (Exception e) {
+          OLogManager.instance().error(this, "Online build of index %s failed, index will be removed.", e, index.getName());
+          dropIndex(index.getName());
+        } finally {
+          newDb.close();
+        }
+      }
+    };
+
+    final Thread onlineBuildThread = new Thread(onlineBuildTask, "OrientDB Online Index Build (" + index.getName() + ")");
+    onlineBuildThread.start();
+  }
+
   @Override
   public void waitTillIndexRestore() {
     if (recreateIndexesThread != null && recreateIndexesThread.isAlive()) {
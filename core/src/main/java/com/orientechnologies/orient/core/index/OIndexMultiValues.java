@@ -15,7 +15,6 @@
  */
 package com.orientechnologies.orient.core.index;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -25,7 +24,6 @@ import java.util.Map;
 import java.util.Set;
 
 import com.orientechnologies.common.collection.OMultiCollectionIterator;
-import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.resource.OSharedResourceIterator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
@@ -103,14 +101,8 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
         checkForKeyType(key);
         Set<OIdentifiable> values = indexEngine.get(key);
 
-        if (values == null) {
-          if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm)) {
-            values = new OIndexRIDContainer(getName());
-          } else {
-            values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
-            ((OMVRBTreeRIDSet) values).setAutoConvertToRecord(false);
-          }
-        }
+        if (values == null)
+          values = createValuesContainer();
 
         if (!iSingleValue.getIdentity().isValid())
           ((ORecord<?>) iSingleValue).save();
@@ -127,6 +119,29 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
       modificationLock.releaseModificationLock();
     }
   }
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
+  @Override
+  protected Set<OIdentifiable> bulkLoadValue(Object key, List<OIdentifiable> values) {
+    final Set<OIdentifiable> container = createValuesContainer();
+    for (OIdentifiable value : values)
+      container.add(value);
+
+    return container;
+  }
+
+  private Set<OIdentifiable> createValuesContainer() {
+    if (ODefaultIndexFactory.SBTREEBONSAI_VALUE_CONTAINER.equals(valueContainerAlgorithm))
+      return new OIndexRIDContainer(getName());
+
+    final OMVRBTreeRIDSet values = new OMVRBTreeRIDSet(OGlobalConfiguration.MVRBTREE_RID_BINARY_THRESHOLD.getValueAsInteger());
+    values.setAutoConvertToRecord(false);
+    return values;
+  }
+
 
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, final Map<Object, Object> snapshot) {
@@ -302,27 +317,24 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
   public void getValues(final Collection<?> iKeys, final IndexValuesResultListener resultListener) {
     checkForRebuild();
 
-    final List<Object> sortedKeys = new ArrayList<Object>(iKeys);
-    Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
+    final List<Object> sortedKeys = getSortedCollatingKeys(iKeys);
 
     acquireSharedLock();
     try {
-      for (Object key : sortedKeys) {
-        key = getCollatingValue(key);
-
-        final Set<OIdentifiable> values = indexEngine.get(key);
-
-        if (values == null)
-          continue;
-
-        if (!values.isEmpty()) {
-          for (final OIdentifiable value : values) {
+      if (containsNullKey(iKeys)) {
+        final Set<OIdentifiable> values = indexEngine.get(null);
+        if (values != null)
+          for (final OIdentifiable value : values)
             if (!resultListener.addResult(value))
               return;
-          }
-        }
       }
 
+      indexEngine.getValues(sortedKeys, MultiValuesTransformer.INSTANCE, new OIndexEngine.ValuesResultListener() {
+        @Override
+        public boolean addResult(OIdentifiable identifiable) {
+          return resultListener.addResult(identifiable);
+        }
+      });
     } finally {
       releaseSharedLock();
     }
@@ -393,34 +405,33 @@ public abstract class OIndexMultiValues extends OIndexAbstract<Set<OIdentifiable
 
   }
 
-  public void getEntries(Collection<?> iKeys, IndexEntriesResultListener resultListener) {
+  public void getEntries(Collection<?> iKeys, final IndexEntriesResultListener resultListener) {
     checkForRebuild();
 
-    final List<Object> sortedKeys = new ArrayList<Object>(iKeys);
-    Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
+    final List<Object> sortedKeys = getSortedCollatingKeys(iKeys);
 
     acquireSharedLock();
     try {
-      for (Object key : sortedKeys) {
-        key = getCollatingValue(key);
-
-        final Set<OIdentifiable> values = indexEngine.get(key);
-
-        if (values == null)
-          continue;
-
-        if (!values.isEmpty()) {
+      if (containsNullKey(iKeys)) {
+        final Set<OIdentifiable> values = indexEngine.get(null);
+        if (values != null)
           for (final OIdentifiable value : values) {
             final ODocument document = new ODocument();
-            document.field("key", key);
+            document.field("key", (Object) null);
             document.field("rid", value.getIdentity());
             document.unsetDirty();
 
             if (!resultListener.addResult(document))
               return;
           }
-        }
       }
+
+      indexEngine.getEntries(sortedKeys, MultiValuesTransformer.INSTANCE, new OIndexEngine.EntriesResultListener() {
+        @Override
+        public boolean addResult(ODocument entry) {
+          return resultListener.addResult(entry);
+        }
+      });
     } finally {
       releaseSharedLock();
     }
@@ -15,14 +15,11 @@
  */
 package com.orientechnologies.orient.core.index;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
-import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.resource.OSharedResourceIterator;
 import com.orientechnologies.common.listener.OProgressListener;
 import com.orientechnologies.common.log.OLogManager;
@@ -174,20 +171,22 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
   public void getValues(final Collection<?> keys, final IndexValuesResultListener resultListener) {
     checkForRebuild();
 
-    final List<Object> sortedKeys = new ArrayList<Object>(keys);
-    Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
+    final List<Object> sortedKeys = getSortedCollatingKeys(keys);
 
     acquireSharedLock();
     try {
-      for (Object key : sortedKeys) {
-        key = getCollatingValue(key);
+      if (containsNullKey(keys)) {
+        final OIdentifiable value = indexEngine.get(null);
+        if (value != null && !resultListener.addResult(value))
+          return;
+      }
 
-        final OIdentifiable val = indexEngine.get(key);
-        if (val != null) {
-          if (!resultListener.addResult(val))
-            return;
+      indexEngine.getValues(sortedKeys, null, new OIndexEngine.ValuesResultListener() {
+        @Override
+        public boolean addResult(OIdentifiable identifiable) {
+          return resultListener.addResult(identifiable);
         }
-      }
+      });
     } finally {
       releaseSharedLock();
     }
@@ -253,28 +252,32 @@ public abstract class OIndexOneValue extends OIndexAbstract<OIdentifiable> {
     }
   }
 
-  public void getEntries(final Collection<?> keys, IndexEntriesResultListener resultListener) {
+  public void getEntries(final Collection<?> keys, final IndexEntriesResultListener resultListener) {
     checkForRebuild();
 
-    final List<Object> sortedKeys = new ArrayList<Object>(keys);
-    Collections.sort(sortedKeys, ODefaultComparator.INSTANCE);
+    final List<Object> sortedKeys = getSortedCollatingKeys(keys);
 
     acquireSharedLock();
     try {
-      for (Object key : sortedKeys) {
-        key = getCollatingValue(key);
-
-        final OIdentifiable val = indexEngine.get(key);
-        if (val != null) {
+      if (containsNullKey(keys)) {
+        final OIdentifiable value = indexEngine.get(null);
+        if (value != null) {
           final ODocument document = new ODocument();
-          document.field("key", key);
-          document.field("rid", val.getIdentity());
+          document.field("key", (Object) null);
+          document.field("rid", value.getIdentity());
           document.unsetDirty();
 
           if (!resultListener.addResult(document))
             return;
         }
       }
+
+      indexEngine.getEntries(sortedKeys, null, new OIndexEngine.EntriesResultListener() {
+        @Override
+        public boolean addResult(ODocument entry) {
+          return resultListener.addResult(entry);
+        }
+      });
     } finally {
       releaseSharedLock();
     }
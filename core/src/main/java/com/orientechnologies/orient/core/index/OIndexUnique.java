@@ -17,9 +17,11 @@ package com.orientechnologies.orient.core.index;
 
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
@@ -31,6 +33,10 @@ import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
  * 
  */
 public class OIndexUnique extends OIndexOneValue {
+  private static final Object                NULL_KEY       = new Object();
+
+  private final OLockManager<Object, Thread> keyLockManager = new OLockManager<Object, Thread>(true, 0);
+
   public OIndexUnique(String typeId, String algorithm, OIndexEngine<OIdentifiable> engine, String valueContainerAlgorithm) {
     super(typeId, algorithm, engine, valueContainerAlgorithm);
   }
@@ -43,7 +49,10 @@ public class OIndexUnique extends OIndexOneValue {
 
     modificationLock.requestModificationLock();
     try {
-      acquireExclusiveLock();
+      // INDEX ENGINES ARE THREAD SAFE, SO ONLY CHECK FOR DUPLICATES AND INSERTION OF THE SAME KEY ARE ISOLATED FROM EACH OTHER
+      acquireSharedLock();
+      final Object lockedKey = key != null ? key : NULL_KEY;
+      keyLockManager.acquireLock(Thread.currentThread(), lockedKey, OLockManager.LOCK.EXCLUSIVE);
       try {
         checkForKeyType(key);
         final OIdentifiable value = indexEngine.get(key);
@@ -65,13 +74,34 @@ public class OIndexUnique extends OIndexOneValue {
         return this;
 
       } finally {
-        releaseExclusiveLock();
+        keyLockManager.releaseLock(Thread.currentThread(), lockedKey, OLockManager.LOCK.EXCLUSIVE);
+        releaseSharedLock();
       }
     } finally {
       modificationLock.releaseModificationLock();
     }
   }
 
+  @Override
+  protected boolean isBulkLoadSupported() {
+    return true;
+  }
+
+  @Override
+  protected OIdentifiable bulkLoadValue(Object key, List<OIdentifiable> values) {
+    final OIdentifiable value = values.get(0);
+
+    for (int i = 1; i < values.size(); i++) {
+      final OIdentifiable duplicate = values.get(i);
+      if (!value.equals(duplicate))
+        throw new ORecordDuplicatedException(String.format(
+            "Cannot index record %s: found duplicated key '%s' in index '%s' previously assigned to the record %s",
+            duplicate.getIdentity(), key, getName(), value.getIdentity()), value.getIdentity());
+    }
+
+    return value;
+  }
+
   @Override
   protected void putInSnapshot(Object key, OIdentifiable value, Map<Object, Object> snapshot) {
     key = getCollatingValue(key);
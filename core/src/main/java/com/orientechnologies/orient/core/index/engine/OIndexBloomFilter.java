@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.index.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.collection.OBloomFilter;
+import com.orientechnologies.common.hash.OMurmurHash3;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Bloom filter of keys of index engine, it is checked before key is searched in the index, so lookups of absent keys do not touch
+ * pages of the index. Keys are hashed in serialized form, so hash codes do not depend on JVM.
+ *
+ * Filter is written to the file next to files of the index when index is closed and the file is removed once it is read, so filter
+ * which misses keys added before unclean shutdown is never loaded, such filter is rebuilt from keys of the index instead. Filter is
+ * rebuilt the same way if too many keys were removed from the index since it was built.
+ */
+public class OIndexBloomFilter {
+  public static final String       FILE_EXTENSION = ".ibf";
+
+  private static final int         SEED           = 1507370863;
+
+  private final double             falsePositiveRate;
+  private final long               maxMemory;
+
+  private OBinarySerializer<Object> keySerializer;
+  private Object[]                 keyTypes;
+  private File                     file;
+
+  private volatile OBloomFilter    filter;
+  private final AtomicLong         addedKeys      = new AtomicLong();
+  private final AtomicLong         removedKeys    = new AtomicLong();
+
+  /**
+   * @param falsePositiveRate
+   *          Upper bound of probability that lookup of absent key reaches the index.
+   * @param maxMemory
+   *          Maximum amount of bytes filter may occupy.
+   */
+  public OIndexBloomFilter(double falsePositiveRate, long maxMemory) {
+    this.falsePositiveRate = falsePositiveRate;
+    this.maxMemory = maxMemory;
+  }
+
+  public void create(String storagePath, String indexName, OBinarySerializer<?> keySerializer, OType[] keyTypes) {
+    init(storagePath, indexName, keySerializer, keyTypes);
+
+    if (file.exists() && !file.delete())
+      OLogManager.instance().warn(this, "Cannot delete stale Bloom filter file '%s'", file);
+
+    clear(0);
+  }
+
+  /**
+   * Reads filter from the file or rebuilds it from the keys of the index if file is absent or does not match the index.
+   */
+  public void load(String storagePath, String indexName, OBinarySerializer<?> keySerializer, OType[] keyTypes, long indexSize,
+      Iterable<Object> keys) {
+    init(storagePath, indexName, keySerializer, keyTypes);
+
+    filter = read(indexSize);
+    if (filter != null)
+      return;
+
+    OLogManager.instance().info(this, "Bloom filter of index '%s' is rebuilt from keys of index", indexName);
+
+    clear(indexSize);
+    for (Object key : keys)
+      add(key);
+  }
+
+  /**
+   * Writes filter to the file, unless it was saturated or too many keys were removed since it was built, so it should be rebuilt
+   * on the next load.
+   */
+  public void close(long indexSize) {
+    final OBloomFilter currentFilter = filter;
+    if (currentFilter == null || file == null)
+      return;
+
+    if (currentFilter.isSaturated() || removedKeys.get() * 2 > addedKeys.get())
+      return;
+
+    final File tmpFile = new File(file.getPath() + ".tmp");
+    try {
+      final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+      try {
+        output.writeLong(indexSize);
+        output.writeLong(addedKeys.get());
+        output.writeLong(removedKeys.get());
+        currentFilter.toStream(output);
+      } finally {
+        output.close();
+      }
+
+      if (!tmpFile.renameTo(file))
+        OLogManager.instance().warn(this, "Cannot store Bloom filter to the file '%s'", file);
+    } catch (IOException e) {
+      OLogManager.instance().warn(this, "Cannot store Bloom filter to the file '%s'", e, file);
+    }
+  }
+
+  public void delete() {
+    filter = null;
+
+    if (file != null && file.exists() && !file.delete())
+      OLogManager.instance().warn(this, "Cannot delete Bloom filter file '%s'", file);
+  }
+
+  /**
+   * Removes file of filter of index which is not loaded.
+   */
+  public static void deleteWithoutLoad(String storagePath, String indexName) {
+    final File file = new File(storagePath, indexName + FILE_EXTENSION);
+    if (file.exists() && !file.delete())
+      OLogManager.instance().warn(OIndexBloomFilter.class, "Cannot delete Bloom filter file '%s'", file);
+  }
+
+  public void clear() {
+    clear(0);
+  }
+
+  public void add(Object key) {
+    final OBloomFilter currentFilter = filter;
+    if (key == null || currentFilter == null)
+      return;
+
+    if (currentFilter.add(hashCode(key)))
+      addedKeys.incrementAndGet();
+  }
+
+  public void remove(Object key) {
+    if (key != null)
+      removedKeys.incrementAndGet();
+  }
+
+  /**
+   * @return false if key is definitely absent in the index.
+   */
+  public boolean mightContain(Object key) {
+    final OBloomFilter currentFilter = filter;
+    if (key == null || currentFilter == null)
+      return true;
+
+    return currentFilter.mightContain(hashCode(key));
+  }
+
+  public double getFalsePositiveRate() {
+    return falsePositiveRate;
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  // KEYS ARE PASSED BY THE SAME INDEX ENGINE WHICH SERIALIZES THEM WITH THIS SERIALIZER, SO THEY ALWAYS HAVE SUITABLE TYPE
+  @SuppressWarnings("unchecked")
+  private void init(String storagePath, String indexName, OBinarySerializer<?> keySerializer, OType[] keyTypes) {
+    this.keySerializer = (OBinarySerializer<Object>) keySerializer;
+    this.keyTypes = keyTypes;
+    this.file = new File(storagePath, indexName + FILE_EXTENSION);
+  }
+
+  private void clear(long expectedKeys) {
+    filter = new OBloomFilter(Math.max(expectedKeys, OGlobalConfiguration.INDEX_BLOOM_FILTER_INITIAL_CAPACITY.getValueAsLong()),
+        falsePositiveRate, maxMemory);
+    addedKeys.set(0);
+    removedKeys.set(0);
+  }
+
+  private OBloomFilter read(long indexSize) {
+    if (!file.exists())
+      return null;
+
+    try {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (input.readLong() != indexSize)
+          return null;
+
+        final long added = input.readLong();
+        final long removed = input.readLong();
+        final OBloomFilter storedFilter = OBloomFilter.fromStream(input);
+
+        if (storedFilter.getFalsePositiveRate() != falsePositiveRate)
+          return null;
+
+        addedKeys.set(added);
+        removedKeys.set(removed);
+        return storedFilter;
+      } finally {
+        input.close();
+      }
+    } catch (IOException e) {
+      OLogManager.instance().warn(this, "Cannot read Bloom filter from the file '%s'", e, file);
+      return null;
+    } finally {
+      // FILTER IS VALID ONLY UNTIL THE INDEX IS CHANGED
+      if (!file.delete())
+        OLogManager.instance().warn(this, "Cannot delete Bloom filter file '%s'", file);
+    }
+  }
+
+  private long hashCode(Object key) {
+    key = keySerializer.preprocess(key, keyTypes);
+
+    final byte[] serializedKey = new byte[keySerializer.getObjectSize(key, keyTypes)];
+    keySerializer.serializeNative(key, serializedKey, 0, keyTypes);
+
+    return OMurmurHash3.murmurHash3_x64_64(serializedKey, SEED);
+  }
+}
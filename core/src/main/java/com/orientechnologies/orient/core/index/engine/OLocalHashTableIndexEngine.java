@@ -15,13 +15,17 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexEngine;
@@ -29,6 +33,7 @@ import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
 import com.orientechnologies.orient.core.index.hashindex.local.OHashIndexBucket;
 import com.orientechnologies.orient.core.index.hashindex.local.OLocalHashTable;
 import com.orientechnologies.orient.core.index.hashindex.local.OMurmurHash3HashFunction;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.serializer.binary.OBinarySerializerFactory;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
@@ -49,6 +54,7 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
   private final OMurmurHash3HashFunction<Object> hashFunction;
 
   private volatile ORID                          identity;
+  private volatile OIndexBloomFilter             bloomFilter;
 
   public OLocalHashTableIndexEngine() {
     hashFunction = new OMurmurHash3HashFunction<Object>();
@@ -59,6 +65,11 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
   public void init() {
   }
 
+  @Override
+  public void enableBloomFilter(double falsePositiveRate, long maxMemory) {
+    bloomFilter = new OIndexBloomFilter(falsePositiveRate, maxMemory);
+  }
+
   @Override
   public void create(String indexName, OIndexDefinition indexDefinition, String clusterIndexName,
       OStreamSerializer valueSerializer, boolean isAutomatic) {
@@ -87,6 +98,10 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
     hashFunction.setValueSerializer(keySerializer);
     hashTable.create(indexName, keySerializer, (OBinarySerializer<V>) valueSerializer,
         indexDefinition != null ? indexDefinition.getTypes() : null, storageLocalAbstract);
+
+    if (bloomFilter != null)
+      bloomFilter.create(storageLocalAbstract.getStoragePath(), indexName, keySerializer,
+          indexDefinition != null ? indexDefinition.getTypes() : null);
   }
 
   @Override
@@ -96,35 +111,55 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
 
   @Override
   public void deleteWithoutLoad(String indexName) {
-    hashTable.deleteWithoutLoad(indexName, (OStorageLocalAbstract) getDatabase().getStorage().getUnderlying());
+    final OStorageLocalAbstract storageLocalAbstract = (OStorageLocalAbstract) getDatabase().getStorage().getUnderlying();
+
+    hashTable.deleteWithoutLoad(indexName, storageLocalAbstract);
+    OIndexBloomFilter.deleteWithoutLoad(storageLocalAbstract.getStoragePath(), indexName);
   }
 
   @Override
   public void delete() {
     hashTable.delete();
+
+    if (bloomFilter != null)
+      bloomFilter.delete();
   }
 
   @Override
   public void load(ORID indexRid, String indexName, OIndexDefinition indexDefinition, boolean isAutomatic) {
     identity = indexRid;
-    hashTable.load(indexName, indexDefinition != null ? indexDefinition.getTypes() : null, (OStorageLocalAbstract) getDatabase()
-        .getStorage().getUnderlying());
+
+    final OStorageLocalAbstract storageLocalAbstract = (OStorageLocalAbstract) getDatabase().getStorage().getUnderlying();
+    hashTable.load(indexName, indexDefinition != null ? indexDefinition.getTypes() : null, storageLocalAbstract);
     hashFunction.setValueSerializer(hashTable.getKeySerializer());
+
+    if (bloomFilter != null)
+      bloomFilter.load(storageLocalAbstract.getStoragePath(), indexName, hashTable.getKeySerializer(),
+          indexDefinition != null ? indexDefinition.getTypes() : null, hashTable.size(), keys());
   }
 
   @Override
   public boolean contains(Object key) {
+    if (bloomFilter != null && !bloomFilter.mightContain(key))
+      return false;
+
     return hashTable.get(key) != null;
   }
 
   @Override
   public boolean remove(Object key) {
+    if (bloomFilter != null)
+      bloomFilter.remove(key);
+
     return hashTable.remove(key) != null;
   }
 
   @Override
   public void clear() {
     hashTable.clear();
+
+    if (bloomFilter != null)
+      bloomFilter.clear();
   }
 
   @Override
@@ -137,19 +172,44 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
 
   @Override
   public void close() {
+    if (bloomFilter != null)
+      bloomFilter.close(hashTable.size());
+
     hashTable.close();
   }
 
   @Override
   public V get(Object key) {
+    if (bloomFilter != null && !bloomFilter.mightContain(key))
+      return null;
+
     return hashTable.get(key);
   }
 
   @Override
   public void put(Object key, V value) {
+    if (bloomFilter != null)
+      bloomFilter.add(key);
+
     hashTable.put(key, value);
   }
 
+  @Override
+  public void getValues(Collection<?> sortedKeys, ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener) {
+    for (OHashIndexBucket.Entry<Object, V> entry : hashTable.getAll(filterKeys(sortedKeys))) {
+      if (!addToResult(transformer, valuesResultListener, entry.value))
+        return;
+    }
+  }
+
+  @Override
+  public void getEntries(Collection<?> sortedKeys, ValuesTransformer<V> transformer, EntriesResultListener entriesResultListener) {
+    for (OHashIndexBucket.Entry<Object, V> entry : hashTable.getAll(filterKeys(sortedKeys))) {
+      if (!addToEntriesResult(transformer, entry.key, entry.value, entriesResultListener))
+        return;
+    }
+  }
+
   @Override
   public long size(ValuesTransformer<V> transformer) {
     if (transformer == null)
@@ -268,6 +328,59 @@ public final class OLocalHashTableIndexEngine<V> implements OIndexEngine<V> {
     return ODatabaseRecordThreadLocal.INSTANCE.get();
   }
 
+  private Collection<?> filterKeys(Collection<?> keys) {
+    if (bloomFilter == null)
+      return keys;
+
+    final List<Object> filteredKeys = new ArrayList<Object>(keys.size());
+    for (Object key : keys)
+      if (bloomFilter.mightContain(key))
+        filteredKeys.add(key);
+
+    return filteredKeys;
+  }
+
+  private boolean addToResult(ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener, V value) {
+    if (transformer != null) {
+      Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
+      for (OIdentifiable transformedValue : transformResult) {
+        boolean cont = valuesResultListener.addResult(transformedValue);
+        if (!cont)
+          return false;
+      }
+
+      return true;
+    } else
+      return valuesResultListener.addResult((OIdentifiable) value);
+  }
+
+  private boolean addToEntriesResult(ValuesTransformer<V> transformer, Object key, V value,
+      EntriesResultListener entriesResultListener) {
+    if (transformer != null) {
+      Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
+      for (OIdentifiable transformedValue : transformResult) {
+        final ODocument document = new ODocument();
+        document.field("key", key);
+        document.field("rid", transformedValue.getIdentity());
+        document.unsetDirty();
+
+        boolean cont = entriesResultListener.addResult(document);
+
+        if (!cont)
+          return false;
+      }
+
+      return true;
+    } else {
+      final ODocument document = new ODocument();
+      document.field("key", key);
+      document.field("rid", ((OIdentifiable) value).getIdentity());
+      document.unsetDirty();
+
+      return entriesResultListener.addResult(document);
+    }
+  }
+
   private final class EntriesIterator implements Iterator<Map.Entry<Object, V>> {
     private int                                 size = 0;
     private int                                 nextEntriesIndex;
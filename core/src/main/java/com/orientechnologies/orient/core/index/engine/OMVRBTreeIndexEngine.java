@@ -15,8 +15,10 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -73,6 +75,10 @@ public final class OMVRBTreeIndexEngine<V> extends OSharedResourceAdaptiveExtern
     }
   }
 
+  @Override
+  public void enableBloomFilter(double falsePositiveRate, long maxMemory) {
+  }
+
   @Override
   public void flush() {
     acquireExclusiveLock();
@@ -344,6 +350,36 @@ public final class OMVRBTreeIndexEngine<V> extends OSharedResourceAdaptiveExtern
     }
   }
 
+  @Override
+  public void getValues(Collection<?> sortedKeys, ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener) {
+    acquireExclusiveLock();
+    try {
+      for (V value : map.getAll(new ArrayList<Object>(sortedKeys))) {
+        if (value != null && !addToResult(transformer, valuesResultListener, value))
+          return;
+      }
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
+  @Override
+  public void getEntries(Collection<?> sortedKeys, ValuesTransformer<V> transformer, EntriesResultListener entriesResultListener) {
+    acquireExclusiveLock();
+    try {
+      final List<Object> keys = new ArrayList<Object>(sortedKeys);
+      final List<V> values = map.getAll(keys);
+
+      for (int i = 0; i < keys.size(); i++) {
+        final V value = values.get(i);
+        if (value != null && !addToEntriesResult(transformer, keys.get(i), value, entriesResultListener))
+          return;
+      }
+    } finally {
+      releaseExclusiveLock();
+    }
+  }
+
   @Override
   public void getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
       ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener) {
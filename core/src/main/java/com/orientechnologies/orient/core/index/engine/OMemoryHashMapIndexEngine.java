@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,9 +23,11 @@ import java.util.concurrent.ConcurrentMap;
 
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexEngine;
+import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.record.impl.ORecordBytes;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializer;
 
@@ -44,6 +47,10 @@ public class OMemoryHashMapIndexEngine<V> implements OIndexEngine<V> {
   public void flush() {
   }
 
+  @Override
+  public void enableBloomFilter(double falsePositiveRate, long maxMemory) {
+  }
+
   @Override
   public void create(String indexName, OIndexDefinition indexDefinition, String clusterIndexName,
       OStreamSerializer valueSerializer, boolean isAutomatic) {
@@ -153,6 +160,24 @@ public class OMemoryHashMapIndexEngine<V> implements OIndexEngine<V> {
     concurrentHashMap.put(key, value);
   }
 
+  @Override
+  public void getValues(Collection<?> sortedKeys, ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener) {
+    for (Object key : sortedKeys) {
+      final V value = concurrentHashMap.get(key);
+      if (value != null && !addToResult(transformer, valuesResultListener, value))
+        return;
+    }
+  }
+
+  @Override
+  public void getEntries(Collection<?> sortedKeys, ValuesTransformer<V> transformer, EntriesResultListener entriesResultListener) {
+    for (Object key : sortedKeys) {
+      final V value = concurrentHashMap.get(key);
+      if (value != null && !addToEntriesResult(transformer, key, value, entriesResultListener))
+        return;
+    }
+  }
+
   @Override
   public void getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
       ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener) {
@@ -211,4 +236,45 @@ public class OMemoryHashMapIndexEngine<V> implements OIndexEngine<V> {
     return ODatabaseRecordThreadLocal.INSTANCE.get();
   }
 
+  private boolean addToResult(ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener, V value) {
+    if (transformer != null) {
+      Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
+      for (OIdentifiable transformedValue : transformResult) {
+        boolean cont = valuesResultListener.addResult(transformedValue);
+        if (!cont)
+          return false;
+      }
+
+      return true;
+    } else
+      return valuesResultListener.addResult((OIdentifiable) value);
+  }
+
+  private boolean addToEntriesResult(ValuesTransformer<V> transformer, Object key, V value,
+      EntriesResultListener entriesResultListener) {
+    if (transformer != null) {
+      Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
+      for (OIdentifiable transformedValue : transformResult) {
+        final ODocument document = new ODocument();
+        document.field("key", key);
+        document.field("rid", transformedValue.getIdentity());
+        document.unsetDirty();
+
+        boolean cont = entriesResultListener.addResult(document);
+
+        if (!cont)
+          return false;
+      }
+
+      return true;
+    } else {
+      final ODocument document = new ODocument();
+      document.field("key", key);
+      document.field("rid", ((OIdentifiable) value).getIdentity());
+      document.unsetDirty();
+
+      return entriesResultListener.addResult(document);
+    }
+  }
+
 }
@@ -15,6 +15,7 @@
  */
 package com.orientechnologies.orient.core.index.engine;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -27,11 +28,15 @@ import com.orientechnologies.orient.core.serialization.serializer.stream.OStream
  * @author Andrey Lomakin
  * @since 18.07.13
  */
-public class ORemoteIndexEngine implements OIndexEngine {
+public class ORemoteIndexEngine<V> implements OIndexEngine<V> {
   @Override
   public void init() {
   }
 
+  @Override
+  public void enableBloomFilter(double falsePositiveRate, long maxMemory) {
+  }
+
   @Override
   public void flush() {
   }
@@ -73,22 +78,22 @@ public class ORemoteIndexEngine implements OIndexEngine {
   }
 
   @Override
-  public Iterator<Map.Entry> iterator() {
+  public Iterator<Map.Entry<Object, V>> iterator() {
     return null;
   }
 
   @Override
-  public Iterator<Map.Entry> inverseIterator() {
+  public Iterator<Map.Entry<Object, V>> inverseIterator() {
     return null;
   }
 
   @Override
-  public Iterator valuesIterator() {
+  public Iterator<V> valuesIterator() {
     return null;
   }
 
   @Override
-  public Iterator inverseValuesIterator() {
+  public Iterator<V> inverseValuesIterator() {
     return null;
   }
 
@@ -130,46 +135,54 @@ public class ORemoteIndexEngine implements OIndexEngine {
   }
 
   @Override
-  public Object get(Object key) {
+  public V get(Object key) {
     return null;
   }
 
   @Override
-  public void put(Object key, Object value) {
+  public void put(Object key, V value) {
+  }
+
+  @Override
+  public void getValues(Collection<?> sortedKeys, ValuesTransformer<V> transformer, ValuesResultListener valuesResultListener) {
+  }
+
+  @Override
+  public void getEntries(Collection<?> sortedKeys, ValuesTransformer<V> transformer, EntriesResultListener entriesResultListener) {
   }
 
   @Override
   public void getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
-      ValuesTransformer transformer, ValuesResultListener resultListener) {
+      ValuesTransformer<V> transformer, ValuesResultListener resultListener) {
   }
 
   @Override
-  public void getValuesMajor(Object fromKey, boolean isInclusive, ValuesTransformer transformer,
+  public void getValuesMajor(Object fromKey, boolean isInclusive, ValuesTransformer<V> transformer,
       ValuesResultListener valuesResultListener) {
   }
 
   @Override
-  public void getValuesMinor(Object toKey, boolean isInclusive, ValuesTransformer transformer,
+  public void getValuesMinor(Object toKey, boolean isInclusive, ValuesTransformer<V> transformer,
       ValuesResultListener valuesResultListener) {
   }
 
   @Override
-  public void getEntriesMajor(Object fromKey, boolean isInclusive, ValuesTransformer transformer,
+  public void getEntriesMajor(Object fromKey, boolean isInclusive, ValuesTransformer<V> transformer,
       EntriesResultListener entriesResultListener) {
   }
 
   @Override
-  public void getEntriesMinor(Object toKey, boolean isInclusive, ValuesTransformer transformer,
+  public void getEntriesMinor(Object toKey, boolean isInclusive, ValuesTransformer<V> transformer,
       EntriesResultListener entriesResultListener) {
   }
 
   @Override
-  public void getEntriesBetween(Object iRangeFrom, Object iRangeTo, boolean iInclusive, ValuesTransformer transformer,
+  public void getEntriesBetween(Object iRangeFrom, Object iRangeTo, boolean iInclusive, ValuesTransformer<V> transformer,
       EntriesResultListener entriesResultListener) {
   }
 
   @Override
-  public long size(ValuesTransformer transformer) {
+  public long size(ValuesTransformer<V> transformer) {
     return 0;
   }
 
@@ -16,8 +16,11 @@
 
 package com.orientechnologies.orient.core.index.engine;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +35,7 @@ import com.orientechnologies.orient.core.index.ODocumentFieldsHashSet;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexEngine;
 import com.orientechnologies.orient.core.index.ORuntimeKeyIndexDefinition;
+import com.orientechnologies.orient.core.index.sbtree.OSBTreeBulkLoadSorter;
 import com.orientechnologies.orient.core.index.sbtree.OSBTreeInverseMapEntryIterator;
 import com.orientechnologies.orient.core.index.sbtree.OSBTreeMapEntryIterator;
 import com.orientechnologies.orient.core.index.sbtree.OTreeInternal;
@@ -51,8 +55,9 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
 public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal implements OIndexEngine<V> {
   public static final String DATA_FILE_EXTENSION = ".sbt";
 
-  private ORID               identity;
-  private OSBTree<Object, V> sbTree;
+  private ORID                        identity;
+  private OSBTree<Object, V>          sbTree;
+  private volatile OIndexBloomFilter  bloomFilter;
 
   public OSBTreeIndexEngine() {
     super(OGlobalConfiguration.ENVIRONMENT_CONCURRENT.getValueAsBoolean(), OGlobalConfiguration.MVRBTREE_TIMEOUT
@@ -63,6 +68,11 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public void init() {
   }
 
+  @Override
+  public void enableBloomFilter(double falsePositiveRate, long maxMemory) {
+    bloomFilter = new OIndexBloomFilter(falsePositiveRate, maxMemory);
+  }
+
   @Override
   public void flush() {
     acquireSharedLock();
@@ -108,6 +118,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
 
       sbTree.create(indexName, keySerializer, (OBinarySerializer<V>) valueSerializer,
           indexDefinition != null ? indexDefinition.getTypes() : null, storageLocalAbstract);
+
+      if (bloomFilter != null)
+        bloomFilter.create(storageLocalAbstract.getStoragePath(), indexName, keySerializer, sbTree.getKeyTypes());
     } finally {
       releaseExclusiveLock();
     }
@@ -118,6 +131,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     acquireSharedLock();
     try {
       sbTree.delete();
+
+      if (bloomFilter != null)
+        bloomFilter.delete();
     } finally {
       releaseSharedLock();
     }
@@ -132,6 +148,7 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
 
       sbTree = new OSBTree<Object, V>(DATA_FILE_EXTENSION, 1, OGlobalConfiguration.INDEX_DURABLE_IN_NON_TX_MODE.getValueAsBoolean());
       sbTree.deleteWithoutLoad(indexName, storageLocalAbstract);
+      OIndexBloomFilter.deleteWithoutLoad(storageLocalAbstract.getStoragePath(), indexName);
     } finally {
       releaseExclusiveLock();
     }
@@ -154,6 +171,10 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
       final OStorageLocalAbstract storageLocalAbstract = (OStorageLocalAbstract) database.getStorage().getUnderlying();
 
       sbTree.load(indexName, indexDefinition != null ? indexDefinition.getTypes() : null, storageLocalAbstract);
+
+      if (bloomFilter != null)
+        bloomFilter.load(storageLocalAbstract.getStoragePath(), indexName, sbTree.getKeySerializer(), sbTree.getKeyTypes(),
+            sbTree.size(), keys());
     } finally {
       releaseExclusiveLock();
     }
@@ -163,6 +184,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public boolean contains(Object key) {
     acquireSharedLock();
     try {
+      if (bloomFilter != null && !bloomFilter.mightContain(key))
+        return false;
+
       return sbTree.get(key) != null;
     } finally {
       releaseSharedLock();
@@ -173,6 +197,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public boolean remove(Object key) {
     acquireSharedLock();
     try {
+      if (bloomFilter != null)
+        bloomFilter.remove(key);
+
       return sbTree.remove(key) != null;
     } finally {
       releaseSharedLock();
@@ -194,6 +221,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     acquireSharedLock();
     try {
       sbTree.clear();
+
+      if (bloomFilter != null)
+        bloomFilter.clear();
     } finally {
       releaseSharedLock();
     }
@@ -335,6 +365,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public void close() {
     acquireSharedLock();
     try {
+      if (bloomFilter != null)
+        bloomFilter.close(sbTree.size());
+
       sbTree.close();
     } finally {
       releaseSharedLock();
@@ -349,6 +382,9 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public V get(Object key) {
     acquireSharedLock();
     try {
+      if (bloomFilter != null && !bloomFilter.mightContain(key))
+        return null;
+
       return sbTree.get(key);
     } finally {
       releaseSharedLock();
@@ -359,12 +395,110 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
   public void put(Object key, V value) {
     acquireSharedLock();
     try {
+      if (bloomFilter != null)
+        bloomFilter.add(key);
+
       sbTree.put(key, value);
     } finally {
       releaseSharedLock();
     }
   }
 
+  @Override
+  public void getValues(Collection<?> sortedKeys, final ValuesTransformer<V> transformer,
+      final ValuesResultListener valuesResultListener) {
+    acquireSharedLock();
+    try {
+      sbTree.loadEntries(filterKeys(sortedKeys), new OSBTree.RangeResultListener<Object, V>() {
+        @Override
+        public boolean addResult(Map.Entry<Object, V> entry) {
+          return addToResult(transformer, valuesResultListener, entry.getValue());
+        }
+      });
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  @Override
+  public void getEntries(Collection<?> sortedKeys, final ValuesTransformer<V> transformer,
+      final EntriesResultListener entriesResultListener) {
+    acquireSharedLock();
+    try {
+      sbTree.loadEntries(filterKeys(sortedKeys), new OSBTree.RangeResultListener<Object, V>() {
+        @Override
+        public boolean addResult(Map.Entry<Object, V> entry) {
+          return addToEntriesResult(transformer, entriesResultListener, entry.getKey(), entry.getValue());
+        }
+      });
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * @return sorter of keys which should be loaded into the index by {@link #bulkLoad(Iterator)}, temporary files of sorter are
+   *         placed in directory of storage.
+   */
+  public OSBTreeBulkLoadSorter<Object> createBulkLoadSorter() {
+    return createBulkLoadSorter(OGlobalConfiguration.SBTREE_BULK_LOAD_SORT_BUFFER.getValueAsInteger());
+  }
+
+  /**
+   * @param maxEntriesInMemory
+   *          amount of entries which are sorted in memory before they are stored in temporary file, is used when several sorters
+   *          are filled at the same time and should share the sort buffer.
+   * @see #createBulkLoadSorter()
+   */
+  public OSBTreeBulkLoadSorter<Object> createBulkLoadSorter(int maxEntriesInMemory) {
+    acquireSharedLock();
+    try {
+      final OStorageLocalAbstract storageLocalAbstract = (OStorageLocalAbstract) getDatabase().getStorage().getUnderlying();
+
+      return new OSBTreeBulkLoadSorter<Object>(sbTree.getKeySerializer(), sbTree.getKeyTypes(), maxEntriesInMemory, new File(
+          storageLocalAbstract.getStoragePath()));
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Loads entries sorted by key into empty index, see {@link OSBTree#bulkLoad(Iterator, float)}.
+   *
+   * @return amount of loaded entries.
+   */
+  public long bulkLoad(final Iterator<Map.Entry<Object, V>> sortedEntries) {
+    acquireSharedLock();
+    try {
+      final Iterator<Map.Entry<Object, V>> entries;
+      if (bloomFilter != null)
+        entries = new Iterator<Map.Entry<Object, V>>() {
+          @Override
+          public boolean hasNext() {
+            return sortedEntries.hasNext();
+          }
+
+          @Override
+          public Map.Entry<Object, V> next() {
+            final Map.Entry<Object, V> entry = sortedEntries.next();
+            bloomFilter.add(entry.getKey());
+            return entry;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException("remove");
+          }
+        };
+      else
+        entries = sortedEntries;
+
+      return sbTree.bulkLoad(entries, OGlobalConfiguration.SBTREE_BULK_LOAD_FILL_FACTOR.getValueAsFloat());
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   @Override
   public void getValuesBetween(Object rangeFrom, boolean fromInclusive, Object rangeTo, boolean toInclusive,
       final ValuesTransformer<V> transformer, final ValuesResultListener valuesResultListener) {
@@ -507,6 +641,18 @@ public class OSBTreeIndexEngine<V> extends OSharedResourceAdaptiveExternal imple
     return ODatabaseRecordThreadLocal.INSTANCE.get();
   }
 
+  private Collection<?> filterKeys(Collection<?> keys) {
+    if (bloomFilter == null)
+      return keys;
+
+    final List<Object> filteredKeys = new ArrayList<Object>(keys.size());
+    for (Object key : keys)
+      if (bloomFilter.mightContain(key))
+        filteredKeys.add(key);
+
+    return filteredKeys;
+  }
+
   private boolean addToResult(ValuesTransformer<V> transformer, ValuesResultListener resultListener, V value) {
     if (transformer != null) {
       Collection<OIdentifiable> transformResult = transformer.transformFromValue(value);
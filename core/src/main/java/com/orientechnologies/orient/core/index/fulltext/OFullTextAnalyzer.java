@@ -0,0 +1,177 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Splits text into terms of full-text index. Text is split into tokens by separator characters, then tokens are passed through
+ * chain of filters: lower case conversion, stop words removal, stemming, n-grams and custom filters, in this order. Each step
+ * except tokenizing is optional and is configured by fields of analyzer configuration document:
+ * <ul>
+ * <li>separatorChars, ignoreChars - characters which split text into tokens and characters which are removed from tokens</li>
+ * <li>lowerCase - whether search is case insensitive, true by default</li>
+ * <li>stopWords - list of words which are not indexed</li>
+ * <li>stemming - whether {@link OStemmingTokenFilter} is applied, false by default</li>
+ * <li>minGram, maxGram - sizes of n-grams produced by {@link ONGramTokenFilter}, n-grams are not produced by default</li>
+ * <li>filters - class names of custom {@link OFullTextTokenFilter} implementations</li>
+ * </ul>
+ */
+public class OFullTextAnalyzer {
+  public static final String       CONFIG_SEPARATOR_CHARS = "separatorChars";
+  public static final String       CONFIG_IGNORE_CHARS    = "ignoreChars";
+  public static final String       CONFIG_LOWER_CASE      = "lowerCase";
+  public static final String       CONFIG_STOP_WORDS      = "stopWords";
+  public static final String       CONFIG_STEMMING        = "stemming";
+  public static final String       CONFIG_MIN_GRAM        = "minGram";
+  public static final String       CONFIG_MAX_GRAM        = "maxGram";
+  public static final String       CONFIG_FILTERS         = "filters";
+
+  public static final String       DEF_SEPARATOR_CHARS    = " \r\n\t:;,.|+*/\\=!?[]()<>{}";
+  public static final String       DEF_IGNORE_CHARS       = "'\"";
+  public static final List<String> DEF_STOP_WORDS         = Collections.unmodifiableList(Arrays.asList("the", "in", "a", "at",
+                                                              "as", "and", "or", "for", "his", "her", "him", "this", "that",
+                                                              "what", "which", "while", "up", "with", "be", "was", "is"));
+
+  private final String             separatorChars;
+  private final String             ignoreChars;
+  private final boolean            lowerCase;
+  private final List<String>       stopWords;
+  private final boolean            stemming;
+  private final int                minGram;
+  private final int                maxGram;
+  private final List<String>       customFilters;
+
+  private final List<OFullTextTokenFilter> filters = new ArrayList<OFullTextTokenFilter>();
+
+  /**
+   * Creates analyzer with default configuration.
+   */
+  public OFullTextAnalyzer() {
+    this(null);
+  }
+
+  /**
+   * @param configuration
+   *          Configuration of analyzer, fields which are absent have default values. If configuration is <code>null</code> default
+   *          analyzer is created.
+   */
+  public OFullTextAnalyzer(ODocument configuration) {
+    if (configuration == null)
+      configuration = new ODocument();
+
+    separatorChars = fieldOrDefault(configuration, CONFIG_SEPARATOR_CHARS, DEF_SEPARATOR_CHARS);
+    ignoreChars = fieldOrDefault(configuration, CONFIG_IGNORE_CHARS, DEF_IGNORE_CHARS);
+    lowerCase = fieldOrDefault(configuration, CONFIG_LOWER_CASE, Boolean.TRUE).booleanValue();
+    stemming = fieldOrDefault(configuration, CONFIG_STEMMING, Boolean.FALSE).booleanValue();
+    minGram = fieldOrDefault(configuration, CONFIG_MIN_GRAM, (Number) 0).intValue();
+    maxGram = fieldOrDefault(configuration, CONFIG_MAX_GRAM, (Number) minGram).intValue();
+
+    final Collection<String> configuredStopWords = configuration.field(CONFIG_STOP_WORDS);
+    stopWords = configuredStopWords != null ? new ArrayList<String>(configuredStopWords) : DEF_STOP_WORDS;
+
+    final Collection<String> configuredFilters = configuration.field(CONFIG_FILTERS);
+    customFilters = configuredFilters != null ? new ArrayList<String>(configuredFilters) : Collections.<String> emptyList();
+
+    if (lowerCase)
+      filters.add(new OLowerCaseTokenFilter());
+    if (!stopWords.isEmpty())
+      filters.add(new OStopWordsTokenFilter(stopWords));
+    if (stemming)
+      filters.add(new OStemmingTokenFilter());
+    if (minGram > 0)
+      filters.add(new ONGramTokenFilter(minGram, maxGram));
+
+    for (String filterClassName : customFilters)
+      filters.add(createFilter(filterClassName));
+  }
+
+  /**
+   * @return Terms of passed in text in order of their appearance, the same term is repeated as many times as it appears in text.
+   */
+  public List<String> analyze(final String text) {
+    List<String> tokens = tokenize(text);
+
+    for (OFullTextTokenFilter filter : filters)
+      tokens = filter.filter(tokens);
+
+    return tokens;
+  }
+
+  public ODocument toConfiguration() {
+    final ODocument configuration = new ODocument();
+    configuration.field(CONFIG_SEPARATOR_CHARS, separatorChars);
+    configuration.field(CONFIG_IGNORE_CHARS, ignoreChars);
+    configuration.field(CONFIG_LOWER_CASE, lowerCase);
+    configuration.field(CONFIG_STOP_WORDS, stopWords, OType.EMBEDDEDLIST);
+    configuration.field(CONFIG_STEMMING, stemming);
+    configuration.field(CONFIG_MIN_GRAM, minGram);
+    configuration.field(CONFIG_MAX_GRAM, maxGram);
+    configuration.field(CONFIG_FILTERS, customFilters, OType.EMBEDDEDLIST);
+
+    return configuration;
+  }
+
+  /**
+   * Control characters always split text, so terms never contain them.
+   */
+  private List<String> tokenize(final String text) {
+    final List<String> tokens = new ArrayList<String>();
+    final StringBuilder token = new StringBuilder();
+
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+
+      if (Character.isISOControl(c) || separatorChars.indexOf(c) >= 0) {
+        if (token.length() > 0) {
+          tokens.add(token.toString());
+          token.setLength(0);
+        }
+      } else if (ignoreChars.indexOf(c) < 0)
+        token.append(c);
+    }
+
+    if (token.length() > 0)
+      tokens.add(token.toString());
+
+    return tokens;
+  }
+
+  private static OFullTextTokenFilter createFilter(String className) {
+    try {
+      return (OFullTextTokenFilter) Class.forName(className).newInstance();
+    } catch (Exception e) {
+      throw new OIndexException("Cannot create full-text token filter " + className, e);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T fieldOrDefault(ODocument configuration, String field, T defaultValue) {
+    final Object value = configuration.field(field);
+    if (value == null)
+      return defaultValue;
+
+    return (T) value;
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+/**
+ * Block of posting list of full-text index term. Block contains postings of records of single cluster whose positions share the
+ * same {@link #BLOCK_SHIFT} high bits, so the block which contains given record is found by key without search and update of
+ * posting list rewrites single block only.
+ * <p>
+ * Each posting contains frequency of term in indexed text and length of indexed text in terms, which are used in ranking. Postings
+ * are kept sorted by cluster position and are stored as deltas of positions, all numbers are stored in variable length format, so
+ * posting usually takes 3 bytes.
+ * <p>
+ * Block is presented as set of records which contain the term, so it can be processed by common code of indexes which have
+ * several values per key.
+ */
+public class OFullTextPostingList extends AbstractSet<OIdentifiable> {
+  /**
+   * Amount of low bits of cluster position which are not included in block key, so block contains up to 1024 postings.
+   */
+  public static final int BLOCK_SHIFT = 10;
+
+  private final int       clusterId;
+  private long[]          positions;
+  private int[]           frequencies;
+  private int[]           lengths;
+  private int             size;
+
+  public OFullTextPostingList(int clusterId) {
+    this.clusterId = clusterId;
+    positions = new long[4];
+    frequencies = new int[4];
+    lengths = new int[4];
+  }
+
+  public OFullTextPostingList(OFullTextPostingList postingList) {
+    clusterId = postingList.clusterId;
+    size = postingList.size;
+    positions = Arrays.copyOf(postingList.positions, Math.max(size, 4));
+    frequencies = Arrays.copyOf(postingList.frequencies, Math.max(size, 4));
+    lengths = Arrays.copyOf(postingList.lengths, Math.max(size, 4));
+  }
+
+  /**
+   * @return Number of block which contains postings of records with given cluster position.
+   */
+  public static long blockNumber(long clusterPosition) {
+    return clusterPosition >>> BLOCK_SHIFT;
+  }
+
+  public int getClusterId() {
+    return clusterId;
+  }
+
+  public long getBlockNumber() {
+    return blockNumber(positions[0]);
+  }
+
+  /**
+   * Adds posting of record or replaces existing one.
+   * 
+   * @param frequency
+   *          How many times term is met in indexed text.
+   * @param length
+   *          Length of indexed text in terms.
+   */
+  public void put(ORID rid, int frequency, int length) {
+    final long position = rid.getClusterPosition().longValue();
+    int index = Arrays.binarySearch(positions, 0, size, position);
+
+    if (index < 0) {
+      index = -index - 1;
+
+      if (size == positions.length) {
+        final int newCapacity = size << 1;
+        positions = Arrays.copyOf(positions, newCapacity);
+        frequencies = Arrays.copyOf(frequencies, newCapacity);
+        lengths = Arrays.copyOf(lengths, newCapacity);
+      }
+
+      System.arraycopy(positions, index, positions, index + 1, size - index);
+      System.arraycopy(frequencies, index, frequencies, index + 1, size - index);
+      System.arraycopy(lengths, index, lengths, index + 1, size - index);
+
+      positions[index] = position;
+      size++;
+    }
+
+    frequencies[index] = frequency;
+    lengths[index] = length;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    final int index = indexOf(o);
+    if (index < 0)
+      return false;
+
+    removeAt(index);
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  public ORID getRid(int index) {
+    return new ORecordId(clusterId, OClusterPositionFactory.INSTANCE.valueOf(positions[index]));
+  }
+
+  public int getFrequency(int index) {
+    return frequencies[index];
+  }
+
+  public int getLength(int index) {
+    return lengths[index];
+  }
+
+  /**
+   * @return Index of posting of record, or -1 if block does not contain record.
+   */
+  public int indexOf(Object o) {
+    if (!(o instanceof OIdentifiable))
+      return -1;
+
+    final ORID rid = ((OIdentifiable) o).getIdentity();
+    if (rid.getClusterId() != clusterId)
+      return -1;
+
+    final int index = Arrays.binarySearch(positions, 0, size, rid.getClusterPosition().longValue());
+    return index >= 0 ? index : -1;
+  }
+
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    return new Iterator<OIdentifiable>() {
+      private int     next         = 0;
+      private boolean canBeRemoved = false;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public OIdentifiable next() {
+        if (next >= size)
+          throw new NoSuchElementException();
+
+        canBeRemoved = true;
+        return getRid(next++);
+      }
+
+      @Override
+      public void remove() {
+        if (!canBeRemoved)
+          throw new IllegalStateException();
+
+        canBeRemoved = false;
+        removeAt(--next);
+      }
+    };
+  }
+
+  public void toStream(OVarIntStream stream) {
+    stream.writeInt(clusterId);
+    stream.writeInt(size);
+
+    long previousPosition = 0;
+    for (int i = 0; i < size; i++) {
+      stream.writeLong(positions[i] - previousPosition);
+      stream.writeInt(frequencies[i]);
+      stream.writeInt(lengths[i]);
+
+      previousPosition = positions[i];
+    }
+  }
+
+  public static OFullTextPostingList fromStream(OVarIntStream stream) {
+    final OFullTextPostingList postingList = new OFullTextPostingList(stream.readInt());
+    final int size = stream.readInt();
+
+    postingList.positions = new long[Math.max(size, 4)];
+    postingList.frequencies = new int[postingList.positions.length];
+    postingList.lengths = new int[postingList.positions.length];
+
+    long position = 0;
+    for (int i = 0; i < size; i++) {
+      position += stream.readLong();
+
+      postingList.positions[i] = position;
+      postingList.frequencies[i] = stream.readInt();
+      postingList.lengths[i] = stream.readInt();
+    }
+
+    postingList.size = size;
+    return postingList;
+  }
+
+  private void removeAt(int index) {
+    System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+    System.arraycopy(frequencies, index + 1, frequencies, index, size - index - 1);
+    System.arraycopy(lengths, index + 1, lengths, index, size - index - 1);
+    size--;
+  }
+}
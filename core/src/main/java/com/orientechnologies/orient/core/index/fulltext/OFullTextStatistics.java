@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+
+/**
+ * Amount and total length of texts indexed by full-text index, which are needed to rank search results. Statistics are stored in
+ * the same tree as posting lists, so they are presented as empty set of records.
+ */
+public class OFullTextStatistics extends AbstractSet<OIdentifiable> {
+  private long documents;
+  private long totalLength;
+
+  public OFullTextStatistics() {
+  }
+
+  public OFullTextStatistics(OFullTextStatistics statistics) {
+    documents = statistics.documents;
+    totalLength = statistics.totalLength;
+  }
+
+  public void addDocument(int length) {
+    documents++;
+    totalLength += length;
+  }
+
+  public void removeDocument(int length) {
+    if (documents > 0) {
+      documents--;
+      totalLength = Math.max(totalLength - length, 0);
+    }
+  }
+
+  /**
+   * Adds statistics of other part of the index.
+   */
+  public void add(OFullTextStatistics statistics) {
+    documents += statistics.documents;
+    totalLength += statistics.totalLength;
+  }
+
+  /**
+   * Adds length of one more text of record which is already counted.
+   */
+  public void addLength(int length) {
+    totalLength += length;
+  }
+
+  /**
+   * Removes length of one of texts of record which is still indexed by other texts.
+   */
+  public void removeLength(int length) {
+    totalLength = Math.max(totalLength - length, 0);
+  }
+
+  public long getDocuments() {
+    return documents;
+  }
+
+  public double getAverageLength() {
+    return documents > 0 ? (double) totalLength / documents : 0;
+  }
+
+  @Override
+  public Iterator<OIdentifiable> iterator() {
+    return Collections.<OIdentifiable> emptySet().iterator();
+  }
+
+  @Override
+  public int size() {
+    return 0;
+  }
+
+  public void toStream(OVarIntStream stream) {
+    stream.writeLong(documents);
+    stream.writeLong(totalLength);
+  }
+
+  public static OFullTextStatistics fromStream(OVarIntStream stream) {
+    final OFullTextStatistics statistics = new OFullTextStatistics();
+    statistics.documents = stream.readLong();
+    statistics.totalLength = stream.readLong();
+    return statistics;
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.List;
+
+/**
+ * Step of {@link OFullTextAnalyzer} pipeline which transforms tokens produced by tokenizer or by previous filter. Custom filters
+ * are listed in analyzer configuration by class name, so they should have public constructor without parameters.
+ */
+public interface OFullTextTokenFilter {
+  /**
+   * @param tokens
+   *          Tokens of analyzed text in order of their appearance, tokens may repeat.
+   * @return Filtered tokens, may be the same list which was passed in.
+   */
+  List<String> filter(List<String> tokens);
+}
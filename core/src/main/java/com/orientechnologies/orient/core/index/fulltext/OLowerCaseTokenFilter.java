@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Converts tokens to lower case, so search is case insensitive.
+ */
+public class OLowerCaseTokenFilter implements OFullTextTokenFilter {
+  @Override
+  public List<String> filter(List<String> tokens) {
+    for (int i = 0; i < tokens.size(); i++)
+      tokens.set(i, tokens.get(i).toLowerCase(Locale.ENGLISH));
+
+    return tokens;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces each token by its character n-grams, so text may be found by part of word. Tokens which are shorter than minimal n-gram
+ * are kept as is.
+ */
+public class ONGramTokenFilter implements OFullTextTokenFilter {
+  private final int minGram;
+  private final int maxGram;
+
+  public ONGramTokenFilter(int minGram, int maxGram) {
+    if (minGram < 1 || maxGram < minGram)
+      throw new IllegalArgumentException("Invalid n-gram sizes : " + minGram + " - " + maxGram);
+
+    this.minGram = minGram;
+    this.maxGram = maxGram;
+  }
+
+  @Override
+  public List<String> filter(List<String> tokens) {
+    final List<String> result = new ArrayList<String>(tokens.size() * (maxGram - minGram + 1));
+
+    for (String token : tokens) {
+      if (token.length() < minGram) {
+        result.add(token);
+        continue;
+      }
+
+      for (int gram = minGram; gram <= maxGram && gram <= token.length(); gram++)
+        for (int i = 0; i + gram <= token.length(); i++)
+          result.add(token.substring(i, i + gram));
+    }
+
+    return result;
+  }
+
+  public int getMinGram() {
+    return minGram;
+  }
+
+  public int getMaxGram() {
+    return maxGram;
+  }
+}
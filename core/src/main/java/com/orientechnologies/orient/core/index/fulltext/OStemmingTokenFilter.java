@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.List;
+
+/**
+ * Light stemmer of English words: removes plural endings ("ies", "es", "s") and "ing", "ed" endings of verbs, so different forms
+ * of the same word are indexed as single term. Stem is never shorter than 3 characters. Filter expects lower case tokens.
+ */
+public class OStemmingTokenFilter implements OFullTextTokenFilter {
+  private static final int MIN_STEM_LENGTH = 3;
+
+  @Override
+  public List<String> filter(List<String> tokens) {
+    for (int i = 0; i < tokens.size(); i++)
+      tokens.set(i, stem(tokens.get(i)));
+
+    return tokens;
+  }
+
+  public static String stem(String word) {
+    word = stemPlural(word);
+
+    if (word.endsWith("ing") && word.length() - 3 >= MIN_STEM_LENGTH)
+      return undouble(word.substring(0, word.length() - 3));
+
+    if (word.endsWith("ed") && !word.endsWith("eed") && word.length() - 2 >= MIN_STEM_LENGTH)
+      return undouble(word.substring(0, word.length() - 2));
+
+    return word;
+  }
+
+  private static String stemPlural(String word) {
+    if (word.length() <= MIN_STEM_LENGTH)
+      return word;
+
+    if (word.endsWith("ies") && !word.endsWith("eies") && !word.endsWith("aies"))
+      return word.substring(0, word.length() - 3) + 'y';
+
+    if (word.endsWith("es") && !word.endsWith("aes") && !word.endsWith("ees") && !word.endsWith("oes"))
+      return word.substring(0, word.length() - 1);
+
+    if (word.endsWith("s") && !word.endsWith("us") && !word.endsWith("ss"))
+      return word.substring(0, word.length() - 1);
+
+    return word;
+  }
+
+  /**
+   * Removes doubled consonant which appears in words like "running" or "stopped".
+   */
+  private static String undouble(String stem) {
+    final int length = stem.length();
+    if (length > MIN_STEM_LENGTH) {
+      final char last = stem.charAt(length - 1);
+      if (last == stem.charAt(length - 2) && "bdgmnprt".indexOf(last) >= 0)
+        return stem.substring(0, length - 1);
+    }
+
+    return stem;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes words which are too common to be useful in search.
+ */
+public class OStopWordsTokenFilter implements OFullTextTokenFilter {
+  private final Set<String> stopWords;
+
+  public OStopWordsTokenFilter(Collection<String> stopWords) {
+    this.stopWords = new HashSet<String>(stopWords);
+  }
+
+  @Override
+  public List<String> filter(List<String> tokens) {
+    final Iterator<String> iterator = tokens.iterator();
+    while (iterator.hasNext())
+      if (stopWords.contains(iterator.next()))
+        iterator.remove();
+
+    return tokens;
+  }
+
+  public Set<String> getStopWords() {
+    return stopWords;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.Arrays;
+
+/**
+ * Byte buffer which stores non negative numbers in variable length format: 7 bits of number per byte, high bit of byte is set if
+ * number continues in next byte.
+ */
+public class OVarIntStream {
+  private byte[] buffer;
+  private int    position;
+
+  public OVarIntStream(int capacity) {
+    buffer = new byte[capacity];
+  }
+
+  public OVarIntStream(byte[] buffer, int offset) {
+    this.buffer = buffer;
+    this.position = offset;
+  }
+
+  public void writeByte(byte value) {
+    ensureCapacity(1);
+    buffer[position++] = value;
+  }
+
+  public void writeInt(int value) {
+    writeLong(value & 0xFFFFFFFFL);
+  }
+
+  public void writeLong(long value) {
+    ensureCapacity(10);
+
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+
+    buffer[position++] = (byte) value;
+  }
+
+  public byte readByte() {
+    return buffer[position++];
+  }
+
+  public int readInt() {
+    return (int) readLong();
+  }
+
+  public long readLong() {
+    long value = 0;
+    int shift = 0;
+
+    byte b;
+    do {
+      b = buffer[position++];
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+
+    return value;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buffer, position);
+  }
+
+  private void ensureCapacity(int bytes) {
+    if (position + bytes > buffer.length)
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + bytes));
+  }
+}
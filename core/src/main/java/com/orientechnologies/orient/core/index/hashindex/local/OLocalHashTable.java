@@ -32,10 +32,21 @@ import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstrac
 import com.orientechnologies.orient.core.storage.impl.local.OStorageVariableParser;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Extendible hash table which is used as storage of hash indexes.
+ * 
+ * Lock of this class protects the hash directory. Lookups and modifications which affect a single bucket are performed under
+ * shared lock and isolated from each other by latch of the bucket page, so they run in parallel if they hit different buckets.
+ * Exclusive lock is acquired only when directory has to be changed because bucket is split or merged with its buddy.
+ * 
  * @author Andrey Lomakin
  * @since 12.03.13
  */
@@ -50,7 +61,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
   private int                            hashTreeSize;
 
-  private long                           size;
+  private final AtomicLong               size                   = new AtomicLong();
 
   private int                            hashTreeTombstone      = -1;
   private long                           bucketTombstonePointer = -1;
@@ -126,7 +137,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       metadataStore.create(-1);
       treeStateStore.create(-1);
 
-      metadataStore.setRecordsCount(size);
+      metadataStore.setRecordsCount(size.get());
 
       treeStateStore.setHashTreeSize(hashTreeSize);
       treeStateStore.setHashTreeTombstone(hashTreeTombstone);
@@ -187,6 +198,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer dataPointer = cacheEntry.getCachePointer();
 
+      dataPointer.acquireSharedLock();
       try {
         final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer.getDataPointer(), keySerializer,
             valueSerializer, keyTypes);
@@ -197,6 +209,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
         return entry.value;
       } finally {
+        dataPointer.releaseSharedLock();
         diskCache.release(cacheEntry);
       }
     } catch (IOException e) {
@@ -206,11 +219,98 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     }
   }
 
+  /**
+   * Returns entries of several keys at once. Bucket is chosen by the most significant bits of hash code, so keys are ordered by
+   * their hash codes, keys which belong to the same bucket are looked up one after another and page of the bucket is loaded only
+   * once for all of them.
+   *
+   * @return found entries in order of hash codes of their keys.
+   */
+  public List<OHashIndexBucket.Entry<K, V>> getAll(Collection<? extends K> keys) {
+    final List<OHashIndexBucket.Entry<K, V>> hashedKeys = new ArrayList<OHashIndexBucket.Entry<K, V>>(keys.size());
+    for (K key : keys) {
+      if (key == null)
+        continue;
+
+      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+      hashedKeys.add(new OHashIndexBucket.Entry<K, V>(key, null, keyHashFunction.hashCode(key)));
+    }
+
+    Collections.sort(hashedKeys, new Comparator<OHashIndexBucket.Entry<K, V>>() {
+      @Override
+      public int compare(OHashIndexBucket.Entry<K, V> entryOne, OHashIndexBucket.Entry<K, V> entryTwo) {
+        final long hashOne = entryOne.hashCode + Long.MIN_VALUE;
+        final long hashTwo = entryTwo.hashCode + Long.MIN_VALUE;
+
+        return hashOne < hashTwo ? -1 : (hashOne == hashTwo ? 0 : 1);
+      }
+    });
+
+    final List<OHashIndexBucket.Entry<K, V>> result = new ArrayList<OHashIndexBucket.Entry<K, V>>(hashedKeys.size());
+
+    acquireSharedLock();
+    try {
+      long currentBucketPointer = 0;
+      OCacheEntry cacheEntry = null;
+      OHashIndexBucket<K, V> bucket = null;
+
+      try {
+        for (OHashIndexBucket.Entry<K, V> hashedKey : hashedKeys) {
+          final BucketPath bucketPath = getBucket(hashedKey.hashCode);
+          final long bucketPointer = hashTree[bucketPath.nodeIndex][bucketPath.itemIndex + bucketPath.hashMapOffset];
+          if (bucketPointer == 0)
+            continue;
+
+          if (bucketPointer != currentBucketPointer) {
+            if (cacheEntry != null) {
+              cacheEntry.getCachePointer().releaseSharedLock();
+              diskCache.release(cacheEntry);
+              cacheEntry = null;
+            }
+
+            cacheEntry = loadPageEntry(getPageIndex(bucketPointer), getFileLevel(bucketPointer));
+            cacheEntry.getCachePointer().acquireSharedLock();
+
+            bucket = new OHashIndexBucket<K, V>(cacheEntry.getCachePointer().getDataPointer(), keySerializer, valueSerializer,
+                keyTypes);
+            currentBucketPointer = bucketPointer;
+          }
+
+          final OHashIndexBucket.Entry<K, V> entry = bucket.find(hashedKey.key, hashedKey.hashCode);
+          if (entry != null)
+            result.add(entry);
+        }
+      } finally {
+        if (cacheEntry != null) {
+          cacheEntry.getCachePointer().releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
+      }
+
+      return result;
+    } catch (IOException e) {
+      throw new OIndexException("Exception during index values retrieval", e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   public void put(K key, V value) {
-    acquireExclusiveLock();
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+    acquireSharedLock();
     try {
-      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+      if (putIntoBucket(key, value))
+        return;
+    } catch (IOException e) {
+      throw new OIndexException("Error during index update", e);
+    } finally {
+      releaseSharedLock();
+    }
 
+    // BUCKET HAS TO BE SPLIT, SO HASH DIRECTORY IS CHANGED UNDER EXCLUSIVE LOCK
+    acquireExclusiveLock();
+    try {
       doPut(key, value);
     } catch (OIndexMaximumLimitReachedException e) {
       OLogManager.instance().warn(this, "Key " + key + " is too large to fit in index and will be skipped", e);
@@ -222,18 +322,19 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public V remove(K key) {
-    acquireExclusiveLock();
-    try {
-      key = keySerializer.preprocess(key, (Object[]) keyTypes);
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
-      final long hashCode = keyHashFunction.hashCode(key);
+    final long hashCode = keyHashFunction.hashCode(key);
+    final V removed;
+    final boolean mergeBuckets;
 
+    acquireSharedLock();
+    try {
       final BucketPath nodePath = getBucket(hashCode);
       final long bucketPointer = hashTree[nodePath.nodeIndex][nodePath.itemIndex + nodePath.hashMapOffset];
 
       final long pageIndex = getPageIndex(bucketPointer);
       final int fileLevel = getFileLevel(bucketPointer);
-      final V removed;
 
       final OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       final OCachePointer dataPointer = cacheEntry.getCachePointer();
@@ -247,30 +348,63 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           return null;
 
         removed = bucket.deleteEntry(positionIndex).value;
-        size--;
+        size.decrementAndGet();
 
-        mergeBucketsAfterDeletion(nodePath, bucket);
         cacheEntry.markDirty();
 
+        mergeBuckets = isMergeCandidate(bucket);
       } finally {
         dataPointer.releaseExclusiveLock();
         diskCache.release(cacheEntry);
       }
+    } catch (IOException e) {
+      throw new OIndexException("Error during index removal", e);
+    } finally {
+      releaseSharedLock();
+    }
 
-      if (nodePath.parent != null) {
-        final int hashMapSize = 1 << nodePath.nodeLocalDepth;
-
-        final long[] node = hashTree[nodePath.nodeIndex];
-        final boolean allMapsContainSameBucket = checkAllMapsContainSameBucket(node, hashMapSize);
-        if (allMapsContainSameBucket)
-          mergeNodeToParent(node, nodePath);
+    if (mergeBuckets) {
+      // MERGE OF BUCKETS CHANGES HASH DIRECTORY, SO IT IS PERFORMED UNDER EXCLUSIVE LOCK, STATE OF BUCKET IS CHECKED AGAIN
+      // BECAUSE IT MIGHT BE CHANGED SINCE SHARED LOCK WAS RELEASED
+      acquireExclusiveLock();
+      try {
+        mergeBuckets(hashCode);
+      } catch (IOException e) {
+        throw new OIndexException("Error during index removal", e);
+      } finally {
+        releaseExclusiveLock();
       }
+    }
 
-      return removed;
-    } catch (IOException e) {
-      throw new OIndexException("Error during index removal", e);
+    return removed;
+  }
+
+  private void mergeBuckets(long hashCode) throws IOException {
+    final BucketPath nodePath = getBucket(hashCode);
+    final long bucketPointer = hashTree[nodePath.nodeIndex][nodePath.itemIndex + nodePath.hashMapOffset];
+
+    final OCacheEntry cacheEntry = loadPageEntry(getPageIndex(bucketPointer), getFileLevel(bucketPointer));
+    final OCachePointer dataPointer = cacheEntry.getCachePointer();
+
+    dataPointer.acquireExclusiveLock();
+    try {
+      final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(dataPointer.getDataPointer(), keySerializer,
+          valueSerializer, keyTypes);
+
+      mergeBucketsAfterDeletion(nodePath, bucket);
+      cacheEntry.markDirty();
     } finally {
-      releaseExclusiveLock();
+      dataPointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+
+    if (nodePath.parent != null) {
+      final int hashMapSize = 1 << nodePath.nodeLocalDepth;
+
+      final long[] node = hashTree[nodePath.nodeIndex];
+      final boolean allMapsContainSameBucket = checkAllMapsContainSameBucket(node, hashMapSize);
+      if (allMapsContainSameBucket)
+        mergeNodeToParent(node, nodePath);
     }
   }
 
@@ -313,6 +447,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
             keyTypes);
@@ -322,7 +457,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           if (bucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
+          cacheEntry = null;
+          pagePointer = null;
 
           final long nextPointer = hashTree[bucketPath.nodeIndex][bucketPath.itemIndex + bucketPath.hashMapOffset];
 
@@ -331,6 +469,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes);
         }
@@ -350,7 +489,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
-        diskCache.release(cacheEntry);
+        if (cacheEntry != null) {
+          pagePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
     } catch (IOException ioe) {
       throw new OIndexException("Exception during data retrieval", ioe);
@@ -365,7 +507,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     treeStateStore.setHashTreeTombstone(hashTreeTombstone);
     treeStateStore.storeTreeState(hashTree, nodesMetadata);
 
-    metadataStore.setRecordsCount(size);
+    metadataStore.setRecordsCount(size.get());
     metadataStore.setKeySerializerId(keySerializer.getId());
     metadataStore.setValueSerializerId(valueSerializer.getId());
 
@@ -386,7 +528,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       metadataStore.open();
       treeStateStore.open();
 
-      size = metadataStore.getRecordsCount();
+      size.set(metadataStore.getRecordsCount());
 
       hashTreeSize = (int) treeStateStore.getHashTreeSize();
       hashTreeTombstone = (int) treeStateStore.getHashTreeTombstone();
@@ -404,7 +546,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
       hashTree = treeState.getHashTree();
       nodesMetadata = treeState.getHashTreeNodeMetadata();
 
-      size = metadataStore.getRecordsCount();
+      size.set(metadataStore.getRecordsCount());
       keySerializer = (OBinarySerializer<K>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(metadataStore
           .getKeySerializerId());
       valueSerializer = (OBinarySerializer<V>) OBinarySerializerFactory.INSTANCE.getObjectSerializer(metadataStore
@@ -578,6 +720,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
 
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
@@ -587,7 +730,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           if (bucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
+          cacheEntry = null;
+          pagePointer = null;
           final long nextPointer = hashTree[bucketPath.nodeIndex][bucketPath.itemIndex + bucketPath.hashMapOffset];
 
           fileLevel = getFileLevel(nextPointer);
@@ -595,6 +741,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes);
         }
@@ -609,7 +756,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
         final int endIndex = bucket.size();
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
-        diskCache.release(cacheEntry);
+        if (cacheEntry != null) {
+          pagePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
 
     } catch (IOException ioe) {
@@ -630,6 +780,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
 
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
@@ -640,7 +791,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           if (bucketPath == null)
             return null;
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
+          cacheEntry = null;
+          pagePointer = null;
           final long nextPointer = hashTree[bucketPath.nodeIndex][bucketPath.itemIndex + bucketPath.hashMapOffset];
 
           fileLevel = getFileLevel(nextPointer);
@@ -648,13 +802,17 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes);
         }
 
         return bucket.getEntry(0);
       } finally {
-        diskCache.release(cacheEntry);
+        if (cacheEntry != null) {
+          pagePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
 
     } catch (IOException ioe) {
@@ -675,6 +833,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
 
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
@@ -685,7 +844,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           if (prevBucketPath == null)
             return null;
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
+          cacheEntry = null;
+          pagePointer = null;
           final long prevPointer = hashTree[prevBucketPath.nodeIndex][prevBucketPath.itemIndex + prevBucketPath.hashMapOffset];
 
           fileLevel = getFileLevel(prevPointer);
@@ -693,6 +855,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes);
 
@@ -701,7 +864,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
         return bucket.getEntry(bucket.size() - 1);
       } finally {
-        diskCache.release(cacheEntry);
+        if (cacheEntry != null) {
+          pagePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
     } catch (IOException ioe) {
       throw new OIndexException("Exception during data read", ioe);
@@ -725,6 +891,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
             keyTypes);
@@ -733,7 +900,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           if (prevBucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
+          cacheEntry = null;
+          pagePointer = null;
 
           final long prevPointer = hashTree[prevBucketPath.nodeIndex][prevBucketPath.itemIndex + prevBucketPath.hashMapOffset];
 
@@ -742,6 +912,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes);
 
@@ -759,7 +930,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
-        diskCache.release(cacheEntry);
+        if (cacheEntry != null) {
+          pagePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
     } finally {
       releaseSharedLock();
@@ -781,6 +955,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
       OCacheEntry cacheEntry = loadPageEntry(pageIndex, fileLevel);
       OCachePointer pagePointer = cacheEntry.getCachePointer();
+      pagePointer.acquireSharedLock();
       try {
         OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer,
             keyTypes);
@@ -789,7 +964,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
           if (prevBucketPath == null)
             return new OHashIndexBucket.Entry[0];
 
+          pagePointer.releaseSharedLock();
           diskCache.release(cacheEntry);
+          cacheEntry = null;
+          pagePointer = null;
 
           final long prevPointer = hashTree[prevBucketPath.nodeIndex][prevBucketPath.itemIndex + prevBucketPath.hashMapOffset];
 
@@ -798,6 +976,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
           cacheEntry = loadPageEntry(pageIndex, fileLevel);
           pagePointer = cacheEntry.getCachePointer();
+          pagePointer.acquireSharedLock();
 
           bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer, valueSerializer, keyTypes);
 
@@ -815,7 +994,10 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
         return convertBucketToEntries(bucket, startIndex, endIndex);
       } finally {
-        diskCache.release(cacheEntry);
+        if (cacheEntry != null) {
+          pagePointer.releaseSharedLock();
+          diskCache.release(cacheEntry);
+        }
       }
     } finally {
       releaseSharedLock();
@@ -914,12 +1096,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
   }
 
   public long size() {
-    acquireSharedLock();
-    try {
-      return size;
-    } finally {
-      releaseSharedLock();
-    }
+    return size.get();
   }
 
   public void rename(String newName) {
@@ -998,13 +1175,19 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     }
   }
 
+  /**
+   * @return <code>true</code> if bucket may be merged with its buddy by {@link #mergeBucketsAfterDeletion(BucketPath,
+   *         OHashIndexBucket)}.
+   */
+  private boolean isMergeCandidate(OHashIndexBucket<K, V> bucket) {
+    return bucket.getContentSize() <= OHashIndexBucket.MAX_BUCKET_SIZE_BYTES * MERGE_THRESHOLD
+        && bucket.getDepth() - MAX_LEVEL_DEPTH >= 1;
+  }
+
   private void mergeBucketsAfterDeletion(BucketPath nodePath, OHashIndexBucket<K, V> bucket) throws IOException {
     final int bucketDepth = bucket.getDepth();
 
-    if (bucket.getContentSize() > OHashIndexBucket.MAX_BUCKET_SIZE_BYTES * MERGE_THRESHOLD)
-      return;
-
-    if (bucketDepth - MAX_LEVEL_DEPTH < 1)
+    if (!isMergeCandidate(bucket))
       return;
 
     int offset = nodePath.nodeGlobalDepth - (bucketDepth - 1);
@@ -1193,6 +1376,56 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
     }
   }
 
+  /**
+   * Puts entry into the bucket which it belongs to without change of hash directory, so it may be called under shared lock.
+   * 
+   * @return <code>false</code> if bucket has to be split to put entry, in such case bucket content is not changed.
+   */
+  private boolean putIntoBucket(K key, V value) throws IOException {
+    final long hashCode = keyHashFunction.hashCode(key);
+
+    final BucketPath bucketPath = getBucket(hashCode);
+    final long bucketPointer = hashTree[bucketPath.nodeIndex][bucketPath.itemIndex + bucketPath.hashMapOffset];
+    if (bucketPointer == 0)
+      throw new IllegalStateException("In this version of hash table buckets are added through split only.");
+
+    final OCacheEntry cacheEntry = loadPageEntry(getPageIndex(bucketPointer), getFileLevel(bucketPointer));
+    final OCachePointer pagePointer = cacheEntry.getCachePointer();
+
+    pagePointer.acquireExclusiveLock();
+    try {
+      final OHashIndexBucket<K, V> bucket = new OHashIndexBucket<K, V>(pagePointer.getDataPointer(), keySerializer,
+          valueSerializer, keyTypes);
+      final int index = bucket.getIndex(hashCode, key);
+
+      if (index > -1) {
+        final int updateResult = bucket.updateEntry(index, value);
+        if (updateResult == 0)
+          return true;
+
+        if (updateResult == 1) {
+          cacheEntry.markDirty();
+          return true;
+        }
+
+        // ENTRY SIZE IS CHANGED, IT IS REMOVED AND ADDED AGAIN UNDER EXCLUSIVE LOCK TO AVOID SPLIT IN THE MIDDLE OF UPDATE
+        return false;
+      }
+
+      if (bucket.addEntry(hashCode, key, value)) {
+        cacheEntry.markDirty();
+        size.incrementAndGet();
+
+        return true;
+      }
+
+      return false;
+    } finally {
+      pagePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
   private void doPut(K key, V value) throws IOException {
     final long hashCode = keyHashFunction.hashCode(key);
 
@@ -1228,13 +1461,13 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
         assert updateResult == -1;
 
         bucket.deleteEntry(index);
-        size--;
+        size.decrementAndGet();
       }
 
       if (bucket.addEntry(hashCode, key, value)) {
         cacheEntry.markDirty();
 
-        size++;
+        size.incrementAndGet();
         return;
       }
 
@@ -1783,7 +2016,7 @@ public class OLocalHashTable<K, V> extends OSharedResourceAdaptive {
 
     filesMetadata[0].setBucketsCount(MAX_LEVEL_SIZE);
 
-    size = 0;
+    size.set(0);
     hashTreeSize = 1;
   }
 
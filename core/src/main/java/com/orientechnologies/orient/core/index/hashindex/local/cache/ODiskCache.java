@@ -5,6 +5,7 @@ import java.util.Set;
 
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 
 /**
  * @author Andrey Lomakin
@@ -59,6 +60,11 @@ public interface ODiskCache {
 
   void forceSyncStoredChanges() throws IOException;
 
+  /**
+   * Flushes pages changes of which were logged before passed in LSN or which were not flushed since passed in time.
+   */
+  void flushOldPages(OLogSequenceNumber lsn, long changeTime) throws IOException;
+
   boolean isOpen(long fileId);
 
   boolean exists(String name);
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+
+/**
+ * Creates {@link ODiskCache} implementation which is chosen by {@link OGlobalConfiguration#DISK_CACHE_IMPL} setting.
+ */
+public class ODiskCacheFactory {
+  public static final String            TWO_Q     = "2q";
+  public static final String            SEGMENTED = "segmented";
+
+  public static final ODiskCacheFactory INSTANCE  = new ODiskCacheFactory();
+
+  public ODiskCache createDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize) {
+    final String impl = OGlobalConfiguration.DISK_CACHE_IMPL.getValueAsString();
+
+    if (impl == null || impl.equalsIgnoreCase(TWO_Q))
+      return new OReadWriteDiskCache(storageName, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL,
+          pageFlushInterval, storageLocal, writeAheadLog, syncOnPageFlush, checkMinSize);
+
+    if (impl.equalsIgnoreCase(SEGMENTED))
+      return new OSegmentedReadWriteDiskCache(storageName, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL,
+          pageFlushInterval, storageLocal, writeAheadLog, syncOnPageFlush, checkMinSize,
+          OGlobalConfiguration.DISK_CACHE_SEGMENTS.getValueAsInteger());
+
+    throw new IllegalArgumentException("Disk cache implementation with name " + impl + " is absent.");
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.orient.core.Orient;
+
+/**
+ * Detects sequential reads of disk cache files and loads the following pages in background, so they are already in read cache
+ * when they are requested. Pages are loaded by {@link OWOWCache#loadPages(long, long, int)} and are put into read cache by
+ * {@link PageConsumer}.
+ *
+ * Every file has its own state which is replaced once file is closed or truncated and whose version is incremented once a page of
+ * this file is changed, pages which were loaded before such event are rejected by {@link Batch#isActual()} check.
+ */
+final class OReadAhead {
+  /**
+   * Amount of subsequent page reads after which read of file is considered as sequential.
+   */
+  static final int                             SEQUENTIAL_READS_THRESHOLD = 3;
+
+  private static final int                     MAX_QUEUED_BATCHES         = 64;
+
+  private final OWOWCache                      writeCache;
+  private final PageConsumer                   pageConsumer;
+  private final int                            readAheadPages;
+  private final String                         storageName;
+
+  private final ConcurrentMap<Long, FileState> files                      = new ConcurrentHashMap<Long, FileState>();
+  private final ThreadPoolExecutor             executor;
+
+  interface PageConsumer {
+    /**
+     * Puts page loaded in background into read cache. Implementation should check {@link Batch#isActual()} under the same lock
+     * which is used to notify about page changes.
+     *
+     * @return <code>true</code> if page was put into read cache, otherwise referrer of page pointer is released by caller.
+     */
+    boolean cacheReadAheadPage(long fileId, long pageIndex, OCachePointer dataPointer, Batch batch) throws Exception;
+  }
+
+  OReadAhead(final OWOWCache writeCache, final PageConsumer pageConsumer, final int readAheadPages, final String storageName) {
+    this.writeCache = writeCache;
+    this.pageConsumer = pageConsumer;
+    this.readAheadPages = readAheadPages;
+    this.storageName = storageName;
+
+    // QUEUED BATCHES ARE DROPPED IF DISK CAN NOT KEEP UP, READER LOADS SUCH PAGES ITSELF
+    executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(MAX_QUEUED_BATCHES),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("Disk Cache Read Ahead" + (storageName != null ? " (" + storageName + ")" : ""));
+            return thread;
+          }
+        }, new ThreadPoolExecutor.DiscardPolicy());
+  }
+
+  /**
+   * Registers read of page and schedules load of following pages if file is read sequentially.
+   */
+  void pageLoaded(final long fileId, final long pageIndex) {
+    FileState state = files.get(fileId);
+    if (state == null) {
+      final FileState newState = new FileState();
+      state = files.putIfAbsent(fileId, newState);
+      if (state == null)
+        state = newState;
+    }
+
+    final Batch batch;
+    synchronized (state) {
+      // THE SAME PAGE IS USUALLY LOADED SEVERAL TIMES IN A ROW, ONE TIME PER RECORD OR KEY
+      if (pageIndex == state.lastPageIndex)
+        return;
+
+      if (pageIndex == state.lastPageIndex + 1)
+        state.sequentialReads++;
+      else
+        state.sequentialReads = 0;
+
+      state.lastPageIndex = pageIndex;
+
+      if (state.sequentialReads < SEQUENTIAL_READS_THRESHOLD || pageIndex + readAheadPages / 2 < state.loadedUpTo)
+        return;
+
+      final long startPageIndex = Math.max(pageIndex + 1, state.loadedUpTo);
+      final long endPageIndex = pageIndex + 1 + readAheadPages;
+      if (startPageIndex >= endPageIndex)
+        return;
+
+      state.loadedUpTo = endPageIndex;
+      batch = new Batch(fileId, startPageIndex, (int) (endPageIndex - startPageIndex), state, state.version);
+    }
+
+    executor.execute(batch);
+  }
+
+  /**
+   * Invalidates pages of file which are loaded in background at the moment, should be called when page is going to be stored in
+   * write cache.
+   */
+  void pageModified(final long fileId) {
+    final FileState state = files.get(fileId);
+    if (state != null) {
+      synchronized (state) {
+        state.version++;
+      }
+    }
+  }
+
+  /**
+   * Invalidates pages of file which are loaded in background at the moment and resets detection of sequential reads, should be
+   * called when file is closed, truncated or deleted.
+   */
+  void fileChanged(final long fileId) {
+    files.remove(fileId);
+  }
+
+  /**
+   * Resets state of all files.
+   */
+  void clear() {
+    files.clear();
+  }
+
+  /**
+   * Stops background loading of pages. Should not be called under lock used by {@link PageConsumer} because it waits for
+   * completion of current batch.
+   */
+  void shutdown() {
+    executor.getQueue().clear();
+    executor.shutdown();
+
+    files.clear();
+
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+        OLogManager.instance().warn(this, "Read-ahead thread was not stopped in one minute");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void updateLoadedPagesCounter(final int loadedPages) {
+    if (loadedPages == 0 || storageName == null)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.updateCounter(profiler.getDatabaseMetric(storageName, "diskCache.readAhead.pages"),
+          "Amount of pages which were loaded into disk cache in background", loadedPages,
+          profiler.getDatabaseMetric(null, "diskCache.readAhead.pages"));
+  }
+
+  private static final class FileState {
+    private long lastPageIndex = -2;
+    private int  sequentialReads;
+    private long loadedUpTo;
+    private long version;
+  }
+
+  final class Batch implements Runnable {
+    private final long      fileId;
+    private final long      startPageIndex;
+    private final int       pageCount;
+    private final FileState state;
+    private final long      version;
+
+    private Batch(long fileId, long startPageIndex, int pageCount, FileState state, long version) {
+      this.fileId = fileId;
+      this.startPageIndex = startPageIndex;
+      this.pageCount = pageCount;
+      this.state = state;
+      this.version = version;
+    }
+
+    /**
+     * @return <code>false</code> if file was closed, truncated or changed after this batch was scheduled.
+     */
+    boolean isActual() {
+      if (files.get(fileId) != state)
+        return false;
+
+      synchronized (state) {
+        return state.version == version;
+      }
+    }
+
+    @Override
+    public void run() {
+      if (!isActual())
+        return;
+
+      int cachedPages = 0;
+      try {
+        final OCachePointer[] dataPointers = writeCache.loadPages(fileId, startPageIndex, pageCount);
+
+        int i = 0;
+        try {
+          for (; i < dataPointers.length; i++) {
+            if (pageConsumer.cacheReadAheadPage(fileId, startPageIndex + i, dataPointers[i], this))
+              cachedPages++;
+            else
+              dataPointers[i].decrementReferrer();
+          }
+        } finally {
+          // PAGES WHICH WERE NOT PASSED TO CONSUMER BECAUSE OF EXCEPTION
+          for (; i < dataPointers.length; i++)
+            dataPointers[i].decrementReferrer();
+        }
+      } catch (Exception e) {
+        OLogManager.instance().debug(this, "Read-ahead of pages of file with id %d was failed", e, fileId);
+      } finally {
+        updateLoadedPagesCounter(cachedPages);
+      }
+    }
+  }
+}
@@ -21,13 +21,14 @@ import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedExcept
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 
 /**
  * @author Andrey Lomakin
  * @since 7/24/13
  */
-public class OReadWriteDiskCache implements ODiskCache {
+public class OReadWriteDiskCache implements ODiskCache, OReadAhead.PageConsumer {
   public static final int                             MIN_CACHE_SIZE = 256;
 
   private int                                         maxSize;
@@ -51,6 +52,8 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   private final String                                storageName;
 
+  private final OReadAhead                            readAhead;
+
   private static String                               METRIC_HITS;
   private static String                               METRIC_HITS_METADATA;
   private static String                               METRIC_MISSED;
@@ -88,6 +91,12 @@ public class OReadWriteDiskCache implements ODiskCache {
     a1in = new LRUList();
 
     syncObject = new Object();
+
+    final int readAheadPages = OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger();
+    if (readAheadPages > 0)
+      readAhead = new OReadAhead(writeCache, this, readAheadPages, storageName);
+    else
+      readAhead = null;
   }
 
   LRUList getAm() {
@@ -163,9 +172,13 @@ public class OReadWriteDiskCache implements ODiskCache {
       if (checkPinnedPages)
         cacheEntry = pinnedPages.get(new PinnedPage(fileId, pageIndex));
 
-      if (cacheEntry == null)
+      if (cacheEntry == null) {
         cacheEntry = updateCache(fileId, pageIndex);
 
+        if (readAhead != null)
+          readAhead.pageLoaded(fileId, pageIndex);
+      }
+
       cacheEntry.usagesCount++;
       return cacheEntry;
     }
@@ -175,7 +188,40 @@ public class OReadWriteDiskCache implements ODiskCache {
   public OCacheEntry allocateNewPage(final long fileId) throws IOException {
     synchronized (syncObject) {
       final long filledUpTo = getFilledUpTo(fileId);
-      return load(fileId, filledUpTo, false);
+
+      final OCacheEntry cacheEntry = updateCache(fileId, filledUpTo);
+      cacheEntry.usagesCount++;
+      return cacheEntry;
+    }
+  }
+
+  @Override
+  public boolean cacheReadAheadPage(final long fileId, final long pageIndex, final OCachePointer dataPointer,
+      final OReadAhead.Batch batch) throws IOException {
+    synchronized (syncObject) {
+      if (!batch.isActual() || !writeCache.isOpen(fileId))
+        return false;
+
+      if (get(fileId, pageIndex, true) != null || pinnedPages.containsKey(new PinnedPage(fileId, pageIndex)))
+        return false;
+
+      // PAGES WHICH ARE NOT REQUESTED YET SHOULD NOT PUSH OUT PAGES OF "AM" QUEUE
+      if (am.size() + a1in.size() >= maxSize && a1in.size() <= K_IN)
+        return false;
+
+      removeColdestPageIfNeeded();
+
+      final OCacheEntry cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+      a1in.putToMRU(cacheEntry);
+
+      Set<Long> pages = filePages.get(fileId);
+      if (pages == null) {
+        pages = new HashSet<Long>();
+        filePages.put(fileId, pages);
+      }
+
+      pages.add(pageIndex);
+      return true;
     }
   }
 
@@ -188,7 +234,11 @@ public class OReadWriteDiskCache implements ODiskCache {
       else
         throw new IllegalStateException("record should be released is already free!");
 
-      if (cacheEntry.usagesCount == 0 && cacheEntry.isDirty) {
+      // PAGE IS PASSED TO WRITE CACHE EVEN IF IT IS STILL USED, SO ITS CHANGES ARE ALWAYS PRESENT IN DIRTY PAGES TABLE
+      if (cacheEntry.isDirty) {
+        if (readAhead != null)
+          readAhead.pageModified(cacheEntry.fileId);
+
         flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
         cacheEntry.isDirty = false;
       }
@@ -226,6 +276,9 @@ public class OReadWriteDiskCache implements ODiskCache {
   @Override
   public void closeFile(long fileId, boolean flush) throws IOException {
     synchronized (syncObject) {
+      if (readAhead != null)
+        readAhead.fileChanged(fileId);
+
       writeCache.close(fileId, flush);
 
       final Set<Long> pageIndexes = filePages.get(fileId);
@@ -264,6 +317,9 @@ public class OReadWriteDiskCache implements ODiskCache {
       if (isOpen(fileId))
         truncateFile(fileId);
 
+      if (readAhead != null)
+        readAhead.fileChanged(fileId);
+
       writeCache.deleteFile(fileId);
       filePages.remove(fileId);
     }
@@ -272,6 +328,9 @@ public class OReadWriteDiskCache implements ODiskCache {
   @Override
   public void truncateFile(long fileId) throws IOException {
     synchronized (syncObject) {
+      if (readAhead != null)
+        readAhead.fileChanged(fileId);
+
       writeCache.truncateFile(fileId);
 
       final Set<Long> pageEntries = filePages.get(fileId);
@@ -322,6 +381,9 @@ public class OReadWriteDiskCache implements ODiskCache {
   }
 
   private void clearCacheContent() {
+    if (readAhead != null)
+      readAhead.clear();
+
     for (OCacheEntry cacheEntry : am)
       if (cacheEntry.usagesCount == 0) {
         cacheEntry.dataPointer.decrementReferrer();
@@ -367,6 +429,9 @@ public class OReadWriteDiskCache implements ODiskCache {
 
   @Override
   public void close() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
     synchronized (syncObject) {
       clear();
       writeCache.close();
@@ -533,8 +598,16 @@ public class OReadWriteDiskCache implements ODiskCache {
     }
   }
 
+  @Override
+  public void flushOldPages(OLogSequenceNumber lsn, long changeTime) throws IOException {
+    writeCache.flushOldGroups(lsn, changeTime);
+  }
+
   @Override
   public void delete() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
     synchronized (syncObject) {
       writeCache.delete();
 
@@ -0,0 +1,869 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.orientechnologies.common.exception.OException;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.ODirtyPage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
+
+/**
+ * Lock striped version of {@link OReadWriteDiskCache}. Pages are distributed between segments by hash of (fileId, pageIndex)
+ * pair, each segment is independent 2Q cache (with its own am, a1in, a1out queues and pinned pages) which is guarded by its own
+ * lock. As result page loads and releases which are directed to different segments do not contend with each other.
+ *
+ * Operations which affect whole file (close, truncate, delete) or whole cache acquire locks of all segments in ascending order.
+ *
+ * @see OGlobalConfiguration#DISK_CACHE_IMPL
+ * @see OGlobalConfiguration#DISK_CACHE_SEGMENTS
+ */
+public class OSegmentedReadWriteDiskCache implements ODiskCache, OReadAhead.PageConsumer {
+  public static final int        MIN_CACHE_SIZE   = OReadWriteDiskCache.MIN_CACHE_SIZE;
+
+  /**
+   * Minimum amount of pages which can be cached by single segment. If cache is too small to fit such amount of pages in each
+   * segment, amount of segments is decreased.
+   */
+  public static final int        MIN_SEGMENT_SIZE = 16;
+
+  private final Segment[]        segments;
+  private final int              segmentMask;
+
+  private final ReentrantLock[]  allocationLocks;
+  private final int              allocationMask;
+
+  private final OWOWCache        writeCache;
+  private final int              pageSize;
+
+  private final String           storageName;
+
+  private final OReadAhead       readAhead;
+
+  private static String          METRIC_HITS;
+  private static String          METRIC_HITS_METADATA;
+  private static String          METRIC_MISSED;
+  private static String          METRIC_MISSED_METADATA;
+
+  public OSegmentedReadWriteDiskCache(final long readCacheMaxMemory, final long writeCacheMaxMemory, final int pageSize,
+      final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize) {
+    this(null, readCacheMaxMemory, writeCacheMaxMemory, pageSize, writeGroupTTL, pageFlushInterval, storageLocal, writeAheadLog,
+        syncOnPageFlush, checkMinSize, OGlobalConfiguration.DISK_CACHE_SEGMENTS.getValueAsInteger());
+  }
+
+  public OSegmentedReadWriteDiskCache(final String storageName, final long readCacheMaxMemory, final long writeCacheMaxMemory,
+      final int pageSize, final long writeGroupTTL, final int pageFlushInterval, final OStorageLocalAbstract storageLocal,
+      final OWriteAheadLog writeAheadLog, final boolean syncOnPageFlush, final boolean checkMinSize, final int segmentsCount) {
+    this.storageName = storageName;
+    this.pageSize = pageSize;
+
+    int maxSize = normalizeMemory(readCacheMaxMemory, pageSize);
+    if (checkMinSize && maxSize < MIN_CACHE_SIZE)
+      maxSize = MIN_CACHE_SIZE;
+
+    int segmentsAmount = normalizeSegmentsCount(segmentsCount);
+    while (segmentsAmount > 1 && maxSize / segmentsAmount < MIN_SEGMENT_SIZE)
+      segmentsAmount = segmentsAmount >>> 1;
+
+    segments = new Segment[segmentsAmount];
+    segmentMask = segmentsAmount - 1;
+
+    final int segmentSize = maxSize / segmentsAmount;
+    for (int i = 0; i < segmentsAmount; i++) {
+      if (i < segmentsAmount - 1)
+        segments[i] = new Segment(segmentSize);
+      else
+        segments[i] = new Segment(maxSize - segmentSize * (segmentsAmount - 1));
+    }
+
+    final int allocationLocksAmount = normalizeSegmentsCount(Runtime.getRuntime().availableProcessors() * 4);
+    allocationLocks = new ReentrantLock[allocationLocksAmount];
+    allocationMask = allocationLocksAmount - 1;
+    for (int i = 0; i < allocationLocksAmount; i++)
+      allocationLocks[i] = new ReentrantLock();
+
+    this.writeCache = new OWOWCache(syncOnPageFlush, pageSize, writeGroupTTL, writeAheadLog, pageFlushInterval, normalizeMemory(
+        writeCacheMaxMemory, pageSize), storageLocal, checkMinSize);
+
+    final int readAheadPages = OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger();
+    if (readAheadPages > 0)
+      readAhead = new OReadAhead(writeCache, this, readAheadPages, storageName);
+    else
+      readAhead = null;
+
+    initProfiler();
+  }
+
+  @Override
+  public long openFile(final String fileName) throws IOException {
+    lockAllSegments();
+    try {
+      long fileId = writeCache.isOpen(fileName);
+      if (fileId >= 0)
+        return fileId;
+
+      fileId = writeCache.openFile(fileName);
+      registerFile(fileId);
+
+      return fileId;
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void openFile(final long fileId) throws IOException {
+    lockAllSegments();
+    try {
+      if (writeCache.isOpen(fileId))
+        return;
+
+      writeCache.openFile(fileId);
+      registerFile(fileId);
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public boolean exists(final String fileName) {
+    return writeCache.exists(fileName);
+  }
+
+  @Override
+  public String fileNameById(long fileId) {
+    return writeCache.fileNameById(fileId);
+  }
+
+  @Override
+  public void pinPage(final OCacheEntry cacheEntry) throws IOException {
+    final Segment segment = segment(cacheEntry.fileId, cacheEntry.pageIndex);
+
+    segment.lock.lock();
+    try {
+      segment.remove(cacheEntry.fileId, cacheEntry.pageIndex);
+      segment.pinnedPages.put(new PinnedPage(cacheEntry.fileId, cacheEntry.pageIndex), cacheEntry);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void loadPinnedPage(final OCacheEntry cacheEntry) throws IOException {
+    final Segment segment = segment(cacheEntry.fileId, cacheEntry.pageIndex);
+
+    segment.lock.lock();
+    try {
+      cacheEntry.usagesCount++;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public OCacheEntry load(final long fileId, final long pageIndex, final boolean checkPinnedPages) throws IOException {
+    final Segment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      OCacheEntry cacheEntry = null;
+      if (checkPinnedPages)
+        cacheEntry = segment.pinnedPages.get(new PinnedPage(fileId, pageIndex));
+
+      if (cacheEntry == null) {
+        cacheEntry = segment.updateCache(fileId, pageIndex);
+
+        if (readAhead != null)
+          readAhead.pageLoaded(fileId, pageIndex);
+      }
+
+      cacheEntry.usagesCount++;
+      return cacheEntry;
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public OCacheEntry allocateNewPage(final long fileId) throws IOException {
+    final ReentrantLock allocationLock = allocationLocks[(int) (spread(fileId) & allocationMask)];
+
+    allocationLock.lock();
+    try {
+      final long filledUpTo = getFilledUpTo(fileId);
+      final Segment segment = segment(fileId, filledUpTo);
+
+      segment.lock.lock();
+      try {
+        final OCacheEntry cacheEntry = segment.updateCache(fileId, filledUpTo);
+        cacheEntry.usagesCount++;
+        return cacheEntry;
+      } finally {
+        segment.lock.unlock();
+      }
+    } finally {
+      allocationLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean cacheReadAheadPage(final long fileId, final long pageIndex, final OCachePointer dataPointer,
+      final OReadAhead.Batch batch) throws IOException {
+    final Segment segment = segment(fileId, pageIndex);
+
+    segment.lock.lock();
+    try {
+      if (!batch.isActual() || !writeCache.isOpen(fileId))
+        return false;
+
+      return segment.cacheReadAheadPage(fileId, pageIndex, dataPointer);
+    } finally {
+      segment.lock.unlock();
+    }
+  }
+
+  @Override
+  public void release(OCacheEntry cacheEntry) {
+    if (cacheEntry == null)
+      throw new IllegalStateException("record should be released is already free!");
+
+    final Segment segment = segment(cacheEntry.fileId, cacheEntry.pageIndex);
+
+    Future<?> flushFuture = null;
+    segment.lock.lock();
+    try {
+      cacheEntry.usagesCount--;
+
+      // PAGE IS PASSED TO WRITE CACHE EVEN IF IT IS STILL USED, SO ITS CHANGES ARE ALWAYS PRESENT IN DIRTY PAGES TABLE
+      if (cacheEntry.isDirty) {
+        if (readAhead != null)
+          readAhead.pageModified(cacheEntry.fileId);
+
+        flushFuture = writeCache.store(cacheEntry.fileId, cacheEntry.pageIndex, cacheEntry.dataPointer);
+        cacheEntry.isDirty = false;
+      }
+    } finally {
+      segment.lock.unlock();
+    }
+
+    if (flushFuture != null) {
+      try {
+        flushFuture.get();
+      } catch (InterruptedException e) {
+        Thread.interrupted();
+        throw new OException("File flush was interrupted", e);
+      } catch (Exception e) {
+        throw new OException("File flush was abnormally terminated", e);
+      }
+    }
+  }
+
+  @Override
+  public long getFilledUpTo(long fileId) throws IOException {
+    return writeCache.getFilledUpTo(fileId);
+  }
+
+  @Override
+  public void flushFile(long fileId) throws IOException {
+    writeCache.flush(fileId);
+  }
+
+  @Override
+  public void closeFile(final long fileId) throws IOException {
+    closeFile(fileId, true);
+  }
+
+  @Override
+  public void closeFile(long fileId, boolean flush) throws IOException {
+    lockAllSegments();
+    try {
+      if (readAhead != null)
+        readAhead.fileChanged(fileId);
+
+      writeCache.close(fileId, flush);
+
+      for (Segment segment : segments) {
+        final Set<Long> pageIndexes = segment.filePages.get(fileId);
+        if (pageIndexes == null)
+          continue;
+
+        for (Long pageIndex : pageIndexes) {
+          OCacheEntry cacheEntry = segment.get(fileId, pageIndex, true);
+          if (cacheEntry == null)
+            cacheEntry = segment.pinnedPages.get(new PinnedPage(fileId, pageIndex));
+
+          if (cacheEntry != null) {
+            if (cacheEntry.dataPointer != null) {
+              if (cacheEntry.usagesCount == 0) {
+                cacheEntry = segment.remove(fileId, pageIndex);
+
+                if (cacheEntry == null)
+                  cacheEntry = segment.pinnedPages.remove(new PinnedPage(fileId, pageIndex));
+              } else
+                throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId
+                    + " can not be freed because it is used.");
+
+              cacheEntry.dataPointer.decrementReferrer();
+              cacheEntry.dataPointer = null;
+            }
+          } else {
+            throw new OStorageException("Page with index " + pageIndex + " for file with id " + fileId + " was not found in cache");
+          }
+        }
+
+        pageIndexes.clear();
+      }
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void deleteFile(long fileId) throws IOException {
+    lockAllSegments();
+    try {
+      if (isOpen(fileId))
+        truncateFile(fileId);
+
+      if (readAhead != null)
+        readAhead.fileChanged(fileId);
+
+      writeCache.deleteFile(fileId);
+
+      for (Segment segment : segments)
+        segment.filePages.remove(fileId);
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void truncateFile(long fileId) throws IOException {
+    lockAllSegments();
+    try {
+      if (readAhead != null)
+        readAhead.fileChanged(fileId);
+
+      writeCache.truncateFile(fileId);
+
+      for (Segment segment : segments) {
+        final Set<Long> pageEntries = segment.filePages.get(fileId);
+        if (pageEntries == null)
+          continue;
+
+        for (Long pageIndex : pageEntries) {
+          OCacheEntry cacheEntry = segment.get(fileId, pageIndex, true);
+          if (cacheEntry == null)
+            cacheEntry = segment.pinnedPages.get(new PinnedPage(fileId, pageIndex));
+
+          if (cacheEntry != null) {
+            if (cacheEntry.usagesCount == 0) {
+              cacheEntry = segment.remove(fileId, pageIndex);
+              if (cacheEntry == null)
+                cacheEntry = segment.pinnedPages.remove(new PinnedPage(fileId, pageIndex));
+
+              if (cacheEntry.dataPointer != null) {
+                cacheEntry.dataPointer.decrementReferrer();
+                cacheEntry.dataPointer = null;
+              }
+
+            }
+          } else
+            throw new OStorageException("Page with index " + pageIndex + " was  not found in cache for file with id " + fileId);
+        }
+
+        pageEntries.clear();
+      }
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void renameFile(long fileId, String oldFileName, String newFileName) throws IOException {
+    lockAllSegments();
+    try {
+      writeCache.renameFile(fileId, oldFileName, newFileName);
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void flushBuffer() throws IOException {
+    writeCache.flush();
+  }
+
+  @Override
+  public void clear() throws IOException {
+    writeCache.flush();
+
+    lockAllSegments();
+    try {
+      if (readAhead != null)
+        readAhead.clear();
+
+      for (Segment segment : segments)
+        segment.clear();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
+    lockAllSegments();
+    try {
+      clear();
+      writeCache.close();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  @Override
+  public boolean wasSoftlyClosed(long fileId) throws IOException {
+    return writeCache.wasSoftlyClosed(fileId);
+  }
+
+  @Override
+  public void setSoftlyClosed(long fileId, boolean softlyClosed) throws IOException {
+    writeCache.setSoftlyClosed(fileId, softlyClosed);
+  }
+
+  @Override
+  public void setSoftlyClosed(boolean softlyClosed) throws IOException {
+    writeCache.setSoftlyClosed(softlyClosed);
+  }
+
+  @Override
+  public boolean isOpen(long fileId) {
+    return writeCache.isOpen(fileId);
+  }
+
+  @Override
+  public OPageDataVerificationError[] checkStoredPages(OCommandOutputListener commandOutputListener) {
+    return writeCache.checkStoredPages(commandOutputListener);
+  }
+
+  @Override
+  public Set<ODirtyPage> logDirtyPagesTable() throws IOException {
+    return writeCache.logDirtyPagesTable();
+  }
+
+  @Override
+  public void forceSyncStoredChanges() throws IOException {
+    writeCache.forceSyncStoredChanges();
+  }
+
+  @Override
+  public void flushOldPages(OLogSequenceNumber lsn, long changeTime) throws IOException {
+    writeCache.flushOldGroups(lsn, changeTime);
+  }
+
+  @Override
+  public void delete() throws IOException {
+    if (readAhead != null)
+      readAhead.shutdown();
+
+    lockAllSegments();
+    try {
+      writeCache.delete();
+
+      for (Segment segment : segments)
+        segment.clear();
+    } finally {
+      unlockAllSegments();
+    }
+  }
+
+  int getSegmentsCount() {
+    return segments.length;
+  }
+
+  int getMaxSize() {
+    int maxSize = 0;
+    for (Segment segment : segments)
+      maxSize += segment.maxSize;
+
+    return maxSize;
+  }
+
+  int getSize() {
+    int size = 0;
+    for (Segment segment : segments)
+      size += segment.am.size() + segment.a1in.size();
+
+    return size;
+  }
+
+  private void registerFile(long fileId) {
+    for (Segment segment : segments)
+      segment.filePages.put(fileId, new HashSet<Long>());
+  }
+
+  private Segment segment(long fileId, long pageIndex) {
+    return segments[(int) (spread(fileId * 31 + pageIndex) & segmentMask)];
+  }
+
+  private void lockAllSegments() {
+    for (Segment segment : segments)
+      segment.lock.lock();
+  }
+
+  private void unlockAllSegments() {
+    for (int i = segments.length - 1; i >= 0; i--)
+      segments[i].lock.unlock();
+  }
+
+  private static long spread(long value) {
+    value ^= (value >>> 33);
+    value *= 0xff51afd7ed558ccdL;
+    value ^= (value >>> 33);
+    return value;
+  }
+
+  private static int normalizeSegmentsCount(int segmentsCount) {
+    if (segmentsCount <= 1)
+      return 1;
+
+    final int normalized = Integer.highestOneBit(segmentsCount);
+    if (normalized == segmentsCount)
+      return normalized;
+
+    return normalized << 1;
+  }
+
+  private int normalizeMemory(long maxSize, int pageSize) {
+    long tmpMaxSize = maxSize / pageSize;
+    if (tmpMaxSize >= Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int) tmpMaxSize;
+    }
+  }
+
+  private final class Segment {
+    private final ReentrantLock                lock        = new ReentrantLock();
+
+    private final LRUList                      am          = new LRUList();
+    private final LRUList                      a1out       = new LRUList();
+    private final LRUList                      a1in        = new LRUList();
+
+    /**
+     * Contains all pages of given file which are cached in this segment.
+     */
+    private final Map<Long, Set<Long>>         filePages   = new HashMap<Long, Set<Long>>();
+
+    private final Map<PinnedPage, OCacheEntry> pinnedPages = new HashMap<PinnedPage, OCacheEntry>();
+
+    private int                                maxSize;
+    private int                                K_IN;
+    private int                                K_OUT;
+
+    private Segment(int maxSize) {
+      this.maxSize = maxSize;
+
+      K_IN = maxSize >> 2;
+      K_OUT = maxSize >> 1;
+    }
+
+    private OCacheEntry updateCache(final long fileId, final long pageIndex) throws IOException {
+      final OProfilerMBean profiler = storageName != null ? Orient.instance().getProfiler() : null;
+      final long startTime = storageName != null ? System.currentTimeMillis() : 0;
+
+      OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+
+      if (cacheEntry != null) {
+        am.putToMRU(cacheEntry);
+
+        if (profiler != null && profiler.isRecording())
+          profiler.stopChrono(METRIC_HITS, "Requested item was found in Disk Cache", startTime, METRIC_HITS_METADATA);
+
+        return cacheEntry;
+      }
+
+      if (profiler != null && profiler.isRecording())
+        profiler.stopChrono(METRIC_MISSED, "Requested item was not found in Disk Cache", startTime, METRIC_MISSED_METADATA);
+
+      cacheEntry = a1out.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        removeColdestPageIfNeeded();
+
+        OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+        assert cacheEntry.dataPointer == null;
+        assert !cacheEntry.isDirty;
+
+        cacheEntry.dataPointer = dataPointer;
+
+        am.putToMRU(cacheEntry);
+
+        return cacheEntry;
+      }
+
+      cacheEntry = a1in.get(fileId, pageIndex);
+      if (cacheEntry != null)
+        return cacheEntry;
+
+      removeColdestPageIfNeeded();
+
+      OCachePointer dataPointer = writeCache.load(fileId, pageIndex);
+
+      cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+      a1in.putToMRU(cacheEntry);
+
+      Set<Long> pages = filePages.get(fileId);
+      if (pages == null) {
+        pages = new HashSet<Long>();
+        filePages.put(fileId, pages);
+      }
+
+      pages.add(pageIndex);
+      return cacheEntry;
+    }
+
+    private boolean cacheReadAheadPage(final long fileId, final long pageIndex, final OCachePointer dataPointer)
+        throws IOException {
+      if (get(fileId, pageIndex, true) != null || pinnedPages.containsKey(new PinnedPage(fileId, pageIndex)))
+        return false;
+
+      // PAGES WHICH ARE NOT REQUESTED YET SHOULD NOT PUSH OUT PAGES OF "AM" QUEUE
+      if (am.size() + a1in.size() >= maxSize && a1in.size() <= K_IN)
+        return false;
+
+      removeColdestPageIfNeeded();
+
+      final OCacheEntry cacheEntry = new OCacheEntry(fileId, pageIndex, dataPointer, false);
+      a1in.putToMRU(cacheEntry);
+
+      Set<Long> pages = filePages.get(fileId);
+      if (pages == null) {
+        pages = new HashSet<Long>();
+        filePages.put(fileId, pages);
+      }
+
+      pages.add(pageIndex);
+      return true;
+    }
+
+    private void removeColdestPageIfNeeded() throws IOException {
+      if (am.size() + a1in.size() >= maxSize) {
+        if (a1in.size() > K_IN) {
+          OCacheEntry removedFromAInEntry = a1in.removeLRU();
+
+          if (removedFromAInEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert removedFromAInEntry.usagesCount == 0;
+            assert !removedFromAInEntry.isDirty;
+
+            removedFromAInEntry.dataPointer.decrementReferrer();
+            removedFromAInEntry.dataPointer = null;
+
+            a1out.putToMRU(removedFromAInEntry);
+          }
+
+          if (a1out.size() > K_OUT) {
+            OCacheEntry removedEntry = a1out.removeLRU();
+            assert removedEntry.dataPointer == null;
+            assert !removedEntry.isDirty;
+
+            Set<Long> pageEntries = filePages.get(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        } else {
+          OCacheEntry removedEntry = am.removeLRU();
+
+          if (removedEntry == null) {
+            increaseCacheSize();
+          } else {
+            assert removedEntry.usagesCount == 0;
+            assert !removedEntry.isDirty;
+
+            removedEntry.dataPointer.decrementReferrer();
+            removedEntry.dataPointer = null;
+
+            Set<Long> pageEntries = filePages.get(removedEntry.fileId);
+            pageEntries.remove(removedEntry.pageIndex);
+          }
+        }
+      }
+    }
+
+    private void increaseCacheSize() {
+      String message = "All records in aIn queue in 2q cache are used!";
+      OLogManager.instance().warn(this, message);
+      if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
+        OLogManager.instance().warn(this, "Cache size will be increased.");
+        maxSize = (int) Math.ceil(maxSize * (1 + OGlobalConfiguration.SERVER_CACHE_INCREASE_STEP.getValueAsFloat()));
+        K_IN = maxSize >> 2;
+        K_OUT = maxSize >> 1;
+      } else {
+        throw new OAllCacheEntriesAreUsedException(message);
+      }
+    }
+
+    private OCacheEntry get(long fileId, long pageIndex, boolean useOutQueue) {
+      OCacheEntry cacheEntry = am.get(fileId, pageIndex);
+
+      if (cacheEntry != null)
+        return cacheEntry;
+
+      if (useOutQueue) {
+        cacheEntry = a1out.get(fileId, pageIndex);
+        if (cacheEntry != null)
+          return cacheEntry;
+      }
+
+      cacheEntry = a1in.get(fileId, pageIndex);
+      return cacheEntry;
+    }
+
+    private OCacheEntry remove(long fileId, long pageIndex) {
+      OCacheEntry cacheEntry = am.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        if (cacheEntry.usagesCount > 1)
+          throw new IllegalStateException("Record cannot be removed because it is used!");
+        return cacheEntry;
+      }
+
+      cacheEntry = a1out.remove(fileId, pageIndex);
+      if (cacheEntry != null) {
+        return cacheEntry;
+      }
+      cacheEntry = a1in.remove(fileId, pageIndex);
+      if (cacheEntry != null && cacheEntry.usagesCount > 1)
+        throw new IllegalStateException("Record cannot be removed because it is used!");
+      return cacheEntry;
+    }
+
+    private void clear() {
+      for (OCacheEntry cacheEntry : am)
+        freeEntry(cacheEntry);
+
+      for (OCacheEntry cacheEntry : a1in)
+        freeEntry(cacheEntry);
+
+      a1out.clear();
+      am.clear();
+      a1in.clear();
+
+      for (Set<Long> pages : filePages.values())
+        pages.clear();
+
+      for (OCacheEntry pinnedEntry : pinnedPages.values())
+        freeEntry(pinnedEntry);
+
+      pinnedPages.clear();
+    }
+
+    private void freeEntry(OCacheEntry cacheEntry) {
+      if (cacheEntry.usagesCount == 0) {
+        cacheEntry.dataPointer.decrementReferrer();
+        cacheEntry.dataPointer = null;
+      } else
+        throw new OStorageException("Page with index " + cacheEntry.pageIndex + " for file id " + cacheEntry.fileId
+            + " is used and can not be removed");
+    }
+  }
+
+  private static final class PinnedPage {
+    private final long fileId;
+    private final long pageIndex;
+
+    private PinnedPage(long fileId, long pageIndex) {
+      this.fileId = fileId;
+      this.pageIndex = pageIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+
+      PinnedPage that = (PinnedPage) o;
+
+      if (fileId != that.fileId)
+        return false;
+      if (pageIndex != that.pageIndex)
+        return false;
+
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      return "PinnedPage{" + "fileId=" + fileId + ", pageIndex=" + pageIndex + '}';
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (fileId ^ (fileId >>> 32));
+      result = 31 * result + (int) (pageIndex ^ (pageIndex >>> 32));
+      return result;
+    }
+  }
+
+  public void initProfiler() {
+    if (storageName != null) {
+      final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+      METRIC_HITS = profiler.getDatabaseMetric(storageName, "diskCache.hits");
+      METRIC_HITS_METADATA = profiler.getDatabaseMetric(null, "diskCache.hits");
+      METRIC_MISSED = profiler.getDatabaseMetric(storageName, "diskCache.missed");
+      METRIC_MISSED_METADATA = profiler.getDatabaseMetric(null, "diskCache.missed");
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.totalMemory"),
+          "Total memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return getSize() * pageSize;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.totalMemory"));
+
+      profiler.registerHookValue(profiler.getDatabaseMetric(storageName, "diskCache.maxMemory"),
+          "Maximum memory used by Disk Cache", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return getMaxSize() * pageSize;
+            }
+          }, profiler.getDatabaseMetric(null, "diskCache.maxMemory"));
+    }
+  }
+}
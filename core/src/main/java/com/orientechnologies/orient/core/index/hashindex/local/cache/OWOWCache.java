@@ -19,7 +19,9 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,7 +32,9 @@ import java.util.NavigableMap;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
@@ -43,14 +47,22 @@ import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.exception.OException;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.common.serialization.types.OStringSerializer;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.compression.impl.ONothingCompression;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.exception.OAllCacheEntriesAreUsedException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.serialization.OBinaryProtocol;
 import com.orientechnologies.orient.core.storage.fs.OFileClassic;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
@@ -71,8 +83,22 @@ public class OWOWCache {
 
   public static final long                                  MAGIC_NUMBER          = 0xFACB03FEL;
 
+  /**
+   * Magic number of pages which are stored in compressed form. Compressed page consists of magic number, CRC32 of the rest of
+   * compressed page, length of compressed content, length and name of compression method and compressed content.
+   */
+  public static final long                                  COMPRESSED_PAGE_MAGIC = 0xFACB03FDL;
+
+  private static final int                                  COMPRESSED_HEAD_SIZE  = OLongSerializer.LONG_SIZE + 2
+                                                                                      * OIntegerSerializer.INT_SIZE + 1;
+
   private final ConcurrentSkipListMap<GroupKey, WriteGroup> writeGroups           = new ConcurrentSkipListMap<GroupKey, WriteGroup>();
 
+  /**
+   * Write groups in order of their creation, oldest groups hold back the LSN from which WAL is replayed after crash.
+   */
+  private final ConcurrentLinkedQueue<AgedWriteGroup>       agedWriteGroups       = new ConcurrentLinkedQueue<AgedWriteGroup>();
+
   private Map<String, Long>                                 nameIdMap;
 
   private RandomAccessFile                                  nameIdMapHolder;
@@ -97,7 +123,10 @@ public class OWOWCache {
   private final Object                                      syncObject            = new Object();
   private long                                              fileCounter           = 0;
 
-  private GroupKey                                          lastGroupKey          = new GroupKey(0, -1);
+  private final int                                         flushThreads;
+  private final GroupKey[]                                  lastGroupKeys;
+
+  private Future<?>                                         backPressureFlush;
 
   private final ScheduledExecutorService                    commitExecutor        = Executors
                                                                                       .newSingleThreadScheduledExecutor(new ThreadFactory() {
@@ -109,6 +138,13 @@ public class OWOWCache {
                                                                                           return thread;
                                                                                         }
                                                                                       });
+  private final ExecutorService                             flushExecutor;
+
+  private final boolean                                     directRead;
+
+  private final OCompression                                pageCompression;
+  private final byte[]                                      pageCompressionName;
+
   private File                                              nameIdMapHolderFile;
 
   public OWOWCache(boolean syncOnPageFlush, int pageSize, long groupTTL, OWriteAheadLog writeAheadLog, long pageFlushInterval,
@@ -125,6 +161,40 @@ public class OWOWCache {
     if (checkMinSize && this.cacheMaxSize < MIN_CACHE_SIZE)
       this.cacheMaxSize = MIN_CACHE_SIZE;
 
+    this.flushThreads = Math.max(1, OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_THREADS.getValueAsInteger());
+    this.lastGroupKeys = new GroupKey[flushThreads];
+    for (int i = 0; i < flushThreads; i++)
+      lastGroupKeys[i] = new GroupKey(0, -1);
+
+    this.directRead = OGlobalConfiguration.DISK_CACHE_DIRECT_READ.getValueAsBoolean()
+        && ODirectMemoryPointer.isByteBufferViewSupported();
+
+    final String pageCompressionMethod = OGlobalConfiguration.DISK_CACHE_PAGE_COMPRESSION.getValueAsString();
+    if (pageCompressionMethod == null || pageCompressionMethod.equals(ONothingCompression.NAME)) {
+      this.pageCompression = null;
+      this.pageCompressionName = null;
+    } else {
+      this.pageCompression = OCompressionFactory.INSTANCE.getCompression(pageCompressionMethod);
+      this.pageCompressionName = OBinaryProtocol.string2bytes(pageCompressionMethod);
+    }
+
+    if (flushThreads > 1)
+      flushExecutor = Executors.newFixedThreadPool(flushThreads, new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          thread.setDaemon(true);
+          thread.setName("Write Cache Flush Worker #" + counter.incrementAndGet());
+          return thread;
+        }
+      });
+    else
+      flushExecutor = null;
+
+    registerProfilerHooks();
+
     if (pageFlushInterval > 0)
       commitExecutor.scheduleWithFixedDelay(new PeriodicFlushTask(), pageFlushInterval, pageFlushInterval, TimeUnit.MILLISECONDS);
   }
@@ -279,6 +349,7 @@ public class OWOWCache {
         if (writeGroup == null) {
           writeGroup = new WriteGroup(System.currentTimeMillis());
           writeGroups.put(groupKey, writeGroup);
+          agedWriteGroups.add(new AgedWriteGroup(groupKey, writeGroup));
         }
 
         int entryIndex = (int) (pageIndex & 15);
@@ -303,7 +374,17 @@ public class OWOWCache {
       }
 
       if (cacheSize.get() > cacheMaxSize) {
-        future = commitExecutor.submit(new PeriodicFlushTask());
+        // ALL WRITERS WHICH OVERFLOW CACHE WAIT FOR THE SAME FLUSH INSTEAD OF QUEUEING FLUSH PER PAGE
+        if (backPressureFlush == null || backPressureFlush.isDone())
+          backPressureFlush = commitExecutor.submit(new PeriodicFlushTask());
+
+        future = backPressureFlush;
+
+        final OProfilerMBean profiler = Orient.instance().getProfiler();
+        if (profiler.isRecording())
+          profiler.updateCounter(profiler.getDatabaseMetric(getStorageName(), "diskCache.writeCache.backPressure"),
+              "Amount of page writes which waited till write cache is flushed", +1,
+              profiler.getDatabaseMetric(null, "diskCache.writeCache.backPressure"));
       }
 
       return future;
@@ -339,6 +420,64 @@ public class OWOWCache {
     }
   }
 
+  /**
+   * Loads up to <code>pageCount</code> subsequent pages starting from <code>startPageIndex</code>. Pages which are absent in write
+   * cache are read from the disk by single read operation. Unlike {@link #load(long, long)} this method never allocates new
+   * pages, so the returned array is shorter than requested if the end of file is reached, or empty if file is already closed.
+   */
+  public OCachePointer[] loadPages(long fileId, long startPageIndex, int pageCount) throws IOException {
+    synchronized (syncObject) {
+      final OFileClassic fileClassic = files.get(fileId);
+      if (fileClassic == null || !fileClassic.isOpen())
+        return new OCachePointer[0];
+
+      final int count = (int) Math.max(0, Math.min(pageCount, fileClassic.getFilledUpTo() / pageSize - startPageIndex));
+      if (count == 0)
+        return new OCachePointer[0];
+
+      final long firstGroupIndex = startPageIndex >>> 4;
+      final long lastGroupIndex = (startPageIndex + count - 1) >>> 4;
+
+      final List<GroupKey> lockedGroups = new ArrayList<GroupKey>((int) (lastGroupIndex - firstGroupIndex + 1));
+      try {
+        for (long groupIndex = firstGroupIndex; groupIndex <= lastGroupIndex; groupIndex++) {
+          final GroupKey groupKey = new GroupKey(fileId, groupIndex);
+          lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.SHARED);
+          lockedGroups.add(groupKey);
+        }
+
+        final ODirectMemoryPointer content = readFileContent(fileClassic, startPageIndex * pageSize, count * pageSize);
+        try {
+          final OCachePointer[] pagePointers = new OCachePointer[count];
+          for (int i = 0; i < count; i++) {
+            final long pageIndex = startPageIndex + i;
+            final WriteGroup writeGroup = writeGroups.get(lockedGroups.get((int) ((pageIndex >>> 4) - firstGroupIndex)));
+
+            OCachePointer pagePointer = null;
+            if (writeGroup != null)
+              pagePointer = writeGroup.pages[(int) (pageIndex & 15)];
+
+            if (pagePointer == null) {
+              final ODirectMemoryPointer pointer = new ODirectMemoryPointer(pageSize);
+              content.moveData(i * pageSize, pointer, 0, pageSize);
+              pagePointer = new OCachePointer(pointer, ODurablePage.getLogSequenceNumberFromPage(pointer));
+            }
+
+            pagePointer.incrementReferrer();
+            pagePointers[i] = pagePointer;
+          }
+
+          return pagePointers;
+        } finally {
+          content.free();
+        }
+      } finally {
+        for (GroupKey groupKey : lockedGroups)
+          lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.SHARED);
+      }
+    }
+  }
+
   public void flush(long fileId) {
     final Future<Void> future = commitExecutor.submit(new FileFlushTask(fileId));
     try {
@@ -482,18 +621,7 @@ public class OWOWCache {
   public void close() throws IOException {
     flush();
 
-    if (!commitExecutor.isShutdown()) {
-      commitExecutor.shutdown();
-      try {
-        if (!commitExecutor.awaitTermination(5, TimeUnit.MINUTES))
-          throw new OException("Background data flush task can not be stopped.");
-      } catch (InterruptedException e) {
-        OLogManager.instance().error(this, "Data flush thread was interrupted");
-
-        Thread.interrupted();
-        throw new OException("Data flush thread was interrupted", e);
-      }
-    }
+    stopFlushTasks();
 
     synchronized (syncObject) {
       for (OFileClassic fileClassic : files.values()) {
@@ -538,6 +666,66 @@ public class OWOWCache {
     }
   }
 
+  /**
+   * Flushes write groups which contain changes logged before passed in LSN or which were created before passed in time, so
+   * amount of WAL which should be replayed after crash is decreased.
+   *
+   * @return amount of flushed groups.
+   */
+  public int flushOldGroups(final OLogSequenceNumber lsn, final long creationTime) {
+    final Future<Integer> future = commitExecutor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        int flushedGroups = 0;
+
+        for (AgedWriteGroup agedWriteGroup : agedWriteGroups) {
+          final WriteGroup group = agedWriteGroup.writeGroup;
+          if (group.creationTime >= creationTime && (lsn == null || !containsChangesBefore(group, lsn)))
+            continue;
+
+          final GroupKey groupKey = agedWriteGroup.groupKey;
+          lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+          try {
+            if (writeGroups.get(groupKey) != group)
+              continue;
+
+            final int flushedPages = flushWriteGroup(groupKey, group);
+            if (flushedPages < 0)
+              continue;
+
+            removeFlushedGroup(groupKey, group, flushedPages);
+            flushedGroups++;
+          } finally {
+            lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+          }
+        }
+
+        return flushedGroups;
+      }
+    });
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.interrupted();
+      throw new OException("Flush of old pages was interrupted", e);
+    } catch (Exception e) {
+      throw new OException("Flush of old pages was abnormally terminated", e);
+    }
+  }
+
+  /**
+   * Changes of page which are not flushed yet follow LSN of its last flush, so they are restored from this LSN after crash.
+   */
+  private static boolean containsChangesBefore(WriteGroup group, OLogSequenceNumber lsn) {
+    for (OCachePointer cachePointer : group.pages) {
+      if (cachePointer != null && cachePointer.getLastFlushedLsn().compareTo(lsn) < 0)
+        return true;
+    }
+
+    return false;
+  }
+
   private void removeCachedPages(long fileId) {
     Future<Void> future = commitExecutor.submit(new RemoveFilePagesTask(fileId));
     try {
@@ -554,52 +742,299 @@ public class OWOWCache {
     final long startPosition = pageIndex * pageSize;
     final long endPosition = startPosition + pageSize;
 
-    byte[] content = new byte[pageSize];
     OCachePointer dataPointer;
     final OFileClassic fileClassic = files.get(fileId);
 
     if (fileClassic.getFilledUpTo() >= endPosition) {
-      fileClassic.read(startPosition, content, content.length);
-      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
+      final ODirectMemoryPointer pointer = readFileContent(fileClassic, startPosition, pageSize);
 
       final OLogSequenceNumber storedLSN = ODurablePage.getLogSequenceNumberFromPage(pointer);
-      dataPointer = new OCachePointer(pointer, storedLSN);
+      dataPointer = new OCachePointer(pointer, loadedPageLsn(storedLSN));
     } else {
       fileClassic.allocateSpace((int) (endPosition - fileClassic.getFilledUpTo()));
 
-      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
-      dataPointer = new OCachePointer(pointer, new OLogSequenceNumber(0, -1));
+      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(new byte[pageSize]);
+      dataPointer = new OCachePointer(pointer, loadedPageLsn(new OLogSequenceNumber(0, -1)));
     }
 
     return dataPointer;
   }
 
-  private void flushPage(long fileId, long pageIndex, ODirectMemoryPointer dataPointer) throws IOException {
+  /**
+   * Changes of loaded page are logged after current end of log, so this LSN is used as LSN of its last flush if page LSN does not
+   * point to the record which is still present in log, otherwise such page would force restore from the beginning of log.
+   */
+  private OLogSequenceNumber loadedPageLsn(OLogSequenceNumber pageLsn) throws IOException {
+    if (writeAheadLog == null)
+      return pageLsn;
+
+    final OLogSequenceNumber begin = writeAheadLog.begin();
+    if (begin != null && pageLsn.compareTo(begin) >= 0)
+      return pageLsn;
+
+    final OLogSequenceNumber end = writeAheadLog.end();
+    return end != null ? end : pageLsn;
+  }
+
+  /**
+   * Reads file content into newly allocated off-heap memory. If {@link OGlobalConfiguration#DISK_CACHE_DIRECT_READ} is set
+   * content is read directly into this memory, otherwise it is read into heap array first.
+   */
+  private ODirectMemoryPointer readFileContent(OFileClassic fileClassic, long position, int length) throws IOException {
+    if (directRead) {
+      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(length);
+      final ByteBuffer buffer = pointer.asByteBuffer(0, length);
+
+      if (buffer != null) {
+        boolean success = false;
+        try {
+          fileClassic.read(position, buffer);
+          uncompressPages(pointer, length / pageSize);
+          success = true;
+        } finally {
+          if (!success)
+            pointer.free();
+        }
+
+        return pointer;
+      }
+
+      pointer.free();
+    }
+
+    final byte[] content = new byte[length];
+    fileClassic.read(position, content, length);
+
+    final ODirectMemoryPointer pointer = new ODirectMemoryPointer(content);
+    boolean success = false;
+    try {
+      uncompressPages(pointer, length / pageSize);
+      success = true;
+    } finally {
+      if (!success)
+        pointer.free();
+    }
+
+    return pointer;
+  }
+
+  /**
+   * Replaces compressed images of pages by their content. Pages are checked independently of
+   * {@link OGlobalConfiguration#DISK_CACHE_PAGE_COMPRESSION} setting because they could be written when compression was enabled.
+   */
+  private void uncompressPages(ODirectMemoryPointer content, int pagesCount) {
+    for (int i = 0; i < pagesCount; i++) {
+      final int pageOffset = i * pageSize;
+      if (content.getLong(pageOffset) != COMPRESSED_PAGE_MAGIC)
+        continue;
+
+      final int compressedPageSize = COMPRESSED_HEAD_SIZE
+          + (content.getByte(pageOffset + COMPRESSED_HEAD_SIZE - 1) & 0xFF)
+          + content.getInt(pageOffset + OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE);
+      if (compressedPageSize > pageSize || compressedPageSize < COMPRESSED_HEAD_SIZE)
+        throw new OStorageException("Compressed page has invalid size " + compressedPageSize);
+
+      final byte[] page = uncompressPage(content.get(pageOffset, compressedPageSize));
+      content.set(pageOffset, page, 0, pageSize);
+    }
+  }
+
+  private byte[] uncompressPage(byte[] compressedPage) {
+    int position = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
+
+    final int compressedContentLength = OIntegerSerializer.INSTANCE.deserializeNative(compressedPage, position);
+    position += OIntegerSerializer.INT_SIZE;
+
+    final int compressionNameLength = compressedPage[position++] & 0xFF;
+    final String compressionName = OBinaryProtocol.bytes2string(compressedPage, position, compressionNameLength);
+    position += compressionNameLength;
+
+    final OCompression compression = OCompressionFactory.INSTANCE.getCompression(compressionName);
+    final byte[] page = compression.uncompress(Arrays.copyOfRange(compressedPage, position, position + compressedContentLength));
+    if (page.length != pageSize)
+      throw new OStorageException("Uncompressed page has size " + page.length + " but should have " + pageSize);
+
+    return page;
+  }
+
+  /**
+   * @return compressed image of the page or <code>null</code> if compressed image is not smaller than the page.
+   */
+  private byte[] compressPage(byte[] content, int pageOffset) {
+    final byte[] compressedContent = pageCompression.compress(Arrays.copyOfRange(content, pageOffset, pageOffset + pageSize));
+
+    final int compressedPageSize = COMPRESSED_HEAD_SIZE + pageCompressionName.length + compressedContent.length;
+    if (compressedPageSize >= pageSize)
+      return null;
+
+    final byte[] compressedPage = new byte[compressedPageSize];
+    OLongSerializer.INSTANCE.serializeNative(COMPRESSED_PAGE_MAGIC, compressedPage, 0);
+
+    int position = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
+    OIntegerSerializer.INSTANCE.serializeNative(compressedContent.length, compressedPage, position);
+    position += OIntegerSerializer.INT_SIZE;
+
+    compressedPage[position++] = (byte) pageCompressionName.length;
+    System.arraycopy(pageCompressionName, 0, compressedPage, position, pageCompressionName.length);
+    position += pageCompressionName.length;
+
+    System.arraycopy(compressedContent, 0, compressedPage, position, compressedContent.length);
+
+    OIntegerSerializer.INSTANCE.serializeNative(calculateCompressedPageCrc(compressedPage, compressedPageSize), compressedPage,
+        OLongSerializer.LONG_SIZE);
+    return compressedPage;
+  }
+
+  /**
+   * Writes every page which can be compressed by its compressed image. Only beginning of page is written, so the rest of the page
+   * does not occupy disk space on file systems which support sparse files. Pages which can not be compressed are written as is.
+   */
+  private void writeCompressedPages(OFileClassic fileClassic, long firstPageIndex, byte[] content, int pagesCount)
+      throws IOException {
+    long physicalSize = fileClassic.getOsFile().length() - OFileClassic.HEADER_SIZE;
+
+    for (int i = 0; i < pagesCount; i++) {
+      final long pagePosition = (firstPageIndex + i) * pageSize;
+      final byte[] compressedPage = compressPage(content, i * pageSize);
+
+      if (compressedPage == null)
+        fileClassic.write(pagePosition, content, pageSize, i * pageSize);
+      else {
+        fileClassic.write(pagePosition, compressedPage, compressedPage.length, 0);
+
+        // SIZE OF FILE IS CALCULATED FROM ITS LENGTH ON OPEN, SO LAST BYTE OF PAGE IS WRITTEN IF PAGE IS BEYOND THE END OF FILE
+        if (physicalSize < pagePosition + pageSize)
+          fileClassic.write(pagePosition + pageSize - 1, new byte[1], 1, 0);
+      }
+
+      physicalSize = Math.max(physicalSize, pagePosition + pageSize);
+    }
+  }
+
+  /**
+   * Flushes pages of write group to the disk, adjacent pages are written by single write operation.
+   * 
+   * @return amount of flushed pages or -1 if one of the pages is locked and group should be flushed later.
+   */
+  private int flushWriteGroup(GroupKey groupKey, WriteGroup writeGroup) throws IOException {
+    final OCachePointer[] pages = writeGroup.pages;
+    final OLogSequenceNumber[] pageLSNs = new OLogSequenceNumber[pages.length];
+
+    // CHANGES WHICH ARE NOT COPIED ARE LOGGED AFTER CURRENT END OF LOG, EVEN CHANGES OF PAGES WHICH ARE NOT LOGGED AT ALL
+    final OLogSequenceNumber logEnd = writeAheadLog != null ? writeAheadLog.end() : null;
+
+    int flushedPages = 0;
+    int runStart = 0;
+
+    while (runStart < pages.length) {
+      if (pages[runStart] == null) {
+        runStart++;
+        continue;
+      }
+
+      int runEnd = runStart;
+      while (runEnd < pages.length && pages[runEnd] != null)
+        runEnd++;
+
+      final byte[] content = new byte[(runEnd - runStart) * pageSize];
+      boolean locked = false;
+
+      int copied = 0;
+      for (int i = runStart; i < runEnd; i++) {
+        final OCachePointer pagePointer = pages[i];
+        if (!pagePointer.tryAcquireSharedLock()) {
+          locked = true;
+          break;
+        }
+
+        try {
+          final ODirectMemoryPointer dataPointer = pagePointer.getDataPointer();
+          System.arraycopy(dataPointer.get(0, pageSize), 0, content, copied * pageSize, pageSize);
+          pageLSNs[i] = ODurablePage.getLogSequenceNumberFromPage(dataPointer);
+        } finally {
+          pagePointer.releaseSharedLock();
+        }
+
+        copied++;
+      }
+
+      if (copied > 0) {
+        writePages(groupKey.fileId, (groupKey.groupIndex << 4) + runStart, content, copied, pageLSNs, runStart);
+
+        for (int i = runStart; i < runStart + copied; i++)
+          pages[i].setLastFlushedLsn(logEnd != null && logEnd.compareTo(pageLSNs[i]) > 0 ? logEnd : pageLSNs[i]);
+
+        flushedPages += copied;
+      }
+
+      if (locked) {
+        updateFlushedPagesCounter(flushedPages);
+        return -1;
+      }
+
+      runStart = runEnd;
+    }
+
+    updateFlushedPagesCounter(flushedPages);
+    return flushedPages;
+  }
+
+  private void writePages(long fileId, long firstPageIndex, byte[] content, int pagesCount, OLogSequenceNumber[] pageLSNs,
+      int firstLSNIndex) throws IOException {
     if (writeAheadLog != null) {
-      OLogSequenceNumber lsn = ODurablePage.getLogSequenceNumberFromPage(dataPointer);
+      OLogSequenceNumber maxLSN = null;
+      for (int i = firstLSNIndex; i < firstLSNIndex + pagesCount; i++)
+        if (maxLSN == null || maxLSN.compareTo(pageLSNs[i]) < 0)
+          maxLSN = pageLSNs[i];
+
       OLogSequenceNumber flushedLSN = writeAheadLog.getFlushedLSN();
-      if (flushedLSN == null || flushedLSN.compareTo(lsn) < 0)
+      if (flushedLSN == null || flushedLSN.compareTo(maxLSN) < 0)
         writeAheadLog.flush();
     }
 
-    final byte[] content = dataPointer.get(0, pageSize);
-    OLongSerializer.INSTANCE.serializeNative(MAGIC_NUMBER, content, 0);
+    for (int i = 0; i < pagesCount; i++) {
+      final int pageOffset = i * pageSize;
+      OLongSerializer.INSTANCE.serializeNative(MAGIC_NUMBER, content, pageOffset);
 
-    final int crc32 = calculatePageCrc(content);
-    OIntegerSerializer.INSTANCE.serializeNative(crc32, content, OLongSerializer.LONG_SIZE);
+      final int crc32 = calculatePageCrc(content, pageOffset);
+      OIntegerSerializer.INSTANCE.serializeNative(crc32, content, pageOffset + OLongSerializer.LONG_SIZE);
+    }
 
     final OFileClassic fileClassic = files.get(fileId);
-    fileClassic.write(pageIndex * pageSize, content);
+    if (pageCompression == null)
+      fileClassic.write(firstPageIndex * pageSize, content, pagesCount * pageSize, 0);
+    else
+      writeCompressedPages(fileClassic, firstPageIndex, content, pagesCount);
 
     if (syncOnPageFlush)
       fileClassic.synch();
   }
 
-  private static int calculatePageCrc(byte[] pageData) {
+  private void updateFlushedPagesCounter(int flushedPages) {
+    if (flushedPages == 0)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording())
+      profiler.updateCounter(profiler.getDatabaseMetric(getStorageName(), "diskCache.writeCache.flushedPages"),
+          "Amount of pages which were flushed from write cache to the disk", flushedPages,
+          profiler.getDatabaseMetric(null, "diskCache.writeCache.flushedPages"));
+  }
+
+  private int calculatePageCrc(byte[] pageData, int pageOffset) {
     int systemSize = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
 
     final CRC32 crc32 = new CRC32();
-    crc32.update(pageData, systemSize, pageData.length - systemSize);
+    crc32.update(pageData, pageOffset + systemSize, pageSize - systemSize);
+
+    return (int) crc32.getValue();
+  }
+
+  private int calculateCompressedPageCrc(byte[] compressedPage, int compressedPageSize) {
+    final int systemSize = OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
+
+    final CRC32 crc32 = new CRC32();
+    crc32.update(compressedPage, systemSize, compressedPageSize - systemSize);
 
     return (int) crc32.getValue();
   }
@@ -650,6 +1085,26 @@ public class OWOWCache {
 
             long magicNumber = OLongSerializer.INSTANCE.deserializeNative(data, 0);
 
+            if (magicNumber == COMPRESSED_PAGE_MAGIC) {
+              final int compressedPageSize = COMPRESSED_HEAD_SIZE + (data[COMPRESSED_HEAD_SIZE - 1] & 0xFF)
+                  + OIntegerSerializer.INSTANCE.deserializeNative(data, OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE);
+
+              if (compressedPageSize > pageSize || compressedPageSize < COMPRESSED_HEAD_SIZE
+                  || OIntegerSerializer.INSTANCE.deserializeNative(data, OLongSerializer.LONG_SIZE) != calculateCompressedPageCrc(
+                      data, compressedPageSize)) {
+                if (commandOutputListener != null)
+                  commandOutputListener.onMessage("Error: Checksum for compressed page " + (pos / pageSize) + " in file "
+                      + fileClassic.getName() + " is incorrect !!!");
+
+                errors.add(new OPageDataVerificationError(false, true, pos / pageSize, fileClassic.getName()));
+                fileIsCorrect = false;
+                continue;
+              }
+
+              data = uncompressPage(data);
+              magicNumber = OLongSerializer.INSTANCE.deserializeNative(data, 0);
+            }
+
             if (magicNumber != MAGIC_NUMBER) {
               magicNumberIncorrect = true;
               if (commandOutputListener != null)
@@ -660,7 +1115,7 @@ public class OWOWCache {
 
             final int storedCRC32 = OIntegerSerializer.INSTANCE.deserializeNative(data, OLongSerializer.LONG_SIZE);
 
-            final int calculatedCRC32 = calculatePageCrc(data);
+            final int calculatedCRC32 = calculatePageCrc(data, 0);
             if (storedCRC32 != calculatedCRC32) {
               checkSumIncorrect = true;
               if (commandOutputListener != null)
@@ -712,6 +1167,10 @@ public class OWOWCache {
       }
     }
 
+    stopFlushTasks();
+  }
+
+  private void stopFlushTasks() {
     if (!commitExecutor.isShutdown()) {
       commitExecutor.shutdown();
       try {
@@ -723,6 +1182,67 @@ public class OWOWCache {
         Thread.interrupted();
         throw new OException("Data flush thread was interrupted", e);
       }
+
+      if (flushExecutor != null)
+        flushExecutor.shutdown();
+
+      unregisterProfilerHooks();
+    }
+  }
+
+  private String getStorageName() {
+    return storageLocal != null ? storageLocal.getName() : null;
+  }
+
+  private void registerProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+    profiler.registerHookValue(profiler.getDatabaseMetric(getStorageName(), "diskCache.writeCache.dirtyPages"),
+        "Amount of pages in write cache which are not flushed to the disk yet", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            return cacheSize.get();
+          }
+        }, profiler.getDatabaseMetric(null, "diskCache.writeCache.dirtyPages"));
+
+    profiler.registerHookValue(profiler.getDatabaseMetric(getStorageName(), "diskCache.writeCache.oldestDirtyPageAge"),
+        "Time in ms since the oldest page of write cache was changed first time", METRIC_TYPE.STAT, new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            return getOldestDirtyPageAge();
+          }
+        }, profiler.getDatabaseMetric(null, "diskCache.writeCache.oldestDirtyPageAge"));
+  }
+
+  private void unregisterProfilerHooks() {
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+
+    profiler.unregisterHookValue(profiler.getDatabaseMetric(getStorageName(), "diskCache.writeCache.dirtyPages"));
+    profiler.unregisterHookValue(profiler.getDatabaseMetric(getStorageName(), "diskCache.writeCache.oldestDirtyPageAge"));
+  }
+
+  /**
+   * @return time in ms since creation of the oldest write group which is not flushed yet, or 0 if write cache is empty.
+   */
+  public long getOldestDirtyPageAge() {
+    final AgedWriteGroup agedWriteGroup = peekOldestWriteGroup();
+    if (agedWriteGroup == null)
+      return 0;
+
+    return Math.max(0, System.currentTimeMillis() - agedWriteGroup.writeGroup.creationTime);
+  }
+
+  private AgedWriteGroup peekOldestWriteGroup() {
+    while (true) {
+      final AgedWriteGroup agedWriteGroup = agedWriteGroups.peek();
+      if (agedWriteGroup == null)
+        return null;
+
+      if (writeGroups.get(agedWriteGroup.groupKey) == agedWriteGroup.writeGroup)
+        return agedWriteGroup;
+
+      // GROUP IS ALREADY FLUSHED
+      agedWriteGroups.remove(agedWriteGroup);
     }
   }
 
@@ -797,24 +1317,22 @@ public class OWOWCache {
         int writeGroupsToFlush;
         boolean useForceSync = false;
         double threshold = ((double) cacheSize.get()) / cacheMaxSize;
-        if (threshold > 0.8) {
-          writeGroupsToFlush = (int) (0.2 * writeGroups.size());
-          useForceSync = true;
-        } else if (threshold > 0.9) {
+        if (threshold > 0.9) {
           writeGroupsToFlush = (int) (0.4 * writeGroups.size());
           useForceSync = true;
+        } else if (threshold > 0.8) {
+          writeGroupsToFlush = (int) (0.2 * writeGroups.size());
+          useForceSync = true;
         } else
           writeGroupsToFlush = 1;
 
         if (writeGroupsToFlush < 1)
           writeGroupsToFlush = 1;
 
-        int flushedGroups = 0;
-
-        flushedGroups = flushRing(writeGroupsToFlush, flushedGroups, false);
+        int flushedGroups = flushExpiredGroups(writeGroupsToFlush);
 
-        if (flushedGroups < writeGroupsToFlush && useForceSync)
-          flushedGroups = flushRing(writeGroupsToFlush, flushedGroups, true);
+        if (flushedGroups < writeGroupsToFlush)
+          flushedGroups += flushPartitions(writeGroupsToFlush - flushedGroups, useForceSync);
 
         if (flushedGroups < writeGroupsToFlush && cacheSize.get() > cacheMaxSize) {
           if (OGlobalConfiguration.SERVER_CACHE_INCREASE_ON_DEMAND.getValueAsBoolean()) {
@@ -831,34 +1349,106 @@ public class OWOWCache {
       }
     }
 
-    private int flushRing(int writeGroupsToFlush, int flushedGroups, boolean forceFlush) throws IOException {
-      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.tailMap(lastGroupKey, false);
+    /**
+     * Flushes groups which stay in cache longer than TTL starting from the oldest one, they are flushed first because they hold
+     * back WAL checkpoint.
+     */
+    private int flushExpiredGroups(int writeGroupsToFlush) throws IOException {
+      final long currentTime = System.currentTimeMillis();
+      int flushedGroups = 0;
+
+      while (flushedGroups < writeGroupsToFlush) {
+        final AgedWriteGroup agedWriteGroup = peekOldestWriteGroup();
+        if (agedWriteGroup == null || currentTime - agedWriteGroup.writeGroup.creationTime < groupTTL)
+          break;
+
+        final GroupKey groupKey = agedWriteGroup.groupKey;
+        final WriteGroup group = agedWriteGroup.writeGroup;
+
+        lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+        try {
+          if (writeGroups.get(groupKey) != group)
+            continue;
+
+          final int flushedPages = flushWriteGroup(groupKey, group);
+          if (flushedPages < 0)
+            break;
+
+          removeFlushedGroup(groupKey, group, flushedPages);
+          flushedGroups++;
+        } finally {
+          lockManager.releaseLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
+        }
+      }
+
+      return flushedGroups;
+    }
+
+    private int flushPartitions(int writeGroupsToFlush, final boolean useForceSync) throws Exception {
+      if (flushExecutor == null)
+        return flushPartition(0, writeGroupsToFlush, useForceSync);
+
+      // WRITE GROUPS ARE PARTITIONED BY FILE, SO EVERY WORKER WRITES INTO ITS OWN FILES
+      final int partitionGroupsToFlush = (writeGroupsToFlush + flushThreads - 1) / flushThreads;
+
+      final List<Future<Integer>> futures = new ArrayList<Future<Integer>>(flushThreads);
+      for (int i = 0; i < flushThreads; i++) {
+        final int partition = i;
+        futures.add(flushExecutor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            return flushPartition(partition, partitionGroupsToFlush, useForceSync);
+          }
+        }));
+      }
+
+      int flushedGroups = 0;
+      for (Future<Integer> future : futures)
+        flushedGroups += future.get();
+
+      return flushedGroups;
+    }
+
+    private int flushPartition(int partition, int writeGroupsToFlush, boolean useForceSync) throws IOException {
+      int flushedGroups = flushRing(partition, writeGroupsToFlush, 0, false);
+
+      if (flushedGroups < writeGroupsToFlush && useForceSync)
+        flushedGroups = flushRing(partition, writeGroupsToFlush, flushedGroups, true);
+
+      return flushedGroups;
+    }
+
+    private int flushRing(int partition, int writeGroupsToFlush, int flushedGroups, boolean forceFlush) throws IOException {
+      NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.tailMap(lastGroupKeys[partition], false);
 
       if (!subMap.isEmpty()) {
-        flushedGroups = iterateBySubRing(subMap, writeGroupsToFlush, 0, forceFlush);
+        flushedGroups = iterateBySubRing(partition, subMap, writeGroupsToFlush, flushedGroups, forceFlush);
         if (flushedGroups < writeGroupsToFlush) {
           if (!subMap.isEmpty()) {
             subMap = writeGroups.headMap(subMap.firstKey(), false);
-            flushedGroups = iterateBySubRing(subMap, writeGroupsToFlush, flushedGroups, forceFlush);
+            flushedGroups = iterateBySubRing(partition, subMap, writeGroupsToFlush, flushedGroups, forceFlush);
           }
         }
       } else
-        flushedGroups = iterateBySubRing(writeGroups, writeGroupsToFlush, flushedGroups, forceFlush);
+        flushedGroups = iterateBySubRing(partition, writeGroups, writeGroupsToFlush, flushedGroups, forceFlush);
 
       return flushedGroups;
     }
 
-    private int iterateBySubRing(NavigableMap<GroupKey, WriteGroup> subMap, int writeGroupsToFlush, int flushedWriteGroups,
-        boolean forceFlush) throws IOException {
+    private int iterateBySubRing(int partition, NavigableMap<GroupKey, WriteGroup> subMap, int writeGroupsToFlush,
+        int flushedWriteGroups, boolean forceFlush) throws IOException {
       Iterator<Map.Entry<GroupKey, WriteGroup>> entriesIterator = subMap.entrySet().iterator();
       long currentTime = System.currentTimeMillis();
 
-      groupsLoop: while (entriesIterator.hasNext() && flushedWriteGroups < writeGroupsToFlush) {
+      while (entriesIterator.hasNext() && flushedWriteGroups < writeGroupsToFlush) {
         Map.Entry<GroupKey, WriteGroup> entry = entriesIterator.next();
         final WriteGroup group = entry.getValue();
         final GroupKey groupKey = entry.getKey();
 
-        final boolean weakLockMode = group.creationTime - currentTime < groupTTL && !forceFlush;
+        if (partitionOf(groupKey.fileId) != partition)
+          continue;
+
+        final boolean weakLockMode = currentTime - group.creationTime < groupTTL && !forceFlush;
         if (group.recencyBit && weakLockMode) {
           group.recencyBit = false;
           continue;
@@ -868,49 +1458,42 @@ public class OWOWCache {
         try {
           if (group.recencyBit && weakLockMode)
             group.recencyBit = false;
-          else {
+          else if (writeGroups.get(groupKey) == group) {
             group.recencyBit = false;
 
-            int flushedPages = 0;
-
-            for (int i = 0; i < 16; i++) {
-              final OCachePointer pagePointer = group.pages[i];
-              if (pagePointer != null) {
-                if (!pagePointer.tryAcquireSharedLock())
-                  continue groupsLoop;
-
-                try {
-                  flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                  flushedPages++;
-
-                  final OLogSequenceNumber flushedLSN = ODurablePage.getLogSequenceNumberFromPage(pagePointer.getDataPointer());
-                  pagePointer.setLastFlushedLsn(flushedLSN);
-                } finally {
-                  pagePointer.releaseSharedLock();
-                }
-              }
+            final int flushedPages = flushWriteGroup(groupKey, group);
+            if (flushedPages >= 0) {
+              removeFlushedGroup(groupKey, group, flushedPages);
+              flushedWriteGroups++;
             }
-
-            for (OCachePointer pagePointer : group.pages)
-              if (pagePointer != null)
-                pagePointer.decrementReferrer();
-
-            entriesIterator.remove();
-            flushedWriteGroups++;
-
-            cacheSize.addAndGet(-flushedPages);
           }
         } finally {
           lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
         }
 
-        lastGroupKey = groupKey;
+        lastGroupKeys[partition] = groupKey;
       }
 
       return flushedWriteGroups;
     }
   }
 
+  private int partitionOf(long fileId) {
+    return (int) ((fileId & Long.MAX_VALUE) % flushThreads);
+  }
+
+  /**
+   * Removes flushed group from cache, should be called under exclusive lock of group.
+   */
+  private void removeFlushedGroup(GroupKey groupKey, WriteGroup group, int flushedPages) {
+    for (OCachePointer pagePointer : group.pages)
+      if (pagePointer != null)
+        pagePointer.decrementReferrer();
+
+    writeGroups.remove(groupKey, group);
+    cacheSize.addAndGet(-flushedPages);
+  }
+
   private final class FileFlushTask implements Callable<Void> {
     private final long fileId;
 
@@ -926,37 +1509,19 @@ public class OWOWCache {
       NavigableMap<GroupKey, WriteGroup> subMap = writeGroups.subMap(firstKey, true, lastKey, true);
       Iterator<Map.Entry<GroupKey, WriteGroup>> entryIterator = subMap.entrySet().iterator();
 
-      groupsLoop: while (entryIterator.hasNext()) {
+      while (entryIterator.hasNext()) {
         Map.Entry<GroupKey, WriteGroup> entry = entryIterator.next();
         final WriteGroup writeGroup = entry.getValue();
         final GroupKey groupKey = entry.getKey();
 
         lockManager.acquireLock(Thread.currentThread(), groupKey, OLockManager.LOCK.EXCLUSIVE);
         try {
-          int flushedPages = 0;
+          if (writeGroups.get(groupKey) != writeGroup)
+            continue;
 
-          for (int i = 0; i < 16; i++) {
-            OCachePointer pagePointer = writeGroup.pages[i];
-
-            if (pagePointer != null) {
-              if (!pagePointer.tryAcquireSharedLock())
-                continue groupsLoop;
-
-              try {
-                flushPage(groupKey.fileId, (groupKey.groupIndex << 4) + i, pagePointer.getDataPointer());
-                flushedPages++;
-              } finally {
-                pagePointer.releaseSharedLock();
-              }
-            }
-          }
-
-          for (OCachePointer pagePointer : writeGroup.pages)
-            if (pagePointer != null)
-              pagePointer.decrementReferrer();
-
-          cacheSize.addAndGet(-flushedPages);
-          entryIterator.remove();
+          final int flushedPages = flushWriteGroup(groupKey, writeGroup);
+          if (flushedPages >= 0)
+            removeFlushedGroup(groupKey, writeGroup, flushedPages);
         } finally {
           lockManager.releaseLock(Thread.currentThread(), entry.getKey(), OLockManager.LOCK.EXCLUSIVE);
         }
@@ -1011,6 +1576,16 @@ public class OWOWCache {
     }
   }
 
+  private static final class AgedWriteGroup {
+    private final GroupKey   groupKey;
+    private final WriteGroup writeGroup;
+
+    private AgedWriteGroup(GroupKey groupKey, WriteGroup writeGroup) {
+      this.groupKey = groupKey;
+      this.writeGroup = writeGroup;
+    }
+  }
+
   private static final class NameFileIdEntry {
     private final String name;
     private final long   fileId;
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.index.sbtree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.OIndexException;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+
+/**
+ * Sorts pairs of index key and record id which are used to build index by bulk load. Pairs are sorted in memory in chunks of
+ * limited size, chunks are stored in temporary files and merged at the end, so amount of consumed memory does not depend on size
+ * of index. Pairs are sorted by key and then by record id.
+ */
+public class OSBTreeBulkLoadSorter<K> {
+  private static final String                      FILE_PREFIX    = "sbtreebulkload";
+  private static final String                      FILE_EXTENSION = ".srt";
+
+  private final OBinarySerializer<K>               keySerializer;
+  private final OType[]                            keyTypes;
+  private final int                                maxEntriesInMemory;
+  private final File                               directory;
+
+  private final Comparator<SortEntry<K>>           comparator     = new Comparator<SortEntry<K>>() {
+                                                                    @Override
+                                                                    public int compare(SortEntry<K> entryOne, SortEntry<K> entryTwo) {
+                                                                      final int result = ODefaultComparator.INSTANCE.compare(
+                                                                          entryOne.key, entryTwo.key);
+                                                                      if (result != 0)
+                                                                        return result;
+
+                                                                      return entryOne.value.compareTo(entryTwo.value);
+                                                                    }
+                                                                  };
+
+  private final List<SortEntry<K>>                 entries;
+  private final List<File>                         files          = new ArrayList<File>();
+  private final List<RunReader<K>>                 readers        = new ArrayList<RunReader<K>>();
+
+  private long                                     size;
+
+  public OSBTreeBulkLoadSorter(OBinarySerializer<K> keySerializer, OType[] keyTypes, int maxEntriesInMemory, File directory) {
+    this.keySerializer = keySerializer;
+    this.keyTypes = keyTypes;
+    this.maxEntriesInMemory = maxEntriesInMemory;
+    this.directory = directory;
+
+    entries = new ArrayList<SortEntry<K>>(Math.min(maxEntriesInMemory, 1024));
+  }
+
+  public void add(K key, OIdentifiable value) {
+    key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+    entries.add(new SortEntry<K>(key, value.getIdentity()));
+    size++;
+
+    if (entries.size() >= maxEntriesInMemory)
+      spill();
+  }
+
+  public long size() {
+    return size;
+  }
+
+  /**
+   * @return iterator over all added pairs in ascending order. Pairs which were sorted in memory are merged with pairs stored in
+   *         temporary files, so this method may be called only once.
+   */
+  public Iterator<Map.Entry<K, OIdentifiable>> sortedIterator() {
+    Collections.sort(entries, comparator);
+
+    if (files.isEmpty())
+      return new ArrayList<Map.Entry<K, OIdentifiable>>(entries).iterator();
+
+    final PriorityQueue<RunReader<K>> queue = new PriorityQueue<RunReader<K>>(files.size() + 1, new Comparator<RunReader<K>>() {
+      @Override
+      public int compare(RunReader<K> readerOne, RunReader<K> readerTwo) {
+        return comparator.compare(readerOne.current, readerTwo.current);
+      }
+    });
+
+    try {
+      for (File file : files) {
+        final RunReader<K> reader = new FileRunReader<K>(file, keySerializer);
+        readers.add(reader);
+
+        if (reader.next())
+          queue.add(reader);
+      }
+
+      final RunReader<K> memoryReader = new MemoryRunReader<K>(entries.iterator());
+      if (memoryReader.next())
+        queue.add(memoryReader);
+    } catch (IOException e) {
+      throw new OIndexException("Error during merge of sorted index keys", e);
+    }
+
+    return new Iterator<Map.Entry<K, OIdentifiable>>() {
+      @Override
+      public boolean hasNext() {
+        return !queue.isEmpty();
+      }
+
+      @Override
+      public Map.Entry<K, OIdentifiable> next() {
+        final RunReader<K> reader = queue.poll();
+        if (reader == null)
+          throw new NoSuchElementException();
+
+        final SortEntry<K> result = reader.current;
+        try {
+          if (reader.next())
+            queue.add(reader);
+        } catch (IOException e) {
+          throw new OIndexException("Error during merge of sorted index keys", e);
+        }
+
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  /**
+   * Merges iterators returned by {@link #sortedIterator()} of several sorters, so keys which were sorted independently, for
+   * example by different threads, are loaded into the same index.
+   *
+   * @return iterator over all pairs of passed in iterators in ascending order.
+   */
+  public static <K> Iterator<Map.Entry<K, OIdentifiable>> merge(List<Iterator<Map.Entry<K, OIdentifiable>>> sortedIterators) {
+    if (sortedIterators.size() == 1)
+      return sortedIterators.get(0);
+
+    final PriorityQueue<MergeSource<K>> queue = new PriorityQueue<MergeSource<K>>(sortedIterators.size(),
+        new Comparator<MergeSource<K>>() {
+          @Override
+          public int compare(MergeSource<K> sourceOne, MergeSource<K> sourceTwo) {
+            final int result = ODefaultComparator.INSTANCE.compare(sourceOne.current.getKey(), sourceTwo.current.getKey());
+            if (result != 0)
+              return result;
+
+            return sourceOne.current.getValue().compareTo(sourceTwo.current.getValue());
+          }
+        });
+
+    for (Iterator<Map.Entry<K, OIdentifiable>> iterator : sortedIterators) {
+      final MergeSource<K> source = new MergeSource<K>(iterator);
+      if (source.next())
+        queue.add(source);
+    }
+
+    return new Iterator<Map.Entry<K, OIdentifiable>>() {
+      @Override
+      public boolean hasNext() {
+        return !queue.isEmpty();
+      }
+
+      @Override
+      public Map.Entry<K, OIdentifiable> next() {
+        final MergeSource<K> source = queue.poll();
+        if (source == null)
+          throw new NoSuchElementException();
+
+        final Map.Entry<K, OIdentifiable> result = source.current;
+        if (source.next())
+          queue.add(source);
+
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("remove");
+      }
+    };
+  }
+
+  /**
+   * Removes temporary files created during sort.
+   */
+  public void close() {
+    for (RunReader<K> reader : readers) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Error during close of temporary file of sorted index keys", e);
+      }
+    }
+
+    readers.clear();
+
+    for (File file : files)
+      if (!file.delete())
+        OLogManager.instance().warn(this, "Temporary file of sorted index keys %s can not be deleted", file);
+
+    files.clear();
+    entries.clear();
+  }
+
+  private void spill() {
+    Collections.sort(entries, comparator);
+
+    File file = null;
+    try {
+      file = File.createTempFile(FILE_PREFIX, FILE_EXTENSION, directory);
+      files.add(file);
+
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+      try {
+        final byte[] serializedValue = new byte[OLinkSerializer.RID_SIZE];
+
+        for (SortEntry<K> entry : entries) {
+          final byte[] serializedKey = new byte[keySerializer.getObjectSize(entry.key, (Object[]) keyTypes)];
+          keySerializer.serialize(entry.key, serializedKey, 0, (Object[]) keyTypes);
+
+          out.writeInt(serializedKey.length);
+          out.write(serializedKey);
+
+          OLinkSerializer.INSTANCE.serialize(entry.value, serializedValue, 0);
+          out.write(serializedValue);
+        }
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      throw new OIndexException("Error during storing of sorted index keys in temporary file " + file, e);
+    }
+
+    entries.clear();
+  }
+
+  private static final class SortEntry<K> implements Map.Entry<K, OIdentifiable> {
+    private final K            key;
+    private final OIdentifiable value;
+
+    private SortEntry(K key, OIdentifiable value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public OIdentifiable getValue() {
+      return value;
+    }
+
+    @Override
+    public OIdentifiable setValue(OIdentifiable value) {
+      throw new UnsupportedOperationException("setValue");
+    }
+  }
+
+  private static final class MergeSource<K> {
+    private final Iterator<Map.Entry<K, OIdentifiable>> iterator;
+    private Map.Entry<K, OIdentifiable>                 current;
+
+    private MergeSource(Iterator<Map.Entry<K, OIdentifiable>> iterator) {
+      this.iterator = iterator;
+    }
+
+    private boolean next() {
+      if (!iterator.hasNext())
+        return false;
+
+      current = iterator.next();
+      return true;
+    }
+  }
+
+  private static abstract class RunReader<K> {
+    protected SortEntry<K> current;
+
+    protected abstract boolean next() throws IOException;
+
+    protected void close() throws IOException {
+    }
+  }
+
+  private static final class MemoryRunReader<K> extends RunReader<K> {
+    private final Iterator<SortEntry<K>> iterator;
+
+    private MemoryRunReader(Iterator<SortEntry<K>> iterator) {
+      this.iterator = iterator;
+    }
+
+    @Override
+    protected boolean next() {
+      if (!iterator.hasNext())
+        return false;
+
+      current = iterator.next();
+      return true;
+    }
+  }
+
+  private static final class FileRunReader<K> extends RunReader<K> {
+    private final DataInputStream      in;
+    private final OBinarySerializer<K> keySerializer;
+    private final byte[]               serializedValue = new byte[OLinkSerializer.RID_SIZE];
+
+    private FileRunReader(File file, OBinarySerializer<K> keySerializer) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+      this.keySerializer = keySerializer;
+    }
+
+    @Override
+    protected boolean next() throws IOException {
+      final int keySize;
+      try {
+        keySize = in.readInt();
+      } catch (EOFException e) {
+        current = null;
+        return false;
+      }
+
+      final byte[] serializedKey = new byte[keySize];
+      in.readFully(serializedKey);
+      in.readFully(serializedValue);
+
+      current = new SortEntry<K>(keySerializer.deserialize(serializedKey, 0), OLinkSerializer.INSTANCE.deserialize(
+          serializedValue, 0));
+      return true;
+    }
+
+    @Override
+    protected void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -20,7 +20,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -28,8 +28,11 @@ import com.orientechnologies.common.collection.OAlwaysGreaterKey;
 import com.orientechnologies.common.collection.OAlwaysLessKey;
 import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.common.comparator.ODefaultComparator;
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
@@ -77,6 +80,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   private OBinarySerializer<V>                valueSerializer;
 
   private final boolean                       durableInNonTxMode;
+  private final boolean                       keyCompression          = OGlobalConfiguration.SBTREE_KEY_COMPRESSION
+                                                                          .getValueAsBoolean();
   private static final ODurablePage.TrackMode txTrackMode             = ODurablePage.TrackMode
                                                                           .valueOf(OGlobalConfiguration.INDEX_TX_MODE
                                                                               .getValueAsString().toUpperCase());
@@ -154,6 +159,24 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
+  public OBinarySerializer<K> getKeySerializer() {
+    acquireSharedLock();
+    try {
+      return keySerializer;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  public OType[] getKeyTypes() {
+    acquireSharedLock();
+    try {
+      return keyTypes;
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
   public V get(K key) {
     if (key == null)
       return null;
@@ -163,20 +186,17 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
       BucketSearchResult bucketSearchResult = findBucket(key, PartialSearchMode.NONE);
-      if (bucketSearchResult.itemIndex < 0)
-        return null;
-
-      long pageIndex = bucketSearchResult.getLastPathItem();
-      OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, pageIndex, false);
-      OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+      OCacheEntry keyBucketCacheEntry = bucketSearchResult.cacheEntry;
       try {
-        OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
-            valueSerializer, ODurablePage.TrackMode.NONE);
+        if (bucketSearchResult.itemIndex < 0)
+          return null;
+
+        OSBTreeBucket<K, V> keyBucket = readBucket(keyBucketCacheEntry);
 
         OSBTreeBucket.SBTreeEntry<K, V> treeEntry = keyBucket.getEntry(bucketSearchResult.itemIndex);
         return readValue(treeEntry.value);
       } finally {
-        diskCache.release(keyBucketCacheEntry);
+        releaseBucket(keyBucketCacheEntry, false);
       }
 
     } catch (IOException e) {
@@ -186,19 +206,88 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
-  public void put(K key, V value) {
-    acquireExclusiveLock();
-    final OStorageTransaction transaction = storage.getStorageTransaction();
+  /**
+   * Fetches entries of several keys at once. Keys are expected in ascending order, so leaf found for the previous key is kept
+   * latched and the next key is searched inside of it if it lies between the first and the last keys of the leaf, tree is
+   * descended from the root only when key is outside of the current leaf. Latch is released before collected entries are passed to
+   * the listener.
+   */
+  public void loadEntries(Collection<? extends K> sortedKeys, RangeResultListener<K, V> listener) {
+    acquireSharedLock();
     try {
-      final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+      final List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>();
+      OCacheEntry cacheEntry = null;
+
+      for (K key : sortedKeys) {
+        if (key == null)
+          continue;
+
+        key = keySerializer.preprocess(key, (Object[]) keyTypes);
+
+        try {
+          OSBTreeBucket<K, V> bucket = null;
+          if (cacheEntry != null) {
+            bucket = readBucket(cacheEntry);
+
+            if (!isInsideBucket(bucket, key)) {
+              releaseBucket(cacheEntry, false);
+              cacheEntry = null;
+              bucket = null;
+            }
+          }
+
+          if (cacheEntry == null) {
+            if (!notifyListener(entries, listener))
+              return;
+
+            final BucketSearchResult bucketSearchResult = findBucket(key, PartialSearchMode.NONE);
+            cacheEntry = bucketSearchResult.cacheEntry;
+            bucket = readBucket(cacheEntry);
+          }
+
+          final int index = bucket.find(key);
+          if (index >= 0)
+            entries.add(convertToMapEntry(bucket.getEntry(index)));
+        } catch (IOException e) {
+          if (cacheEntry != null)
+            releaseBucket(cacheEntry, false);
+
+          throw e;
+        } catch (RuntimeException e) {
+          if (cacheEntry != null)
+            releaseBucket(cacheEntry, false);
+
+          throw e;
+        }
+      }
+
+      if (cacheEntry != null)
+        releaseBucket(cacheEntry, false);
+
+      notifyListener(entries, listener);
+    } catch (IOException e) {
+      throw new OSBTreeException("Error during retrieving of entries of several keys of sbtree with name " + name, e);
+    } finally {
+      releaseSharedLock();
+    }
+  }
 
-      final int valueSize = valueSerializer.getObjectSize(value);
-      if (keySize > MAX_KEY_SIZE)
-        throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
-            + ", allowed  " + MAX_KEY_SIZE);
+  public void put(K key, V value) {
+    final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
 
-      final boolean createLinkToTheValue = valueSize > MAX_EMBEDDED_VALUE_SIZE;
+    final int valueSize = valueSerializer.getObjectSize(value);
+    if (keySize > MAX_KEY_SIZE)
+      throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
+          + ", allowed  " + MAX_KEY_SIZE);
 
+    final boolean createLinkToTheValue = valueSize > MAX_EMBEDDED_VALUE_SIZE;
+
+    // LOCK TREE TILL THE END OF TRANSACTION BEFORE ANY OTHER LOCK IS TAKEN, SO TRANSACTIONS WHICH ARE COMMITTED IN PARALLEL DO
+    // NOT DEADLOCK EACH OTHER
+    lockTillAtomicOperationCompletes();
+    final boolean exclusiveLock = acquireModificationLock();
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    try {
       key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
       startAtomicOperation();
@@ -208,82 +297,350 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         valueLink = createLinkToTheValue(value);
 
       final OSBTreeValue<V> treeValue = new OSBTreeValue<V>(createLinkToTheValue, valueLink, createLinkToTheValue ? null : value);
-      BucketSearchResult bucketSearchResult = findBucket(key, PartialSearchMode.NONE);
+      final OSBTreeBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, treeValue);
 
-      OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, bucketSearchResult.getLastPathItem(), false);
-      OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+      final List<OCacheEntry> latchedEntries = new ArrayList<OCacheEntry>();
+      long removedValueLink = -1;
+      int sizeDiff = -1;
 
-      keyBucketPointer.acquireExclusiveLock();
-      OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
-          valueSerializer, getTrackMode());
+      // MOST OF INSERTIONS DO NOT SPLIT LEAF, SO AT FIRST ONLY LEAF IS LATCHED EXCLUSIVELY. IF IT IS FULL, INSERTION IS REPEATED WITH
+      // EXCLUSIVE LATCHES OF ALL BUCKETS WHICH MAY BE CHANGED BY SPLIT
+      boolean split = false;
+      boolean latchWholePath = false;
 
-      int insertionIndex;
-      int sizeDiff;
-      if (bucketSearchResult.itemIndex >= 0) {
-        int updateResult = keyBucket.updateValue(bucketSearchResult.itemIndex, treeValue);
+      while (sizeDiff < 0) {
+        try {
+          final BucketSearchResult bucketSearchResult;
+          if (split)
+            bucketSearchResult = findBucketForSplit(key, latchWholePath, latchedEntries);
+          else {
+            bucketSearchResult = findBucketForUpdate(key);
+            latchedEntries.add(bucketSearchResult.cacheEntry);
+          }
 
-        if (updateResult == 1) {
-          logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
-          keyBucketCacheEntry.markDirty();
-        }
+          OCacheEntry keyBucketCacheEntry = bucketSearchResult.cacheEntry;
+          OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry.getCachePointer().getDataPointer(),
+              keySerializer, keyTypes, valueSerializer, getTrackMode());
 
-        if (updateResult >= 0) {
-          keyBucketPointer.releaseExclusiveLock();
-          diskCache.release(keyBucketCacheEntry);
+          OSBTreeBucket.SBTreeEntry<K, V> removedEntry = null;
+          int insertionIndex;
+          if (bucketSearchResult.itemIndex >= 0) {
+            int updateResult = keyBucket.updateValue(bucketSearchResult.itemIndex, treeValue);
 
-          endAtomicOperation(false);
-          return;
-        } else {
-          assert updateResult == -1;
+            if (updateResult == 1) {
+              logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
+              keyBucketCacheEntry.markDirty();
+            }
 
-          long removedLinkedValue = keyBucket.remove(bucketSearchResult.itemIndex);
-          if (removedLinkedValue >= 0)
-            removeLinkedValue(removedLinkedValue);
+            if (updateResult >= 0) {
+              sizeDiff = 0;
+              continue;
+            }
 
-          insertionIndex = bucketSearchResult.itemIndex;
-          sizeDiff = 0;
-        }
-      } else {
-        insertionIndex = -bucketSearchResult.itemIndex - 1;
-        sizeDiff = 1;
-      }
+            assert updateResult == -1;
 
-      while (!keyBucket.addEntry(insertionIndex, new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, treeValue), true)) {
-        logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
+            removedEntry = keyBucket.getEntry(bucketSearchResult.itemIndex);
+            removedValueLink = keyBucket.remove(bucketSearchResult.itemIndex);
 
-        keyBucketPointer.releaseExclusiveLock();
-        diskCache.release(keyBucketCacheEntry);
+            insertionIndex = bucketSearchResult.itemIndex;
+          } else
+            insertionIndex = -bucketSearchResult.itemIndex - 1;
 
-        bucketSearchResult = splitBucket(bucketSearchResult.path, insertionIndex, key);
+          BucketSearchResult insertionResult = bucketSearchResult;
+          int splits = 0;
+          boolean inserted = true;
 
-        insertionIndex = bucketSearchResult.itemIndex;
+          while (!keyBucket.addEntry(insertionIndex, treeEntry, true)) {
+            if (!split || (splits > 0 && !latchWholePath)) {
+              // NOT ALL BUCKETS WHICH MAY BE CHANGED BY SPLIT ARE LATCHED, SO BUCKET IS RESTORED AND INSERTION IS REPEATED
+              if (removedEntry != null) {
+                final boolean restored = keyBucket.addEntry(insertionIndex, removedEntry, true);
+                assert restored;
 
-        keyBucketCacheEntry = diskCache.load(fileId, bucketSearchResult.getLastPathItem(), false);
-        keyBucketPointer = keyBucketCacheEntry.getCachePointer();
-        keyBucketPointer.acquireExclusiveLock();
+                removedValueLink = -1;
+              }
 
-        keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
-      }
+              logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
+              keyBucketCacheEntry.markDirty();
+
+              latchWholePath = split;
+              split = true;
+              inserted = false;
+              break;
+            }
+
+            logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
+
+            insertionResult = splitBucket(insertionResult.path, insertionIndex, key);
+            insertionIndex = insertionResult.itemIndex;
+            splits++;
 
-      logPageChanges(keyBucket, fileId, bucketSearchResult.getLastPathItem(), false);
+            // BUCKET CREATED BY SPLIT IS NOT REACHABLE BY OTHER THREADS TILL LATCHES OF ITS PARENT AND SIBLINGS ARE RELEASED
+            keyBucketCacheEntry = loadBucket(insertionResult.getLastPathItem(), true);
+            latchedEntries.add(keyBucketCacheEntry);
 
-      keyBucketCacheEntry.markDirty();
-      keyBucketPointer.releaseExclusiveLock();
-      diskCache.release(keyBucketCacheEntry);
+            keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry.getCachePointer().getDataPointer(), keySerializer, keyTypes,
+                valueSerializer, getTrackMode());
+          }
+
+          if (inserted) {
+            logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
+            keyBucketCacheEntry.markDirty();
+
+            sizeDiff = removedEntry == null ? 1 : 0;
+          }
+        } finally {
+          releaseBuckets(latchedEntries, true);
+        }
+      }
+
+      if (removedValueLink >= 0)
+        removeLinkedValue(removedValueLink);
 
       if (sizeDiff != 0)
-        setSize(size() + sizeDiff);
+        updateSize(sizeDiff);
 
       endAtomicOperation(false);
     } catch (IOException e) {
       rollback(transaction);
       throw new OSBTreeException("Error during index update with key " + key + " and value " + value, e);
+    } finally {
+      releaseModificationLock(exclusiveLock);
+    }
+  }
+
+  /**
+   * Loads entries into empty tree. Entries should be sorted in ascending order of their keys, keys should be unique. Leaf buckets
+   * are filled one by one till passed in fill factor is reached, then non-leaf buckets are built on top of them level by level till
+   * single bucket is left which becomes root, so neither searches from root nor splits of buckets are performed.
+   *
+   * @return amount of loaded entries.
+   */
+  public long bulkLoad(Iterator<Map.Entry<K, V>> entries, float fillFactor) {
+    lockTillAtomicOperationCompletes();
+    acquireExclusiveLock();
+    try {
+      if (size() > 0)
+        throw new OSBTreeException("Bulk load can be performed only into empty sbtree " + name);
+
+      return doBulkLoad(entries, fillFactor);
     } finally {
       releaseExclusiveLock();
     }
   }
 
+  private long doBulkLoad(Iterator<Map.Entry<K, V>> entries, float fillFactor) {
+    final OStorageTransaction transaction = storage.getStorageTransaction();
+    final ODirectMemoryPointer bufferPointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    try {
+      final int minFreeSpace = (int) ((1 - fillFactor) * OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+
+      startAtomicOperation();
+
+      final List<BulkLoadBucket<K>> leaves = new ArrayList<BulkLoadBucket<K>>();
+      OSBTreeBucket<K, V> buffer = new OSBTreeBucket<K, V>(bufferPointer, true, keySerializer, keyTypes, valueSerializer,
+          ODurablePage.TrackMode.NONE);
+
+      long treeSize = 0;
+      K firstKey = null;
+      K prevKey = null;
+      boolean keysCompressed = false;
+
+      while (entries.hasNext()) {
+        final Map.Entry<K, V> entry = entries.next();
+        final K key = keySerializer.preprocess(entry.getKey(), (Object[]) keyTypes);
+        final V value = entry.getValue();
+
+        if (prevKey != null && comparator.compare(prevKey, key) >= 0)
+          throw new OSBTreeException("Keys loaded into sbtree " + name + " should be unique and sorted in ascending order, key "
+              + key + " follows key " + prevKey);
+
+        final int keySize = keySerializer.getObjectSize(key, (Object[]) keyTypes);
+        if (keySize > MAX_KEY_SIZE)
+          throw new OSBTreeException("Key size is more than allowed, operation was canceled. Current key size " + keySize
+              + ", allowed  " + MAX_KEY_SIZE);
+
+        final boolean createLinkToTheValue = valueSerializer.getObjectSize(value) > MAX_EMBEDDED_VALUE_SIZE;
+        final long valueLink = createLinkToTheValue ? createLinkToTheValue(value) : -1;
+
+        final OSBTreeBucket.SBTreeEntry<K, V> treeEntry = new OSBTreeBucket.SBTreeEntry<K, V>(-1, -1, key, new OSBTreeValue<V>(
+            createLinkToTheValue, valueLink, createLinkToTheValue ? null : value));
+
+        if (!keysCompressed && !buffer.isEmpty() && buffer.getFreeSpace() <= minFreeSpace) {
+          // APPENDED KEYS DO NOT EXTEND PREFIX OF BUCKET, SO IT IS COMPUTED ONCE FILL FACTOR IS REACHED AND BUCKET IS FILLED FURTHER
+          buffer.compressKeys();
+          keysCompressed = true;
+        }
+
+        if (!buffer.isEmpty() && buffer.getFreeSpace() <= minFreeSpace) {
+          writeBulkLoadBucket(buffer, firstKey, leaves);
+          buffer = new OSBTreeBucket<K, V>(bufferPointer, true, keySerializer, keyTypes, valueSerializer,
+              ODurablePage.TrackMode.NONE);
+          keysCompressed = false;
+        }
+
+        if (!buffer.addEntry(buffer.size(), treeEntry, false)) {
+          writeBulkLoadBucket(buffer, firstKey, leaves);
+          buffer = new OSBTreeBucket<K, V>(bufferPointer, true, keySerializer, keyTypes, valueSerializer,
+              ODurablePage.TrackMode.NONE);
+          keysCompressed = false;
+
+          if (!buffer.addEntry(0, treeEntry, false))
+            throw new OSBTreeException("Entry with key " + key + " can not be placed in bucket of sbtree " + name);
+        }
+
+        if (buffer.size() == 1)
+          firstKey = prevKey != null ? separatorKey(prevKey, key) : key;
+
+        prevKey = key;
+        treeSize++;
+      }
+
+      if (treeSize > 0) {
+        if (!keysCompressed)
+          buffer.compressKeys();
+
+        if (leaves.isEmpty())
+          writeBulkLoadRoot(buffer, treeSize);
+        else {
+          writeBulkLoadBucket(buffer, firstKey, leaves);
+
+          List<BulkLoadBucket<K>> children = leaves;
+          while (!children.isEmpty())
+            children = bulkLoadNonLeafLevel(children, bufferPointer, minFreeSpace, treeSize);
+        }
+      }
+
+      endAtomicOperation(false);
+
+      return treeSize;
+    } catch (IOException e) {
+      rollback(transaction);
+      throw new OSBTreeException("Error during bulk load of sbtree with name " + name, e);
+    } catch (RuntimeException e) {
+      rollback(transaction);
+      throw e;
+    } finally {
+      bufferPointer.free();
+    }
+  }
+
+  /**
+   * Builds level of non-leaf buckets which point to passed in buckets of previous level.
+   *
+   * @return buckets of built level, or empty list if single bucket was built and it was written into root.
+   */
+  private List<BulkLoadBucket<K>> bulkLoadNonLeafLevel(List<BulkLoadBucket<K>> children, ODirectMemoryPointer bufferPointer,
+      int minFreeSpace, long treeSize) throws IOException {
+    final List<BulkLoadBucket<K>> level = new ArrayList<BulkLoadBucket<K>>();
+
+    int childIndex = 0;
+    while (childIndex < children.size()) {
+      final OSBTreeBucket<K, V> buffer = new OSBTreeBucket<K, V>(bufferPointer, false, keySerializer, keyTypes, valueSerializer,
+          ODurablePage.TrackMode.NONE);
+      final K firstKey = children.get(childIndex).firstKey;
+      childIndex++;
+
+      while (childIndex < children.size()) {
+        if (!buffer.isEmpty() && buffer.getFreeSpace() <= minFreeSpace)
+          break;
+
+        final BulkLoadBucket<K> leftChild = children.get(childIndex - 1);
+        final BulkLoadBucket<K> rightChild = children.get(childIndex);
+
+        if (!buffer.addEntry(buffer.size(), new OSBTreeBucket.SBTreeEntry<K, V>(leftChild.pageIndex, rightChild.pageIndex,
+            rightChild.firstKey, null), false)) {
+          if (buffer.isEmpty())
+            throw new OSBTreeException("Key " + rightChild.firstKey + " can not be placed in bucket of sbtree " + name);
+
+          break;
+        }
+
+        childIndex++;
+      }
+
+      // SINGLE CHILD CAN NOT FORM BUCKET, SO IT IS MOVED TO THE LAST BUCKET TOGETHER WITH ITS LEFT NEIGHBOUR
+      if (childIndex == children.size() - 1) {
+        assert buffer.size() > 1;
+
+        buffer.shrink(buffer.size() - 1);
+        childIndex--;
+      }
+
+      if (childIndex == children.size() && level.isEmpty())
+        writeBulkLoadRoot(buffer, treeSize);
+      else
+        writeBulkLoadBucket(buffer, firstKey, level);
+    }
+
+    return level;
+  }
+
+  private void writeBulkLoadBucket(OSBTreeBucket<K, V> buffer, K firstKey, List<BulkLoadBucket<K>> level) throws IOException {
+    final boolean isLeaf = buffer.isLeaf();
+    final long leftSibling = isLeaf && !level.isEmpty() ? level.get(level.size() - 1).pageIndex : -1;
+
+    final OCacheEntry cacheEntry = diskCache.allocateNewPage(fileId);
+    final long pageIndex = cacheEntry.getPageIndex();
+    final OCachePointer cachePointer = cacheEntry.getCachePointer();
+
+    cachePointer.acquireExclusiveLock();
+    try {
+      buffer.setLeftSibling(leftSibling);
+
+      final OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), isLeaf, keySerializer, keyTypes,
+          valueSerializer, getTrackMode());
+      bucket.copyEntries(buffer);
+
+      logPageChanges(bucket, fileId, pageIndex, true);
+      cacheEntry.markDirty();
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+
+    if (leftSibling >= 0) {
+      final OCacheEntry leftSiblingEntry = diskCache.load(fileId, leftSibling, false);
+      final OCachePointer leftSiblingPointer = leftSiblingEntry.getCachePointer();
+
+      leftSiblingPointer.acquireExclusiveLock();
+      try {
+        final OSBTreeBucket<K, V> leftSiblingBucket = new OSBTreeBucket<K, V>(leftSiblingPointer.getDataPointer(), keySerializer,
+            keyTypes, valueSerializer, getTrackMode());
+        leftSiblingBucket.setRightSibling(pageIndex);
+
+        logPageChanges(leftSiblingBucket, fileId, leftSibling, false);
+        leftSiblingEntry.markDirty();
+      } finally {
+        leftSiblingPointer.releaseExclusiveLock();
+        diskCache.release(leftSiblingEntry);
+      }
+    }
+
+    level.add(new BulkLoadBucket<K>(pageIndex, firstKey));
+  }
+
+  private void writeBulkLoadRoot(OSBTreeBucket<K, V> buffer, long treeSize) throws IOException {
+    final OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
+    final OCachePointer rootPointer = rootCacheEntry.getCachePointer();
+
+    rootPointer.acquireExclusiveLock();
+    try {
+      final OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), buffer.isLeaf(), keySerializer,
+          keyTypes, valueSerializer, getTrackMode());
+      rootBucket.setKeySerializerId(keySerializer.getId());
+      rootBucket.setValueSerializerId(valueSerializer.getId());
+      rootBucket.setTreeSize(treeSize);
+      rootBucket.copyEntries(buffer);
+
+      logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
+      rootCacheEntry.markDirty();
+    } finally {
+      rootPointer.releaseExclusiveLock();
+      diskCache.release(rootCacheEntry);
+    }
+  }
+
   private void removeLinkedValue(long removedLink) throws IOException {
     long nextPage = removedLink;
     do {
@@ -303,35 +660,33 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   }
 
   private void removeValuePage(long pageIndex) throws IOException {
-    long prevFreeListItem;
-    OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
-    OCachePointer rootCachePointer = rootCacheEntry.getCachePointer();
-    rootCachePointer.acquireExclusiveLock();
-    OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCachePointer.getDataPointer(), keySerializer, keyTypes,
-        valueSerializer, getTrackMode());
+    // ROOT BUCKET IS KEPT LATCHED TILL FREE LIST PAGE IS UPDATED, SO CONCURRENT ALLOCATION DOES NOT SEE HALF LINKED FREE LIST
+    OCacheEntry rootCacheEntry = loadBucket(ROOT_INDEX, true);
     try {
-      prevFreeListItem = rootBucket.getValuesFreeListFirstIndex();
+      OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry.getCachePointer().getDataPointer(), keySerializer,
+          keyTypes, valueSerializer, getTrackMode());
+
+      final long prevFreeListItem = rootBucket.getValuesFreeListFirstIndex();
       rootBucket.setValuesFreeListFirstIndex(pageIndex);
 
       rootCacheEntry.markDirty();
       logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
-    } finally {
-      rootCachePointer.releaseExclusiveLock();
-      diskCache.release(rootCacheEntry);
-    }
 
-    OCacheEntry valueEntry = diskCache.load(fileId, pageIndex, false);
-    OCachePointer valuePointer = valueEntry.getCachePointer();
-    valuePointer.acquireExclusiveLock();
-    try {
-      OSBTreeValuePage valuePage = new OSBTreeValuePage(valuePointer.getDataPointer(), getTrackMode(), false);
-      valuePage.setNextFreeListPage(prevFreeListItem);
+      OCacheEntry valueEntry = diskCache.load(fileId, pageIndex, false);
+      OCachePointer valuePointer = valueEntry.getCachePointer();
+      valuePointer.acquireExclusiveLock();
+      try {
+        OSBTreeValuePage valuePage = new OSBTreeValuePage(valuePointer.getDataPointer(), getTrackMode(), false);
+        valuePage.setNextFreeListPage(prevFreeListItem);
 
-      valueEntry.markDirty();
-      logPageChanges(valuePage, fileId, pageIndex, false);
+        valueEntry.markDirty();
+        logPageChanges(valuePage, fileId, pageIndex, false);
+      } finally {
+        valuePointer.releaseExclusiveLock();
+        diskCache.release(valueEntry);
+      }
     } finally {
-      valuePointer.releaseExclusiveLock();
-      diskCache.release(valueEntry);
+      releaseBucket(rootCacheEntry, true);
     }
   }
 
@@ -421,40 +776,26 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   }
 
   private long allocateValuePageFromFreeList() throws IOException {
-    OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
-    OCachePointer rootCachePointer = rootCacheEntry.getCachePointer();
-    OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCachePointer.getDataPointer(), keySerializer, keyTypes,
-        valueSerializer, ODurablePage.TrackMode.NONE);
-    long freeListFirstIndex;
+    OCacheEntry rootCacheEntry = loadBucket(ROOT_INDEX, true);
     try {
-      freeListFirstIndex = rootBucket.getValuesFreeListFirstIndex();
-    } finally {
-      diskCache.release(rootCacheEntry);
-    }
+      OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry.getCachePointer().getDataPointer(), keySerializer,
+          keyTypes, valueSerializer, getTrackMode());
+
+      final long freeListFirstIndex = rootBucket.getValuesFreeListFirstIndex();
+      if (freeListFirstIndex < 0)
+        return -1;
 
-    if (freeListFirstIndex >= 0) {
       OCacheEntry freePageEntry = diskCache.load(fileId, freeListFirstIndex, false);
       OCachePointer freePageCachePointer = freePageEntry.getCachePointer();
-      OSBTreeValuePage valuePage = new OSBTreeValuePage(freePageCachePointer.getDataPointer(), getTrackMode(), false);
       freePageCachePointer.acquireExclusiveLock();
-
       try {
+        OSBTreeValuePage valuePage = new OSBTreeValuePage(freePageCachePointer.getDataPointer(), getTrackMode(), false);
         long nextFreeListIndex = valuePage.getNextFreeListPage();
 
-        rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
-        rootCachePointer = rootCacheEntry.getCachePointer();
-        rootCachePointer.acquireExclusiveLock();
-        rootBucket = new OSBTreeBucket<K, V>(rootCachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-            getTrackMode());
-        try {
-          rootBucket.setValuesFreeListFirstIndex(nextFreeListIndex);
+        rootBucket.setValuesFreeListFirstIndex(nextFreeListIndex);
 
-          rootCacheEntry.markDirty();
-          logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
-        } finally {
-          rootCachePointer.releaseExclusiveLock();
-          diskCache.release(rootCacheEntry);
-        }
+        rootCacheEntry.markDirty();
+        logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
 
         valuePage.setNextFreeListPage(-1);
 
@@ -465,10 +806,10 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         diskCache.release(freePageEntry);
       }
 
-      return freePageEntry.getPageIndex();
+      return freeListFirstIndex;
+    } finally {
+      releaseBucket(rootCacheEntry, true);
     }
-
-    return -1;
   }
 
   private void rollback(OStorageTransaction transaction) {
@@ -588,21 +929,17 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
-  private void setSize(long size) throws IOException {
-    OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
-
-    OCachePointer rootPointer = rootCacheEntry.getCachePointer();
-    rootPointer.acquireExclusiveLock();
+  private void updateSize(long diff) throws IOException {
+    OCacheEntry rootCacheEntry = loadBucket(ROOT_INDEX, true);
     try {
-      OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
-          valueSerializer, getTrackMode());
-      rootBucket.setTreeSize(size);
+      OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootCacheEntry.getCachePointer().getDataPointer(), keySerializer,
+          keyTypes, valueSerializer, getTrackMode());
+      rootBucket.setTreeSize(rootBucket.getTreeSize() + diff);
 
       logPageChanges(rootBucket, fileId, ROOT_INDEX, false);
       rootCacheEntry.markDirty();
     } finally {
-      rootPointer.releaseExclusiveLock();
-      diskCache.release(rootCacheEntry);
+      releaseBucket(rootCacheEntry, true);
     }
   }
 
@@ -610,15 +947,11 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   public long size() {
     acquireSharedLock();
     try {
-      OCacheEntry rootCacheEntry = diskCache.load(fileId, ROOT_INDEX, false);
-      OCachePointer rootPointer = rootCacheEntry.getCachePointer();
-
+      OCacheEntry rootCacheEntry = loadBucket(ROOT_INDEX, false);
       try {
-        OSBTreeBucket<K, V> rootBucket = new OSBTreeBucket<K, V>(rootPointer.getDataPointer(), keySerializer, keyTypes,
-            valueSerializer, ODurablePage.TrackMode.NONE);
-        return rootBucket.getTreeSize();
+        return readBucket(rootCacheEntry).getTreeSize();
       } finally {
-        diskCache.release(rootCacheEntry);
+        releaseBucket(rootCacheEntry, false);
       }
     } catch (IOException e) {
       throw new OSBTreeException("Error during retrieving of size of index " + name);
@@ -629,53 +962,77 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
   @Override
   public V remove(K key) {
-    acquireExclusiveLock();
+    lockTillAtomicOperationCompletes();
+    final boolean exclusiveLock = acquireModificationLock();
     OStorageTransaction transaction = storage.getStorageTransaction();
     try {
       key = keySerializer.preprocess(key, (Object[]) keyTypes);
 
-      BucketSearchResult bucketSearchResult = findBucket(key, PartialSearchMode.NONE);
-      if (bucketSearchResult.itemIndex < 0)
-        return null;
-
-      OCacheEntry keyBucketCacheEntry = diskCache.load(fileId, bucketSearchResult.getLastPathItem(), false);
-      OCachePointer keyBucketPointer = keyBucketCacheEntry.getCachePointer();
+      final V value;
+      final long removedValueLink;
 
-      keyBucketPointer.acquireExclusiveLock();
+      // REMOVAL NEVER CHANGES STRUCTURE OF TREE, SO ONLY LEAF WHICH CONTAINS KEY IS LATCHED
+      BucketSearchResult bucketSearchResult = findBucketForUpdate(key);
+      OCacheEntry keyBucketCacheEntry = bucketSearchResult.cacheEntry;
       try {
+        if (bucketSearchResult.itemIndex < 0)
+          return null;
+
         startAtomicOperation();
 
-        OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketPointer.getDataPointer(), keySerializer, keyTypes,
-            valueSerializer, getTrackMode());
+        OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(keyBucketCacheEntry.getCachePointer().getDataPointer(),
+            keySerializer, keyTypes, valueSerializer, getTrackMode());
 
         final OSBTreeValue<V> removed = keyBucket.getEntry(bucketSearchResult.itemIndex).value;
-        final V value = readValue(removed);
+        value = readValue(removed);
 
-        long removedValueLink = keyBucket.remove(bucketSearchResult.itemIndex);
-        if (removedValueLink >= 0)
-          removeLinkedValue(removedValueLink);
+        removedValueLink = keyBucket.remove(bucketSearchResult.itemIndex);
 
         logPageChanges(keyBucket, fileId, keyBucketCacheEntry.getPageIndex(), false);
         keyBucketCacheEntry.markDirty();
-
-        setSize(size() - 1);
-        endAtomicOperation(false);
-
-        return value;
       } finally {
-        keyBucketPointer.releaseExclusiveLock();
-        diskCache.release(keyBucketCacheEntry);
+        releaseBucket(keyBucketCacheEntry, true);
       }
 
+      if (removedValueLink >= 0)
+        removeLinkedValue(removedValueLink);
+
+      updateSize(-1);
+      endAtomicOperation(false);
+
+      return value;
     } catch (IOException e) {
       rollback(transaction);
 
       throw new OSBTreeException("Error during removing key " + key + " from sbtree " + name, e);
     } finally {
-      releaseExclusiveLock();
+      releaseModificationLock(exclusiveLock);
     }
   }
 
+  /**
+   * Modifications of tree which are not logged are isolated from each other by page latches, so tree is locked in shared mode.
+   * Logged modifications may be rolled back by restore of page content, so they still lock tree exclusively.
+   *
+   * @return <code>true</code> if tree was locked exclusively.
+   */
+  private boolean acquireModificationLock() {
+    final boolean exclusive = storage.getStorageTransaction() != null || durableInNonTxMode;
+    if (exclusive)
+      acquireExclusiveLock();
+    else
+      acquireSharedLock();
+
+    return exclusive;
+  }
+
+  private void releaseModificationLock(boolean exclusive) {
+    if (exclusive)
+      releaseExclusiveLock();
+    else
+      releaseSharedLock();
+  }
+
   @Override
   protected void endAtomicOperation(boolean rollback) throws IOException {
     if (storage.getStorageTransaction() == null && !durableInNonTxMode)
@@ -744,7 +1101,6 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
       BucketSearchResult bucketSearchResult = findBucket(key, partialSearchMode);
 
-      long pageIndex = bucketSearchResult.getLastPathItem();
       int index;
       if (bucketSearchResult.itemIndex >= 0) {
         index = inclusive ? bucketSearchResult.itemIndex : bucketSearchResult.itemIndex - 1;
@@ -752,34 +1108,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         index = -bucketSearchResult.itemIndex - 2;
       }
 
-      boolean firstBucket = true;
-      resultsLoop: while (true) {
-        long nextPageIndex = -1;
-        OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
-        final OCachePointer pointer = cacheEntry.getCachePointer();
-        try {
-          OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-              ODurablePage.TrackMode.NONE);
-          if (!firstBucket)
-            index = bucket.size() - 1;
-
-          for (int i = index; i >= 0; i--) {
-            if (!listener.addResult(convertToMapEntry(bucket.getEntry(i))))
-              break resultsLoop;
-          }
-
-          if (bucket.getLeftSibling() >= 0)
-            nextPageIndex = bucket.getLeftSibling();
-          else
-            break;
-
-        } finally {
-          diskCache.release(cacheEntry);
-        }
-
-        pageIndex = nextPageIndex;
-        firstBucket = false;
-      }
+      loadEntriesDescending(bucketSearchResult.cacheEntry, index, listener);
     } catch (IOException ioe) {
       throw new OSBTreeException("Error during fetch of minor values for key " + key + " in sbtree " + name);
     } finally {
@@ -816,7 +1145,6 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         partialSearchMode = PartialSearchMode.HIGHEST_BOUNDARY;
 
       BucketSearchResult bucketSearchResult = findBucket(key, partialSearchMode);
-      long pageIndex = bucketSearchResult.getLastPathItem();
       int index;
       if (bucketSearchResult.itemIndex >= 0) {
         index = inclusive ? bucketSearchResult.itemIndex : bucketSearchResult.itemIndex + 1;
@@ -824,31 +1152,7 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         index = -bucketSearchResult.itemIndex - 1;
       }
 
-      resultsLoop: while (true) {
-        long nextPageIndex = -1;
-        final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
-        final OCachePointer pointer = cacheEntry.getCachePointer();
-        try {
-          OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-              ODurablePage.TrackMode.NONE);
-          int bucketSize = bucket.size();
-          for (int i = index; i < bucketSize; i++) {
-            if (!listener.addResult(convertToMapEntry(bucket.getEntry(i))))
-              break resultsLoop;
-          }
-
-          if (bucket.getRightSibling() >= 0)
-            nextPageIndex = bucket.getRightSibling();
-          else
-            break;
-        } finally {
-          diskCache.release(cacheEntry);
-        }
-
-        pageIndex = nextPageIndex;
-        index = 0;
-      }
-
+      loadEntriesAscending(bucketSearchResult.cacheEntry, index, null, false, listener);
     } catch (IOException ioe) {
       throw new OSBTreeException("Error during fetch of major values for key " + key + " in sbtree " + name);
     } finally {
@@ -876,63 +1180,24 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   public K firstKey() {
     acquireSharedLock();
     try {
-      LinkedList<PagePathItemUnit> path = new LinkedList<PagePathItemUnit>();
-
-      long bucketIndex = ROOT_INDEX;
+      OCacheEntry cacheEntry = findEdgeBucket(true);
 
-      OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
-      OCachePointer cachePointer = cacheEntry.getCachePointer();
-      int itemIndex = 0;
-
-      OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-          ODurablePage.TrackMode.NONE);
-      try {
-        while (true) {
-          if (!bucket.isLeaf()) {
-            if (bucket.isEmpty() || itemIndex > bucket.size()) {
-              if (!path.isEmpty()) {
-                PagePathItemUnit pagePathItemUnit = path.removeLast();
-
-                bucketIndex = pagePathItemUnit.pageIndex;
-                itemIndex = pagePathItemUnit.itemIndex + 1;
-              } else
-                return null;
-            } else {
-              path.add(new PagePathItemUnit(bucketIndex, itemIndex));
-
-              if (itemIndex < bucket.size()) {
-                OSBTreeBucket.SBTreeEntry<K, V> entry = bucket.getEntry(itemIndex);
-                bucketIndex = entry.leftChild;
-              } else {
-                OSBTreeBucket.SBTreeEntry<K, V> entry = bucket.getEntry(itemIndex - 1);
-                bucketIndex = entry.rightChild;
-              }
+      while (true) {
+        final long rightSibling;
+        try {
+          final OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+          if (!bucket.isEmpty())
+            return bucket.getKey(0);
 
-              itemIndex = 0;
-            }
-          } else {
-            if (bucket.isEmpty()) {
-              if (!path.isEmpty()) {
-                PagePathItemUnit pagePathItemUnit = path.removeLast();
-
-                bucketIndex = pagePathItemUnit.pageIndex;
-                itemIndex = pagePathItemUnit.itemIndex + 1;
-              } else
-                return null;
-            } else {
-              return bucket.getKey(0);
-            }
-          }
+          rightSibling = bucket.getRightSibling();
+        } finally {
+          releaseBucket(cacheEntry, false);
+        }
 
-          diskCache.release(cacheEntry);
-          cacheEntry = diskCache.load(fileId, bucketIndex, false);
-          cachePointer = cacheEntry.getCachePointer();
+        if (rightSibling < 0)
+          return null;
 
-          bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-              ODurablePage.TrackMode.NONE);
-        }
-      } finally {
-        diskCache.release(cacheEntry);
+        cacheEntry = loadBucket(rightSibling, false);
       }
     } catch (IOException e) {
       throw new OSBTreeException("Error during finding first key in sbtree [" + name + "]");
@@ -944,65 +1209,27 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   public K lastKey() {
     acquireSharedLock();
     try {
-      LinkedList<PagePathItemUnit> path = new LinkedList<PagePathItemUnit>();
+      OCacheEntry cacheEntry = findEdgeBucket(false);
 
-      long bucketIndex = ROOT_INDEX;
-
-      OCacheEntry cacheEntry = diskCache.load(fileId, bucketIndex, false);
-      OCachePointer cachePointer = cacheEntry.getCachePointer();
-      OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-          ODurablePage.TrackMode.NONE);
-
-      int itemIndex = bucket.size() - 1;
-      try {
-        while (true) {
-          if (!bucket.isLeaf()) {
-            if (itemIndex < -1) {
-              if (!path.isEmpty()) {
-                PagePathItemUnit pagePathItemUnit = path.removeLast();
-
-                bucketIndex = pagePathItemUnit.pageIndex;
-                itemIndex = pagePathItemUnit.itemIndex - 1;
-              } else
-                return null;
-            } else {
-              path.add(new PagePathItemUnit(bucketIndex, itemIndex));
-
-              if (itemIndex > -1) {
-                OSBTreeBucket.SBTreeEntry<K, V> entry = bucket.getEntry(itemIndex);
-                bucketIndex = entry.rightChild;
-              } else {
-                OSBTreeBucket.SBTreeEntry<K, V> entry = bucket.getEntry(0);
-                bucketIndex = entry.leftChild;
-              }
+      while (true) {
+        final long pageIndex = cacheEntry.getPageIndex();
+        final long leftSibling;
+        try {
+          final OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+          if (!bucket.isEmpty())
+            return bucket.getKey(bucket.size() - 1);
 
-              itemIndex = OSBTreeBucket.MAX_PAGE_SIZE_BYTES + 1;
-            }
-          } else {
-            if (bucket.isEmpty()) {
-              if (!path.isEmpty()) {
-                PagePathItemUnit pagePathItemUnit = path.removeLast();
-
-                bucketIndex = pagePathItemUnit.pageIndex;
-                itemIndex = pagePathItemUnit.itemIndex - 1;
-              } else
-                return null;
-            } else {
-              return bucket.getKey(bucket.size() - 1);
-            }
-          }
+          leftSibling = bucket.getLeftSibling();
+        } finally {
+          releaseBucket(cacheEntry, false);
+        }
 
-          diskCache.release(cacheEntry);
-          cacheEntry = diskCache.load(fileId, bucketIndex, false);
-          cachePointer = cacheEntry.getCachePointer();
+        if (leftSibling < 0)
+          return null;
 
-          bucket = new OSBTreeBucket<K, V>(cachePointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-              ODurablePage.TrackMode.NONE);
-          if (itemIndex == OSBTreeBucket.MAX_PAGE_SIZE_BYTES + 1)
-            itemIndex = bucket.size() - 1;
-        }
-      } finally {
-        diskCache.release(cacheEntry);
+        cacheEntry = loadLeftSibling(pageIndex, leftSibling);
+        if (cacheEntry == null)
+          return null;
       }
     } catch (IOException e) {
       throw new OSBTreeException("Error during finding first key in sbtree [" + name + "]");
@@ -1026,8 +1253,6 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
 
       BucketSearchResult bucketSearchResultFrom = findBucket(keyFrom, partialSearchModeFrom);
 
-      long pageIndexFrom = bucketSearchResultFrom.getLastPathItem();
-
       int indexFrom;
       if (bucketSearchResultFrom.itemIndex >= 0) {
         indexFrom = fromInclusive ? bucketSearchResultFrom.itemIndex : bucketSearchResultFrom.itemIndex + 1;
@@ -1035,64 +1260,129 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
         indexFrom = -bucketSearchResultFrom.itemIndex - 1;
       }
 
-      PartialSearchMode partialSearchModeTo;
-      if (toInclusive)
-        partialSearchModeTo = PartialSearchMode.HIGHEST_BOUNDARY;
-      else
-        partialSearchModeTo = PartialSearchMode.LOWEST_BOUNDARY;
+      // UPPER BOUNDARY IS CHECKED DURING ITERATION BECAUSE PAGE WHICH CONTAINED IT MAY BE SPLIT WHILE RESULTS ARE FETCHED
+      final K enhancedKeyTo = enhanceCompositeKey(keyTo, toInclusive ? PartialSearchMode.HIGHEST_BOUNDARY
+          : PartialSearchMode.LOWEST_BOUNDARY);
+
+      loadEntriesAscending(bucketSearchResultFrom.cacheEntry, indexFrom, enhancedKeyTo, toInclusive, listener);
+    } catch (IOException ioe) {
+      throw new OSBTreeException("Error during fetch of values between key " + keyFrom + " and key " + keyTo + " in sbtree " + name);
+    } finally {
+      releaseSharedLock();
+    }
+  }
+
+  /**
+   * Fetches entries starting from given position of latched leaf till the end of the tree or till the upper boundary. Entries of
+   * each leaf are read under its latch which is released before they are passed to the listener, so listener may access the tree.
+   * Leaf is not coupled with its right sibling, split moves only the upper half of bucket to the new right page so none of the
+   * entries are skipped.
+   */
+  private void loadEntriesAscending(OCacheEntry cacheEntry, int index, K keyTo, boolean toInclusive,
+      RangeResultListener<K, V> listener) throws IOException {
+    while (true) {
+      final List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>();
+      boolean lastBucket = false;
+      final long rightSibling;
 
-      BucketSearchResult bucketSearchResultTo = findBucket(keyTo, partialSearchModeTo);
-      long pageIndexTo = bucketSearchResultTo.getLastPathItem();
+      try {
+        final OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+        final int bucketSize = bucket.size();
+
+        for (int i = index; i < bucketSize; i++) {
+          final OSBTreeBucket.SBTreeEntry<K, V> entry = bucket.getEntry(i);
+          if (keyTo != null) {
+            final int compareResult = comparator.compare(entry.key, keyTo);
+            if (compareResult > 0 || (compareResult == 0 && !toInclusive)) {
+              lastBucket = true;
+              break;
+            }
+          }
 
-      int indexTo;
-      if (bucketSearchResultTo.itemIndex >= 0) {
-        indexTo = toInclusive ? bucketSearchResultTo.itemIndex : bucketSearchResultTo.itemIndex - 1;
-      } else {
-        indexTo = -bucketSearchResultTo.itemIndex - 2;
+          entries.add(convertToMapEntry(entry));
+        }
+
+        rightSibling = bucket.getRightSibling();
+      } finally {
+        releaseBucket(cacheEntry, false);
       }
 
-      int startIndex = indexFrom;
-      int endIndex;
-      long pageIndex = pageIndexFrom;
+      for (Map.Entry<K, V> entry : entries)
+        if (!listener.addResult(entry))
+          return;
 
-      resultsLoop: while (true) {
-        long nextPageIndex = -1;
+      if (lastBucket || rightSibling < 0)
+        return;
 
-        final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
-        final OCachePointer pointer = cacheEntry.getCachePointer();
-        try {
-          OSBTreeBucket<K, V> bucket = new OSBTreeBucket<K, V>(pointer.getDataPointer(), keySerializer, keyTypes, valueSerializer,
-              ODurablePage.TrackMode.NONE);
-          if (pageIndex != pageIndexTo)
-            endIndex = bucket.size() - 1;
-          else
-            endIndex = indexTo;
-
-          for (int i = startIndex; i <= endIndex; i++) {
-            if (!listener.addResult(convertToMapEntry(bucket.getEntry(i))))
-              break resultsLoop;
-          }
+      cacheEntry = loadBucket(rightSibling, false);
+      index = 0;
+    }
+  }
 
-          if (pageIndex == pageIndexTo)
-            break;
+  /**
+   * Fetches entries starting from given position of latched leaf till the beginning of the tree.
+   *
+   * @see #loadLeftSibling(long, long)
+   */
+  private void loadEntriesDescending(OCacheEntry cacheEntry, int index, RangeResultListener<K, V> listener) throws IOException {
+    boolean firstBucket = true;
 
-          if (bucket.getRightSibling() >= 0)
-            nextPageIndex = bucket.getRightSibling();
-          else
-            break;
+    while (true) {
+      final List<Map.Entry<K, V>> entries = new ArrayList<Map.Entry<K, V>>();
+      final long pageIndex = cacheEntry.getPageIndex();
+      final long leftSibling;
 
-        } finally {
-          diskCache.release(cacheEntry);
-        }
+      try {
+        final OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+        if (!firstBucket)
+          index = bucket.size() - 1;
 
-        pageIndex = nextPageIndex;
-        startIndex = 0;
+        for (int i = index; i >= 0; i--)
+          entries.add(convertToMapEntry(bucket.getEntry(i)));
+
+        leftSibling = bucket.getLeftSibling();
+      } finally {
+        releaseBucket(cacheEntry, false);
       }
 
-    } catch (IOException ioe) {
-      throw new OSBTreeException("Error during fetch of values between key " + keyFrom + " and key " + keyTo + " in sbtree " + name);
-    } finally {
-      releaseSharedLock();
+      for (Map.Entry<K, V> entry : entries)
+        if (!listener.addResult(entry))
+          return;
+
+      if (leftSibling < 0)
+        return;
+
+      cacheEntry = loadLeftSibling(pageIndex, leftSibling);
+      if (cacheEntry == null)
+        return;
+
+      firstBucket = false;
+    }
+  }
+
+  /**
+   * Latches left sibling of the leaf. Leaves are latched from left to right, so latch of the leaf is released before its left
+   * sibling is latched, if left sibling was split in the meantime the link is read again.
+   *
+   * @return latched left sibling or <code>null</code> if leaf is the leftmost one.
+   */
+  private OCacheEntry loadLeftSibling(long pageIndex, long leftSibling) throws IOException {
+    while (true) {
+      final OCacheEntry leftEntry = loadBucket(leftSibling, false);
+      if (readBucket(leftEntry).getRightSibling() == pageIndex)
+        return leftEntry;
+
+      releaseBucket(leftEntry, false);
+
+      final OCacheEntry cacheEntry = loadBucket(pageIndex, false);
+      try {
+        leftSibling = readBucket(cacheEntry).getLeftSibling();
+      } finally {
+        releaseBucket(cacheEntry, false);
+      }
+
+      if (leftSibling < 0)
+        return null;
     }
   }
 
@@ -1123,7 +1413,8 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
       final int bucketSize = bucketToSplit.size();
 
       int indexToSplit = bucketSize >>> 1;
-      final K separationKey = bucketToSplit.getKey(indexToSplit);
+      final K separationKey = splitLeaf && indexToSplit > 0 ? separatorKey(bucketToSplit.getKey(indexToSplit - 1),
+          bucketToSplit.getKey(indexToSplit)) : bucketToSplit.getKey(indexToSplit);
       final List<OSBTreeBucket.SBTreeEntry<K, V>> rightEntries = new ArrayList<OSBTreeBucket.SBTreeEntry<K, V>>(indexToSplit);
 
       final int startRightIndex = splitLeaf ? indexToSplit : indexToSplit + 1;
@@ -1319,59 +1610,281 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     }
   }
 
+  /**
+   * Finds leaf which may contain the key. Buckets are latched in shared mode from the root, child is latched before latch of its
+   * parent is released, so split of the child can not be observed half done.
+   *
+   * @return search result which holds shared latch of the found leaf, latch should be released by caller.
+   */
   private BucketSearchResult findBucket(K key, PartialSearchMode partialSearchMode) throws IOException {
-    long pageIndex = ROOT_INDEX;
+    key = enhanceCompositeKey(key, partialSearchMode);
+
     final ArrayList<Long> path = new ArrayList<Long>();
+    OCacheEntry cacheEntry = loadBucket(ROOT_INDEX, false);
 
-    if (!(keySize == 1 || ((OCompositeKey) key).getKeys().size() == keySize || partialSearchMode.equals(PartialSearchMode.NONE))) {
-      final OCompositeKey fullKey = new OCompositeKey((Comparable<? super K>) key);
-      int itemsToAdd = keySize - fullKey.getKeys().size();
+    while (true) {
+      path.add(cacheEntry.getPageIndex());
 
-      final Comparable<?> keyItem;
-      if (partialSearchMode.equals(PartialSearchMode.HIGHEST_BOUNDARY))
-        keyItem = ALWAYS_GREATER_KEY;
-      else
-        keyItem = ALWAYS_LESS_KEY;
+      final OCacheEntry childEntry;
+      try {
+        final OSBTreeBucket<K, V> keyBucket = readBucket(cacheEntry);
+        final int index = keyBucket.find(key);
 
-      for (int i = 0; i < itemsToAdd; i++)
-        fullKey.addKey(keyItem);
+        if (keyBucket.isLeaf())
+          return new BucketSearchResult(index, path, cacheEntry);
 
-      key = (K) fullKey;
+        childEntry = loadBucket(getChildIndex(keyBucket, key, index), false);
+      } catch (IOException e) {
+        releaseBucket(cacheEntry, false);
+        throw e;
+      } catch (RuntimeException e) {
+        releaseBucket(cacheEntry, false);
+        throw e;
+      }
+
+      releaseBucket(cacheEntry, false);
+      cacheEntry = childEntry;
     }
+  }
 
+  /**
+   * Finds leaf which may contain the key and latches it in exclusive mode, the rest of the path is latched in shared mode. Latch of
+   * the leaf is exchanged while its parent is latched, so leaf can not be split in the meantime.
+   *
+   * @return search result which holds exclusive latch of the found leaf, latch should be released by caller.
+   */
+  private BucketSearchResult findBucketForUpdate(K key) throws IOException {
     while (true) {
-      path.add(pageIndex);
-      final OCacheEntry bucketEntry = diskCache.load(fileId, pageIndex, false);
-      final OCachePointer bucketPointer = bucketEntry.getCachePointer();
+      final ArrayList<Long> path = new ArrayList<Long>();
+      path.add(ROOT_INDEX);
+
+      OCacheEntry parentEntry = null;
+      OCacheEntry cacheEntry = loadBucket(ROOT_INDEX, false);
+      boolean exclusive = false;
 
-      final OSBTreeBucket.SBTreeEntry<K, V> entry;
       try {
-        final OSBTreeBucket<K, V> keyBucket = new OSBTreeBucket<K, V>(bucketPointer.getDataPointer(), keySerializer, keyTypes,
-            valueSerializer, ODurablePage.TrackMode.NONE);
-        final int index = keyBucket.find(key);
+        OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+        while (!bucket.isLeaf()) {
+          final long childIndex = getChildIndex(bucket, key, bucket.find(key));
+          final OCacheEntry childEntry = loadBucket(childIndex, false);
 
-        if (keyBucket.isLeaf())
-          return new BucketSearchResult(index, path);
+          if (parentEntry != null)
+            releaseBucket(parentEntry, false);
 
-        if (index >= 0)
-          entry = keyBucket.getEntry(index);
-        else {
-          final int insertionIndex = -index - 1;
-          if (insertionIndex >= keyBucket.size())
-            entry = keyBucket.getEntry(insertionIndex - 1);
-          else
-            entry = keyBucket.getEntry(insertionIndex);
+          parentEntry = cacheEntry;
+          cacheEntry = childEntry;
+          path.add(childIndex);
+
+          bucket = readBucket(cacheEntry);
         }
 
+        releaseBucket(cacheEntry, false);
+        cacheEntry = null;
+
+        cacheEntry = loadBucket(path.get(path.size() - 1), true);
+        exclusive = true;
+
+        bucket = readBucket(cacheEntry);
+        // ONLY ROOT DOES NOT HAVE PARENT WHICH PREVENTS ITS SPLIT, SO IT IS CHECKED AGAIN
+        if (!bucket.isLeaf())
+          continue;
+
+        final BucketSearchResult result = new BucketSearchResult(bucket.find(key), path, cacheEntry);
+        cacheEntry = null;
+
+        return result;
       } finally {
-        diskCache.release(bucketEntry);
+        if (cacheEntry != null)
+          releaseBucket(cacheEntry, exclusive);
+
+        if (parentEntry != null)
+          releaseBucket(parentEntry, false);
+      }
+    }
+  }
+
+  /**
+   * Finds leaf which may contain the key and latches in exclusive mode all buckets which are changed if it is split: the leaf, its
+   * right sibling and its ancestors up to the nearest one which has enough space to store one more separation key. If
+   * <code>latchWholePath</code> is <code>true</code> all ancestors are latched.
+   *
+   * @param latchedEntries
+   *          list to which all latched buckets are added, latches should be released by caller.
+   */
+  private BucketSearchResult findBucketForSplit(K key, boolean latchWholePath, List<OCacheEntry> latchedEntries)
+      throws IOException {
+    final int maxSeparationEntrySize = (keySerializer.isFixedLength() ? keySerializer.getFixedLength() : MAX_KEY_SIZE) + 2
+        * OLongSerializer.LONG_SIZE + OIntegerSerializer.INT_SIZE;
+
+    final ArrayList<Long> path = new ArrayList<Long>();
+    OCacheEntry cacheEntry = loadBucket(ROOT_INDEX, true);
+    latchedEntries.add(cacheEntry);
+
+    while (true) {
+      path.add(cacheEntry.getPageIndex());
+
+      final OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+      final int index = bucket.find(key);
+
+      if (bucket.isLeaf()) {
+        final long rightSibling = bucket.getRightSibling();
+        if (rightSibling >= 0)
+          latchedEntries.add(loadBucket(rightSibling, true));
+
+        return new BucketSearchResult(index, path, cacheEntry);
       }
 
-      if (comparator.compare(key, entry.key) >= 0)
-        pageIndex = entry.rightChild;
+      final OCacheEntry childEntry = loadBucket(getChildIndex(bucket, key, index), true);
+      final OSBTreeBucket<K, V> childBucket = readBucket(childEntry);
+
+      if (!latchWholePath && !childBucket.isLeaf() && childBucket.getFreeSpace() >= maxSeparationEntrySize)
+        releaseBuckets(latchedEntries, true);
+
+      latchedEntries.add(childEntry);
+      cacheEntry = childEntry;
+    }
+  }
+
+  /**
+   * @return latched leftmost or rightmost leaf of the tree.
+   */
+  private OCacheEntry findEdgeBucket(boolean leftmost) throws IOException {
+    OCacheEntry cacheEntry = loadBucket(ROOT_INDEX, false);
+
+    while (true) {
+      final OCacheEntry childEntry;
+      try {
+        final OSBTreeBucket<K, V> bucket = readBucket(cacheEntry);
+        if (bucket.isLeaf())
+          return cacheEntry;
+
+        if (leftmost)
+          childEntry = loadBucket(bucket.getEntry(0).leftChild, false);
+        else
+          childEntry = loadBucket(bucket.getEntry(bucket.size() - 1).rightChild, false);
+      } catch (IOException e) {
+        releaseBucket(cacheEntry, false);
+        throw e;
+      } catch (RuntimeException e) {
+        releaseBucket(cacheEntry, false);
+        throw e;
+      }
+
+      releaseBucket(cacheEntry, false);
+      cacheEntry = childEntry;
+    }
+  }
+
+  private long getChildIndex(OSBTreeBucket<K, V> bucket, K key, int index) {
+    final OSBTreeBucket.SBTreeEntry<K, V> entry;
+    if (index >= 0)
+      entry = bucket.getEntry(index);
+    else {
+      final int insertionIndex = -index - 1;
+      if (insertionIndex >= bucket.size())
+        entry = bucket.getEntry(insertionIndex - 1);
       else
-        pageIndex = entry.leftChild;
+        entry = bucket.getEntry(insertionIndex);
     }
+
+    if (comparator.compare(key, entry.key) >= 0)
+      return entry.rightChild;
+
+    return entry.leftChild;
+  }
+
+  /**
+   * @return shortest key which is bigger than the last key of left bucket and is not bigger than the first key of right bucket.
+   *         Non-leaf buckets contain such keys instead of first keys of their right children, so more children fit into single
+   *         bucket. Only string keys are truncated.
+   */
+  @SuppressWarnings("unchecked")
+  private K separatorKey(K leftKey, K rightKey) {
+    if (!keyCompression || !(leftKey instanceof String) || !(rightKey instanceof String))
+      return rightKey;
+
+    final String left = (String) leftKey;
+    final String right = (String) rightKey;
+
+    final int commonLength = Math.min(left.length(), right.length());
+    int length = 0;
+    while (length < commonLength && left.charAt(length) == right.charAt(length))
+      length++;
+
+    if (length + 1 >= right.length())
+      return rightKey;
+
+    return (K) right.substring(0, length + 1);
+  }
+
+  private K enhanceCompositeKey(K key, PartialSearchMode partialSearchMode) {
+    if (keySize == 1 || ((OCompositeKey) key).getKeys().size() == keySize || partialSearchMode.equals(PartialSearchMode.NONE))
+      return key;
+
+    final OCompositeKey fullKey = new OCompositeKey((Comparable<? super K>) key);
+    int itemsToAdd = keySize - fullKey.getKeys().size();
+
+    final Comparable<?> keyItem;
+    if (partialSearchMode.equals(PartialSearchMode.HIGHEST_BOUNDARY))
+      keyItem = ALWAYS_GREATER_KEY;
+    else
+      keyItem = ALWAYS_LESS_KEY;
+
+    for (int i = 0; i < itemsToAdd; i++)
+      fullKey.addKey(keyItem);
+
+    return (K) fullKey;
+  }
+
+  private OCacheEntry loadBucket(long pageIndex, boolean exclusive) throws IOException {
+    final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, false);
+    if (exclusive)
+      cacheEntry.getCachePointer().acquireExclusiveLock();
+    else
+      cacheEntry.getCachePointer().acquireSharedLock();
+
+    return cacheEntry;
+  }
+
+  private void releaseBucket(OCacheEntry cacheEntry, boolean exclusive) {
+    if (exclusive)
+      cacheEntry.getCachePointer().releaseExclusiveLock();
+    else
+      cacheEntry.getCachePointer().releaseSharedLock();
+
+    diskCache.release(cacheEntry);
+  }
+
+  private void releaseBuckets(List<OCacheEntry> cacheEntries, boolean exclusive) {
+    for (OCacheEntry cacheEntry : cacheEntries)
+      releaseBucket(cacheEntry, exclusive);
+
+    cacheEntries.clear();
+  }
+
+  private boolean isInsideBucket(OSBTreeBucket<K, V> bucket, K key) {
+    final int bucketSize = bucket.size();
+    if (bucketSize == 0)
+      return false;
+
+    return comparator.compare(key, bucket.getKey(0)) >= 0 && comparator.compare(key, bucket.getKey(bucketSize - 1)) <= 0;
+  }
+
+  private boolean notifyListener(List<Map.Entry<K, V>> entries, RangeResultListener<K, V> listener) {
+    try {
+      for (Map.Entry<K, V> entry : entries)
+        if (!listener.addResult(entry))
+          return false;
+
+      return true;
+    } finally {
+      entries.clear();
+    }
+  }
+
+  private OSBTreeBucket<K, V> readBucket(OCacheEntry cacheEntry) {
+    return new OSBTreeBucket<K, V>(cacheEntry.getCachePointer().getDataPointer(), keySerializer, keyTypes, valueSerializer,
+        ODurablePage.TrackMode.NONE);
   }
 
   private V readValue(OSBTreeValue<V> sbTreeValue) throws IOException {
@@ -1430,10 +1943,16 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
   private static class BucketSearchResult {
     private final int             itemIndex;
     private final ArrayList<Long> path;
+    private final OCacheEntry     cacheEntry;
 
     private BucketSearchResult(int itemIndex, ArrayList<Long> path) {
+      this(itemIndex, path, null);
+    }
+
+    private BucketSearchResult(int itemIndex, ArrayList<Long> path, OCacheEntry cacheEntry) {
       this.itemIndex = itemIndex;
       this.path = path;
+      this.cacheEntry = cacheEntry;
     }
 
     public long getLastPathItem() {
@@ -1461,13 +1980,16 @@ public class OSBTree<K, V> extends ODurableComponent implements OTreeInternal<K,
     LOWEST_BOUNDARY
   }
 
-  private static final class PagePathItemUnit {
+  /**
+   * Bucket written during bulk load together with the smallest key of its subtree.
+   */
+  private static final class BulkLoadBucket<K> {
     private final long pageIndex;
-    private final int  itemIndex;
+    private final K    firstKey;
 
-    private PagePathItemUnit(long pageIndex, int itemIndex) {
+    private BulkLoadBucket(long pageIndex, K firstKey) {
       this.pageIndex = pageIndex;
-      this.itemIndex = itemIndex;
+      this.firstKey = firstKey;
     }
   }
 }
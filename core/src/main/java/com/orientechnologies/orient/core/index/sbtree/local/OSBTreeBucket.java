@@ -18,6 +18,7 @@ package com.orientechnologies.orient.core.index.sbtree.local;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -27,10 +28,19 @@ import com.orientechnologies.common.serialization.types.OBinarySerializer;
 import com.orientechnologies.common.serialization.types.OByteSerializer;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OShortSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 
 /**
+ * Bucket of {@link OSBTree}.
+ * 
+ * Leaf buckets with variable length keys may be created in prefix compressed format. Longest range of bytes which is the same for
+ * all serialized keys of such bucket (usually common prefix of key content which follows its length) is stored only once at the
+ * end of the page and every entry keeps only remaining bytes of its key together with their size. Format of bucket is kept in the
+ * same byte as leaf flag, so buckets which were created before compression was introduced are read as is.
+ * 
  * @author Andrey Lomakin
  * @since 8/7/13
  */
@@ -49,7 +59,16 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   private static final int            POSITIONS_ARRAY_OFFSET  = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
 
+  private static final int            KEY_PREFIX_OFFSET_OFFSET          = FREE_VALUES_LIST_OFFSET + OLongSerializer.LONG_SIZE;
+  private static final int            KEY_PREFIX_SIZE_OFFSET            = KEY_PREFIX_OFFSET_OFFSET + OIntegerSerializer.INT_SIZE;
+  private static final int            COMPRESSED_POSITIONS_ARRAY_OFFSET = KEY_PREFIX_SIZE_OFFSET + OIntegerSerializer.INT_SIZE;
+
+  private static final byte           LEAF_FLAG                         = 1;
+  private static final byte           KEY_PREFIX_COMPRESSION_FLAG       = 2;
+
   private final boolean               isLeaf;
+  private final boolean               keyPrefixCompression;
+  private final int                   positionsArrayOffset;
 
   private final OBinarySerializer<K>  keySerializer;
   private final OBinarySerializer<V>  valueSerializer;
@@ -60,9 +79,20 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
   public OSBTreeBucket(ODirectMemoryPointer cachePointer, boolean isLeaf, OBinarySerializer<K> keySerializer, OType[] keyTypes,
       OBinarySerializer<V> valueSerializer, TrackMode trackMode) throws IOException {
+    this(cachePointer, isLeaf, isLeaf && OGlobalConfiguration.SBTREE_KEY_COMPRESSION.getValueAsBoolean()
+        && !keySerializer.isFixedLength(), keySerializer, keyTypes, valueSerializer, trackMode);
+  }
+
+  OSBTreeBucket(ODirectMemoryPointer cachePointer, boolean isLeaf, boolean keyPrefixCompression,
+      OBinarySerializer<K> keySerializer, OType[] keyTypes, OBinarySerializer<V> valueSerializer, TrackMode trackMode)
+      throws IOException {
     super(cachePointer, trackMode);
 
+    assert isLeaf || !keyPrefixCompression;
+
     this.isLeaf = isLeaf;
+    this.keyPrefixCompression = keyPrefixCompression;
+    this.positionsArrayOffset = keyPrefixCompression ? COMPRESSED_POSITIONS_ARRAY_OFFSET : POSITIONS_ARRAY_OFFSET;
     this.keySerializer = keySerializer;
     this.keyTypes = keyTypes;
     this.valueSerializer = valueSerializer;
@@ -70,7 +100,13 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     setIntValue(FREE_POINTER_OFFSET, MAX_PAGE_SIZE_BYTES);
     setIntValue(SIZE_OFFSET, 0);
 
-    setByteValue(IS_LEAF_OFFSET, (byte) (isLeaf ? 1 : 0));
+    byte flags = 0;
+    if (isLeaf)
+      flags |= LEAF_FLAG;
+    if (keyPrefixCompression)
+      flags |= KEY_PREFIX_COMPRESSION_FLAG;
+
+    setByteValue(IS_LEAF_OFFSET, flags);
     setLongValue(LEFT_SIBLING_OFFSET, -1);
     setLongValue(RIGHT_SIBLING_OFFSET, -1);
 
@@ -79,6 +115,11 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     setByteValue(KEY_SERIALIZER_OFFSET, (byte) -1);
     setByteValue(VALUE_SERIALIZER_OFFSET, (byte) -1);
+
+    if (keyPrefixCompression) {
+      setIntValue(KEY_PREFIX_OFFSET_OFFSET, 0);
+      setIntValue(KEY_PREFIX_SIZE_OFFSET, 0);
+    }
   }
 
   public OSBTreeBucket(ODirectMemoryPointer cachePointer, OBinarySerializer<K> keySerializer, OType[] keyTypes,
@@ -86,7 +127,11 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     super(cachePointer, trackMode);
     this.keyTypes = keyTypes;
 
-    this.isLeaf = getByteValue(IS_LEAF_OFFSET) > 0;
+    final byte flags = getByteValue(IS_LEAF_OFFSET);
+    this.isLeaf = (flags & LEAF_FLAG) != 0;
+    this.keyPrefixCompression = (flags & KEY_PREFIX_COMPRESSION_FLAG) != 0;
+    this.positionsArrayOffset = keyPrefixCompression ? COMPRESSED_POSITIONS_ARRAY_OFFSET : POSITIONS_ARRAY_OFFSET;
+
     this.keySerializer = keySerializer;
     this.valueSerializer = valueSerializer;
   }
@@ -147,8 +192,8 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public long remove(int entryIndex) throws IOException {
-    int entryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + entryIndex * OIntegerSerializer.INT_SIZE);
-    int keySize = keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
+    int entryPosition = getIntValue(positionsArrayOffset + entryIndex * OIntegerSerializer.INT_SIZE);
+    int keySize = getKeySize(entryPosition);
 
     int entrySize;
     long linkValue = -1;
@@ -175,7 +220,7 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     int size = size();
     if (entryIndex < size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + (entryIndex + 1) * OIntegerSerializer.INT_SIZE, POSITIONS_ARRAY_OFFSET + entryIndex
+      moveData(positionsArrayOffset + (entryIndex + 1) * OIntegerSerializer.INT_SIZE, positionsArrayOffset + entryIndex
           * OIntegerSerializer.INT_SIZE, (size - entryIndex - 1) * OIntegerSerializer.INT_SIZE);
     }
 
@@ -188,7 +233,10 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     }
     setIntValue(FREE_POINTER_OFFSET, freePointer + entrySize);
 
-    int currentPositionOffset = POSITIONS_ARRAY_OFFSET;
+    if (size == 0 && keyPrefixCompression)
+      clear(0, new byte[0]);
+
+    int currentPositionOffset = positionsArrayOffset;
 
     for (int i = 0; i < size; i++) {
       int currentEntryPosition = getIntValue(currentPositionOffset);
@@ -204,12 +252,45 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return getIntValue(SIZE_OFFSET);
   }
 
+  /**
+   * @return amount of bytes which are left in bucket for new entries and their positions.
+   */
+  public int getFreeSpace() {
+    return getIntValue(FREE_POINTER_OFFSET) - size() * OIntegerSerializer.INT_SIZE - positionsArrayOffset;
+  }
+
+  /**
+   * Copies entries and siblings of passed in bucket into this bucket as is, without their deserialization. Data of the whole tree
+   * which are stored in root bucket are not copied.
+   */
+  public void copyEntries(OSBTreeBucket<K, V> bucket) throws IOException {
+    assert isLeaf == bucket.isLeaf;
+    assert keyPrefixCompression == bucket.keyPrefixCompression;
+
+    final int size = bucket.size();
+    final int freePointer = bucket.getIntValue(FREE_POINTER_OFFSET);
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(SIZE_OFFSET, size);
+
+    setLongValue(LEFT_SIBLING_OFFSET, bucket.getLeftSibling());
+    setLongValue(RIGHT_SIBLING_OFFSET, bucket.getRightSibling());
+
+    if (keyPrefixCompression) {
+      setIntValue(KEY_PREFIX_OFFSET_OFFSET, bucket.getIntValue(KEY_PREFIX_OFFSET_OFFSET));
+      setIntValue(KEY_PREFIX_SIZE_OFFSET, bucket.getIntValue(KEY_PREFIX_SIZE_OFFSET));
+    }
+
+    setBinaryValue(positionsArrayOffset, bucket.getBinaryValue(positionsArrayOffset, size * OIntegerSerializer.INT_SIZE));
+    setBinaryValue(freePointer, bucket.getBinaryValue(freePointer, MAX_PAGE_SIZE_BYTES - freePointer));
+  }
+
   public SBTreeEntry<K, V> getEntry(int entryIndex) {
-    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(entryIndex * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
 
     if (isLeaf) {
-      K key = keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
-      entryPosition += keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
+      K key = readKey(entryPosition);
+      entryPosition += getKeySize(entryPosition);
 
       boolean isLinkValue = pagePointer.getByte(entryPosition) > 0;
       long link = -1;
@@ -235,12 +316,12 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public K getKey(int index) {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
 
     if (!isLeaf)
       entryPosition += 2 * OLongSerializer.LONG_SIZE;
 
-    return keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+    return readKey(entryPosition);
   }
 
   public boolean isLeaf() {
@@ -248,11 +329,33 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public void addAll(List<SBTreeEntry<K, V>> entries) throws IOException {
+    if (keyPrefixCompression) {
+      final List<byte[]> keys = new ArrayList<byte[]>(entries.size());
+      final List<byte[]> values = new ArrayList<byte[]>(entries.size());
+
+      for (SBTreeEntry<K, V> entry : entries) {
+        keys.add(serializeKey(entry.key));
+        values.add(serializeValue(entry.value));
+      }
+
+      addAllCompressed(keys, values);
+      return;
+    }
+
     for (int i = 0; i < entries.size(); i++)
       addEntry(i, entries.get(i), false);
   }
 
   public void shrink(int newSize) throws IOException {
+    if (keyPrefixCompression) {
+      final List<byte[]> keys = new ArrayList<byte[]>(newSize);
+      final List<byte[]> values = new ArrayList<byte[]>(newSize);
+      readSerializedEntries(newSize, keys, values);
+
+      addAllCompressed(keys, values);
+      return;
+    }
+
     List<SBTreeEntry<K, V>> treeEntries = new ArrayList<SBTreeEntry<K, V>>(newSize);
 
     for (int i = 0; i < newSize; i++) {
@@ -269,7 +372,27 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     }
   }
 
+  /**
+   * Recomputes prefix of leaf bucket with compressed keys as longest range of bytes which is the same for all its keys. Prefix is
+   * shrunk when key without it is added, but it is not extended till bucket is full, so keys which are appended one by one may be
+   * stored without prefix at all.
+   */
+  public void compressKeys() throws IOException {
+    final int size = size();
+    if (!keyPrefixCompression || size == 0)
+      return;
+
+    final List<byte[]> keys = new ArrayList<byte[]>(size);
+    final List<byte[]> values = new ArrayList<byte[]>(size);
+    readSerializedEntries(size, keys, values);
+
+    addAllCompressed(keys, values);
+  }
+
   public boolean addEntry(int index, SBTreeEntry<K, V> treeEntry, boolean updateNeighbors) throws IOException {
+    if (keyPrefixCompression)
+      return addCompressedEntry(index, serializeKey(treeEntry.key), serializeValue(treeEntry.value));
+
     final int keySize = keySerializer.getObjectSize(treeEntry.key, (Object[]) keyTypes);
     int valueSize = 0;
     int entrySize = keySize;
@@ -290,18 +413,18 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
     int size = size();
     int freePointer = getIntValue(FREE_POINTER_OFFSET);
-    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET)
+    if (freePointer - entrySize < (size + 1) * OIntegerSerializer.INT_SIZE + positionsArrayOffset)
       return false;
 
     if (index <= size - 1) {
-      moveData(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, POSITIONS_ARRAY_OFFSET + (index + 1)
+      moveData(positionsArrayOffset + index * OIntegerSerializer.INT_SIZE, positionsArrayOffset + (index + 1)
           * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
     }
 
     freePointer -= entrySize;
 
     setIntValue(FREE_POINTER_OFFSET, freePointer);
-    setIntValue(POSITIONS_ARRAY_OFFSET + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(positionsArrayOffset + index * OIntegerSerializer.INT_SIZE, freePointer);
     setIntValue(SIZE_OFFSET, size + 1);
 
     if (isLeaf) {
@@ -330,12 +453,12 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
 
       if (updateNeighbors && size > 1) {
         if (index < size - 1) {
-          final int nextEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index + 1) * OIntegerSerializer.INT_SIZE);
+          final int nextEntryPosition = getIntValue(positionsArrayOffset + (index + 1) * OIntegerSerializer.INT_SIZE);
           setLongValue(nextEntryPosition, treeEntry.rightChild);
         }
 
         if (index > 0) {
-          final int prevEntryPosition = getIntValue(POSITIONS_ARRAY_OFFSET + (index - 1) * OIntegerSerializer.INT_SIZE);
+          final int prevEntryPosition = getIntValue(positionsArrayOffset + (index - 1) * OIntegerSerializer.INT_SIZE);
           setLongValue(prevEntryPosition + OLongSerializer.LONG_SIZE, treeEntry.leftChild);
         }
       }
@@ -345,8 +468,14 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
   }
 
   public int updateValue(int index, OSBTreeValue<V> value) throws IOException {
-    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + POSITIONS_ARRAY_OFFSET);
-    entryPosition += keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition) + OByteSerializer.BYTE_SIZE;
+    int entryPosition = getIntValue(index * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
+    entryPosition += getKeySize(entryPosition);
+
+    // LINKED VALUE IS STORED IN VALUE PAGES, SO ENTRY IS NOT UPDATED IN PLACE BUT REMOVED AND ADDED AGAIN
+    if (value.isLink() || pagePointer.getByte(entryPosition) > 0)
+      return -1;
+
+    entryPosition += OByteSerializer.BYTE_SIZE;
 
     final int newSize = valueSerializer.getObjectSize(value.getValue());
     final int oldSize = valueSerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
@@ -366,6 +495,274 @@ public class OSBTreeBucket<K, V> extends ODurablePage {
     return 1;
   }
 
+  private boolean addCompressedEntry(int index, byte[] key, byte[] value) throws IOException {
+    final int size = size();
+
+    int prefixOffset = getIntValue(KEY_PREFIX_OFFSET_OFFSET);
+    byte[] prefix = getKeyPrefix();
+
+    if (!hasPrefix(key, prefixOffset, prefix)) {
+      // PREFIX IS SHRUNK TO THE PART WHICH IS SHARED WITH NEW KEY, SO KEYS OF BUCKET BECOME LONGER
+      final int[] commonPart = findCommonPart(key, prefixOffset, prefix);
+      final int freeSpace = getFreeSpace() - (size - 1) * (prefix.length - commonPart[1]);
+      if (freeSpace < compressedEntrySize(key, value, commonPart[1]) + OIntegerSerializer.INT_SIZE)
+        return false;
+
+      prefix = Arrays.copyOfRange(prefix, commonPart[0] - prefixOffset, commonPart[0] - prefixOffset + commonPart[1]);
+      prefixOffset = commonPart[0];
+
+      final List<byte[]> keys = new ArrayList<byte[]>(size);
+      final List<byte[]> values = new ArrayList<byte[]>(size);
+      readSerializedEntries(size, keys, values);
+
+      rebuild(keys, values, prefixOffset, prefix);
+    } else if (getFreeSpace() < compressedEntrySize(key, value, prefix.length) + OIntegerSerializer.INT_SIZE) {
+      if (size == 0)
+        return false;
+
+      // BUCKET IS FULL, BUT IT STILL MAY BE ENOUGH SPACE IF COMMON PART OF KEYS IS LONGER THAN CURRENT PREFIX
+      final List<byte[]> keys = new ArrayList<byte[]>(size + 1);
+      final List<byte[]> values = new ArrayList<byte[]>(size);
+      readSerializedEntries(size, keys, values);
+
+      keys.add(key);
+      final int[] commonPart = findCommonPart(keys);
+      keys.remove(size);
+
+      if (commonPart[1] <= prefix.length)
+        return false;
+
+      final int freeSpace = getFreeSpace() + (size - 1) * (commonPart[1] - prefix.length);
+      if (freeSpace < compressedEntrySize(key, value, commonPart[1]) + OIntegerSerializer.INT_SIZE)
+        return false;
+
+      prefixOffset = commonPart[0];
+      prefix = Arrays.copyOfRange(key, commonPart[0], commonPart[0] + commonPart[1]);
+
+      rebuild(keys, values, prefixOffset, prefix);
+    }
+
+    insertCompressedEntry(index, key, value, prefixOffset, prefix.length);
+    return true;
+  }
+
+  private void addAllCompressed(List<byte[]> keys, List<byte[]> values) throws IOException {
+    final int[] commonPart = findCommonPart(keys);
+    final byte[] prefix = keys.isEmpty() ? new byte[0] : Arrays.copyOfRange(keys.get(0), commonPart[0], commonPart[0]
+        + commonPart[1]);
+
+    rebuild(keys, values, commonPart[0], prefix);
+  }
+
+  private void rebuild(List<byte[]> keys, List<byte[]> values, int prefixOffset, byte[] prefix) throws IOException {
+    clear(prefixOffset, prefix);
+
+    for (int i = 0; i < keys.size(); i++)
+      insertCompressedEntry(i, keys.get(i), values.get(i), prefixOffset, prefix.length);
+  }
+
+  private void clear(int prefixOffset, byte[] prefix) throws IOException {
+    final int freePointer = MAX_PAGE_SIZE_BYTES - prefix.length;
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(SIZE_OFFSET, 0);
+
+    setIntValue(KEY_PREFIX_OFFSET_OFFSET, prefixOffset);
+    setIntValue(KEY_PREFIX_SIZE_OFFSET, prefix.length);
+
+    if (prefix.length > 0)
+      setBinaryValue(freePointer, prefix);
+  }
+
+  private void insertCompressedEntry(int index, byte[] key, byte[] value, int prefixOffset, int prefixSize) throws IOException {
+    final int keySize = key.length - prefixSize;
+    final byte[] entry = new byte[OShortSerializer.SHORT_SIZE + keySize + value.length];
+
+    OShortSerializer.INSTANCE.serializeNative((short) keySize, entry, 0);
+    System.arraycopy(key, 0, entry, OShortSerializer.SHORT_SIZE, prefixOffset);
+    System.arraycopy(key, prefixOffset + prefixSize, entry, OShortSerializer.SHORT_SIZE + prefixOffset, keySize - prefixOffset);
+    System.arraycopy(value, 0, entry, OShortSerializer.SHORT_SIZE + keySize, value.length);
+
+    final int size = size();
+    int freePointer = getIntValue(FREE_POINTER_OFFSET);
+
+    assert freePointer - entry.length >= (size + 1) * OIntegerSerializer.INT_SIZE + positionsArrayOffset;
+
+    if (index <= size - 1) {
+      moveData(positionsArrayOffset + index * OIntegerSerializer.INT_SIZE, positionsArrayOffset + (index + 1)
+          * OIntegerSerializer.INT_SIZE, (size - index) * OIntegerSerializer.INT_SIZE);
+    }
+
+    freePointer -= entry.length;
+
+    setIntValue(FREE_POINTER_OFFSET, freePointer);
+    setIntValue(positionsArrayOffset + index * OIntegerSerializer.INT_SIZE, freePointer);
+    setIntValue(SIZE_OFFSET, size + 1);
+
+    setBinaryValue(freePointer, entry);
+  }
+
+  private void readSerializedEntries(int count, List<byte[]> keys, List<byte[]> values) {
+    for (int i = 0; i < count; i++) {
+      final int entryPosition = getIntValue(i * OIntegerSerializer.INT_SIZE + positionsArrayOffset);
+      final int valuePosition = entryPosition + getKeySize(entryPosition);
+
+      keys.add(readSerializedKey(entryPosition));
+      values.add(getBinaryValue(valuePosition, getValueSize(valuePosition)));
+    }
+  }
+
+  private static int compressedEntrySize(byte[] key, byte[] value, int prefixSize) {
+    return OShortSerializer.SHORT_SIZE + key.length - prefixSize + value.length;
+  }
+
+  private static boolean hasPrefix(byte[] key, int prefixOffset, byte[] prefix) {
+    if (key.length < prefixOffset + prefix.length)
+      return false;
+
+    for (int i = 0; i < prefix.length; i++)
+      if (key[prefixOffset + i] != prefix[i])
+        return false;
+
+    return true;
+  }
+
+  /**
+   * @return offset and size of longest part of current prefix which is contained in passed in key at the same position.
+   */
+  private static int[] findCommonPart(byte[] key, int prefixOffset, byte[] prefix) {
+    int bestOffset = 0;
+    int bestSize = 0;
+
+    int start = 0;
+    for (int i = 0; i <= prefix.length; i++) {
+      if (i < prefix.length && prefixOffset + i < key.length && key[prefixOffset + i] == prefix[i])
+        continue;
+
+      if (i - start > bestSize) {
+        bestOffset = prefixOffset + start;
+        bestSize = i - start;
+      }
+
+      start = i + 1;
+    }
+
+    return new int[] { bestOffset, bestSize };
+  }
+
+  /**
+   * @return offset and size of longest range of bytes which is the same for all passed in keys.
+   */
+  private static int[] findCommonPart(List<byte[]> keys) {
+    if (keys.isEmpty())
+      return new int[] { 0, 0 };
+
+    final byte[] firstKey = keys.get(0);
+
+    int minSize = firstKey.length;
+    for (byte[] key : keys)
+      minSize = Math.min(minSize, key.length);
+
+    final boolean[] differs = new boolean[minSize];
+    for (byte[] key : keys)
+      for (int i = 0; i < minSize; i++)
+        if (key[i] != firstKey[i])
+          differs[i] = true;
+
+    int bestOffset = 0;
+    int bestSize = 0;
+
+    int start = 0;
+    for (int i = 0; i <= minSize; i++) {
+      if (i < minSize && !differs[i])
+        continue;
+
+      if (i - start > bestSize) {
+        bestOffset = start;
+        bestSize = i - start;
+      }
+
+      start = i + 1;
+    }
+
+    return new int[] { bestOffset, bestSize };
+  }
+
+  private byte[] getKeyPrefix() {
+    final int prefixSize = getIntValue(KEY_PREFIX_SIZE_OFFSET);
+    return getBinaryValue(MAX_PAGE_SIZE_BYTES - prefixSize, prefixSize);
+  }
+
+  /**
+   * @return amount of bytes which are occupied by key in entry which starts at given position.
+   */
+  private int getKeySize(int entryPosition) {
+    if (keyPrefixCompression)
+      return OShortSerializer.SHORT_SIZE + (pagePointer.getShort(entryPosition) & 0xFFFF);
+
+    return keySerializer.getObjectSizeInDirectMemory(pagePointer, entryPosition);
+  }
+
+  private int getValueSize(int valuePosition) {
+    if (valueSerializer.isFixedLength())
+      return OByteSerializer.BYTE_SIZE + valueSerializer.getFixedLength();
+
+    if (pagePointer.getByte(valuePosition) > 0)
+      return OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE;
+
+    return OByteSerializer.BYTE_SIZE
+        + valueSerializer.getObjectSizeInDirectMemory(pagePointer, valuePosition + OByteSerializer.BYTE_SIZE);
+  }
+
+  private K readKey(int entryPosition) {
+    if (keyPrefixCompression)
+      return keySerializer.deserializeNative(readSerializedKey(entryPosition), 0);
+
+    return keySerializer.deserializeFromDirectMemory(pagePointer, entryPosition);
+  }
+
+  private byte[] readSerializedKey(int entryPosition) {
+    final int keySize = pagePointer.getShort(entryPosition) & 0xFFFF;
+    final int prefixOffset = getIntValue(KEY_PREFIX_OFFSET_OFFSET);
+    final int prefixSize = getIntValue(KEY_PREFIX_SIZE_OFFSET);
+
+    final byte[] key = new byte[keySize + prefixSize];
+    entryPosition += OShortSerializer.SHORT_SIZE;
+
+    pagePointer.get(entryPosition, key, 0, prefixOffset);
+    pagePointer.get(MAX_PAGE_SIZE_BYTES - prefixSize, key, prefixOffset, prefixSize);
+    pagePointer.get(entryPosition + prefixOffset, key, prefixOffset + prefixSize, keySize - prefixOffset);
+
+    return key;
+  }
+
+  private byte[] serializeKey(K key) {
+    final byte[] serializedKey = new byte[keySerializer.getObjectSize(key, (Object[]) keyTypes)];
+    keySerializer.serializeNative(key, serializedKey, 0, (Object[]) keyTypes);
+
+    return serializedKey;
+  }
+
+  private byte[] serializeValue(OSBTreeValue<V> value) {
+    final int valueSize;
+    if (valueSerializer.isFixedLength())
+      valueSize = valueSerializer.getFixedLength();
+    else if (value.isLink())
+      valueSize = OLongSerializer.LONG_SIZE;
+    else
+      valueSize = valueSerializer.getObjectSize(value.getValue());
+
+    final byte[] serializedValue = new byte[OByteSerializer.BYTE_SIZE + valueSize];
+    serializedValue[0] = value.isLink() ? (byte) 1 : (byte) 0;
+
+    if (value.isLink())
+      OLongSerializer.INSTANCE.serializeNative(value.getLink(), serializedValue, OByteSerializer.BYTE_SIZE);
+    else
+      valueSerializer.serializeNative(value.getValue(), serializedValue, OByteSerializer.BYTE_SIZE);
+
+    return serializedValue;
+  }
+
   public void setLeftSibling(long pageIndex) throws IOException {
     setLongValue(LEFT_SIBLING_OFFSET, pageIndex);
   }
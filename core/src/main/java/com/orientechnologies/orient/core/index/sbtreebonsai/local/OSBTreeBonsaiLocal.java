@@ -182,6 +182,14 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
     }
   }
 
+  /**
+   * Trees which are stored in the same file share its pages, so the whole file is locked till the end of atomic operation.
+   */
+  @Override
+  protected Object getAtomicOperationLockObject() {
+    return new FileLock(fileId);
+  }
+
   private void initDurableComponent(OStorageLocalAbstract storageLocal) {
     final OWriteAheadLog writeAheadLog = storageLocal.getWALInstance();
     final OAtomicOperationsManager atomicOperationsManager = storageLocal.getAtomicOperationsManager();
@@ -257,6 +265,7 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
 
   @Override
   public boolean put(K key, V value) {
+    lockTillAtomicOperationCompletes();
     acquireExclusiveLock();
     try {
       startAtomicOperation();
@@ -351,6 +360,7 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
 
   @Override
   public void clear() {
+    lockTillAtomicOperationCompletes();
     acquireExclusiveLock();
     try {
       startAtomicOperation();
@@ -472,6 +482,7 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
 
   @Override
   public void delete() {
+    lockTillAtomicOperationCompletes();
     acquireExclusiveLock();
     try {
       startAtomicOperation();
@@ -573,6 +584,7 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
 
   @Override
   public V remove(K key) {
+    lockTillAtomicOperationCompletes();
     acquireExclusiveLock();
     try {
 
@@ -1448,4 +1460,27 @@ public class OSBTreeBonsaiLocal<K, V> extends ODurableComponent implements OSBTr
       this.itemIndex = itemIndex;
     }
   }
+
+  private static final class FileLock {
+    private final long fileId;
+
+    private FileLock(long fileId) {
+      this.fileId = fileId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o)
+        return true;
+      if (o == null || getClass() != o.getClass())
+        return false;
+
+      return fileId == ((FileLock) o).fileId;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (fileId ^ (fileId >>> 32));
+    }
+  }
 }
@@ -21,6 +21,7 @@ import java.util.concurrent.Callable;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.profiler.OProfilerMBean;
 import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabase;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
@@ -41,6 +42,7 @@ import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.schedule.OSchedulerListener;
 import com.orientechnologies.orient.core.schedule.OSchedulerListenerImpl;
 import com.orientechnologies.orient.core.schedule.OSchedulerListenerProxy;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorageProxy;
 
 public class OMetadataDefault implements OMetadata {
@@ -56,6 +58,7 @@ public class OMetadataDefault implements OMetadata {
   protected OIndexManagerProxy          indexManager;
   protected OFunctionLibraryProxy       functionLibrary;
   protected OSchedulerListenerProxy     scheduler;
+  protected OSQLStatementCache          statementCache;
   protected static final OProfilerMBean PROFILER                  = Orient.instance().getProfiler();
 
   public OMetadataDefault() {
@@ -99,6 +102,13 @@ public class OMetadataDefault implements OMetadata {
     return indexManager;
   }
 
+  /**
+   * Returns the cache of parsed SQL statements shared by all the connections to the database or null if the cache is disabled.
+   */
+  public OSQLStatementCache getStatementCache() {
+    return statementCache;
+  }
+
   public int getSchemaClusterId() {
     return schemaClusterId;
   }
@@ -107,6 +117,15 @@ public class OMetadataDefault implements OMetadata {
     final ODatabaseRecord database = getDatabase();
     schemaClusterId = database.getClusterIdByName(CLUSTER_INTERNAL_NAME);
 
+    final int statementCacheSize = OGlobalConfiguration.COMMAND_PARSED_CACHE_SIZE.getValueAsInteger();
+    if (statementCacheSize > 0 && !(database.getStorage() instanceof OStorageProxy))
+      statementCache = database.getStorage().getResource(OSQLStatementCache.class.getSimpleName(),
+          new Callable<OSQLStatementCache>() {
+            public OSQLStatementCache call() {
+              return new OSQLStatementCache(database.getName(), statementCacheSize);
+            }
+          });
+
     schema = new OSchemaProxy(database.getStorage().getResource(OSchema.class.getSimpleName(), new Callable<OSchemaShared>() {
       public OSchemaShared call() {
         final OSchemaShared instance = new OSchemaShared(schemaClusterId);
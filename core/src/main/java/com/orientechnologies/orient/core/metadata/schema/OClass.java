@@ -36,7 +36,7 @@ public interface OClass extends Comparable<OClass> {
 
   public static enum INDEX_TYPE {
     UNIQUE(true), NOTUNIQUE(true), FULLTEXT(true), DICTIONARY(false), PROXY(true), UNIQUE_HASH_INDEX(true), NOTUNIQUE_HASH_INDEX(
-        true), FULLTEXT_HASH_INDEX(true), DICTIONARY_HASH_INDEX(false);
+        true), FULLTEXT_HASH_INDEX(true), DICTIONARY_HASH_INDEX(false), FULLTEXT_RANKED(true);
 
     private final boolean automaticIndexable;
 
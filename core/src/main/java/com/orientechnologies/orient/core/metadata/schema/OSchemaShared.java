@@ -35,6 +35,7 @@ import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityReso
 import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.sql.OSQLStatementCache;
 import com.orientechnologies.orient.core.storage.OStorage;
 import com.orientechnologies.orient.core.storage.OStorage.CLUSTER_TYPE;
 import com.orientechnologies.orient.core.storage.OStorageEmbedded;
@@ -533,6 +534,8 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
         return null;
       }
     }, true);
+
+    OSQLStatementCache.invalidateDatabase(getDatabase());
   }
 
   /**
@@ -635,6 +638,8 @@ public class OSchemaShared extends ODocumentWrapperNoClass implements OSchema, O
         return null;
       }
     }, true);
+
+    OSQLStatementCache.invalidateDatabase(db);
   }
 
   @Deprecated
@@ -39,6 +39,7 @@ import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OCompositeKeySerializer;
 import com.orientechnologies.orient.core.serialization.serializer.binary.impl.index.OSimpleKeySerializer;
+import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerFullTextPostingList;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerListRID;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerOldRIDContainer;
 import com.orientechnologies.orient.core.serialization.serializer.stream.OStreamSerializerRID;
@@ -92,6 +93,7 @@ public class OBinarySerializerFactory {
     registerSerializer(OStreamSerializerListRID.INSTANCE, null);
     registerSerializer(OStreamSerializerOldRIDContainer.INSTANCE, null);
     registerSerializer(OStreamSerializerSBTreeIndexRIDContainer.INSTANCE, null);
+    registerSerializer(OStreamSerializerFullTextPostingList.INSTANCE, null);
 
     registerSerializer(OPhysicalPositionSerializer.INSTANCE, null);
     registerSerializer(OClusterPositionSerializer.INSTANCE, null);
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.serialization.serializer.stream;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.serialization.types.OBinarySerializer;
+import com.orientechnologies.common.serialization.types.OBinaryTypeSerializer;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextPostingList;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextStatistics;
+import com.orientechnologies.orient.core.index.fulltext.OVarIntStream;
+
+/**
+ * Serializes values of ranked full-text index: blocks of posting lists ({@link OFullTextPostingList}) and index statistics (
+ * {@link OFullTextStatistics}). Serialized value starts from byte which identifies type of value.
+ */
+public class OStreamSerializerFullTextPostingList implements OStreamSerializer, OBinarySerializer<Set<OIdentifiable>> {
+  public static final String                               NAME              = "ftp";
+  public static final OStreamSerializerFullTextPostingList INSTANCE          = new OStreamSerializerFullTextPostingList();
+
+  public static final byte                                 ID                = 22;
+
+  private static final byte                                POSTING_LIST_TYPE = 0;
+  private static final byte                                STATISTICS_TYPE   = 1;
+
+  public Object fromStream(final byte[] iStream) throws IOException {
+    if (iStream == null)
+      return null;
+
+    return fromByteArray(iStream);
+  }
+
+  public byte[] toStream(final Object iObject) throws IOException {
+    if (iObject == null)
+      return null;
+
+    return toByteArray(iObject);
+  }
+
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public int getObjectSize(Set<OIdentifiable> object, Object... hints) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSize(toByteArray(object));
+  }
+
+  @Override
+  public int getObjectSize(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSize(stream, startPosition);
+  }
+
+  @Override
+  public void serialize(Set<OIdentifiable> object, byte[] stream, int startPosition, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serialize(toByteArray(object), stream, startPosition);
+  }
+
+  @Override
+  public Set<OIdentifiable> deserialize(byte[] stream, int startPosition) {
+    return fromByteArray(OBinaryTypeSerializer.INSTANCE.deserialize(stream, startPosition));
+  }
+
+  @Override
+  public byte getId() {
+    return ID;
+  }
+
+  @Override
+  public boolean isFixedLength() {
+    return false;
+  }
+
+  @Override
+  public int getFixedLength() {
+    return 0;
+  }
+
+  @Override
+  public void serializeNative(Set<OIdentifiable> object, byte[] stream, int startPosition, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serializeNative(toByteArray(object), stream, startPosition);
+  }
+
+  @Override
+  public Set<OIdentifiable> deserializeNative(byte[] stream, int startPosition) {
+    return fromByteArray(OBinaryTypeSerializer.INSTANCE.deserializeNative(stream, startPosition));
+  }
+
+  @Override
+  public int getObjectSizeNative(byte[] stream, int startPosition) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSizeNative(stream, startPosition);
+  }
+
+  @Override
+  public void serializeInDirectMemory(Set<OIdentifiable> object, ODirectMemoryPointer pointer, long offset, Object... hints) {
+    OBinaryTypeSerializer.INSTANCE.serializeInDirectMemory(toByteArray(object), pointer, offset);
+  }
+
+  @Override
+  public Set<OIdentifiable> deserializeFromDirectMemory(ODirectMemoryPointer pointer, long offset) {
+    return fromByteArray(OBinaryTypeSerializer.INSTANCE.deserializeFromDirectMemory(pointer, offset));
+  }
+
+  @Override
+  public int getObjectSizeInDirectMemory(ODirectMemoryPointer pointer, long offset) {
+    return OBinaryTypeSerializer.INSTANCE.getObjectSizeInDirectMemory(pointer, offset);
+  }
+
+  @Override
+  public Set<OIdentifiable> preprocess(Set<OIdentifiable> value, Object... hints) {
+    return value;
+  }
+
+  private static byte[] toByteArray(Object value) {
+    if (value instanceof OFullTextStatistics) {
+      final OVarIntStream stream = new OVarIntStream(16);
+      stream.writeByte(STATISTICS_TYPE);
+      ((OFullTextStatistics) value).toStream(stream);
+      return stream.toByteArray();
+    }
+
+    final OFullTextPostingList postingList = (OFullTextPostingList) value;
+
+    final OVarIntStream stream = new OVarIntStream(16 + postingList.size() * 4);
+    stream.writeByte(POSTING_LIST_TYPE);
+    postingList.toStream(stream);
+    return stream.toByteArray();
+  }
+
+  private static Set<OIdentifiable> fromByteArray(byte[] content) {
+    final OVarIntStream stream = new OVarIntStream(content, 0);
+    if (stream.readByte() == STATISTICS_TYPE)
+      return OFullTextStatistics.fromStream(stream);
+
+    return OFullTextPostingList.fromStream(stream);
+  }
+}
@@ -319,20 +319,12 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
     final OIndex<?> previousIndex = indexChain.get(indexChain.size() - 2);
     Set<Comparable> currentKeys = prepareKeys(previousIndex, result);
     for (int j = indexChain.size() - 2; j > 0; j--) {
-      Set<Comparable> newKeys = new TreeSet<Comparable>();
-
       final OIndex<?> currentIndex = indexChain.get(j);
-      for (Comparable currentKey : currentKeys) {
-        final Object currentResult = currentIndex.get(currentKey);
-
-        final Set<Comparable> preparedKeys;
-        preparedKeys = prepareKeys(indexChain.get(j - 1), currentResult);
-        newKeys.addAll(preparedKeys);
-      }
+      final Collection<OIdentifiable> currentResult = currentIndex.getValues(currentKeys);
 
       updateStatistic(currentIndex);
 
-      currentKeys = newKeys;
+      currentKeys = prepareKeys(indexChain.get(j - 1), currentResult);
     }
 
     applyMainIndex(currentKeys, resultListener);
@@ -340,9 +332,9 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
 
   private Set<Comparable> convertResult(Object result, Class<?> targetType) {
     final Set<Comparable> newKeys;
-    if (result instanceof Set) {
+    if (result instanceof Collection) {
       newKeys = new TreeSet<Comparable>();
-      for (Object o : ((Set) result)) {
+      for (Object o : ((Collection) result)) {
         newKeys.add((Comparable) OType.convert(o, targetType));
       }
       return newKeys;
@@ -367,18 +359,11 @@ public class OChainedIndexProxy<T> implements OIndex<T> {
   }
 
   private void applyMainIndex(Iterable<Comparable> currentKeys, IndexValuesResultListener resultListener) {
-    keysLoop: for (Comparable key : currentKeys) {
-      final T result = index.get(index.getDefinition().createValue(key));
-      if (result instanceof Set) {
-        for (T o : (Set<T>) result) {
-          if (!resultListener.addResult((OIdentifiable) o))
-            break keysLoop;
-        }
-      } else {
-        if (!resultListener.addResult((OIdentifiable) result))
-          break;
-      }
-    }
+    final List<Object> keys = new ArrayList<Object>();
+    for (Comparable key : currentKeys)
+      keys.add(index.getDefinition().createValue(key));
+
+    index.getValues(keys, resultListener);
 
     updateStatistic(index);
   }
@@ -212,8 +212,13 @@ public class OCommandExecutorSQLCreateIndex extends OCommandExecutorSQLAbstract
       }
     }
 
-    if (idx != null)
+    if (idx != null) {
+      if (idx.isRebuiding())
+        // INDEX IS BUILT ONLINE, ITS SIZE IS NOT KNOWN YET
+        return null;
+
       return idx.getSize();
+    }
 
     return null;
   }
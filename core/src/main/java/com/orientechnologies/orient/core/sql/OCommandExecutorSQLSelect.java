@@ -18,39 +18,61 @@ package com.orientechnologies.orient.core.sql;
 import com.orientechnologies.common.collection.OCompositeKey;
 import com.orientechnologies.common.collection.OMultiCollectionIterator;
 import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.collection.OTopKBuffer;
+import com.orientechnologies.common.comparator.ODefaultComparator;
 import com.orientechnologies.common.concur.resource.OSharedResource;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OBasicCommandContext;
 import com.orientechnologies.orient.core.command.OCommandRequest;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
 import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.collate.ODefaultCollate;
 import com.orientechnologies.orient.core.index.OCompositeIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.index.OIndexInternal;
+import com.orientechnologies.orient.core.index.OIndexManager;
+import com.orientechnologies.orient.core.index.OIndexNotUnique;
+import com.orientechnologies.orient.core.index.OIndexUnique;
+import com.orientechnologies.orient.core.index.OPropertyIndexDefinition;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.ODatabaseSecurityResources;
 import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentComparator;
 import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
 import com.orientechnologies.orient.core.serialization.serializer.OStringSerializerHelper;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItem;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemParameter;
 import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemVariable;
+import com.orientechnologies.orient.core.sql.filter.OSQLPredicate;
 import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
 import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionDistinct;
+import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionList;
+import com.orientechnologies.orient.core.sql.functions.coll.OSQLFunctionSet;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionAverage;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMax;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMin;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionSum;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCoalesce;
 import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionIfNull;
 import com.orientechnologies.orient.core.sql.operator.*;
 import com.orientechnologies.orient.core.sql.query.OSQLQuery;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.OStorageEmbedded;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -72,7 +94,18 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   public static final String          KEYWORD_BY                        = "BY";
   public static final String          KEYWORD_GROUP                     = "GROUP";
   public static final String          KEYWORD_FETCHPLAN                 = "FETCHPLAN";
+  public static final String          KEYWORD_PARALLEL                  = "PARALLEL";
   private static final int            MIN_THRESHOLD_USE_INDEX_AS_TARGET = 100;
+  private static final int            COVERING_INDEX_BATCH_SIZE         = 1000;
+  /**
+   * Functions which use only values of their parameters, so they can be calculated on fields taken from index key.
+   */
+  private static final Set<String>    COVERING_INDEX_FUNCTIONS          = new HashSet<String>(Arrays.asList(
+                                                                            OSQLFunctionCount.NAME, OSQLFunctionMin.NAME,
+                                                                            OSQLFunctionMax.NAME, OSQLFunctionSum.NAME,
+                                                                            OSQLFunctionAverage.NAME, OSQLFunctionDistinct.NAME,
+                                                                            OSQLFunctionSet.NAME, OSQLFunctionList.NAME,
+                                                                            OSQLFunctionCoalesce.NAME, OSQLFunctionIfNull.NAME));
 
   private Map<String, String>         projectionDefinition              = null;
   private Map<String, Object>         projections                       = null;       // THIS HAS BEEN KEPT FOR COMPATIBILITY; BUT
@@ -82,11 +115,17 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   private List<OPair<String, String>> orderedFields;
   private List<String>                groupByFields;
   private Map<Object, ORuntimeResult> groupedResult;
+  private OTopKBuffer<OIdentifiable>  orderedResult;
+  private OSQLHashGroupBy             hashGroupBy;
   private Object                      expandTarget;
   private int                         fetchLimit                        = -1;
   private OIdentifiable               lastRecord;
   private Iterator<OIdentifiable>     subIterator;
   private String                      fetchPlan;
+  private OSQLStatementCache          statementCache;
+  private OSQLStatementCache.Statement statement;
+  private boolean                     parallel;
+  private String                      conditionText;
 
   /**
    * Compile the filter conditions only the first time.
@@ -97,6 +136,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     if (context == null)
       context = new OBasicCommandContext();
 
+    statementCache = OSQLStatementCache.get(getDatabase());
+    if (statementCache != null)
+      statement = statementCache.acquire(parserText);
+
     final int pos = parseProjections();
     if (pos == -1)
       return this;
@@ -124,11 +167,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           final String w = parserGetLastWord();
 
           if (w.equals(KEYWORD_WHERE)) {
-            compiledFilter = OSQLEngine.getInstance().parseCondition(parserText.substring(parserGetCurrentPosition(), endPosition),
-                getContext(), KEYWORD_WHERE);
-            optimize();
-            parserSetCurrentPosition(compiledFilter.parserIsEnded() ? endPosition : compiledFilter.parserGetCurrentPosition()
-                + parserGetCurrentPosition());
+            final int conditionBegin = parserGetCurrentPosition();
+            if (statement != null)
+              // CONDITIONS HAVE BEEN ALREADY PARSED AND OPTIMIZED BY PREVIOUS EXECUTION OF THE SAME STATEMENT
+              compiledFilter = statement.getFilter();
+            else {
+              compiledFilter = OSQLEngine.getInstance().parseCondition(
+                  parserText.substring(conditionBegin, endPosition), getContext(), KEYWORD_WHERE);
+              optimize();
+            }
+            final int conditionEnd = compiledFilter.parserIsEnded() ? endPosition : compiledFilter.parserGetCurrentPosition()
+                + conditionBegin;
+            conditionText = parserText.substring(conditionBegin, conditionEnd);
+            parserSetCurrentPosition(conditionEnd);
           } else if (w.equals(KEYWORD_LET))
             parseLet();
           else if (w.equals(KEYWORD_GROUP))
@@ -143,15 +194,22 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
             parseFetchplan(w);
           else if (w.equals(KEYWORD_TIMEOUT))
             parseTimeout(w);
+          else if (w.equals(KEYWORD_PARALLEL))
+            parallel = true;
           else
             throwParsingException("Invalid keyword '" + w + "'");
-        }
+        } else if (parserGetLastWord().equals(KEYWORD_PARALLEL))
+          // PARALLEL HAS NO VALUE, SO IT CAN BE THE LAST WORD OF THE QUERY
+          parallel = true;
       }
     }
     if (limit == 0 || limit < -1) {
       throw new IllegalArgumentException("Limit must be > 0 or = -1 (no limit)");
     }
 
+    if (statementCache != null && statement == null && compiledFilter != null && compiledFilter.isReusable())
+      statement = statementCache.create(parserText, compiledFilter);
+
     return this;
   }
 
@@ -208,6 +266,11 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           getConditionForRidPosRange(-1L, toId));
     }
 
+    // CONDITIONS ARE CHANGED BELOW, SO THEY SHOULD NOT BE SHARED WITH OTHER COMMANDS
+    statement = null;
+    // WORKERS OF PARALLEL SCAN PARSE CONDITIONS FROM THE TEXT OF THE QUERY, SO THEY WOULD MISS THE NODE RANGE
+    parallel = false;
+
     if (compiledFilter == null) {
       compiledFilter = OSQLEngine.getInstance().parseCondition("", getContext(), KEYWORD_WHERE);
     }
@@ -309,6 +372,9 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
       if (!optimizeExecution()) {
         fetchLimit = getQueryFetchLimit();
+        orderedResult = createOrderedResult();
+        if (groupedResult != null && groupByFields != null && !groupByFields.isEmpty())
+          hashGroupBy = OSQLHashGroupBy.create(projections, context);
 
         executeSearch(iArgs);
         applyExpand();
@@ -319,8 +385,19 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       }
       return getResult();
     } finally {
+      if (hashGroupBy != null) {
+        hashGroupBy.close();
+        hashGroupBy = null;
+      }
+
       if (request.getResultListener() != null)
         request.getResultListener().end();
+
+      if (statement != null) {
+        // CONDITIONS ARE NOT USED ANYMORE: OTHER COMMANDS CAN REUSE THEM
+        statementCache.release(statement);
+        statement = null;
+      }
     }
   }
 
@@ -453,7 +530,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
           }
         }
 
-        getProjectionGroup(fieldValue).applyRecord(iRecord);
+        if (hashGroupBy != null)
+          hashGroupBy.add(getGroupKey(fieldValue), iRecord);
+        else
+          getProjectionGroup(fieldValue).applyRecord(iRecord);
         return true;
       }
     }
@@ -464,6 +544,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (request.getResultListener() != null)
         result = request.getResultListener().result(iRecord);
 
+    } else if (orderedResult != null) {
+      // KEEP ONLY THE RECORDS WHICH CAN BE RETURNED AFTER ORDERING
+      orderedResult.add(iRecord);
+
     } else {
 
       // COLLECT ALL THE RECORDS AND ORDER THEM AT THE END
@@ -482,30 +566,10 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long begin = System.currentTimeMillis();
     try {
 
-      Object key = null;
       if (groupedResult == null)
         groupedResult = new LinkedHashMap<Object, ORuntimeResult>();
 
-      if (fieldValue != null) {
-        if (fieldValue.getClass().isArray()) {
-          // LOOK IT BY HASH (FASTER THAN COMPARE EACH SINGLE VALUE)
-          final Object[] array = (Object[]) fieldValue;
-
-          final StringBuilder keyArray = new StringBuilder();
-          for (Object o : array) {
-            if (keyArray.length() > 0)
-              keyArray.append(",");
-            if (o != null)
-              keyArray.append(o instanceof OIdentifiable ? ((OIdentifiable) o).getIdentity().toString() : o.toString());
-            else
-              keyArray.append("null");
-          }
-
-          key = keyArray.toString();
-        } else
-          // LOOKUP FOR THE FIELD
-          key = fieldValue;
-      }
+      final Object key = getGroupKey(fieldValue);
 
       group = groupedResult.get(key);
       if (group == null) {
@@ -518,6 +582,56 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  private static Object getGroupKey(final Object fieldValue) {
+    if (fieldValue != null && fieldValue.getClass().isArray()) {
+      // LOOK IT BY HASH (FASTER THAN COMPARE EACH SINGLE VALUE)
+      final Object[] array = (Object[]) fieldValue;
+
+      final StringBuilder keyArray = new StringBuilder();
+      for (Object o : array) {
+        if (keyArray.length() > 0)
+          keyArray.append(",");
+        if (o != null)
+          keyArray.append(o instanceof OIdentifiable ? ((OIdentifiable) o).getIdentity().toString() : o.toString());
+        else
+          keyArray.append("null");
+      }
+
+      return keyArray.toString();
+    }
+
+    // LOOKUP FOR THE FIELD
+    return fieldValue;
+  }
+
+  /**
+   * Creates the buffer which keeps only the first SKIP + LIMIT records in order of ORDER BY, so all the records are neither kept in
+   * memory nor sorted.
+   * 
+   * @return <code>null</code> if all the records should be collected.
+   */
+  private OTopKBuffer<OIdentifiable> createOrderedResult() {
+    if (orderedFields == null || orderedFields.isEmpty() || expandTarget != null
+        || (groupByFields != null && !groupByFields.isEmpty()) || isAnyFunctionAggregates())
+      return null;
+
+    return createTopKBuffer();
+  }
+
+  /**
+   * @return buffer which keeps only the records which can be returned after ORDER BY, or <code>null</code> if there is no LIMIT.
+   */
+  private OTopKBuffer<OIdentifiable> createTopKBuffer() {
+    if (limit < 1)
+      return null;
+
+    final long capacity = (long) limit + Math.max(skip, 0);
+    if (capacity > Integer.MAX_VALUE)
+      return null;
+
+    return new OTopKBuffer<OIdentifiable>((int) capacity, new ODocumentComparator(orderedFields));
+  }
+
   private int getQueryFetchLimit() {
     if (orderedFields != null) {
       return -1;
@@ -586,7 +700,8 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       if (word.length() == 0)
         // END CLAUSE: SET AS ASC BY DEFAULT
         fieldOrdering = KEYWORD_ASC;
-      else if (word.equals(KEYWORD_LIMIT) || word.equals(KEYWORD_SKIP) || word.equals(KEYWORD_OFFSET)) {
+      else if (word.equals(KEYWORD_LIMIT) || word.equals(KEYWORD_SKIP) || word.equals(KEYWORD_OFFSET)
+          || word.equals(KEYWORD_PARALLEL)) {
         // NEXT CLAUSE: SET AS ASC BY DEFAULT
         fieldOrdering = KEYWORD_ASC;
         parserGoBack();
@@ -611,11 +726,414 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
   protected void searchInClasses() {
     final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
 
-    if (searchForIndexes(cls)) {
+    if (searchInCoveringIndex(cls)) {
+    } else if (searchForIndexes(cls)) {
+    } else if (parallel && searchInClassInParallel(cls)) {
     } else
       super.searchInClasses();
   }
 
+  /**
+   * Scans the class by several threads if PARALLEL keyword is used and no index is used by the query. Records which match the
+   * conditions are handled by the current thread, so projections, grouping and ordering work as for serial scan, but without ORDER
+   * BY records are returned in arbitrary order.
+   * 
+   * @return <code>true</code> if the class was scanned in parallel and result set is filled.
+   */
+  private boolean searchInClassInParallel(final OClass iSchemaClass) {
+    final ODatabaseRecord database = getDatabase();
+    // CHANGES OF CURRENT TRANSACTION AND RECORD LEVEL SECURITY ARE KNOWN ONLY BY DATABASE OF THE CURRENT THREAD
+    if (!(database.getStorage() instanceof OStorageEmbedded) || database.getTransaction().isActive()
+        || iSchemaClass.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME))
+      return false;
+
+    if (let != null || context.getVariable("$locking") != null)
+      return false;
+
+    final ORID[] range = getRange();
+    if (range[0] != null || range[1] != null)
+      return false;
+
+    database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
+
+    final OSQLParallelClassScan scan = new OSQLParallelClassScan(database, iSchemaClass, compiledFilter != null ? conditionText
+        : null, parameters, context);
+    return scan.scan(new OCommandResultListener() {
+      public boolean result(final Object iRecord) {
+        return handleResult((OIdentifiable) iRecord, true);
+      }
+
+      public void end() {
+      }
+    });
+  }
+
+  /**
+   * Answers the query using only keys of index which contains all fields used by projections, group by and condition, so records
+   * are not loaded at all. Every index entry is converted to a document which contains only the indexed fields, such document is
+   * filtered and projected as if it was the record itself.
+   * 
+   * @return <code>true</code> if covering index was found and result set is filled.
+   */
+  @SuppressWarnings({ "rawtypes", "unchecked" })
+  private boolean searchInCoveringIndex(final OClass iSchemaClass) {
+    if (projections == null || projections.isEmpty() || let != null || expandTarget != null)
+      return false;
+
+    final ODatabaseRecord database = getDatabase();
+    // CHANGES OF CURRENT TRANSACTION AND RECORD LEVEL SECURITY ARE KNOWN ONLY BY RECORDS
+    if (database.getTransaction().isActive() || iSchemaClass.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME))
+      return false;
+
+    final Set<String> usedFields = new HashSet<String>();
+    for (Object projection : projections.values())
+      if (!collectCoveredFields(projection, usedFields))
+        return false;
+
+    if (groupByFields != null)
+      for (String groupByField : groupByFields) {
+        if (groupByField.startsWith("$") || groupByField.startsWith("@"))
+          return false;
+        usedFields.add(groupByField);
+      }
+
+    final OSQLFilterCondition rootCondition = compiledFilter != null ? compiledFilter.getRootCondition() : null;
+    if (rootCondition != null && !collectCoveredFields(rootCondition, usedFields))
+      return false;
+
+    database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, iSchemaClass.getName().toLowerCase());
+
+    final List<OIndexSearchResult> indexSearchResults = new ArrayList<OIndexSearchResult>();
+    if (rootCondition != null)
+      analyzeQueryBranch(iSchemaClass, rootCondition, indexSearchResults);
+
+    OIndex<?> coveringIndex = null;
+    List<String> coveringIndexFields = null;
+    OIndexSearchResult coveringSearchResult = null;
+
+    for (OIndex<?> index : iSchemaClass.getClassIndexes()) {
+      final List<String> indexFields = getCoveringIndexFields(iSchemaClass, index);
+      if (indexFields == null || !indexFields.containsAll(usedFields))
+        continue;
+
+      final OIndexSearchResult searchResult = getCoveringSearchResult(index, indexFields, indexSearchResults);
+
+      // RECORDS WITH NULL VALUES ARE NOT INDEXED, SO INDEX CONTAINS ALL RECORDS ONLY IF NULL VALUES ARE NOT ALLOWED OR ARE FILTERED
+      // OUT BY CONDITION
+      boolean containsAllRecords = true;
+      for (String indexField : indexFields)
+        if (!iSchemaClass.getProperty(indexField).isNotNull()
+            && (searchResult == null || !searchResult.fields().contains(indexField))) {
+          containsAllRecords = false;
+          break;
+        }
+
+      if (!containsAllRecords)
+        continue;
+
+      final int searchResultFieldCount = searchResult != null ? searchResult.getFieldCount() : 0;
+      final int coveringSearchResultFieldCount = coveringSearchResult != null ? coveringSearchResult.getFieldCount() : 0;
+      if (coveringIndex == null || searchResultFieldCount > coveringSearchResultFieldCount
+          || (searchResultFieldCount == coveringSearchResultFieldCount && indexFields.size() < coveringIndexFields.size())) {
+        coveringIndex = index;
+        coveringIndexFields = indexFields;
+        coveringSearchResult = searchResult;
+      }
+    }
+
+    if (coveringIndex == null)
+      return false;
+
+    final OIndexDefinition indexDefinition = coveringIndex.getDefinition();
+
+    final List<Object> keyParams = new ArrayList<Object>();
+    OQueryOperator rangeOperator = null;
+    if (coveringSearchResult != null) {
+      for (String fieldName : coveringIndexFields.subList(0, coveringSearchResult.getFieldCount())) {
+        final Object fieldValue = coveringSearchResult.fieldValuePairs.get(fieldName);
+        keyParams.add(fieldValue != null ? fieldValue : coveringSearchResult.lastValue);
+      }
+
+      if (!OIndexSearchResult.isIndexEqualityOperator(coveringSearchResult.lastOperator)) {
+        rangeOperator = coveringSearchResult.lastOperator;
+        if (!(rangeOperator instanceof OQueryOperatorMajor || rangeOperator instanceof OQueryOperatorMajorEquals
+            || rangeOperator instanceof OQueryOperatorMinor || rangeOperator instanceof OQueryOperatorMinorEquals)) {
+          // ONLY EQUALITY PREFIX OF KEY IS USED, CONDITION IS CHECKED ON EVERY ENTRY
+          keyParams.remove(keyParams.size() - 1);
+          rangeOperator = null;
+        }
+      }
+    }
+
+    // BOUNDARIES OF ENTRIES ARE INCLUSIVE, ENTRIES WHICH DO NOT MATCH EXACTLY ARE FILTERED OUT BY CONDITION
+    Object key = null;
+    Object fromKey = null;
+    Object toKey = null;
+
+    if (rangeOperator == null && keyParams.size() == coveringIndexFields.size()) {
+      key = indexDefinition.createValue(keyParams);
+      if (key == null)
+        return false;
+    } else if (!keyParams.isEmpty() && coveringIndex.supportsOrderedIterations()) {
+      final Object boundaryKey;
+      final Object prefixKey;
+      if (indexDefinition instanceof OCompositeIndexDefinition) {
+        final OCompositeIndexDefinition compositeIndexDefinition = (OCompositeIndexDefinition) indexDefinition;
+        boundaryKey = compositeIndexDefinition.createSingleValue(keyParams);
+        prefixKey = rangeOperator == null || keyParams.size() > 1 ? compositeIndexDefinition.createSingleValue(keyParams.subList(0,
+            rangeOperator == null ? keyParams.size() : keyParams.size() - 1)) : null;
+      } else {
+        boundaryKey = indexDefinition.createValue(keyParams);
+        prefixKey = null;
+      }
+
+      if (boundaryKey == null)
+        return false;
+
+      if (rangeOperator == null) {
+        fromKey = boundaryKey;
+        toKey = boundaryKey;
+      } else if (rangeOperator instanceof OQueryOperatorMajor || rangeOperator instanceof OQueryOperatorMajorEquals) {
+        fromKey = boundaryKey;
+        toKey = prefixKey;
+      } else {
+        fromKey = prefixKey;
+        toKey = boundaryKey;
+      }
+    }
+
+    // WHOLE INDEX IS READ BY RANGES OF KEYS
+    if (key == null && fromKey == null && !coveringIndex.supportsOrderedIterations())
+      return false;
+
+    if (context.isRecordingMetrics()) {
+      Set<String> idxNames = (Set<String>) context.getVariable("involvedIndexes");
+      if (idxNames == null) {
+        idxNames = new HashSet<String>();
+        context.setVariable("involvedIndexes", idxNames);
+      }
+      idxNames.add(coveringIndex.getName());
+    }
+    context.setVariable("coveringIndex", coveringIndex.getName());
+
+    final List<String> indexFields = coveringIndexFields;
+
+    if (key != null) {
+      final Object value = coveringIndex.get(key);
+      if (value instanceof Collection<?>) {
+        for (int i = ((Collection<?>) value).size(); i > 0; i--)
+          if (!handleCoveringIndexEntry(iSchemaClass, indexFields, key))
+            break;
+      } else if (value != null)
+        handleCoveringIndexEntry(iSchemaClass, indexFields, key);
+    } else if (fromKey != null)
+      searchInCoveringIndexRange(iSchemaClass, indexFields, coveringIndex, fromKey, toKey);
+    else {
+      // ONLY FIRST KEY IS READ UNDER LOCK, OTHER KEYS ARE READ AS RANGE WHICH STARTS FROM IT, SO KEYS ARE ALWAYS READ IN
+      // ASCENDING ORDER
+      Object firstKey = null;
+
+      final OIndexInternal<?> indexInternal = coveringIndex.getInternal();
+      if (indexInternal instanceof OSharedResource)
+        ((OSharedResource) indexInternal).acquireSharedLock();
+
+      try {
+        final Iterator<? extends Entry<Object, ?>> it = coveringIndex.iterator();
+        if (it.hasNext())
+          firstKey = it.next().getKey();
+      } finally {
+        if (indexInternal instanceof OSharedResource)
+          ((OSharedResource) indexInternal).releaseSharedLock();
+      }
+
+      if (firstKey != null)
+        searchInCoveringIndexRange(iSchemaClass, indexFields, coveringIndex, firstKey, toKey);
+    }
+
+    return true;
+  }
+
+  /**
+   * Reads keys of covering index in batches of limited size and handles them only when index returns control, so index is not
+   * locked while results are processed. Entries of the same key are never split between batches, so every next batch starts after
+   * the last key of previous one.
+   */
+  private void searchInCoveringIndexRange(final OClass iSchemaClass, final List<String> iIndexFields, final OIndex<?> iIndex,
+      final Object iFromKey, final Object iToKey) {
+    final List<Object> batch = new ArrayList<Object>(COVERING_INDEX_BATCH_SIZE);
+    Object lastKey = null;
+
+    while (true) {
+      final Object previousKey = lastKey;
+      final boolean[] batchIsFull = new boolean[1];
+
+      final OIndex.IndexEntriesResultListener batchListener = new OIndex.IndexEntriesResultListener() {
+        @Override
+        public boolean addResult(ODocument entry) {
+          final Object key = entry.field("key");
+          // BOUNDARIES ARE INCLUSIVE, SO LAST KEY OF PREVIOUS BATCH IS RETURNED AGAIN
+          if (previousKey != null && ODefaultComparator.INSTANCE.compare(key, previousKey) <= 0)
+            return true;
+
+          if (batch.size() >= COVERING_INDEX_BATCH_SIZE
+              && ODefaultComparator.INSTANCE.compare(key, batch.get(batch.size() - 1)) != 0) {
+            batchIsFull[0] = true;
+            return false;
+          }
+
+          batch.add(key);
+          return true;
+        }
+      };
+
+      if (previousKey == null) {
+        if (iToKey != null)
+          iIndex.getEntriesBetween(iFromKey, iToKey, true, batchListener);
+        else
+          iIndex.getEntriesMajor(iFromKey, true, batchListener);
+      } else if (iToKey != null)
+        iIndex.getEntriesBetween(previousKey, iToKey, true, batchListener);
+      else
+        iIndex.getEntriesMajor(previousKey, false, batchListener);
+
+      for (Object key : batch)
+        if (!handleCoveringIndexEntry(iSchemaClass, iIndexFields, key))
+          return;
+
+      if (!batchIsFull[0])
+        return;
+
+      lastKey = batch.get(batch.size() - 1);
+      batch.clear();
+    }
+  }
+
+  private boolean handleCoveringIndexEntry(final OClass iSchemaClass, final List<String> iIndexFields, final Object iKey) {
+    final ODocument document = new ODocument(iSchemaClass);
+    if (iKey instanceof OCompositeKey) {
+      final List<Object> keys = ((OCompositeKey) iKey).getKeys();
+      for (int i = 0; i < iIndexFields.size(); i++)
+        document.field(iIndexFields.get(i), keys.get(i));
+    } else
+      document.field(iIndexFields.get(0), iKey);
+    document.unsetDirty();
+
+    context.updateMetric("indexReads", +1);
+
+    if (filter(document))
+      return handleResult(document, false);
+
+    return true;
+  }
+
+  /**
+   * Returns fields of index if values of these fields can be taken from keys of index without any loss: index contains single
+   * values of properties which have the same type as key and are compared without collation.
+   */
+  private static List<String> getCoveringIndexFields(final OClass iSchemaClass, final OIndex<?> iIndex) {
+    final OIndexInternal<?> indexInternal = iIndex.getInternal();
+    if (!(indexInternal instanceof OIndexUnique || indexInternal instanceof OIndexNotUnique) || iIndex.isRebuiding())
+      return null;
+
+    final OIndexDefinition indexDefinition = iIndex.getDefinition();
+    if (!(indexDefinition instanceof OPropertyIndexDefinition || indexDefinition instanceof OCompositeIndexDefinition
+        && ((OCompositeIndexDefinition) indexDefinition).getMultiValueDefinitionIndex() == -1))
+      return null;
+
+    if (!ODefaultCollate.NAME.equals(indexDefinition.getCollate().getName()))
+      return null;
+
+    final List<String> fields = indexDefinition.getFields();
+    final OType[] types = indexDefinition.getTypes();
+    for (int i = 0; i < fields.size(); i++) {
+      final OProperty property = iSchemaClass.getProperty(fields.get(i));
+      if (property == null || property.getType() != types[i] || types[i] == OType.LINK)
+        return null;
+    }
+
+    return fields;
+  }
+
+  private static OIndexSearchResult getCoveringSearchResult(final OIndex<?> iIndex, final List<String> iIndexFields,
+      final List<OIndexSearchResult> iIndexSearchResults) {
+    OIndexSearchResult result = null;
+
+    for (OIndexSearchResult searchResult : iIndexSearchResults) {
+      final int fieldCount = searchResult.getFieldCount();
+      if (fieldCount > iIndexFields.size() || searchResult.lastField.isLong()
+          || (result != null && result.getFieldCount() >= fieldCount))
+        continue;
+
+      if (!iIndexFields.subList(0, fieldCount).containsAll(searchResult.fields()))
+        continue;
+
+      if (!OIndexSearchResult.isIndexEqualityOperator(searchResult.lastOperator)
+          && !searchResult.lastField.getItemName(0).equals(iIndexFields.get(fieldCount - 1)))
+        continue;
+
+      if (searchResult.lastValue instanceof OSQLQuery<?> || searchResult.fieldValuePairs.values().contains(null))
+        continue;
+
+      boolean subQuery = false;
+      for (Object value : searchResult.fieldValuePairs.values())
+        if (value instanceof OSQLQuery<?>)
+          subQuery = true;
+
+      if (!subQuery)
+        result = searchResult;
+    }
+
+    return result;
+  }
+
+  /**
+   * Collects names of fields used by item of projection or condition.
+   * 
+   * @return <code>false</code> if item needs anything else than values of plain fields of current record, like linked records,
+   *         record attributes, context variables or sub queries.
+   */
+  private static boolean collectCoveredFields(final Object iItem, final Set<String> iFields) {
+    if (iItem instanceof OSQLFilterCondition) {
+      final OSQLFilterCondition condition = (OSQLFilterCondition) iItem;
+      if (condition.getOperator() instanceof OQueryOperatorInstanceof || condition.getOperator() instanceof OQueryOperatorTraverse)
+        return false;
+
+      return collectCoveredFields(condition.getLeft(), iFields) && collectCoveredFields(condition.getRight(), iFields);
+    } else if (iItem instanceof OSQLFilterItemField) {
+      final OSQLFilterItemField field = (OSQLFilterItemField) iItem;
+      if (field.hasChainOperators() || field.getRoot().startsWith("@"))
+        return false;
+
+      iFields.add(field.getRoot());
+      return true;
+    } else if (iItem instanceof OSQLFunctionRuntime) {
+      final OSQLFunctionRuntime function = (OSQLFunctionRuntime) iItem;
+      if (function.hasChainOperators() || !COVERING_INDEX_FUNCTIONS.contains(function.getRoot().toLowerCase()))
+        return false;
+
+      for (Object parameter : function.configuredParameters)
+        if (!collectCoveredFields(parameter, iFields))
+          return false;
+
+      return true;
+    } else if (iItem instanceof OSQLFilterItemParameter)
+      return true;
+    else if (iItem instanceof OSQLFilterItem || iItem instanceof OSQLQuery<?> || iItem instanceof OSQLPredicate
+        || iItem instanceof OCommandSQL || iItem instanceof OIdentifiable)
+      return false;
+    else if (iItem instanceof Collection<?>) {
+      for (Object item : (Collection<?>) iItem)
+        if (!collectCoveredFields(item, iFields))
+          return false;
+    } else if (iItem instanceof Object[]) {
+      for (Object item : (Object[]) iItem)
+        if (!collectCoveredFields(item, iFields))
+          return false;
+    }
+
+    return true;
+  }
+
   @SuppressWarnings("rawtypes")
   private boolean searchForIndexes(final OClass iSchemaClass) {
     final ODatabaseRecord database = getDatabase();
@@ -640,8 +1158,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
     // go through all variants to choose which one can be used for index search.
     for (final OIndexSearchResult searchResult : indexSearchResults) {
-      final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, searchResult);
-      Collections.sort(involvedIndexes, IndexComparator.INSTANCE);
+      final List<OIndex<?>> involvedIndexes = getSortedInvolvedIndexes(iSchemaClass, searchResult);
 
       // go through all possible index for given set of fields.
       for (final OIndex index : involvedIndexes) {
@@ -721,6 +1238,43 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
+  /**
+   * Returns indexes which can be used for the search in order of preference. Names of the indexes are remembered by the cached
+   * statement, so the next execution of the same statement does not look for them again.
+   */
+  private List<OIndex<?>> getSortedInvolvedIndexes(final OClass iSchemaClass, final OIndexSearchResult searchResult) {
+    final boolean cacheable = statement != null && !searchResult.lastField.isLong();
+
+    if (cacheable) {
+      final List<String> indexNames = statement.getInvolvedIndexes(iSchemaClass.getName(), searchResult.fields());
+      if (indexNames != null) {
+        final OIndexManager indexManager = getDatabase().getMetadata().getIndexManager();
+
+        final List<OIndex<?>> involvedIndexes = new ArrayList<OIndex<?>>(indexNames.size());
+        for (String indexName : indexNames) {
+          final OIndex<?> index = indexManager.getIndex(indexName);
+          if (index != null)
+            involvedIndexes.add(index);
+        }
+
+        return involvedIndexes;
+      }
+    }
+
+    final List<OIndex<?>> involvedIndexes = getInvolvedIndexes(iSchemaClass, searchResult);
+    Collections.sort(involvedIndexes, IndexComparator.INSTANCE);
+
+    if (cacheable) {
+      final List<String> indexNames = new ArrayList<String>(involvedIndexes.size());
+      for (OIndex<?> index : involvedIndexes)
+        indexNames.add(index.getName());
+
+      statement.setInvolvedIndexes(iSchemaClass.getName(), searchResult.fields(), indexNames);
+    }
+
+    return involvedIndexes;
+  }
+
   private static List<OIndex<?>> getInvolvedIndexes(OClass iSchemaClass, OIndexSearchResult searchResultFields) {
     final Set<OIndex<?>> involvedIndexes = iSchemaClass.getInvolvedIndexes(searchResultFields.fields());
 
@@ -1003,14 +1557,21 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     final long startOrderBy = System.currentTimeMillis();
     try {
 
-      if (tempResult instanceof OMultiCollectionIterator) {
-        final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
-        for (OIdentifiable o : tempResult)
-          list.add(o);
-        tempResult = list;
-      }
+      if (orderedResult != null) {
+        // ONLY THE RECORDS WHICH CAN BE RETURNED WERE KEPT
+        context.setVariable("orderByCandidates", orderedResult.getAddedCount());
+        tempResult = orderedResult.toSortedList();
+        orderedResult = null;
+      } else {
+        if (tempResult instanceof OMultiCollectionIterator) {
+          final List<OIdentifiable> list = new ArrayList<OIdentifiable>();
+          for (OIdentifiable o : tempResult)
+            list.add(o);
+          tempResult = list;
+        }
 
-      ODocumentHelper.sort((List<? extends OIdentifiable>) tempResult, orderedFields);
+        ODocumentHelper.sort((List<? extends OIdentifiable>) tempResult, orderedFields);
+      }
       orderedFields.clear();
 
     } finally {
@@ -1298,6 +1859,11 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
       final long startGroupBy = System.currentTimeMillis();
       try {
 
+        if (hashGroupBy != null) {
+          handleHashGroupBy();
+          return;
+        }
+
         tempResult = new ArrayList<OIdentifiable>();
 
         for (Entry<Object, ORuntimeResult> g : groupedResult.entrySet()) {
@@ -1314,6 +1880,60 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     }
   }
 
+  /**
+   * Passes groups to the result listener applying SKIP and LIMIT if there is no ORDER BY, or keeps only the groups which can be
+   * returned after ordering if there is LIMIT, so groups are not collected in memory. Otherwise all the groups are collected to be
+   * ordered.
+   */
+  private void handleHashGroupBy() {
+    try {
+      if (orderedFields == null) {
+        hashGroupBy.getResult(new OCommandResultListener() {
+          private int skipped  = 0;
+          private int returned = 0;
+
+          public boolean result(final Object iRecord) {
+            if (skipped < skip) {
+              skipped++;
+              return true;
+            }
+
+            if (limit > 0 && returned >= limit)
+              return false;
+
+            returned++;
+            return request.getResultListener() == null || request.getResultListener().result(iRecord);
+          }
+
+          public void end() {
+          }
+        });
+        return;
+      }
+
+      orderedResult = createTopKBuffer();
+      final List<OIdentifiable> result = orderedResult == null ? new ArrayList<OIdentifiable>() : null;
+      if (result != null)
+        tempResult = result;
+
+      hashGroupBy.getResult(new OCommandResultListener() {
+        public boolean result(final Object iRecord) {
+          if (result != null)
+            result.add((OIdentifiable) iRecord);
+          else
+            orderedResult.add((OIdentifiable) iRecord);
+          return true;
+        }
+
+        public void end() {
+        }
+      });
+    } finally {
+      hashGroupBy.close();
+      hashGroupBy = null;
+    }
+  }
+
   private static boolean checkIndexExistence(final OClass iSchemaClass, final OIndexSearchResult result) {
     if (!iSchemaClass.areIndexed(result.fields()))
       return false;
@@ -1335,7 +1955,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
 
   @Override
   public String getSyntax() {
-    return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>] TIMEOUT <TimeoutInMs>";
+    return "SELECT [<Projections>] FROM <Target> [LET <Assignment>*] [WHERE <Condition>*] [ORDER BY <Fields>* [ASC|DESC]*] [LIMIT <MaxRecords>] TIMEOUT <TimeoutInMs> [PARALLEL]";
   }
 
   /**
@@ -1422,6 +2042,14 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
               tempResult = new ArrayList<OIdentifiable>();
             ((Collection<OIdentifiable>) tempResult).add(new ODocument().field(entry.getKey(), count));
             return true;
+          } else if (rf.function instanceof OSQLFunctionMin || rf.function instanceof OSQLFunctionMax) {
+            final Object boundary = getIndexedBoundary(rf);
+            if (boundary != null) {
+              if (tempResult == null)
+                tempResult = new ArrayList<OIdentifiable>();
+              ((Collection<OIdentifiable>) tempResult).add(new ODocument().field(entry.getKey(), boundary));
+              return true;
+            }
           }
         }
 
@@ -1441,7 +2069,7 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
             for (OIndex<?> idx : involvedIndexes) {
               if (idx.getKeyTypes().length == 1 && idx.supportsOrderedIterations()) {
                 if (idx.getType().startsWith("UNIQUE") && idx.getKeySize() < MIN_THRESHOLD_USE_INDEX_AS_TARGET
-                    || compiledFilter == null) {
+                    || compiledFilter == null || canStopOrderedIndexScan(cls, p)) {
                   if (orderByFirstField.getValue().equalsIgnoreCase("asc"))
                     target = (Iterator<? extends OIdentifiable>) idx.valuesIterator();
                   else
@@ -1471,6 +2099,87 @@ public class OCommandExecutorSQLSelect extends OCommandExecutorSQLResultsetAbstr
     return false;
   }
 
+  /**
+   * Checks whether the records can be filtered while the index of ORDER BY field is iterated in order, so iteration stops as soon as
+   * LIMIT records are found. It is done only if no index can be used for the condition, otherwise all the records would be scanned
+   * instead of only matched ones when there are less matched records than LIMIT.
+   */
+  private boolean canStopOrderedIndexScan(final OClass iSchemaClass, final OProperty iOrderByProperty) {
+    if (limit < 1 && request.getLimit() < 1)
+      return false;
+
+    // RECORDS WITH NULL VALUES ARE NOT INDEXED, RECORDS WITH EQUAL VALUES ARE ORDERED BY THE NEXT FIELDS
+    if (orderedFields.size() != 1 || !iOrderByProperty.isNotNull())
+      return false;
+
+    if (expandTarget != null || (groupByFields != null && !groupByFields.isEmpty()) || isAnyFunctionAggregates()
+        || getDatabase().getTransaction().isActive())
+      return false;
+
+    final List<OIndexSearchResult> indexSearchResults = new ArrayList<OIndexSearchResult>();
+    analyzeQueryBranch(iSchemaClass, compiledFilter.getRootCondition(), indexSearchResults);
+    for (OIndexSearchResult searchResult : indexSearchResults)
+      if (!getInvolvedIndexes(iSchemaClass, searchResult).isEmpty())
+        return false;
+
+    return true;
+  }
+
+  /**
+   * Returns minimum or maximum of field taken from the first or the last key of ordered index.
+   * 
+   * @return <code>null</code> if there is no appropriate index or it is empty.
+   */
+  private Object getIndexedBoundary(final OSQLFunctionRuntime iFunction) {
+    if (parsedTarget.getTargetClasses() == null || iFunction.configuredParameters.length != 1
+        || !(iFunction.configuredParameters[0] instanceof OSQLFilterItemField))
+      return null;
+
+    final OSQLFilterItemField field = (OSQLFilterItemField) iFunction.configuredParameters[0];
+    if (field.hasChainOperators() || iFunction.hasChainOperators())
+      return null;
+
+    final OClass cls = parsedTarget.getTargetClasses().keySet().iterator().next();
+    final ODatabaseRecord database = getDatabase();
+    if (database.getTransaction().isActive() || cls.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME))
+      return null;
+
+    database.checkSecurity(ODatabaseSecurityResources.CLASS, ORole.PERMISSION_READ, cls.getName().toLowerCase());
+
+    for (OIndex<?> index : cls.getClassIndexes()) {
+      if (!index.supportsOrderedIterations())
+        continue;
+
+      final List<String> indexFields = getCoveringIndexFields(cls, index);
+      if (indexFields == null || !indexFields.get(0).equals(field.getRoot()))
+        continue;
+
+      // NULL VALUES ARE IGNORED BY FUNCTION, BUT RECORD IS NOT INDEXED IF ANY OTHER FIELD OF KEY IS NULL
+      boolean containsAllRecords = true;
+      for (String indexField : indexFields.subList(1, indexFields.size()))
+        if (!cls.getProperty(indexField).isNotNull())
+          containsAllRecords = false;
+
+      if (!containsAllRecords)
+        continue;
+
+      final Iterator<? extends Entry<Object, ?>> iterator = iFunction.function instanceof OSQLFunctionMin ? index.iterator() : index
+          .inverseIterator();
+      if (!iterator.hasNext())
+        return null;
+
+      context.setVariable("coveringIndex", index.getName());
+
+      final Object key = iterator.next().getKey();
+      if (key instanceof OCompositeKey)
+        return ((OCompositeKey) key).getKeys().get(0);
+
+      return key;
+    }
+
+    return null;
+  }
+
   private static class IndexComparator implements Comparator<OIndex<?>> {
     private static final IndexComparator INSTANCE = new IndexComparator();
 
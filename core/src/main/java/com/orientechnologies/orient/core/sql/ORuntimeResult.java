@@ -114,29 +114,7 @@ public class ORuntimeResult {
           projectionValue = v;
 
         if (projectionValue != null)
-          if (projectionValue instanceof ORidBag)
-            iValue.field(projection.getKey(), new ORidBag((ORidBag) projectionValue));
-          else if (projectionValue instanceof OIdentifiable && !(projectionValue instanceof ORID)
-              && !(projectionValue instanceof ORecord))
-            iValue.field(projection.getKey(), ((OIdentifiable) projectionValue).getRecord());
-          else if (projectionValue instanceof Iterator) {
-            // make temporary value typical case graph database elemenet's iterator edges
-						if(projectionValue instanceof OResettable)
-							((OResettable)projectionValue).reset();
-
-            final List<Object> iteratorValues = new ArrayList<Object>();
-            final Iterator projectionValueIterator = (Iterator) projectionValue;
-            while (projectionValueIterator.hasNext()) {
-              final Object value = projectionValueIterator.next();
-              if (value instanceof OIdentifiable && !(value instanceof ORID) && !(value instanceof ORecord))
-                iteratorValues.add(((OIdentifiable) value).getRecord());
-              else
-                iteratorValues.add(value);
-            }
-
-            iValue.field(projection.getKey(), iteratorValues);
-          } else
-            iValue.field(projection.getKey(), projectionValue);
+          iValue.field(projection.getKey(), getProjectionFieldValue(projectionValue));
 
       }
     }
@@ -144,6 +122,36 @@ public class ORuntimeResult {
     return iValue;
   }
 
+  /**
+   * Converts value of projection to the value of field of projection document: links are loaded, iterators are copied to lists.
+   */
+  public static Object getProjectionFieldValue(final Object iProjectionValue) {
+    if (iProjectionValue instanceof ORidBag)
+      return new ORidBag((ORidBag) iProjectionValue);
+    else if (iProjectionValue instanceof OIdentifiable && !(iProjectionValue instanceof ORID)
+        && !(iProjectionValue instanceof ORecord))
+      return ((OIdentifiable) iProjectionValue).getRecord();
+    else if (iProjectionValue instanceof Iterator) {
+      // make temporary value typical case graph database elemenet's iterator edges
+      if (iProjectionValue instanceof OResettable)
+        ((OResettable) iProjectionValue).reset();
+
+      final List<Object> iteratorValues = new ArrayList<Object>();
+      final Iterator projectionValueIterator = (Iterator) iProjectionValue;
+      while (projectionValueIterator.hasNext()) {
+        final Object value = projectionValueIterator.next();
+        if (value instanceof OIdentifiable && !(value instanceof ORID) && !(value instanceof ORecord))
+          iteratorValues.add(((OIdentifiable) value).getRecord());
+        else
+          iteratorValues.add(value);
+      }
+
+      return iteratorValues;
+    }
+
+    return iProjectionValue;
+  }
+
   public static ODocument getResult(final ODocument iValue, final Map<String, Object> iProjections) {
     if (iValue != null) {
 
@@ -0,0 +1,680 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.orientechnologies.common.collection.OMultiValue;
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+import com.orientechnologies.orient.core.sql.functions.OSQLFunctionRuntime;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionAverage;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMax;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionMin;
+import com.orientechnologies.orient.core.sql.functions.math.OSQLFunctionSum;
+import com.orientechnologies.orient.core.sql.functions.misc.OSQLFunctionCount;
+
+/**
+ * Hash aggregation of GROUP BY for projections which consist only of fields and of count(), sum(), avg(), min() and max() of
+ * fields. Instead of the projection document and copies of aggregate functions per group, state of every group is kept in arrays
+ * of primitives, so much more groups fit in memory.
+ *
+ * When free memory is low or there are more groups than {@link OGlobalConfiguration#COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY}, groups
+ * are written to temporary files partitioned by hash of group key and removed from memory. At the end every partition is read back
+ * and states of the same group are merged, so only groups of one partition are in memory at once. Partition which is too big
+ * itself is split again by the next bits of hash. Groups which were written to files are passed to the listener partition by
+ * partition, each partition in order of first appearance of its groups.
+ */
+public class OSQLHashGroupBy implements OMemoryWatchDog.Listener {
+  private static final String          FILE_PREFIX    = "groupby";
+  private static final String          FILE_EXTENSION = ".grp";
+  private static final int             PARTITIONS     = 16;
+  private static final int             PARTITION_BITS = 4;
+  private static final int             MAX_LEVEL      = 32 / PARTITION_BITS - 1;
+
+  private static final int             FIELD          = 0;
+  private static final int             COUNT          = 1;
+  private static final int             SUM            = 2;
+  private static final int             AVG            = 3;
+  private static final int             MIN            = 4;
+  private static final int             MAX            = 5;
+
+  // TYPES OF SUM IN ORDER OF PRECISION
+  private static final byte            INTEGER        = 1;
+  private static final byte            LONG           = 2;
+  private static final byte            FLOAT          = 3;
+  private static final byte            DOUBLE         = 4;
+  private static final byte            DECIMAL        = 5;
+
+  private final OCommandContext        context;
+  private final int                    maxGroupsInMemory;
+
+  private final String[]               names;
+  private final int[]                  types;
+  private final OSQLFilterItemField[]  parameters;
+  private final int[]                  fallbacks;
+  private final int[]                  counterIndexes;
+  private final int[]                  sumIndexes;
+  private final int[]                  valueIndexes;
+  private int                          counters;
+  private int                          sums;
+  private int                          values;
+
+  private final Map<Object, Group>     groups         = new LinkedHashMap<Object, Group>();
+  private long                         records;
+  private volatile boolean             spillRequested;
+  private OMemoryWatchDog.Listener     memoryListener;
+
+  private File[]                       files;
+  private DataOutputStream[]           outputs;
+
+  private OSQLHashGroupBy(final Map<String, Object> iProjections, final OCommandContext iContext) {
+    context = iContext;
+    maxGroupsInMemory = OGlobalConfiguration.COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY.getValueAsInteger();
+
+    final int size = iProjections.size();
+    names = new String[size];
+    types = new int[size];
+    parameters = new OSQLFilterItemField[size];
+    fallbacks = new int[size];
+    counterIndexes = new int[size];
+    sumIndexes = new int[size];
+    valueIndexes = new int[size];
+  }
+
+  /**
+   * @return aggregation of the projections or <code>null</code> if they contain anything but fields and supported aggregate
+   *         functions of fields.
+   */
+  public static OSQLHashGroupBy create(final Map<String, Object> iProjections, final OCommandContext iContext) {
+    if (iProjections == null || iProjections.isEmpty())
+      return null;
+
+    final OSQLHashGroupBy groupBy = new OSQLHashGroupBy(iProjections, iContext);
+
+    int i = 0;
+    for (Map.Entry<String, Object> projection : iProjections.entrySet()) {
+      final Object value = projection.getValue();
+
+      groupBy.names[i] = projection.getKey();
+      groupBy.fallbacks[i] = -1;
+
+      if (value instanceof OSQLFilterItemField) {
+        if (((OSQLFilterItemField) value).hasChainOperators())
+          return null;
+
+        groupBy.types[i] = FIELD;
+        groupBy.parameters[i] = (OSQLFilterItemField) value;
+        groupBy.valueIndexes[i] = groupBy.values++;
+
+      } else if (value instanceof OSQLFunctionRuntime) {
+        final OSQLFunctionRuntime function = (OSQLFunctionRuntime) value;
+        if (function.hasChainOperators() || function.configuredParameters.length != 1)
+          return null;
+
+        final Object parameter = function.configuredParameters[0];
+        if (function.function instanceof OSQLFunctionCount && "*".equals(parameter)) {
+          groupBy.types[i] = COUNT;
+          groupBy.counterIndexes[i] = groupBy.counters++;
+          i++;
+          continue;
+        }
+
+        if (!(parameter instanceof OSQLFilterItemField) || ((OSQLFilterItemField) parameter).hasChainOperators())
+          return null;
+        groupBy.parameters[i] = (OSQLFilterItemField) parameter;
+
+        if (function.function instanceof OSQLFunctionCount) {
+          groupBy.types[i] = COUNT;
+          groupBy.counterIndexes[i] = groupBy.counters++;
+        } else if (function.function instanceof OSQLFunctionSum || function.function instanceof OSQLFunctionAverage) {
+          groupBy.types[i] = function.function instanceof OSQLFunctionSum ? SUM : AVG;
+          // AMOUNT OF SUMMED VALUES, SUM OF INTEGERS, SUM OF FLOATS, SUM OF DECIMALS AND TYPE OF SUM
+          groupBy.counterIndexes[i] = groupBy.counters;
+          groupBy.counters += 2;
+          groupBy.sumIndexes[i] = groupBy.sums++;
+          groupBy.valueIndexes[i] = groupBy.values;
+          groupBy.values += 2;
+        } else if (function.function instanceof OSQLFunctionMin || function.function instanceof OSQLFunctionMax) {
+          groupBy.types[i] = function.function instanceof OSQLFunctionMin ? MIN : MAX;
+          groupBy.valueIndexes[i] = groupBy.values++;
+        } else
+          return null;
+
+      } else
+        return null;
+
+      i++;
+    }
+
+    // FIELD WHICH IS ABSENT IN RECORD IS LOOKED UP IN THE PROJECTION DOCUMENT BY AGGREGATE FUNCTION, WHERE ONLY FIELDS ARE KNOWN
+    for (i = 0; i < groupBy.names.length; i++) {
+      if (groupBy.types[i] == FIELD || groupBy.parameters[i] == null)
+        continue;
+
+      final String root = groupBy.parameters[i].getRoot();
+      for (int n = 0; n < groupBy.names.length; n++)
+        if (groupBy.names[n].equals(root)) {
+          if (groupBy.types[n] != FIELD)
+            return null;
+          groupBy.fallbacks[i] = n;
+        }
+    }
+
+    final OMemoryWatchDog memoryWatchDog = Orient.instance().getMemoryWatchDog();
+    if (memoryWatchDog != null)
+      groupBy.memoryListener = memoryWatchDog.addListener(groupBy);
+
+    return groupBy;
+  }
+
+  /**
+   * Applies the record to the group with the passed key. Records with <code>null</code> key are ignored.
+   */
+  public void add(final Object iKey, final OIdentifiable iRecord) {
+    if (iKey == null)
+      return;
+
+    final ODocument record = (ODocument) iRecord.getRecord();
+
+    Group group = groups.get(iKey);
+    if (group == null) {
+      group = new Group(iKey, records, counters, sums, values);
+      groups.put(iKey, group);
+    }
+    records++;
+
+    for (int i = 0; i < types.length; i++) {
+      if (types[i] == FIELD) {
+        final Object value = parameters[i].getValue(record, null, context);
+        if (value != null)
+          group.values[valueIndexes[i]] = ORuntimeResult.getProjectionFieldValue(value);
+        continue;
+      }
+
+      Object value;
+      if (parameters[i] == null)
+        value = record;
+      else {
+        value = parameters[i].getValue(record, null, context);
+        if (value == null && fallbacks[i] > -1)
+          value = group.values[valueIndexes[fallbacks[i]]];
+      }
+
+      switch (types[i]) {
+      case COUNT:
+        if (value != null)
+          group.counters[counterIndexes[i]]++;
+        break;
+
+      case SUM:
+      case AVG:
+        if (value instanceof Number)
+          addToSum(group, i, (Number) value);
+        else if (OMultiValue.isMultiValue(value))
+          for (Object item : OMultiValue.getMultiValueIterable(value))
+            if (item != null)
+              addToSum(group, i, (Number) item);
+        break;
+
+      case MIN:
+      case MAX:
+        final int index = valueIndexes[i];
+        if (OMultiValue.isMultiValue(value)) {
+          for (Object item : OMultiValue.getMultiValueIterable(value))
+            group.values[index] = selectBoundary(group.values[index], item, types[i] == MIN);
+        } else
+          group.values[index] = selectBoundary(group.values[index], value, types[i] == MIN);
+        break;
+      }
+    }
+
+    if (spillRequested || (maxGroupsInMemory > 0 && groups.size() > maxGroupsInMemory))
+      spill();
+  }
+
+  /**
+   * Passes projection documents of all the groups to the listener until it returns <code>false</code>. Groups which were written to
+   * temporary files are merged, so this method may be called only once.
+   */
+  public void getResult(final OCommandResultListener iListener) {
+    if (files == null) {
+      try {
+        for (Group group : groups.values())
+          if (!addResult(iListener, group))
+            return;
+      } finally {
+        groups.clear();
+      }
+      return;
+    }
+
+    spill();
+    closeOutputs(outputs);
+
+    for (File file : files)
+      if (file != null && !readPartition(file, 0, iListener))
+        return;
+  }
+
+  /**
+   * Stops listening for memory alerts and removes temporary files.
+   */
+  public void close() {
+    if (memoryListener != null) {
+      final OMemoryWatchDog memoryWatchDog = Orient.instance().getMemoryWatchDog();
+      if (memoryWatchDog != null)
+        memoryWatchDog.removeListener(this);
+      memoryListener = null;
+    }
+
+    groups.clear();
+
+    if (files != null) {
+      closeOutputs(outputs);
+      deleteFiles(files);
+      files = null;
+    }
+  }
+
+  public void lowMemory(final long iFreeMemory, final long iFreeMemoryPercentage) {
+    spillRequested = true;
+  }
+
+  /**
+   * @return <code>false</code> if the listener does not accept more results.
+   */
+  private boolean addResult(final OCommandResultListener iListener, final Group iGroup) {
+    final ODocument document = ORuntimeResult.createProjectionDocument((int) iGroup.progressive);
+
+    for (int i = 0; i < types.length; i++) {
+      final Object value;
+      switch (types[i]) {
+      case COUNT:
+        value = iGroup.counters[counterIndexes[i]];
+        break;
+      case SUM:
+        value = getSum(iGroup, i);
+        break;
+      case AVG:
+        value = getAverage(iGroup, i);
+        break;
+      default:
+        value = iGroup.values[valueIndexes[i]];
+      }
+
+      if (value != null)
+        document.field(names[i], value);
+    }
+
+    if (document.isEmpty())
+      return true;
+
+    // AVOID SAVING OF TEMP RECORD
+    document.unsetDirty();
+    return iListener.result(document);
+  }
+
+  private void addToSum(final Group iGroup, final int iProjection, final Number iValue) {
+    final int counterIndex = counterIndexes[iProjection];
+    final int valueIndex = valueIndexes[iProjection];
+
+    final byte type;
+    if (iValue instanceof Integer || iValue instanceof Short || iValue instanceof Byte) {
+      type = INTEGER;
+      iGroup.counters[counterIndex + 1] += iValue.longValue();
+    } else if (iValue instanceof Long) {
+      type = LONG;
+      iGroup.counters[counterIndex + 1] += iValue.longValue();
+    } else if (iValue instanceof Float) {
+      type = FLOAT;
+      iGroup.sums[sumIndexes[iProjection]] += iValue.doubleValue();
+    } else if (iValue instanceof BigDecimal) {
+      type = DECIMAL;
+      final BigDecimal sum = (BigDecimal) iGroup.values[valueIndex];
+      iGroup.values[valueIndex] = sum == null ? iValue : sum.add((BigDecimal) iValue);
+    } else {
+      type = DOUBLE;
+      iGroup.sums[sumIndexes[iProjection]] += iValue.doubleValue();
+    }
+
+    iGroup.counters[counterIndex]++;
+
+    final Byte sumType = (Byte) iGroup.values[valueIndex + 1];
+    if (sumType == null || sumType < type)
+      iGroup.values[valueIndex + 1] = type;
+  }
+
+  private Number getSum(final Group iGroup, final int iProjection) {
+    final int counterIndex = counterIndexes[iProjection];
+    if (iGroup.counters[counterIndex] == 0)
+      return null;
+
+    final long integerSum = iGroup.counters[counterIndex + 1];
+    final double floatSum = iGroup.sums[sumIndexes[iProjection]];
+
+    switch ((Byte) iGroup.values[valueIndexes[iProjection] + 1]) {
+    case INTEGER:
+      if (integerSum >= Integer.MIN_VALUE && integerSum <= Integer.MAX_VALUE)
+        return (int) integerSum;
+      return integerSum;
+    case LONG:
+      return integerSum;
+    case FLOAT:
+      return (float) (integerSum + floatSum);
+    case DOUBLE:
+      return integerSum + floatSum;
+    default:
+      BigDecimal sum = (BigDecimal) iGroup.values[valueIndexes[iProjection]];
+      if (integerSum != 0)
+        sum = sum.add(new BigDecimal(integerSum));
+      if (floatSum != 0)
+        sum = sum.add(new BigDecimal(floatSum));
+      return sum;
+    }
+  }
+
+  private Number getAverage(final Group iGroup, final int iProjection) {
+    final Number sum = getSum(iGroup, iProjection);
+    if (sum == null)
+      return null;
+
+    final long total = iGroup.counters[counterIndexes[iProjection]];
+    if (sum instanceof Integer)
+      return (int) (sum.intValue() / total);
+    else if (sum instanceof Long)
+      return sum.longValue() / total;
+    else if (sum instanceof Float)
+      return sum.floatValue() / total;
+    else if (sum instanceof Double)
+      return sum.doubleValue() / total;
+    else
+      return ((BigDecimal) sum).divide(new BigDecimal(total));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object selectBoundary(Object iCurrent, Object iValue, final boolean iMin) {
+    if (iValue == null)
+      return iCurrent;
+    if (iCurrent == null)
+      return iValue;
+
+    if (iCurrent instanceof Number && iValue instanceof Number) {
+      final Number[] casted = OType.castComparableNumber((Number) iCurrent, (Number) iValue);
+      iCurrent = casted[0];
+      iValue = casted[1];
+    }
+
+    final int result = ((Comparable<Object>) iCurrent).compareTo(iValue);
+    if (iMin ? result > 0 : result < 0)
+      return iValue;
+    return iCurrent;
+  }
+
+  /**
+   * Merges state of the group read from temporary file into the state of the same group read before.
+   */
+  private void merge(final Group iTarget, final Group iSource) {
+    for (int i = 0; i < types.length; i++) {
+      switch (types[i]) {
+      case FIELD:
+        if (iSource.values[valueIndexes[i]] != null)
+          iTarget.values[valueIndexes[i]] = iSource.values[valueIndexes[i]];
+        break;
+
+      case COUNT:
+        iTarget.counters[counterIndexes[i]] += iSource.counters[counterIndexes[i]];
+        break;
+
+      case SUM:
+      case AVG:
+        final int counterIndex = counterIndexes[i];
+        final int valueIndex = valueIndexes[i];
+        iTarget.counters[counterIndex] += iSource.counters[counterIndex];
+        iTarget.counters[counterIndex + 1] += iSource.counters[counterIndex + 1];
+        iTarget.sums[sumIndexes[i]] += iSource.sums[sumIndexes[i]];
+
+        final BigDecimal targetSum = (BigDecimal) iTarget.values[valueIndex];
+        final BigDecimal sourceSum = (BigDecimal) iSource.values[valueIndex];
+        if (sourceSum != null)
+          iTarget.values[valueIndex] = targetSum == null ? sourceSum : targetSum.add(sourceSum);
+
+        final Byte targetType = (Byte) iTarget.values[valueIndex + 1];
+        final Byte sourceType = (Byte) iSource.values[valueIndex + 1];
+        if (targetType == null || (sourceType != null && sourceType > targetType))
+          iTarget.values[valueIndex + 1] = sourceType;
+        break;
+
+      case MIN:
+      case MAX:
+        iTarget.values[valueIndexes[i]] = selectBoundary(iTarget.values[valueIndexes[i]], iSource.values[valueIndexes[i]],
+            types[i] == MIN);
+        break;
+      }
+    }
+  }
+
+  private void spill() {
+    spillRequested = false;
+    if (groups.isEmpty())
+      return;
+
+    if (files == null) {
+      files = new File[PARTITIONS];
+      outputs = new DataOutputStream[PARTITIONS];
+    }
+
+    writePartitions(groups.values(), 0, files, outputs);
+
+    context.updateMetric("groupBySpilledGroups", groups.size());
+    groups.clear();
+  }
+
+  /**
+   * Writes groups to temporary files of partitions selected by bits of hash of group key which correspond to the level of
+   * partitioning, files are created on the first write.
+   */
+  private void writePartitions(final Iterable<Group> iGroups, final int iLevel, final File[] iFiles,
+      final DataOutputStream[] iOutputs) {
+    try {
+      for (Group group : iGroups) {
+        final int partition = (group.key.hashCode() >>> (iLevel * PARTITION_BITS)) & (PARTITIONS - 1);
+        if (iOutputs[partition] == null) {
+          final File directory = new File(Orient.getTempPath());
+          directory.mkdirs();
+
+          iFiles[partition] = File.createTempFile(FILE_PREFIX, FILE_EXTENSION, directory);
+          iOutputs[partition] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(iFiles[partition]), 64 * 1024));
+        }
+
+        writeGroup(iOutputs[partition], group);
+      }
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on storing of groups of GROUP BY in temporary file", e);
+    }
+  }
+
+  private void writeGroup(final DataOutputStream iOutput, final Group iGroup) throws IOException {
+    final ODocument document = new ODocument();
+    document.field("key", iGroup.key);
+    for (int i = 0; i < iGroup.values.length; i++)
+      if (iGroup.values[i] != null)
+        document.field("v" + i, iGroup.values[i]);
+
+    final byte[] content = document.toStream();
+    iOutput.writeInt(content.length);
+    iOutput.write(content);
+
+    iOutput.writeLong(iGroup.progressive);
+    for (long counter : iGroup.counters)
+      iOutput.writeLong(counter);
+    for (double sum : iGroup.sums)
+      iOutput.writeDouble(sum);
+  }
+
+  /**
+   * Reads groups of the partition, merges states of the same group and passes them to the listener. If the partition has more
+   * groups than fit in memory, its groups are written to the files of the next level of partitioning which are read in turn.
+   * 
+   * @return <code>false</code> if the listener does not accept more results.
+   */
+  private boolean readPartition(final File iFile, final int iLevel, final OCommandResultListener iListener) {
+    final Map<Object, Group> partition = new LinkedHashMap<Object, Group>();
+    File[] subFiles = null;
+    DataOutputStream[] subOutputs = null;
+
+    try {
+      final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(iFile), 64 * 1024));
+      try {
+        while (true) {
+          final int length;
+          try {
+            length = input.readInt();
+          } catch (EOFException e) {
+            break;
+          }
+
+          final byte[] content = new byte[length];
+          input.readFully(content);
+          final ODocument document = new ODocument().fromStream(content);
+
+          final Group group = new Group(document.field("key"), input.readLong(), counters, sums, values);
+          for (int i = 0; i < group.values.length; i++)
+            group.values[i] = document.field("v" + i);
+          for (int i = 0; i < group.counters.length; i++)
+            group.counters[i] = input.readLong();
+          for (int i = 0; i < group.sums.length; i++)
+            group.sums[i] = input.readDouble();
+
+          if (subFiles != null) {
+            writePartitions(Collections.singleton(group), iLevel + 1, subFiles, subOutputs);
+            continue;
+          }
+
+          final Group existing = partition.get(group.key);
+          if (existing == null)
+            partition.put(group.key, group);
+          else
+            merge(existing, group);
+
+          if (iLevel < MAX_LEVEL && (spillRequested || (maxGroupsInMemory > 0 && partition.size() > maxGroupsInMemory))) {
+            // PARTITION DOES NOT FIT IN MEMORY: SPLIT IT AGAIN, THE SAME GROUP MAY BE MET IN THE REST OF THE FILE
+            spillRequested = false;
+            subFiles = new File[PARTITIONS];
+            subOutputs = new DataOutputStream[PARTITIONS];
+
+            writePartitions(partition.values(), iLevel + 1, subFiles, subOutputs);
+            context.updateMetric("groupBySpilledGroups", partition.size());
+            partition.clear();
+          }
+        }
+      } finally {
+        input.close();
+      }
+
+      if (subFiles == null) {
+        final List<Group> partitionGroups = new ArrayList<Group>(partition.values());
+        partition.clear();
+
+        Collections.sort(partitionGroups, new Comparator<Group>() {
+          public int compare(final Group groupOne, final Group groupTwo) {
+            return groupOne.progressive < groupTwo.progressive ? -1 : (groupOne.progressive == groupTwo.progressive ? 0 : 1);
+          }
+        });
+
+        for (Group group : partitionGroups)
+          if (!addResult(iListener, group))
+            return false;
+
+        return true;
+      }
+
+      closeOutputs(subOutputs);
+      for (File subFile : subFiles)
+        if (subFile != null && !readPartition(subFile, iLevel + 1, iListener))
+          return false;
+
+      return true;
+    } catch (IOException e) {
+      throw new OCommandExecutionException("Error on reading of groups of GROUP BY from temporary file " + iFile, e);
+    } finally {
+      if (subFiles != null) {
+        closeOutputs(subOutputs);
+        deleteFiles(subFiles);
+      }
+    }
+  }
+
+  private void closeOutputs(final DataOutputStream[] iOutputs) {
+    for (int i = 0; i < iOutputs.length; i++) {
+      if (iOutputs[i] == null)
+        continue;
+
+      try {
+        iOutputs[i].close();
+      } catch (IOException e) {
+        OLogManager.instance().error(this, "Error during close of temporary file of GROUP BY", e);
+      }
+      iOutputs[i] = null;
+    }
+  }
+
+  private void deleteFiles(final File[] iFiles) {
+    for (File file : iFiles)
+      if (file != null && !file.delete())
+        OLogManager.instance().warn(this, "Temporary file of GROUP BY %s can not be deleted", file);
+  }
+
+  private static final class Group {
+    private final Object   key;
+    private final long     progressive;
+    private final long[]   counters;
+    private final double[] sums;
+    private final Object[] values;
+
+    private Group(final Object iKey, final long iProgressive, final int iCounters, final int iSums, final int iValues) {
+      key = iKey;
+      progressive = iProgressive;
+      counters = new long[iCounters];
+      sums = new double[iSums];
+      values = new Object[iValues];
+    }
+  }
+}
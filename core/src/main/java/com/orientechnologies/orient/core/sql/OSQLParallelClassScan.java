@@ -0,0 +1,348 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.command.OCommandResultListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecordAbstract;
+import com.orientechnologies.orient.core.exception.OCommandExecutionException;
+import com.orientechnologies.orient.core.id.OClusterPosition;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.iterator.ORecordIteratorCluster;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ORecordInternal;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Scan of all the records of class split among {@link OGlobalConfiguration#COMMAND_PARALLEL_SCAN_THREADS} threads. Clusters of the
+ * class are split into ranges of cluster positions, every worker opens its own database instance, takes ranges from the shared
+ * queue, loads their records and evaluates the condition on them. Records which match the condition are passed in batches to the
+ * thread which executes the query, so projections, aggregation and ordering are done by the query as for serial scan.
+ *
+ * Objects of parsed condition keep state during evaluation, so every worker parses the condition from the text of the query.
+ * Records are returned in arbitrary order.
+ *
+ * Workers are never interrupted because interruption of thread which reads file channel closes the channel of storage, instead
+ * they check the cancel flag between records and while they wait for free space in the queue of batches.
+ */
+public class OSQLParallelClassScan {
+  private static final int         BATCH_SIZE                 = 1000;
+  private static final int         RANGES_PER_THREAD          = 4;
+  private static final int         MIN_RECORDS_PER_RANGE      = 1000;
+  private static final int         POLL_INTERVAL              = 100;
+
+  private final ODatabaseRecord    database;
+  private final OClass             targetClass;
+  private final String             condition;
+  private final Map<Object, Object> parameters;
+  private final OCommandContext    context;
+
+  private final AtomicLong         recordReads                = new AtomicLong();
+  private final AtomicLong         documentReads              = new AtomicLong();
+  private final AtomicLong         documentAnalyzedCompatible = new AtomicLong();
+
+  private volatile boolean         cancelled;
+
+  /**
+   * @param iCondition
+   *          text of WHERE condition or <code>null</code> if all the records of class are returned.
+   */
+  public OSQLParallelClassScan(final ODatabaseRecord iDatabase, final OClass iTargetClass, final String iCondition,
+      final Map<Object, Object> iParameters, final OCommandContext iContext) {
+    database = iDatabase;
+    targetClass = iTargetClass;
+    condition = iCondition;
+    parameters = iParameters;
+    context = iContext;
+  }
+
+  /**
+   * Passes records which match the condition to the listener in the current thread.
+   *
+   * @return <code>false</code> if class is too small to be split among several threads, in such case no records are passed to the
+   *         listener.
+   */
+  public boolean scan(final OCommandResultListener iListener) {
+    final List<Range> ranges = splitClusters();
+    final int threads = Math.min(OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.getValueAsInteger(), ranges.size());
+    if (threads < 2)
+      return false;
+
+    context.setVariable("parallelScanThreads", threads);
+
+    final Queue<Range> rangeQueue = new ConcurrentLinkedQueue<Range>(ranges);
+    final BlockingQueue<List<ODocument>> batches = new ArrayBlockingQueue<List<ODocument>>(threads * 2);
+    final Map<String, Object> variables = context.getVariables();
+    final List<Future<Void>> workers = new ArrayList<Future<Void>>(threads);
+
+    final ExecutorService executor = createExecutor(threads);
+    try {
+      for (int i = 0; i < threads; i++)
+        workers.add(executor.submit(new ScanWorker(rangeQueue, batches, variables)));
+
+      // ALL BATCHES ARE QUEUED BEFORE WORKER IS COMPLETED, SO QUEUE IS CHECKED ONLY AFTER COMPLETION OF WORKERS
+      while (!workersCompleted(workers) || !batches.isEmpty()) {
+        if (Thread.interrupted())
+          throw new OCommandExecutionException("The select execution has been interrupted");
+
+        if (!context.checkTimeout())
+          return true;
+
+        final List<ODocument> batch = batches.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+        if (batch == null)
+          continue;
+
+        for (ODocument document : batch)
+          if (!iListener.result(document))
+            // END OF EXECUTION
+            return true;
+      }
+
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OCommandExecutionException("The select execution has been interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new OCommandExecutionException("Error on parallel scan of class " + targetClass.getName(), e.getCause());
+    } finally {
+      stopExecutor(executor, batches);
+
+      context.updateMetric("recordReads", recordReads.get());
+      context.updateMetric("documentReads", documentReads.get());
+      context.updateMetric("documentAnalyzedCompatibleClass", documentAnalyzedCompatible.get());
+    }
+  }
+
+  /**
+   * Splits clusters of the class into ranges of cluster positions, so every thread scans several ranges and threads which got
+   * ranges with fewer records take more ranges. Positions which are not numbers are not split, in such case range is the whole
+   * cluster.
+   */
+  private List<Range> splitClusters() {
+    final OStorage storage = database.getStorage();
+    final int threads = OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.getValueAsInteger();
+
+    long total = 0;
+    for (int clusterId : targetClass.getPolymorphicClusterIds())
+      if (clusterId > -1)
+        total += storage.count(clusterId);
+
+    final long recordsPerRange = Math.max(MIN_RECORDS_PER_RANGE, total / Math.max(1, threads * RANGES_PER_THREAD));
+    final boolean splittable = OClusterPositionFactory.INSTANCE instanceof OClusterPositionFactory.OClusterPositionFactoryLong;
+
+    final List<Range> ranges = new ArrayList<Range>();
+    for (int clusterId : targetClass.getPolymorphicClusterIds()) {
+      if (clusterId < 0)
+        continue;
+
+      final long records = storage.count(clusterId);
+      if (records == 0)
+        continue;
+
+      final OClusterPosition[] clusterRange = storage.getClusterDataRange(clusterId);
+      if (!clusterRange[0].isValid() || !clusterRange[1].isValid())
+        continue;
+
+      final long first = clusterRange[0].longValue();
+      final long last = clusterRange[1].longValue();
+      final long rangeCount = splittable ? Math.min((records + recordsPerRange - 1) / recordsPerRange, last - first + 1) : 1;
+
+      if (rangeCount <= 1) {
+        ranges.add(new Range(clusterId, clusterRange[0], clusterRange[1]));
+        continue;
+      }
+
+      final long width = (last - first + 1) / rangeCount;
+      for (long i = 0; i < rangeCount; i++) {
+        final long begin = first + i * width;
+        final long end = i == rangeCount - 1 ? last : begin + width - 1;
+        ranges.add(new Range(clusterId, OClusterPositionFactory.INSTANCE.valueOf(begin), OClusterPositionFactory.INSTANCE
+            .valueOf(end)));
+      }
+    }
+
+    return ranges;
+  }
+
+  private static boolean workersCompleted(final List<Future<Void>> workers) throws InterruptedException, ExecutionException {
+    for (Future<Void> worker : workers) {
+      if (!worker.isDone())
+        return false;
+
+      // FAIL FAST IF ANY OF WORKERS IS FAILED
+      worker.get();
+    }
+
+    return true;
+  }
+
+  private ExecutorService createExecutor(final int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private final AtomicInteger workerCounter = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r) {
+        final Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        thread.setName("Parallel Scan Worker #" + workerCounter.incrementAndGet() + " (" + targetClass.getName() + ")");
+        return thread;
+      }
+    });
+  }
+
+  private void stopExecutor(final ExecutorService executor, final BlockingQueue<List<ODocument>> batches) {
+    cancelled = true;
+    executor.shutdown();
+
+    // WORKERS WAIT FOR FREE SPACE IN QUEUE OF BATCHES IF QUERY IS COMPLETED BEFORE THE END OF SCAN
+    batches.clear();
+    try {
+      if (!executor.awaitTermination(1, TimeUnit.MINUTES))
+        OLogManager.instance().warn(this, "Workers of parallel scan of class '%s' were not stopped in time", targetClass.getName());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class Range {
+    private final int              clusterId;
+    private final OClusterPosition first;
+    private final OClusterPosition last;
+
+    private Range(final int clusterId, final OClusterPosition first, final OClusterPosition last) {
+      this.clusterId = clusterId;
+      this.first = first;
+      this.last = last;
+    }
+  }
+
+  private final class ScanWorker implements Callable<Void> {
+    private final Queue<Range>                   ranges;
+    private final BlockingQueue<List<ODocument>> batches;
+    private final Map<String, Object>            variables;
+
+    private ScanWorker(final Queue<Range> ranges, final BlockingQueue<List<ODocument>> batches, final Map<String, Object> variables) {
+      this.ranges = ranges;
+      this.batches = batches;
+      this.variables = variables;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final ODatabaseDocumentTx workerDatabase = new ODatabaseDocumentTx(database.getURL());
+      workerDatabase.setProperty(ODatabase.OPTIONS.SECURITY.toString(), Boolean.FALSE);
+      workerDatabase.open("admin", "nopass");
+      try {
+        final OCommandContext workerContext = new OBasicCommandContext();
+        for (Map.Entry<String, Object> variable : variables.entrySet())
+          workerContext.setVariable(variable.getKey(), variable.getValue());
+
+        final OSQLFilter filter;
+        if (condition != null) {
+          filter = OSQLEngine.getInstance().parseCondition(condition, workerContext, OCommandExecutorSQLAbstract.KEYWORD_WHERE);
+          if (parameters != null && !parameters.isEmpty())
+            filter.bindParameters(parameters);
+        } else
+          filter = null;
+
+        List<ODocument> batch = new ArrayList<ODocument>(BATCH_SIZE);
+        Range range;
+
+        while ((range = ranges.poll()) != null)
+          try {
+            for (final ORecordInternal<?> record : new ORecordIteratorCluster<ORecordInternal<?>>(workerDatabase,
+                workerDatabase.<ODatabaseRecordAbstract> getUnderlying(), range.clusterId, range.first, range.last, true, false,
+                OStorage.LOCKING_STRATEGY.DEFAULT)) {
+              if (cancelled)
+                return null;
+
+              recordReads.incrementAndGet();
+              if (record.getRecordType() != ODocument.RECORD_TYPE)
+                continue;
+
+              documentReads.incrementAndGet();
+
+              final ODocument document = (ODocument) record;
+              final OClass schemaClass = document.getSchemaClass();
+              if (schemaClass == null || !schemaClass.isSubClassOf(targetClass.getName()))
+                continue;
+
+              documentAnalyzedCompatible.incrementAndGet();
+
+              workerContext.setVariable("current", document);
+              if (filter != null && !(Boolean) filter.evaluate(document, null, workerContext))
+                continue;
+
+              batch.add(document);
+              if (batch.size() >= BATCH_SIZE) {
+                if (!putBatch(batch))
+                  return null;
+                batch = new ArrayList<ODocument>(BATCH_SIZE);
+              }
+            }
+          } catch (NoSuchElementException e) {
+            // END OF CLUSTER REACHED, IGNORE IT
+          }
+
+        if (!batch.isEmpty())
+          putBatch(batch);
+
+        return null;
+      } finally {
+        workerDatabase.close();
+      }
+    }
+
+    /**
+     * @return <code>false</code> if scan was cancelled before there was free space in the queue.
+     */
+    private boolean putBatch(final List<ODocument> batch) throws InterruptedException {
+      while (!batches.offer(batch, POLL_INTERVAL, TimeUnit.MILLISECONDS))
+        if (cancelled)
+          return false;
+
+      return true;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.db.record.ODatabaseRecord;
+import com.orientechnologies.orient.core.metadata.OMetadata;
+import com.orientechnologies.orient.core.metadata.OMetadataDefault;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilter;
+
+/**
+ * LRU cache of parsed SQL statements of the database. Parsing of conditions is the most expensive part of preparation of query, so
+ * statements with the same text reuse the conditions parsed by previous execution together with the names of indexes which were
+ * found for them.
+ *
+ * Parsed conditions keep values of bound parameters, so every statement is used by one command at a time: it is taken from the
+ * cache when command is parsed and returned back once command is executed. Several copies of the same statement are kept to serve
+ * concurrent commands. All the statements are discarded when schema or indexes are changed.
+ */
+public class OSQLStatementCache {
+  private static final int                                                COPIES_PER_STATEMENT = Runtime.getRuntime()
+                                                                                                   .availableProcessors();
+
+  private final String                                                    databaseName;
+  private final ConcurrentLinkedHashMap<String, BlockingQueue<Statement>> statements;
+  private final AtomicLong                                                version              = new AtomicLong();
+
+  public OSQLStatementCache(final String iDatabaseName, final int iMaxSize) {
+    databaseName = iDatabaseName;
+    statements = new ConcurrentLinkedHashMap.Builder<String, BlockingQueue<Statement>>().maximumWeightedCapacity(iMaxSize)
+        .build();
+  }
+
+  /**
+   * Returns the cache of the database or null if cache is disabled.
+   */
+  public static OSQLStatementCache get(final ODatabaseRecord iDatabase) {
+    if (iDatabase == null || iDatabase.isClosed())
+      return null;
+
+    final OMetadata metadata = iDatabase.getMetadata();
+    if (metadata instanceof OMetadataDefault)
+      return ((OMetadataDefault) metadata).getStatementCache();
+
+    return null;
+  }
+
+  /**
+   * Discards parsed statements of the database, called when its schema or indexes are changed.
+   */
+  public static void invalidateDatabase(final ODatabaseRecord iDatabase) {
+    final OSQLStatementCache cache = get(iDatabase);
+    if (cache != null)
+      cache.invalidate();
+  }
+
+  /**
+   * Takes the parsed statement out of the cache.
+   *
+   * @return the statement or null if statement with such text was not parsed yet or all its copies are in use.
+   */
+  public Statement acquire(final String iText) {
+    final BlockingQueue<Statement> copies = statements.get(iText);
+
+    Statement statement = copies != null ? copies.poll() : null;
+    if (statement != null && statement.version != version.get())
+      statement = null;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    if (profiler.isRecording()) {
+      if (statement != null)
+        profiler.updateCounter(profiler.getDatabaseMetric(databaseName, "command.parsedCache.hit"),
+            "Parsed SQL statement reused from cache", +1);
+      else
+        profiler.updateCounter(profiler.getDatabaseMetric(databaseName, "command.parsedCache.miss"),
+            "SQL statement not found in cache of parsed statements", +1);
+    }
+
+    return statement;
+  }
+
+  /**
+   * Creates new statement of the current version of schema, it is put in the cache once command which parsed it is executed.
+   */
+  public Statement create(final String iText, final OSQLFilter iFilter) {
+    return new Statement(iText, iFilter, version.get());
+  }
+
+  /**
+   * Returns the statement back to the cache, so it can be used by the next command with the same text.
+   */
+  public void release(final Statement iStatement) {
+    if (iStatement.version != version.get())
+      return;
+
+    iStatement.filter.resetParameters();
+
+    BlockingQueue<Statement> copies = statements.get(iStatement.text);
+    if (copies == null) {
+      final BlockingQueue<Statement> newCopies = new ArrayBlockingQueue<Statement>(COPIES_PER_STATEMENT);
+      copies = statements.putIfAbsent(iStatement.text, newCopies);
+      if (copies == null)
+        copies = newCopies;
+    }
+
+    copies.offer(iStatement);
+  }
+
+  /**
+   * Discards all the statements, called when schema or indexes are changed.
+   */
+  public void invalidate() {
+    version.incrementAndGet();
+    statements.clear();
+  }
+
+  public int size() {
+    return statements.size();
+  }
+
+  /**
+   * Parsed statement together with the indexes chosen for its conditions.
+   */
+  public static final class Statement {
+    private final String                    text;
+    private final OSQLFilter                filter;
+    private final long                      version;
+    private final Map<String, List<String>> involvedIndexes = new HashMap<String, List<String>>();
+
+    private Statement(final String iText, final OSQLFilter iFilter, final long iVersion) {
+      text = iText;
+      filter = iFilter;
+      version = iVersion;
+    }
+
+    public OSQLFilter getFilter() {
+      return filter;
+    }
+
+    /**
+     * @return names of indexes in order of preference or null if they were not found yet for the given class and fields.
+     */
+    public List<String> getInvolvedIndexes(final String iClassName, final List<String> iFields) {
+      return involvedIndexes.get(iClassName + iFields);
+    }
+
+    public void setInvolvedIndexes(final String iClassName, final List<String> iFields, final List<String> iIndexNames) {
+      involvedIndexes.put(iClassName + iFields, new ArrayList<String>(iIndexNames));
+    }
+  }
+}
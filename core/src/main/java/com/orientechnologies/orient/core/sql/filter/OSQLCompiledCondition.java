@@ -0,0 +1,311 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.filter;
+
+import java.util.Date;
+
+import com.orientechnologies.orient.core.collate.OCollate;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.record.impl.ODocumentHelper;
+import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorAnd;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMajorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinor;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorMinorEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNot;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNotEquals;
+import com.orientechnologies.orient.core.sql.operator.OQueryOperatorOr;
+
+/**
+ * Tree of conditions compiled to predicates specialized by operator. AND, OR and NOT stop evaluation as soon as the result is
+ * known. Comparison of a plain field with a constant or a bound parameter reads the field directly, looks up the collate of the
+ * field once per schema class and compares values of the same class as the constant without any conversion. Values of other
+ * classes, as well as conditions of other kinds, are evaluated by {@link OSQLFilterCondition} so results are the same as for
+ * interpreted conditions.
+ *
+ * Constants and parameters are read when the conditions are compiled, so compiled conditions are discarded when parameters are
+ * bound again.
+ */
+public abstract class OSQLCompiledCondition {
+  private static final int EQUALS       = 0;
+  private static final int NOT_EQUALS   = 1;
+  private static final int MAJOR        = 2;
+  private static final int MAJOR_EQUALS = 3;
+  private static final int MINOR        = 4;
+  private static final int MINOR_EQUALS = 5;
+
+  /**
+   * @return compiled conditions, conditions which can not be compiled are evaluated as they are.
+   */
+  public static OSQLCompiledCondition compile(final OSQLFilterCondition iCondition) {
+    final OQueryOperator operator = iCondition.getOperator();
+    final Object left = iCondition.getLeft();
+    final Object right = iCondition.getRight();
+
+    if (operator == null) {
+      // CONDITION IN BRACES
+      if (left instanceof OSQLFilterCondition && right == null)
+        return new Braces(compile((OSQLFilterCondition) left));
+    } else if (operator.getClass() == OQueryOperatorAnd.class || operator.getClass() == OQueryOperatorOr.class) {
+      if (left instanceof OSQLFilterCondition && right instanceof OSQLFilterCondition)
+        return new Logical(operator.getClass() == OQueryOperatorAnd.class, compile((OSQLFilterCondition) left),
+            compile((OSQLFilterCondition) right));
+    } else if (operator.getClass() == OQueryOperatorNot.class) {
+      if (((OQueryOperatorNot) operator).getNext() == null && left instanceof OSQLFilterCondition && right == null)
+        return new Not(compile((OSQLFilterCondition) left));
+    } else {
+      final int comparison = getComparison(operator);
+      if (comparison > -1) {
+        if (isPlainField(left) && isConstant(right))
+          return new FieldComparison(iCondition, comparison, (OSQLFilterItemField) left, getConstant(right), true);
+        if (isConstant(left) && isPlainField(right))
+          return new FieldComparison(iCondition, comparison, (OSQLFilterItemField) right, getConstant(left), false);
+      }
+    }
+
+    return new Interpreted(iCondition);
+  }
+
+  /**
+   * Evaluates conditions against the loaded document.
+   */
+  public abstract Object evaluate(ODocument iRecord, OCommandContext iContext);
+
+  private static int getComparison(final OQueryOperator iOperator) {
+    final Class<?> operatorClass = iOperator.getClass();
+    if (operatorClass == OQueryOperatorEquals.class)
+      return EQUALS;
+    if (operatorClass == OQueryOperatorNotEquals.class)
+      return NOT_EQUALS;
+    if (operatorClass == OQueryOperatorMajor.class)
+      return MAJOR;
+    if (operatorClass == OQueryOperatorMajorEquals.class)
+      return MAJOR_EQUALS;
+    if (operatorClass == OQueryOperatorMinor.class)
+      return MINOR;
+    if (operatorClass == OQueryOperatorMinorEquals.class)
+      return MINOR_EQUALS;
+    return -1;
+  }
+
+  private static boolean isPlainField(final Object iItem) {
+    if (iItem == null || iItem.getClass() != OSQLFilterItemField.class)
+      return false;
+
+    final OSQLFilterItemField field = (OSQLFilterItemField) iItem;
+    if (field.hasChainOperators())
+      return false;
+
+    final String name = field.getRoot();
+    if (name == null || name.length() == 0)
+      return false;
+
+    for (int i = name.charAt(0) == '@' ? 1 : 0; i < name.length(); ++i) {
+      final char c = name.charAt(i);
+      if (!Character.isLetterOrDigit(c) && c != '_')
+        return false;
+    }
+    return true;
+  }
+
+  private static boolean isConstant(final Object iItem) {
+    final Object value = getConstant(iItem);
+    if (value instanceof String)
+      return !value.equals(OSQLHelper.DEFINED) && !value.equals(OSQLHelper.NOT_NULL);
+
+    return value instanceof Number || value instanceof Boolean || value instanceof Date || value instanceof ORID;
+  }
+
+  private static Object getConstant(final Object iItem) {
+    if (iItem instanceof OSQLFilterItemParameter)
+      return ((OSQLFilterItemParameter) iItem).getValue(null, null, null);
+    return iItem;
+  }
+
+  /**
+   * Conditions which are not compiled.
+   */
+  private static final class Interpreted extends OSQLCompiledCondition {
+    private final OSQLFilterCondition condition;
+
+    private Interpreted(final OSQLFilterCondition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public Object evaluate(final ODocument iRecord, final OCommandContext iContext) {
+      return condition.evaluate(iRecord, null, iContext);
+    }
+  }
+
+  private static final class Braces extends OSQLCompiledCondition {
+    private final OSQLCompiledCondition condition;
+
+    private Braces(final OSQLCompiledCondition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public Object evaluate(final ODocument iRecord, final OCommandContext iContext) {
+      final Object result = condition.evaluate(iRecord, iContext);
+      return result != null ? result : Boolean.FALSE;
+    }
+  }
+
+  private static final class Logical extends OSQLCompiledCondition {
+    private final boolean               and;
+    private final OSQLCompiledCondition left;
+    private final OSQLCompiledCondition right;
+
+    private Logical(final boolean and, final OSQLCompiledCondition left, final OSQLCompiledCondition right) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public Object evaluate(final ODocument iRecord, final OCommandContext iContext) {
+      final Object l = left.evaluate(iRecord, iContext);
+      if (!(l instanceof Boolean))
+        return Boolean.FALSE;
+
+      if ((Boolean) l != and)
+        // RESULT IS KNOWN: SKIP THE RIGHT CONDITION
+        return l;
+
+      final Object r = right.evaluate(iRecord, iContext);
+      return r instanceof Boolean ? r : Boolean.FALSE;
+    }
+  }
+
+  private static final class Not extends OSQLCompiledCondition {
+    private final OSQLCompiledCondition condition;
+
+    private Not(final OSQLCompiledCondition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public Object evaluate(final ODocument iRecord, final OCommandContext iContext) {
+      final Object result = condition.evaluate(iRecord, iContext);
+      if (!(result instanceof Boolean))
+        return Boolean.FALSE;
+      return !(Boolean) result;
+    }
+  }
+
+  private static final class FieldComparison extends OSQLCompiledCondition {
+    private final OSQLFilterCondition condition;
+    private final int                 comparison;
+    private final String              fieldName;
+    private final String[]            preLoadedFields;
+    private final Object              constant;
+    private final boolean             fieldOnLeft;
+    private ClassCollate              classCollate;
+
+    private FieldComparison(final OSQLFilterCondition condition, final int comparison, final OSQLFilterItemField field,
+        final Object constant, final boolean fieldOnLeft) {
+      this.condition = condition;
+      this.comparison = comparison;
+      this.constant = constant;
+      this.fieldOnLeft = fieldOnLeft;
+
+      fieldName = field.getRoot();
+      if (field.preLoadedFields != null && field.preLoadedFields.size() > 0 && field.preLoadedFields.size() < 5)
+        preLoadedFields = field.preLoadedFields.toArray(new String[field.preLoadedFields.size()]);
+      else
+        preLoadedFields = null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object evaluate(final ODocument iRecord, final OCommandContext iContext) {
+      if (!iRecord.deserializeFields(preLoadedFields))
+        return Boolean.FALSE;
+
+      Object value = ODocumentHelper.getIdentifiableValue(iRecord, fieldName);
+      if (value instanceof ORecord<?> && ((ORecord<?>) value).getInternalStatus() == ORecordElement.STATUS.NOT_LOADED)
+        ((ORecord<?>) value).reload();
+
+      final OClass schemaClass = iRecord.getSchemaClass();
+      ClassCollate current = classCollate;
+      if (current == null || current.schemaClass != schemaClass) {
+        current = new ClassCollate(schemaClass, fieldName, constant);
+        classCollate = current;
+      }
+
+      final Object collatedConstant = current.constant;
+      if (current.collate != null)
+        value = current.collate.transform(value);
+
+      if (value == null)
+        // ALL THE COMPILED OPERATORS IGNORE NULLS
+        return Boolean.FALSE;
+
+      if (collatedConstant == null || value.getClass() != collatedConstant.getClass())
+        // VALUE NEEDS CONVERSION
+        return condition.evaluate(iRecord, null, iContext);
+
+      switch (comparison) {
+      case EQUALS:
+        return value.equals(collatedConstant);
+      case NOT_EQUALS:
+        return !value.equals(collatedConstant);
+      }
+
+      final int result = fieldOnLeft ? ((Comparable<Object>) value).compareTo(collatedConstant) : ((Comparable<Object>) collatedConstant)
+          .compareTo(value);
+
+      switch (comparison) {
+      case MAJOR:
+        return result > 0;
+      case MAJOR_EQUALS:
+        return result >= 0;
+      case MINOR:
+        return result < 0;
+      default:
+        return result <= 0;
+      }
+    }
+  }
+
+  /**
+   * Collate of the field in the last schema class met and the constant transformed by it. Replaced as a whole so compiled
+   * conditions can be evaluated by more threads.
+   */
+  private static final class ClassCollate {
+    private final OClass   schemaClass;
+    private final OCollate collate;
+    private final Object   constant;
+
+    private ClassCollate(final OClass schemaClass, final String fieldName, final Object constant) {
+      this.schemaClass = schemaClass;
+
+      final OProperty property = schemaClass != null ? schemaClass.getProperty(fieldName) : null;
+      collate = property != null ? property.getCollate() : null;
+      this.constant = collate != null ? collate.transform(constant) : constant;
+    }
+  }
+}
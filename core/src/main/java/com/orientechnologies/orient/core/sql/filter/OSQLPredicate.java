@@ -16,6 +16,8 @@
 package com.orientechnologies.orient.core.sql.filter;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -24,9 +26,13 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import com.orientechnologies.common.parser.OBaseParser;
+import com.orientechnologies.common.util.OPair;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.command.OCommandPredicate;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.record.ORecordElement;
 import com.orientechnologies.orient.core.exception.OQueryParsingException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.ORecordSchemaAware;
@@ -36,6 +42,8 @@ import com.orientechnologies.orient.core.sql.OCommandExecutorSQLSelect;
 import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
 import com.orientechnologies.orient.core.sql.OSQLEngine;
 import com.orientechnologies.orient.core.sql.OSQLHelper;
+import com.orientechnologies.orient.core.sql.method.OSQLMethod;
+import com.orientechnologies.orient.core.sql.method.misc.OSQLMethodFunctionDelegate;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperator;
 import com.orientechnologies.orient.core.sql.operator.OQueryOperatorNot;
 import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
@@ -49,6 +57,7 @@ import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
   protected Set<OProperty>                properties = new HashSet<OProperty>();
   protected OSQLFilterCondition           rootCondition;
+  protected OSQLCompiledCondition         compiledCondition;
   protected List<String>                  recordTransformed;
   protected List<OSQLFilterItemParameter> parameterItems;
   protected int                           braces;
@@ -80,6 +89,7 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
       parserSkipWhiteSpaces();
 
       rootCondition = (OSQLFilterCondition) extractConditions(null);
+      compiledCondition = null;
 
       optimize();
     } catch (OQueryParsingException e) {
@@ -106,7 +116,25 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     if (rootCondition == null)
       return true;
 
-    return rootCondition.evaluate((ORecordSchemaAware<?>) iRecord, iCurrentResult, iContext);
+    return evaluateCondition((ORecordSchemaAware<?>) iRecord, iCurrentResult, iContext);
+  }
+
+  /**
+   * Evaluates the root condition, through the compiled conditions when the record is a loaded document and there is no current
+   * result to look fields up in. Compiled conditions can be disabled by {@link OGlobalConfiguration#COMMAND_COMPILED_CONDITIONS}.
+   */
+  protected Object evaluateCondition(final ORecord<?> iRecord, final ODocument iCurrentResult, final OCommandContext iContext) {
+    if (iCurrentResult == null && iRecord instanceof ODocument && OGlobalConfiguration.COMMAND_COMPILED_CONDITIONS.getValueAsBoolean()
+        && iRecord.getInternalStatus() != ORecordElement.STATUS.NOT_LOADED) {
+      OSQLCompiledCondition compiled = compiledCondition;
+      if (compiled == null) {
+        compiled = OSQLCompiledCondition.compile(rootCondition);
+        compiledCondition = compiled;
+      }
+      return compiled.evaluate((ODocument) iRecord, iContext);
+    }
+
+    return rootCondition.evaluate(iRecord, iCurrentResult, iContext);
   }
 
   private Object extractConditions(final OSQLFilterCondition iParentCondition) {
@@ -353,6 +381,9 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     if (parameterItems == null || iArgs == null || iArgs.size() == 0)
       return;
 
+    // COMPILED CONDITIONS HOLD THE VALUES OF PARAMETERS
+    compiledCondition = null;
+
     for (Entry<Object, Object> entry : iArgs.entrySet()) {
       if (entry.getKey() instanceof Integer)
         parameterItems.get(((Integer) entry.getKey())).setValue(entry.setValue(entry.getValue()));
@@ -368,6 +399,26 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
     }
   }
 
+  /**
+   * Forgets the values bound by previous execution, so parameters which are not passed again are not silently reused.
+   */
+  public void resetParameters() {
+    if (parameterItems == null)
+      return;
+
+    compiledCondition = null;
+    for (OSQLFilterItemParameter parameter : parameterItems)
+      parameter.reset();
+  }
+
+  /**
+   * Tells if the parsed conditions can be evaluated again by other command. Sub-queries keep the context they were parsed in and
+   * functions keep the state of previous evaluation, so conditions which contain them can not be reused.
+   */
+  public boolean isReusable() {
+    return isReusable(rootCondition);
+  }
+
   public OSQLFilterItemParameter addParameter(final String iName) {
     final String name;
     if (iName.charAt(0) == OStringSerializerHelper.PARAMETER_NAMED) {
@@ -391,6 +442,7 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
 
   public void setRootCondition(final OSQLFilterCondition iCondition) {
     rootCondition = iCondition;
+    compiledCondition = null;
   }
 
   protected void optimize() {
@@ -398,6 +450,39 @@ public class OSQLPredicate extends OBaseParser implements OCommandPredicate {
       computePrefetchFieldList(rootCondition, new HashSet<String>());
   }
 
+  private static boolean isReusable(final Object iItem) {
+    if (iItem == null || iItem instanceof String || iItem instanceof Number || iItem instanceof Boolean || iItem instanceof Date
+        || iItem instanceof ORID || iItem instanceof OSQLFilterItemParameter)
+      return true;
+
+    if (iItem instanceof OSQLFilterCondition)
+      return isReusable(((OSQLFilterCondition) iItem).getLeft()) && isReusable(((OSQLFilterCondition) iItem).getRight());
+
+    if (iItem instanceof OSQLFilterItemField || iItem instanceof OSQLFilterItemFieldMultiAbstract
+        || iItem instanceof OSQLFilterItemVariable) {
+      final List<OPair<OSQLMethod, Object[]>> chain = ((OSQLFilterItemAbstract) iItem).operationsChain;
+      if (chain != null)
+        for (OPair<OSQLMethod, Object[]> operation : chain)
+          if (operation.getKey() instanceof OSQLMethodFunctionDelegate)
+            return false;
+
+      return true;
+    }
+
+    if (iItem instanceof Collection<?>) {
+      for (Object item : (Collection<?>) iItem)
+        if (!isReusable(item))
+          return false;
+
+      return true;
+    }
+
+    if (iItem instanceof Map<?, ?>)
+      return isReusable(((Map<?, ?>) iItem).keySet()) && isReusable(((Map<?, ?>) iItem).values());
+
+    return false;
+  }
+
   protected Set<String> computePrefetchFieldList(final OSQLFilterCondition iCondition, final Set<String> iFields) {
     Object left = iCondition.getLeft();
     Object right = iCondition.getRight();
@@ -61,6 +61,7 @@ public class ODefaultQueryOperatorFactory implements OQueryOperatorFactory{
         operators.add(new OQueryOperatorMultiply()); 
         operators.add(new OQueryOperatorDivide()); 
         operators.add(new OQueryOperatorMod());
+        operators.add(new OQueryOperatorSearchText());
         OPERATORS = Collections.unmodifiableSet(operators);
     }
 
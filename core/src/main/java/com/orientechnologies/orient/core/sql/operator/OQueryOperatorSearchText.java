@@ -0,0 +1,176 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.sql.operator;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseComplex;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
+import com.orientechnologies.orient.core.index.OIndexFullTextRanked;
+import com.orientechnologies.orient.core.index.fulltext.OFullTextAnalyzer;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.ORecord;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterCondition;
+import com.orientechnologies.orient.core.sql.filter.OSQLFilterItemField;
+
+/**
+ * SEARCHTEXT operator. Looks if property contains at least one term of text. If property is indexed by FULLTEXT_RANKED index,
+ * records are found by index and are returned in order of their rank, so <code>LIMIT</code> of query returns top ranked records.
+ * Text of property and searched text are split into terms by analyzer of the index, or by default analyzer if property is not
+ * indexed.
+ */
+public class OQueryOperatorSearchText extends OQueryTargetOperator {
+  private static final OFullTextAnalyzer DEFAULT_ANALYZER = new OFullTextAnalyzer();
+
+  public OQueryOperatorSearchText() {
+    super("SEARCHTEXT", 5, false);
+  }
+
+  @Override
+  public String getSyntax() {
+    return "<left> SEARCHTEXT <right>";
+  }
+
+  /**
+   * This is executed on non-indexed fields and to check records found by index.
+   */
+  @Override
+  public Object evaluateRecord(final OIdentifiable iRecord, ODocument iCurrentResult, final OSQLFilterCondition iCondition,
+      final Object iLeft, final Object iRight, OCommandContext iContext) {
+    if (iLeft == null || iRight == null)
+      return false;
+
+    final Object text;
+    final Object query;
+    final String fieldName;
+    if (iCondition.getLeft() instanceof OSQLFilterItemField) {
+      text = iLeft;
+      query = iRight;
+      fieldName = iCondition.getLeft().toString();
+    } else {
+      text = iRight;
+      query = iLeft;
+      fieldName = iCondition.getRight().toString();
+    }
+
+    final OFullTextAnalyzer analyzer = getAnalyzer(iRecord, fieldName);
+
+    final Set<String> textTerms = new HashSet<String>(analyzer.analyze(text.toString()));
+    for (String queryTerm : analyzer.analyze(query.toString()))
+      if (textTerms.contains(queryTerm))
+        return true;
+
+    return false;
+  }
+
+  @Override
+  public Collection<OIdentifiable> filterRecords(final ODatabaseComplex<?> iDatabase, final List<String> iTargetClasses,
+      final OSQLFilterCondition iCondition, final Object iLeft, final Object iRight) {
+
+    final String fieldName;
+    if (iCondition.getLeft() instanceof OSQLFilterItemField)
+      fieldName = iCondition.getLeft().toString();
+    else
+      fieldName = iCondition.getRight().toString();
+
+    final String fieldValue;
+    if (iCondition.getLeft() instanceof OSQLFilterItemField)
+      fieldValue = iCondition.getRight().toString();
+    else
+      fieldValue = iCondition.getLeft().toString();
+
+    final String className = iTargetClasses.get(0);
+
+    final OClass schemaClass = iDatabase.getMetadata().getSchema().getClass(className);
+    if (schemaClass.getProperty(fieldName) == null)
+      // NO PROPERTY DEFINED
+      return null;
+
+    final OIndexFullTextRanked index = getRankedIndex(schemaClass, fieldName);
+    if (index == null)
+      return null;
+
+    return index.search(fieldValue);
+  }
+
+  @Override
+  public OIndexReuseType getIndexReuseType(final Object iLeft, final Object iRight) {
+    return OIndexReuseType.INDEX_METHOD;
+  }
+
+  /**
+   * Returns records found by index in order of their rank, records are ranked lazily, so only records which are read by query are
+   * sorted.
+   */
+  @Override
+  public Object executeIndexQuery(OCommandContext iContext, OIndex<?> index, List<Object> keyParams,
+      IndexResultListener resultListener, int fetchLimit) {
+
+    final OIndexDefinition indexDefinition = index.getDefinition();
+    if (indexDefinition.getParamCount() > 1)
+      return null;
+
+    final OIndex<?> internalIndex = index.getInternal();
+    if (!(internalIndex instanceof OIndexFullTextRanked))
+      return null;
+
+    final Object result = ((OIndexFullTextRanked) internalIndex).search(keyParams.get(0));
+
+    updateProfiler(iContext, internalIndex, keyParams, indexDefinition);
+
+    return result;
+  }
+
+  @Override
+  public ORID getBeginRidRange(Object iLeft, Object iRight) {
+    return null;
+  }
+
+  @Override
+  public ORID getEndRidRange(Object iLeft, Object iRight) {
+    return null;
+  }
+
+  private static OFullTextAnalyzer getAnalyzer(final OIdentifiable iRecord, final String fieldName) {
+    final ORecord<?> record = iRecord.getRecord();
+    if (record instanceof ODocument) {
+      final OClass schemaClass = ((ODocument) record).getSchemaClass();
+      if (schemaClass != null && schemaClass.getProperty(fieldName) != null) {
+        final OIndexFullTextRanked index = getRankedIndex(schemaClass, fieldName);
+        if (index != null)
+          return index.getAnalyzer();
+      }
+    }
+
+    return DEFAULT_ANALYZER;
+  }
+
+  private static OIndexFullTextRanked getRankedIndex(final OClass schemaClass, final String fieldName) {
+    for (final OIndex<?> index : schemaClass.getInvolvedIndexes(fieldName))
+      if (index.getInternal() instanceof OIndexFullTextRanked)
+        return (OIndexFullTextRanked) index.getInternal();
+
+    return null;
+  }
+}
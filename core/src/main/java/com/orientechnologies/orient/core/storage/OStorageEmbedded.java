@@ -29,6 +29,7 @@ import com.orientechnologies.orient.core.exception.OCommandExecutionException;
 import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.tx.OActiveTransactions;
 
 import java.io.IOException;
 
@@ -39,11 +40,12 @@ import java.io.IOException;
  * @see com.orientechnologies.orient.core.storage.impl.local.OStorageLocal, OStorageMemory
  */
 public abstract class OStorageEmbedded extends OStorageAbstract {
-  protected final ORecordLockManager lockManager;
-  protected final String             PROFILER_CREATE_RECORD;
-  protected final String             PROFILER_READ_RECORD;
-  protected final String             PROFILER_UPDATE_RECORD;
-  protected final String             PROFILER_DELETE_RECORD;
+  protected final ORecordLockManager  lockManager;
+  protected final OActiveTransactions activeTransactions = new OActiveTransactions();
+  protected final String              PROFILER_CREATE_RECORD;
+  protected final String              PROFILER_READ_RECORD;
+  protected final String              PROFILER_UPDATE_RECORD;
+  protected final String              PROFILER_DELETE_RECORD;
 
   public OStorageEmbedded(final String iName, final String iFilePath, final String iMode) {
     super(iName, iFilePath, iMode, OGlobalConfiguration.STORAGE_LOCK_TIMEOUT.getValueAsInteger(), new OCacheLevelTwoLocatorLocal());
@@ -57,6 +59,13 @@ public abstract class OStorageEmbedded extends OStorageAbstract {
 
   public abstract OCluster getClusterByName(final String iClusterName);
 
+  /**
+   * @return transactions of the storage which are begun but not completed yet.
+   */
+  public OActiveTransactions getActiveTransactions() {
+    return activeTransactions;
+  }
+
   protected abstract ORawBuffer readRecord(final OCluster iClusterSegment, final ORecordId iRid, boolean iAtomicLock,
       boolean loadTombstones, LOCKING_STRATEGY iLockingStrategy);
 
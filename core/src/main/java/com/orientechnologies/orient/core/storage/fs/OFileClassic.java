@@ -74,6 +74,28 @@ public class OFileClassic extends OAbstractFile {
     }
   }
 
+  /**
+   * Reads file content into remaining part of buffer. If buffer is direct one, data is passed from the file to the buffer without
+   * intermediate copy. Part of the buffer which is beyond physical end of file is filled by zeros.
+   */
+  public void read(long iOffset, ByteBuffer iBuffer) throws IOException {
+    acquireReadLock();
+    try {
+      iOffset = checkRegions(iOffset, iBuffer.remaining());
+
+      while (iBuffer.hasRemaining()) {
+        final int bytesRead = channel.read(iBuffer, iOffset);
+        if (bytesRead < 0) {
+          while (iBuffer.hasRemaining())
+            iBuffer.put((byte) 0);
+        } else
+          iOffset += bytesRead;
+      }
+    } finally {
+      releaseReadLock();
+    }
+  }
+
   public void write(long iOffset, byte[] iData, int iSize, int iArrayOffset) throws IOException {
     acquireWriteLock();
     try {
@@ -118,10 +118,15 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
     OZIPCompressionUtil.uncompressDirectory(in, getStoragePath(), iListener);
   }
 
-  protected void endStorageTx() throws IOException {
-    atomicOperationsManager.endAtomicOperation(false);
+  protected OLogSequenceNumber endStorageTx() throws IOException {
+    final OAtomicOperation operation = atomicOperationsManager.endAtomicOperation(false);
 
     assert atomicOperationsManager.getCurrentOperation() == null;
+
+    if (operation == null)
+      return null;
+
+    return operation.getEndLSN();
   }
 
   protected void startStorageTx(OTransaction clientTx) throws IOException {
@@ -140,12 +145,17 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
     if (writeAheadLog == null || transaction.get() == null)
       return;
 
-    final OAtomicOperation operation = atomicOperationsManager.endAtomicOperation(true);
+    // KEEP COMPONENTS LOCKED TILL CHANGES ARE REVERTED, OTHERWISE CONCURRENT TRANSACTIONS MAY LOSE THEIR CHANGES
+    final OAtomicOperation operation = atomicOperationsManager.endAtomicOperation(true, false);
 
     assert atomicOperationsManager.getCurrentOperation() == null;
 
-    final List<OLogSequenceNumber> operationUnit = readOperationUnit(operation.getStartLSN(), operation.getOperationUnitId());
-    undoOperation(operationUnit);
+    try {
+      final List<OLogSequenceNumber> operationUnit = readOperationUnit(operation.getStartLSN(), operation.getOperationUnitId());
+      undoOperation(operationUnit);
+    } finally {
+      atomicOperationsManager.releaseLocks(operation);
+    }
   }
 
   private List<OLogSequenceNumber> readOperationUnit(OLogSequenceNumber startLSN, OOperationUnitId unitId) throws IOException {
@@ -195,25 +205,11 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
       if (record instanceof OUpdatePageRecord) {
         OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) record;
         final long fileId = updatePageRecord.getFileId();
-        final long pageIndex = updatePageRecord.getPageIndex();
 
         if (!diskCache.isOpen(fileId))
           diskCache.openFile(fileId);
 
-        OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-        OCachePointer cachePointer = cacheEntry.getCachePointer();
-        cachePointer.acquireExclusiveLock();
-        try {
-          ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
-
-          OPageChanges pageChanges = updatePageRecord.getChanges();
-          durablePage.revertChanges(pageChanges);
-
-          durablePage.setLsn(updatePageRecord.getLsn());
-        } finally {
-          cachePointer.releaseExclusiveLock();
-          diskCache.release(cacheEntry);
-        }
+        revertPageChanges(updatePageRecord);
       } else {
         OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
             record.getClass());
@@ -222,6 +218,26 @@ public abstract class OStorageLocalAbstract extends OStorageEmbedded implements
     }
   }
 
+  /**
+   * Reverts changes of page stored in log record, file of the page is already opened.
+   */
+  protected void revertPageChanges(OUpdatePageRecord updatePageRecord) throws IOException {
+    OCacheEntry cacheEntry = diskCache.load(updatePageRecord.getFileId(), updatePageRecord.getPageIndex(), true);
+    OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
+
+      OPageChanges pageChanges = updatePageRecord.getChanges();
+      durablePage.revertChanges(pageChanges);
+
+      durablePage.setLsn(updatePageRecord.getLsn());
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+  }
+
   protected boolean checkFirstAtomicUnitRecord(int index, OWALRecord record) {
     boolean isAtomicUnitStartRecord = record instanceof OAtomicUnitStartRecord;
     if (isAtomicUnitStartRecord && index != 0) {
@@ -16,6 +16,7 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
+import com.orientechnologies.common.concur.lock.OLockException;
 import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.common.concur.lock.OModificationLock;
 import com.orientechnologies.common.exception.OException;
@@ -23,6 +24,9 @@ import com.orientechnologies.common.io.OFileUtils;
 import com.orientechnologies.common.io.OIOUtils;
 import com.orientechnologies.common.log.OLogManager;
 import com.orientechnologies.common.parser.OSystemVariableResolver;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
 import com.orientechnologies.common.util.OArrays;
 import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
@@ -34,6 +38,8 @@ import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OIndexRIDContainer;
 import com.orientechnologies.orient.core.db.record.ridbag.sbtree.OSBTreeCollectionManagerShared;
 import com.orientechnologies.orient.core.engine.local.OEngineLocalPaginated;
+import com.orientechnologies.orient.core.exception.OCommitDurabilityException;
+import com.orientechnologies.orient.core.exception.OConcurrentCommitException;
 import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
 import com.orientechnologies.orient.core.exception.OFastConcurrentModificationException;
@@ -47,7 +53,7 @@ import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OPageDataVerificationError;
-import com.orientechnologies.orient.core.index.hashindex.local.cache.OReadWriteDiskCache;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCacheFactory;
 import com.orientechnologies.orient.core.index.hashindex.local.cache.OWOWCache;
 import com.orientechnologies.orient.core.memory.OMemoryWatchDog;
 import com.orientechnologies.orient.core.metadata.OMetadataDefault;
@@ -62,6 +68,7 @@ import com.orientechnologies.orient.core.storage.impl.local.ODataLocal;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageConfigurationSegment;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
 import com.orientechnologies.orient.core.storage.impl.local.OStorageVariableParser;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperation;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.atomicoperations.OAtomicOperationsManager;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OAbstractCheckPointStartRecord;
@@ -93,13 +100,14 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -136,9 +144,23 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
   private volatile boolean             wereDataRestoredAfterOpen            = false;
 
+  /**
+   * Applies page changes read from WAL while data are restored, <code>null</code> otherwise.
+   */
+  private volatile OPageChangesRestore pageChangesRestore;
+
+  private volatile OLogSequenceNumber  lastCheckpointLsn;
+  private volatile OLogSequenceNumber  lastRestoreLsn;
+  private volatile long                lastCheckpointTime;
+
   private boolean                      makeFullCheckPointAfterClusterCreate = OGlobalConfiguration.STORAGE_MAKE_FULL_CHECKPOINT_AFTER_CLUSTER_CREATE
                                                                                 .getValueAsBoolean();
 
+  private final boolean                concurrentCommit                     = OGlobalConfiguration.STORAGE_CONCURRENT_COMMIT
+                                                                                .getValueAsBoolean();
+  private final int                    concurrentCommitLockTimeout          = OGlobalConfiguration.STORAGE_CONCURRENT_COMMIT_LOCK_TIMEOUT
+                                                                                .getValueAsInteger();
+
   public OLocalPaginatedStorage(final String name, final String filePath, final String mode) throws IOException {
     super(name, filePath, mode);
 
@@ -195,6 +217,25 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
         }
       }, fuzzyCheckpointDelay, fuzzyCheckpointDelay, TimeUnit.SECONDS);
+
+      final long recoveryTargetSize = OGlobalConfiguration.WAL_RECOVERY_TARGET_SIZE.getValueAsLong() * 1024 * 1024;
+      final long recoveryTargetTime = OGlobalConfiguration.WAL_RECOVERY_TARGET_TIME.getValueAsLong() * 1000;
+      if (recoveryTargetSize > 0 || recoveryTargetTime > 0)
+        fuzzyCheckpointExecutor.scheduleWithFixedDelay(new RecoveryDistanceTask(recoveryTargetSize, recoveryTargetTime), 1, 1,
+            TimeUnit.SECONDS);
+
+      lastCheckpointLsn = null;
+      lastRestoreLsn = null;
+      lastCheckpointTime = System.currentTimeMillis();
+
+      final OProfilerMBean profiler = Orient.instance().getProfiler();
+      profiler.registerHookValue(profiler.getDatabaseMetric(name, "wal.recoveryDistance"),
+          "Amount of WAL bytes which should be replayed to restore storage after crash", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+            @Override
+            public Object getValue() {
+              return getRecoveryDistance();
+            }
+          }, profiler.getDatabaseMetric(null, "wal.recoveryDistance"));
     } else
       writeAheadLog = null;
 
@@ -203,7 +244,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         * diskCacheSize);
     long readCacheSize = diskCacheSize - writeCacheSize;
 
-    diskCache = new OReadWriteDiskCache(name, readCacheSize, writeCacheSize,
+    diskCache = ODiskCacheFactory.INSTANCE.createDiskCache(name, readCacheSize, writeCacheSize,
         OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * ONE_KB,
         OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_TTL.getValueAsLong() * 1000,
         OGlobalConfiguration.DISK_WRITE_CACHE_PAGE_FLUSH_INTERVAL.getValueAsInteger(), this, writeAheadLog, false, true);
@@ -445,31 +486,46 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   }
 
   private void restoreFromFuzzyCheckPoint(OFuzzyCheckpointStartRecord checkPointRecord) throws IOException {
-    OLogManager.instance().info(this, "Data restore procedure from FUZZY checkpoint is started.");
-    OLogSequenceNumber dirtyPagesLSN = writeAheadLog.next(checkPointRecord.getLsn());
-    ODirtyPagesRecord dirtyPagesRecord = (ODirtyPagesRecord) writeAheadLog.read(dirtyPagesLSN);
-    OLogSequenceNumber startLSN;
-
-    Set<ODirtyPage> dirtyPages = dirtyPagesRecord.getDirtyPages();
-    if (dirtyPages.isEmpty()) {
-      startLSN = dirtyPagesLSN;
-    } else {
-      ODirtyPage[] pages = dirtyPages.toArray(new ODirtyPage[dirtyPages.size()]);
+    final OLogSequenceNumber startLSN = fuzzyCheckpointRestoreLsn(checkPointRecord);
+    OLogManager.instance().info(this, "Data restore procedure from FUZZY checkpoint is started. Restore is performed from LSN %s",
+        startLSN);
 
-      Arrays.sort(pages, new Comparator<ODirtyPage>() {
-        @Override
-        public int compare(ODirtyPage pageOne, ODirtyPage pageTwo) {
-          return pageOne.getLsn().compareTo(pageTwo.getLsn());
-        }
-      });
+    restoreFrom(startLSN);
+  }
+
+  /**
+   * Restore after fuzzy checkpoint starts from the smallest of LSNs of checkpoint itself, of the oldest atomic operation which was
+   * not completed at checkpoint start and of the oldest change of pages which were not flushed at that moment.
+   */
+  private OLogSequenceNumber fuzzyCheckpointRestoreLsn(OFuzzyCheckpointStartRecord checkPointRecord) throws IOException {
+    OLogSequenceNumber restoreLsn = checkPointRecord.getLsn();
+
+    final OLogSequenceNumber oldestOperationLsn = checkPointRecord.getOldestOperationLsn();
+    if (oldestOperationLsn != null && oldestOperationLsn.compareTo(restoreLsn) < 0)
+      restoreLsn = oldestOperationLsn;
+
+    OLogSequenceNumber lsn = writeAheadLog.next(checkPointRecord.getLsn());
+    while (lsn != null) {
+      final OWALRecord walRecord = writeAheadLog.read(lsn);
+      if (walRecord instanceof OFuzzyCheckpointEndRecord)
+        break;
 
-      startLSN = pages[0].getLsn();
+      if (walRecord instanceof ODirtyPagesRecord) {
+        for (ODirtyPage dirtyPage : ((ODirtyPagesRecord) walRecord).getDirtyPages())
+          if (dirtyPage.getLsn().compareTo(restoreLsn) < 0)
+            restoreLsn = dirtyPage.getLsn();
+
+        break;
+      }
+
+      lsn = writeAheadLog.next(lsn);
     }
 
-    if (startLSN.compareTo(writeAheadLog.begin()) < 0)
-      startLSN = writeAheadLog.begin();
+    final OLogSequenceNumber begin = writeAheadLog.begin();
+    if (restoreLsn.compareTo(begin) < 0)
+      restoreLsn = begin;
 
-    restoreFrom(startLSN);
+    return restoreLsn;
   }
 
   private void restoreFromBegging() throws IOException {
@@ -482,6 +538,26 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   private void restoreFrom(OLogSequenceNumber lsn) throws IOException {
     wereDataRestoredAfterOpen = true;
 
+    final long startTime = System.currentTimeMillis();
+    final OPageChangesRestore pageChangesRestore = new OPageChangesRestore(diskCache,
+        OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger(), name);
+    final long recordsProcessed;
+
+    this.pageChangesRestore = pageChangesRestore;
+    try {
+      recordsProcessed = restoreFrom(lsn, pageChangesRestore);
+      pageChangesRestore.await();
+    } finally {
+      this.pageChangesRestore = null;
+      pageChangesRestore.shutdown();
+    }
+
+    OLogManager.instance().info(this, "%d operations were processed, %d page changes were applied by %d threads in %d ms",
+        recordsProcessed, pageChangesRestore.getAppliedChanges(), pageChangesRestore.getThreads(),
+        System.currentTimeMillis() - startTime);
+  }
+
+  private long restoreFrom(OLogSequenceNumber lsn, OPageChangesRestore pageChangesRestore) throws IOException {
     long recordsProcessed = 0;
     int reportInterval = OGlobalConfiguration.WAL_REPORT_AFTER_OPERATIONS_DURING_RESTORE.getValueAsInteger();
 
@@ -498,35 +574,23 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
           OOperationUnitRecord operationUnitRecord = (OOperationUnitRecord) walRecord;
           OOperationUnitId unitId = operationUnitRecord.getOperationUnitId();
           List<OLogSequenceNumber> records = operationUnits.get(unitId);
-
-          assert records != null;
+          if (records == null) {
+            // RESTORE WAS STARTED FROM FUZZY CHECKPOINT AFTER START OF OPERATION WHICH WAS COMPLETED BEFORE CHECKPOINT
+            records = new ArrayList<OLogSequenceNumber>();
+            operationUnits.put(unitId, records);
+          }
 
           records.add(lsn);
 
-					if (operationUnitRecord instanceof OUpdatePageRecord) {
-						final OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) operationUnitRecord;
-
-						final long fileId = updatePageRecord.getFileId();
-						final long pageIndex = updatePageRecord.getPageIndex();
-
-						if (!diskCache.isOpen(fileId))
-							diskCache.openFile(fileId);
+          if (operationUnitRecord instanceof OUpdatePageRecord) {
+            final OUpdatePageRecord updatePageRecord = (OUpdatePageRecord) operationUnitRecord;
 
-						final OCacheEntry cacheEntry = diskCache.load(fileId, pageIndex, true);
-						final OCachePointer cachePointer = cacheEntry.getCachePointer();
-						cachePointer.acquireExclusiveLock();
-						try {
-							ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
-							durablePage.restoreChanges(updatePageRecord.getChanges());
-							durablePage.setLsn(lsn);
+            final long fileId = updatePageRecord.getFileId();
+            if (!diskCache.isOpen(fileId))
+              diskCache.openFile(fileId);
 
-							cacheEntry.markDirty();
-						} finally {
-							cachePointer.releaseExclusiveLock();
-							diskCache.release(cacheEntry);
-						}
-
-					} else  if (operationUnitRecord instanceof OAtomicUnitEndRecord) {
+            pageChangesRestore.redo(updatePageRecord, lsn);
+          } else if (operationUnitRecord instanceof OAtomicUnitEndRecord) {
             final OAtomicUnitEndRecord atomicUnitEndRecord = (OAtomicUnitEndRecord) walRecord;
 
             if (atomicUnitEndRecord.isRollback())
@@ -534,17 +598,18 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
             operationUnits.remove(unitId);
           } else {
-						OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
-										operationUnitRecord.getClass());
-						assert false : "Invalid WAL record type was passed " + operationUnitRecord.getClass().getName();
-					}
+            OLogManager.instance().error(this, "Invalid WAL record type was passed %s. Given record will be skipped.",
+                operationUnitRecord.getClass());
+            assert false : "Invalid WAL record type was passed " + operationUnitRecord.getClass().getName();
+          }
         } else
           OLogManager.instance().warn(this, "Record %s will be skipped during data restore.", walRecord);
 
         recordsProcessed++;
         if (reportInterval > 0 && recordsProcessed % reportInterval == 0)
-          OLogManager.instance().info(this, "%d operations were processed, current LSN is %s last LSN is %s", recordsProcessed,
-              lsn, writeAheadLog.end());
+          OLogManager.instance().info(this,
+              "%d operations were processed, %d page changes were applied by %d threads, current LSN is %s last LSN is %s",
+              recordsProcessed, pageChangesRestore.getAppliedChanges(), pageChangesRestore.getThreads(), lsn, writeAheadLog.end());
 
         lsn = writeAheadLog.next(lsn);
       }
@@ -554,7 +619,19 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     }
 
     rollbackAllUnfinishedWALOperations(operationUnits);
-		operationUnits.clear();
+    operationUnits.clear();
+
+    return recordsProcessed;
+  }
+
+  @Override
+  protected void revertPageChanges(OUpdatePageRecord updatePageRecord) throws IOException {
+    final OPageChangesRestore restore = pageChangesRestore;
+    if (restore != null)
+      // CHANGES OF THE SAME PAGE ARE APPLIED IN LSN ORDER BY THREAD WHICH RESTORES THIS PAGE
+      restore.undo(updatePageRecord);
+    else
+      super.revertPageChanges(updatePageRecord);
   }
 
   private void redoOperation(List<OLogSequenceNumber> records) throws IOException {
@@ -597,7 +674,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     }
   }
 
-  private void rollbackAllUnfinishedWALOperations(Map<OOperationUnitId, List<OLogSequenceNumber>> operationUnits) throws IOException {
+  private void rollbackAllUnfinishedWALOperations(Map<OOperationUnitId, List<OLogSequenceNumber>> operationUnits)
+      throws IOException {
     for (List<OLogSequenceNumber> operationUnit : operationUnits.values()) {
       if (operationUnit.isEmpty())
         continue;
@@ -701,6 +779,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         makeFullCheckpoint();
 
       if (writeAheadLog != null) {
+        final OProfilerMBean profiler = Orient.instance().getProfiler();
+        profiler.unregisterHookValue(profiler.getDatabaseMetric(name, "wal.recoveryDistance"));
+
         fuzzyCheckpointExecutor.shutdown();
         if (!fuzzyCheckpointExecutor.awaitTermination(
             OGlobalConfiguration.WAL_FUZZY_CHECKPOINT_SHUTDOWN_TIMEOUT.getValueAsInteger(), TimeUnit.SECONDS))
@@ -1146,8 +1227,10 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
             atomicOperationsManager.startAtomicOperation();
             try {
+              atomicOperationsManager.lockTillOperationComplete(cluster);
               ppos = cluster.createRecord(content, recordVersion, recordType);
               rid.clusterPosition = ppos.clusterPosition;
+              lockRecordTillCommitComplete(rid);
 
               final ORecordSerializationContext context = ORecordSerializationContext.getContext();
               if (context != null)
@@ -1293,62 +1376,69 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       try {
         lock.acquireSharedLock();
         try {
-          // GET THE SHARED LOCK AND GET AN EXCLUSIVE LOCK AGAINST THE RECORD
-          lockManager.acquireLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+          final OAtomicOperation atomicOperation = startClusterOperation(cluster);
           try {
-            // UPDATE IT
-            final OPhysicalPosition ppos = cluster.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
-            if (!checkForRecordValidity(ppos)) {
-              final ORecordVersion recordVersion = OVersionFactory.instance().createUntrackedVersion();
-              if (callback != null)
-                callback.call(rid, recordVersion);
-
-              return new OStorageOperationResult<ORecordVersion>(recordVersion);
-            }
+            lockRecordTillCommitComplete(rid);
 
-            // VERSION CONTROL CHECK
-            switch (version.getCounter()) {
-            // DOCUMENT UPDATE, NO VERSION CONTROL
-            case -1:
-              ppos.recordVersion.increment();
-              break;
+            // GET THE SHARED LOCK AND GET AN EXCLUSIVE LOCK AGAINST THE RECORD
+            lockManager.acquireLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+            try {
+              // UPDATE IT
+              final OPhysicalPosition ppos = cluster.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
+              if (!checkForRecordValidity(ppos)) {
+                final ORecordVersion recordVersion = OVersionFactory.instance().createUntrackedVersion();
+                if (callback != null)
+                  callback.call(rid, recordVersion);
+
+                return new OStorageOperationResult<ORecordVersion>(recordVersion);
+              }
 
-            // DOCUMENT UPDATE, NO VERSION CONTROL, NO VERSION UPDATE
-            case -2:
-              ppos.recordVersion.setCounter(-2);
-              break;
+              // VERSION CONTROL CHECK
+              switch (version.getCounter()) {
+              // DOCUMENT UPDATE, NO VERSION CONTROL
+              case -1:
+                ppos.recordVersion.increment();
+                break;
 
-            default:
-              // MVCC CONTROL AND RECORD UPDATE OR WRONG VERSION VALUE
-              // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
-              if (!version.equals(ppos.recordVersion))
-                if (OFastConcurrentModificationException.enabled())
-                  throw OFastConcurrentModificationException.instance();
-                else
-                  throw new OConcurrentModificationException(rid, ppos.recordVersion, version, ORecordOperation.UPDATED);
-              ppos.recordVersion.increment();
-            }
+              // DOCUMENT UPDATE, NO VERSION CONTROL, NO VERSION UPDATE
+              case -2:
+                ppos.recordVersion.setCounter(-2);
+                break;
 
-            atomicOperationsManager.startAtomicOperation();
-            try {
-              cluster.updateRecord(rid.clusterPosition, content, ppos.recordVersion, recordType);
+              default:
+                // MVCC CONTROL AND RECORD UPDATE OR WRONG VERSION VALUE
+                // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
+                if (!version.equals(ppos.recordVersion))
+                  if (OFastConcurrentModificationException.enabled())
+                    throw OFastConcurrentModificationException.instance();
+                  else
+                    throw new OConcurrentModificationException(rid, ppos.recordVersion, version, ORecordOperation.UPDATED);
+                ppos.recordVersion.increment();
+              }
 
-              final ORecordSerializationContext context = ORecordSerializationContext.getContext();
-              if (context != null)
-                context.executeOperations(this);
-              atomicOperationsManager.endAtomicOperation(false);
-            } catch (RuntimeException e) {
-              atomicOperationsManager.endAtomicOperation(true);
-              throw e;
-            }
+              atomicOperationsManager.startAtomicOperation();
+              try {
+                cluster.updateRecord(rid.clusterPosition, content, ppos.recordVersion, recordType);
+
+                final ORecordSerializationContext context = ORecordSerializationContext.getContext();
+                if (context != null)
+                  context.executeOperations(this);
+                atomicOperationsManager.endAtomicOperation(false);
+              } catch (RuntimeException e) {
+                atomicOperationsManager.endAtomicOperation(true);
+                throw e;
+              }
 
-            if (callback != null)
-              callback.call(rid, ppos.recordVersion);
+              if (callback != null)
+                callback.call(rid, ppos.recordVersion);
 
-            return new OStorageOperationResult<ORecordVersion>(ppos.recordVersion);
+              return new OStorageOperationResult<ORecordVersion>(ppos.recordVersion);
 
+            } finally {
+              lockManager.releaseLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+            }
           } finally {
-            lockManager.releaseLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+            endClusterOperation(atomicOperation);
           }
         } catch (IOException e) {
           OLogManager.instance().error(this, "Error on updating record " + rid + " (cluster: " + cluster + ")", e);
@@ -1385,36 +1475,43 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       try {
         lock.acquireSharedLock();
         try {
-          lockManager.acquireLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+          final OAtomicOperation atomicOperation = startClusterOperation(cluster);
           try {
-            final OPhysicalPosition ppos = cluster.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
+            lockRecordTillCommitComplete(rid);
 
-            if (ppos == null)
-              // ALREADY DELETED
-              return new OStorageOperationResult<Boolean>(false);
+            lockManager.acquireLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+            try {
+              final OPhysicalPosition ppos = cluster.getPhysicalPosition(new OPhysicalPosition(rid.clusterPosition));
 
-            // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
-            if (version.getCounter() > -1 && !ppos.recordVersion.equals(version))
-              if (OFastConcurrentModificationException.enabled())
-                throw OFastConcurrentModificationException.instance();
-              else
-                throw new OConcurrentModificationException(rid, ppos.recordVersion, version, ORecordOperation.DELETED);
+              if (ppos == null)
+                // ALREADY DELETED
+                return new OStorageOperationResult<Boolean>(false);
 
-            atomicOperationsManager.startAtomicOperation();
-            try {
-              final ORecordSerializationContext context = ORecordSerializationContext.getContext();
-              if (context != null)
-                context.executeOperations(this);
-              atomicOperationsManager.endAtomicOperation(false);
-            } catch (RuntimeException e) {
-              atomicOperationsManager.endAtomicOperation(true);
-            }
+              // MVCC TRANSACTION: CHECK IF VERSION IS THE SAME
+              if (version.getCounter() > -1 && !ppos.recordVersion.equals(version))
+                if (OFastConcurrentModificationException.enabled())
+                  throw OFastConcurrentModificationException.instance();
+                else
+                  throw new OConcurrentModificationException(rid, ppos.recordVersion, version, ORecordOperation.DELETED);
+
+              atomicOperationsManager.startAtomicOperation();
+              try {
+                final ORecordSerializationContext context = ORecordSerializationContext.getContext();
+                if (context != null)
+                  context.executeOperations(this);
+                atomicOperationsManager.endAtomicOperation(false);
+              } catch (RuntimeException e) {
+                atomicOperationsManager.endAtomicOperation(true);
+              }
 
-            cluster.deleteRecord(ppos.clusterPosition);
+              cluster.deleteRecord(ppos.clusterPosition);
 
-            return new OStorageOperationResult<Boolean>(true);
+              return new OStorageOperationResult<Boolean>(true);
+            } finally {
+              lockManager.releaseLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+            }
           } finally {
-            lockManager.releaseLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+            endClusterOperation(atomicOperation);
           }
         } finally {
           lock.releaseSharedLock();
@@ -1549,9 +1646,11 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
   }
 
   public void commit(final OTransaction clientTx, Runnable callback) {
+    OLogSequenceNumber commitLSN = null;
+
     modificationLock.requestModificationLock();
     try {
-      lock.acquireExclusiveLock();
+      acquireCommitLock();
       try {
         if (writeAheadLog == null)
           throw new OStorageException("WAL mode is not active. Transactions are not supported in given mode");
@@ -1559,6 +1658,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         startStorageTx(clientTx);
 
         final List<ORecordOperation> tmpEntries = new ArrayList<ORecordOperation>();
+        int maxLockedClusterId = -1;
 
         while (clientTx.getCurrentRecordEntries().iterator().hasNext()) {
           for (ORecordOperation txEntry : clientTx.getCurrentRecordEntries())
@@ -1566,6 +1666,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
           clientTx.clearRecordEntries();
 
+          if (concurrentCommit)
+            maxLockedClusterId = lockTransactionClusters(clientTx, tmpEntries, maxLockedClusterId);
+
           for (ORecordOperation txEntry : tmpEntries)
             // COMMIT ALL THE SINGLE ENTRIES ONE BY ONE
             commitEntry(clientTx, txEntry);
@@ -1574,7 +1677,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         if (callback != null)
           callback.run();
 
-        endStorageTx();
+        commitLSN = endStorageTx();
 
         OTransactionAbstract.updateCacheFromEntries(clientTx, clientTx.getAllRecordEntries(), false);
 
@@ -1588,12 +1691,136 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
         else
           throw new OStorageException("Error during transaction commit.", e);
       } finally {
+        releaseTransactionRecordLocks();
         transaction.set(null);
-        lock.releaseExclusiveLock();
+        releaseCommitLock();
       }
     } finally {
       modificationLock.releaseModificationLock();
     }
+
+    // WAIT FOR DURABILITY OUTSIDE OF STORAGE LOCK, SO CONCURRENT COMMITS ARE FLUSHED BY THE SAME GROUP COMMIT. TRANSACTION IS
+    // ALREADY APPLIED AT THIS POINT, SO FLUSH ERROR IS NOT REPORTED AS COMMIT FAILURE
+    if (commitLSN != null && OGlobalConfiguration.WAL_SYNC_ON_COMMIT.getValueAsBoolean())
+      try {
+        writeAheadLog.flushTill(commitLSN);
+      } catch (RuntimeException e) {
+        throw new OCommitDurabilityException("Transaction (tx-id=" + clientTx.getId()
+            + ") is committed, but it was not flushed to the write ahead log of storage '" + name + "'", e);
+      }
+  }
+
+  /**
+   * Transactions hold exclusive storage lock during commit unless {@link OGlobalConfiguration#STORAGE_CONCURRENT_COMMIT} is set.
+   * In the latter case only components which are modified by transaction are locked till the end of its atomic operation.
+   */
+  private void acquireCommitLock() {
+    if (concurrentCommit)
+      lock.acquireSharedLock();
+    else
+      lock.acquireExclusiveLock();
+  }
+
+  private void releaseCommitLock() {
+    if (concurrentCommit)
+      lock.releaseSharedLock();
+    else
+      lock.releaseExclusiveLock();
+  }
+
+  /**
+   * Locks clusters of transaction records in order of their ids, so two transactions which share several clusters do not
+   * deadlock each other. Clusters of new records are assigned before locking, so records are committed exactly to the locked
+   * clusters. Records which are added to transaction during commit of the previous ones (by hooks or serialization of linked
+   * records) are locked as next batch. Cluster of such batch which precedes already locked ones breaks the lock order, so it is
+   * waited for no longer than {@link OGlobalConfiguration#STORAGE_CONCURRENT_COMMIT_LOCK_TIMEOUT} and the transaction is rolled
+   * back with {@link OConcurrentCommitException} if it is locked by other transaction.
+   *
+   * @return the biggest id of locked clusters.
+   */
+  private int lockTransactionClusters(final OTransaction clientTx, final List<ORecordOperation> txEntries, int maxLockedClusterId) {
+    final SortedSet<Integer> clusterIds = new TreeSet<Integer>();
+
+    for (ORecordOperation txEntry : txEntries) {
+      final int clusterId = assignClusterId(txEntry);
+
+      if (clusterId >= 0 && clusterId < clusters.length && clusters[clusterId] != null)
+        clusterIds.add(clusterId);
+    }
+
+    for (int clusterId : clusterIds) {
+      final OCluster cluster = clusters[clusterId];
+
+      if (clusterId > maxLockedClusterId) {
+        atomicOperationsManager.lockTillOperationComplete(cluster);
+        maxLockedClusterId = clusterId;
+      } else
+        try {
+          atomicOperationsManager.lockTillOperationComplete(cluster, concurrentCommitLockTimeout);
+        } catch (OLockException e) {
+          throw new OConcurrentCommitException("Cluster '" + cluster.getName()
+              + "' of record added during commit is locked by other transaction, transaction (tx-id=" + clientTx.getId()
+              + ") is rolled back", e);
+        }
+    }
+
+    return maxLockedClusterId;
+  }
+
+  /**
+   * Keeps record which is changed by concurrently committed transaction exclusively locked till commit or rollback completes, so
+   * readers, which take shared record lock, never see record changes which are not committed yet. New record is locked as soon as
+   * its position is allocated, while its cluster is still locked by the transaction.
+   */
+  private void lockRecordTillCommitComplete(final ORecordId rid) {
+    final OStorageTransaction storageTx = transaction.get();
+    if (!concurrentCommit || storageTx == null)
+      return;
+
+    final ORID lockedRid = rid.copy();
+    if (storageTx.addLockedRecord(lockedRid))
+      lockManager.acquireLock(Thread.currentThread(), lockedRid, OLockManager.LOCK.EXCLUSIVE);
+  }
+
+  private void releaseTransactionRecordLocks() {
+    final OStorageTransaction storageTx = transaction.get();
+    if (storageTx == null)
+      return;
+
+    for (ORID rid : storageTx.removeLockedRecords())
+      lockManager.releaseLock(Thread.currentThread(), rid, OLockManager.LOCK.EXCLUSIVE);
+  }
+
+  /**
+   * Fixes cluster id of new record without cluster to the default cluster id defined in schema class.
+   *
+   * @return id of cluster the record is committed to.
+   */
+  private int assignClusterId(final ORecordOperation txEntry) {
+    final ORecordId rid = (ORecordId) txEntry.getRecord().getIdentity();
+
+    if (rid.clusterId == ORID.CLUSTER_ID_INVALID && txEntry.getRecord() instanceof ODocument
+        && ((ODocument) txEntry.getRecord()).getSchemaClass() != null)
+      rid.clusterId = ((ODocument) txEntry.getRecord()).getSchemaClass().getDefaultClusterId();
+
+    return rid.clusterId;
+  }
+
+  /**
+   * Starts atomic operation and locks cluster till its end before any record or page lock is acquired, so all operations lock
+   * clusters in the same order.
+   */
+  private OAtomicOperation startClusterOperation(final OCluster cluster) throws IOException {
+    final OAtomicOperation atomicOperation = atomicOperationsManager.startAtomicOperation();
+    if (atomicOperation != null)
+      atomicOperationsManager.lockTillOperationComplete(cluster);
+
+    return atomicOperation;
+  }
+
+  private void endClusterOperation(final OAtomicOperation atomicOperation) throws IOException {
+    if (atomicOperation != null)
+      atomicOperationsManager.endAtomicOperation(atomicOperation.isRollback());
   }
 
   private void commitEntry(final OTransaction clientTx, final ORecordOperation txEntry) throws IOException {
@@ -1605,11 +1832,8 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
 
     ORecordSerializationContext.pushContext();
     try {
-      if (rid.clusterId == ORID.CLUSTER_ID_INVALID && txEntry.getRecord() instanceof ODocument
-          && ((ODocument) txEntry.getRecord()).getSchemaClass() != null) {
-        // TRY TO FIX CLUSTER ID TO THE DEFAULT CLUSTER ID DEFINED IN SCHEMA CLASS
-        rid.clusterId = ((ODocument) txEntry.getRecord()).getSchemaClass().getDefaultClusterId();
-      }
+      // TRY TO FIX CLUSTER ID TO THE DEFAULT CLUSTER ID DEFINED IN SCHEMA CLASS
+      assignClusterId(txEntry);
 
       final OCluster cluster = getClusterById(rid.clusterId);
 
@@ -1694,7 +1918,7 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     checkOpeness();
     modificationLock.requestModificationLock();
     try {
-      lock.acquireExclusiveLock();
+      acquireCommitLock();
       try {
         if (transaction.get() == null)
           return;
@@ -1713,8 +1937,9 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       } catch (IOException e) {
         throw new OStorageException("Error during transaction rollback.", e);
       } finally {
+        releaseTransactionRecordLocks();
         transaction.set(null);
-        lock.releaseExclusiveLock();
+        releaseCommitLock();
       }
     } finally {
       modificationLock.releaseModificationLock();
@@ -1953,29 +2178,74 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     }
   }
 
+  /**
+   * Makes fuzzy checkpoint, pages are not flushed but LSN from which restore should be started is logged, so log which precedes
+   * it is removed.
+   */
   public void makeFuzzyCheckpoint() {
-    // if (writeAheadLog == null)
-    // return;
-    //
-    // try {
-    // lock.acquireExclusiveLock();
-    // try {
-    // writeAheadLog.flush();
-    //
-    // writeAheadLog.logFuzzyCheckPointStart();
-    //
-    // diskCache.forceSyncStoredChanges();
-    // diskCache.logDirtyPagesTable();
-    //
-    // writeAheadLog.logFuzzyCheckPointEnd();
-    //
-    // writeAheadLog.flush();
-    // } finally {
-    // lock.releaseExclusiveLock();
-    // }
-    // } catch (IOException ioe) {
-    // throw new OStorageException("Error during fuzzy checkpoint creation for storage " + name, ioe);
-    // }
+    if (writeAheadLog == null)
+      return;
+
+    lock.acquireSharedLock();
+    try {
+      if (status != STATUS.OPEN)
+        return;
+
+      doMakeFuzzyCheckpoint();
+    } catch (IOException ioe) {
+      throw new OStorageException("Error during fuzzy checkpoint creation for storage " + name, ioe);
+    } finally {
+      lock.releaseSharedLock();
+    }
+  }
+
+  /**
+   * @return amount of WAL bytes which should be replayed after crash if restore is started from the last checkpoint.
+   */
+  public long getRecoveryDistance() {
+    if (writeAheadLog == null)
+      return 0;
+
+    try {
+      return recoveryDistance();
+    } catch (IOException ioe) {
+      throw new OStorageException("Error during calculation of recovery distance for storage " + name, ioe);
+    }
+  }
+
+  private long recoveryDistance() throws IOException {
+    OLogSequenceNumber restoreLsn = lastRestoreLsn;
+    if (restoreLsn == null)
+      restoreLsn = writeAheadLog.begin();
+
+    if (restoreLsn == null)
+      return 0;
+
+    return writeAheadLog.sizeFrom(restoreLsn);
+  }
+
+  private void doMakeFuzzyCheckpoint() throws IOException {
+    // OPERATIONS ARE REGISTERED BEFORE THEIR CHANGES ARE STORED IN DISK CACHE, SO CHECKPOINT START SHOULD BE LOGGED FIRST
+    final OLogSequenceNumber checkpointLsn = atomicOperationsManager.logFuzzyCheckpointStart();
+    diskCache.logDirtyPagesTable();
+    writeAheadLog.logFuzzyCheckPointEnd();
+
+    writeAheadLog.flush();
+
+    // PAGES WHICH ARE ABSENT IN DIRTY PAGES TABLE SHOULD BE ON DISK BEFORE LOG WHICH PRECEDES RESTORE POINT IS REMOVED
+    diskCache.forceSyncStoredChanges();
+
+    final OLogSequenceNumber restoreLsn = fuzzyCheckpointRestoreLsn((OFuzzyCheckpointStartRecord) writeAheadLog
+        .read(checkpointLsn));
+    writeAheadLog.cutTill(restoreLsn);
+
+    lastCheckpointLsn = checkpointLsn;
+    lastRestoreLsn = restoreLsn;
+    lastCheckpointTime = System.currentTimeMillis();
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.updateCounter(profiler.getDatabaseMetric(name, "wal.fuzzyCheckpoints"), "Amount of fuzzy checkpoints", +1,
+        "db.*.wal.fuzzyCheckpoints");
   }
 
   public void makeFullCheckpoint() {
@@ -1988,12 +2258,16 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
       if (configuration != null)
         configuration.synch();
 
-      writeAheadLog.logFullCheckpointStart();
+      final OLogSequenceNumber checkpointLsn = writeAheadLog.logFullCheckpointStart();
 
       diskCache.flushBuffer();
 
       writeAheadLog.logFullCheckpointEnd();
       writeAheadLog.flush();
+
+      lastCheckpointLsn = checkpointLsn;
+      lastRestoreLsn = checkpointLsn;
+      lastCheckpointTime = System.currentTimeMillis();
     } catch (IOException ioe) {
       throw new OStorageException("Error during checkpoint creation for storage " + name, ioe);
     } finally {
@@ -2128,4 +2402,55 @@ public class OLocalPaginatedStorage extends OStorageLocalAbstract {
     cluster.getExternalModificationLock().allowModifications();
 
   }
+
+  /**
+   * Keeps amount of WAL which should be replayed after crash close to {@link OGlobalConfiguration#WAL_RECOVERY_TARGET_SIZE} and
+   * {@link OGlobalConfiguration#WAL_RECOVERY_TARGET_TIME}. Pages changed in the older half of this interval are flushed, then
+   * fuzzy checkpoint is made if restore point is out of its bounds, so restore point moves forward and log is truncated.
+   */
+  private final class RecoveryDistanceTask implements Runnable {
+    private final long targetSize;
+    private final long targetTime;
+
+    private RecoveryDistanceTask(long targetSize, long targetTime) {
+      this.targetSize = targetSize;
+      this.targetTime = targetTime;
+    }
+
+    @Override
+    public void run() {
+      try {
+        lock.acquireSharedLock();
+        try {
+          if (status != STATUS.OPEN)
+            return;
+
+          final long currentTime = System.currentTimeMillis();
+
+          final OLogSequenceNumber flushLsn = targetSize > 0 ? writeAheadLog.positionBeforeEnd(targetSize / 2) : null;
+          final long flushTime = targetTime > 0 ? currentTime - targetTime / 2 : 0;
+          diskCache.flushOldPages(flushLsn, flushTime);
+
+          boolean makeCheckpoint = false;
+          if (targetSize > 0) {
+            final OLogSequenceNumber checkpointLsn = lastCheckpointLsn;
+
+            // RESTORE POINT CAN BE KEPT BY LONG OPERATION, CHECKPOINT IS NOT REPEATED TILL ENOUGH LOG IS WRITTEN AFTER PREVIOUS ONE
+            makeCheckpoint = recoveryDistance() > targetSize / 2
+                && (checkpointLsn == null || writeAheadLog.sizeFrom(checkpointLsn) > targetSize / 4);
+          }
+
+          if (targetTime > 0 && currentTime - lastCheckpointTime > targetTime / 2)
+            makeCheckpoint = true;
+
+          if (makeCheckpoint)
+            doMakeFuzzyCheckpoint();
+        } finally {
+          lock.releaseSharedLock();
+        }
+      } catch (Throwable e) {
+        OLogManager.instance().error(this, "Error during adjustment of recovery distance for storage " + name, e);
+      }
+    }
+  }
 }
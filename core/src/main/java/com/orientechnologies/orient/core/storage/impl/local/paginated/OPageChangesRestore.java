@@ -0,0 +1,214 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.orientechnologies.orient.core.exception.OStorageException;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCacheEntry;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.OCachePointer;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.base.ODurablePage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OUpdatePageRecord;
+
+/**
+ * Applies page changes read from write ahead log during data restore. Changes are partitioned by page between several threads,
+ * all changes of the same page are applied by the same thread in the order in which they were passed, so they are applied in LSN
+ * order while log is read only once by the caller.
+ *
+ * Files should be opened by the caller before their changes are passed, amount of changes which wait to be applied is limited so
+ * the log is not read faster than it can be applied.
+ */
+final class OPageChangesRestore {
+  private static final int        MAX_PENDING_CHANGES_PER_THREAD = 1024;
+
+  private final ODiskCache        diskCache;
+  private final ExecutorService[] partitions;
+  private final Semaphore         pendingChanges;
+  private final int               maxPendingChanges;
+
+  private final AtomicLong        appliedChanges                 = new AtomicLong();
+  private volatile Throwable      failure;
+
+  OPageChangesRestore(final ODiskCache diskCache, final int threads, final String storageName) {
+    this.diskCache = diskCache;
+
+    if (threads > 1) {
+      partitions = new ExecutorService[threads];
+      for (int i = 0; i < threads; i++) {
+        final int partition = i;
+        partitions[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("WAL Restore Worker #" + partition + " (" + storageName + ")");
+            return thread;
+          }
+        });
+      }
+
+      maxPendingChanges = threads * MAX_PENDING_CHANGES_PER_THREAD;
+      pendingChanges = new Semaphore(maxPendingChanges);
+    } else {
+      partitions = null;
+      maxPendingChanges = 0;
+      pendingChanges = null;
+    }
+  }
+
+  /**
+   * Applies changes of page stored in log record with given LSN.
+   */
+  void redo(final OUpdatePageRecord updatePageRecord, final OLogSequenceNumber lsn) throws IOException {
+    submit(updatePageRecord, lsn, false);
+  }
+
+  /**
+   * Reverts changes of page stored in log record, is used to roll back operations which were rolled back or were not completed.
+   */
+  void undo(final OUpdatePageRecord updatePageRecord) throws IOException {
+    submit(updatePageRecord, updatePageRecord.getLsn(), true);
+  }
+
+  /**
+   * Waits till all passed changes are applied.
+   *
+   * @throws OStorageException
+   *           if application of any change was failed.
+   */
+  void await() throws IOException {
+    if (partitions != null) {
+      try {
+        pendingChanges.acquire(maxPendingChanges);
+        pendingChanges.release(maxPendingChanges);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OStorageException("Data restore was interrupted", e);
+      }
+    }
+
+    checkFailure();
+  }
+
+  /**
+   * @return amount of page changes which were applied or reverted.
+   */
+  long getAppliedChanges() {
+    return appliedChanges.get();
+  }
+
+  int getThreads() {
+    return partitions == null ? 1 : partitions.length;
+  }
+
+  void shutdown() {
+    if (partitions == null)
+      return;
+
+    for (ExecutorService partition : partitions)
+      partition.shutdownNow();
+
+    try {
+      for (ExecutorService partition : partitions)
+        partition.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void submit(final OUpdatePageRecord updatePageRecord, final OLogSequenceNumber lsn, final boolean revert)
+      throws IOException {
+    checkFailure();
+
+    if (partitions == null) {
+      applyChanges(updatePageRecord, lsn, revert);
+      return;
+    }
+
+    final long hash = updatePageRecord.getFileId() * 31 + updatePageRecord.getPageIndex();
+    final ExecutorService partition = partitions[(int) ((hash & Long.MAX_VALUE) % partitions.length)];
+
+    try {
+      pendingChanges.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new OStorageException("Data restore was interrupted", e);
+    }
+
+    partition.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // CHANGES WHICH FOLLOW FAILED ONE ARE SKIPPED, RESTORE IS STOPPED BY READER
+          if (failure == null)
+            applyChanges(updatePageRecord, lsn, revert);
+        } catch (Throwable t) {
+          failure = t;
+        } finally {
+          pendingChanges.release();
+        }
+      }
+    });
+  }
+
+  private void applyChanges(final OUpdatePageRecord updatePageRecord, final OLogSequenceNumber lsn, final boolean revert)
+      throws IOException {
+    final OCacheEntry cacheEntry = diskCache.load(updatePageRecord.getFileId(), updatePageRecord.getPageIndex(), true);
+    final OCachePointer cachePointer = cacheEntry.getCachePointer();
+    cachePointer.acquireExclusiveLock();
+    try {
+      final ODurablePage durablePage = new ODurablePage(cachePointer.getDataPointer(), ODurablePage.TrackMode.NONE);
+      if (revert)
+        durablePage.revertChanges(updatePageRecord.getChanges());
+      else
+        durablePage.restoreChanges(updatePageRecord.getChanges());
+
+      durablePage.setLsn(lsn);
+
+      cacheEntry.markDirty();
+    } finally {
+      cachePointer.releaseExclusiveLock();
+      diskCache.release(cacheEntry);
+    }
+
+    appliedChanges.incrementAndGet();
+  }
+
+  private void checkFailure() throws IOException {
+    final Throwable t = failure;
+    if (t == null)
+      return;
+
+    if (t instanceof IOException)
+      throw (IOException) t;
+
+    if (t instanceof RuntimeException)
+      throw (RuntimeException) t;
+
+    if (t instanceof Error)
+      throw (Error) t;
+
+    throw new OStorageException("Error during data restore", t);
+  }
+}
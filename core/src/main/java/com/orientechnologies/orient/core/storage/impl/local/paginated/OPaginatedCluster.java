@@ -388,142 +388,114 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
 
   public OPhysicalPosition createRecord(byte[] content, final ORecordVersion recordVersion, final byte recordType)
       throws IOException {
+    // COMPRESS AND SPLIT RECORD BEFORE ANY LOCK IS ACQUIRED, SO CONCURRENT WRITERS WAIT FOR PAGE MODIFICATIONS ONLY
+    final List<byte[]> entryChunks = splitOnEntryChunks(compression.compress(content), recordType);
+
     externalModificationLock.requestModificationLock();
     try {
+      lockTillAtomicOperationCompletes();
       acquireExclusiveLock();
       try {
+        startAtomicOperation();
+        lockTillAtomicOperationCompletes();
 
-        content = compression.compress(content);
-
-        int grownContentSize = (int) (config.recordGrowFactor * content.length);
-        int entryContentLength = grownContentSize + 2 * OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE
-            + OLongSerializer.LONG_SIZE;
-
-        if (entryContentLength < OClusterPage.MAX_RECORD_SIZE) {
-          startAtomicOperation();
-          lockTillAtomicOperationCompletes();
-
-          byte[] entryContent = new byte[entryContentLength];
-
-          int entryPosition = 0;
-          entryContent[entryPosition] = recordType;
-          entryPosition++;
-
-          OIntegerSerializer.INSTANCE.serializeNative(content.length, entryContent, entryPosition);
-          entryPosition += OIntegerSerializer.INT_SIZE;
+        final ODurablePage.TrackMode trackMode = getTrackMode();
 
-          System.arraycopy(content, 0, entryContent, entryPosition, content.length);
-          entryPosition += grownContentSize;
+        long prevPageRecordPointer = -1;
+        long firstPageIndex = -1;
+        int firstPagePosition = -1;
 
-          entryContent[entryPosition] = 1;
-          entryPosition++;
+        ORecordVersion version = null;
 
-          OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryPosition);
-          ODurablePage.TrackMode trackMode = getTrackMode();
+        int recordsSizeDiff = 0;
 
+        for (byte[] entryContent : entryChunks) {
           final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent, trackMode);
+          recordsSizeDiff += addEntryResult.recordsSizeDiff;
 
-          updateClusterState(trackMode, 1, addEntryResult.recordsSizeDiff);
-
-          final OClusterPosition clusterPosition = clusterPositionMap.add(addEntryResult.pageIndex, addEntryResult.pagePosition);
-
-          endAtomicOperation(false);
-
-          return createPhysicalPosition(recordType, clusterPosition, addEntryResult.recordVersion);
-        } else {
-          startAtomicOperation();
-          lockTillAtomicOperationCompletes();
-
-          final OClusterPage.TrackMode trackMode = getTrackMode();
-
-          int entrySize = grownContentSize + OIntegerSerializer.INT_SIZE + OByteSerializer.BYTE_SIZE;
-
-          int fullEntryPosition = 0;
-          byte[] fullEntry = new byte[entrySize];
-
-          fullEntry[fullEntryPosition] = recordType;
-          fullEntryPosition++;
-
-          OIntegerSerializer.INSTANCE.serializeNative(content.length, fullEntry, fullEntryPosition);
-          fullEntryPosition += OIntegerSerializer.INT_SIZE;
+          if (firstPageIndex == -1) {
+            firstPageIndex = addEntryResult.pageIndex;
+            firstPagePosition = addEntryResult.pagePosition;
+            version = addEntryResult.recordVersion;
+          }
 
-          System.arraycopy(content, 0, fullEntry, fullEntryPosition, content.length);
+          long addedPagePointer = createPagePointer(addEntryResult.pageIndex, addEntryResult.pagePosition);
+          if (prevPageRecordPointer >= 0) {
+            long prevPageIndex = prevPageRecordPointer >>> PAGE_INDEX_OFFSET;
+            int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
 
-          long prevPageRecordPointer = -1;
-          long firstPageIndex = -1;
-          int firstPagePosition = -1;
+            final OCacheEntry prevPageCacheEntry = diskCache.load(fileId, prevPageIndex, false);
+            final OCachePointer prevPageMemoryPointer = prevPageCacheEntry.getCachePointer();
+            prevPageMemoryPointer.acquireExclusiveLock();
+            try {
+              final OClusterPage prevPage = new OClusterPage(prevPageMemoryPointer.getDataPointer(), false,
+                  ODurablePage.TrackMode.FULL);
+              prevPage.setRecordLongValue(prevPageRecordPosition, -OLongSerializer.LONG_SIZE, addedPagePointer);
 
-          ORecordVersion version = null;
+              logPageChanges(prevPage, fileId, prevPageIndex, false);
 
-          int from = 0;
-          int to = from + (OClusterPage.MAX_RECORD_SIZE - OByteSerializer.BYTE_SIZE - OLongSerializer.LONG_SIZE);
+              prevPageCacheEntry.markDirty();
+            } finally {
+              prevPageMemoryPointer.releaseExclusiveLock();
+              diskCache.release(prevPageCacheEntry);
+            }
+          }
 
-          int recordsSizeDiff = 0;
+          prevPageRecordPointer = addedPagePointer;
+        }
 
-          do {
-            byte[] entryContent = new byte[to - from + OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE];
-            System.arraycopy(fullEntry, from, entryContent, 0, to - from);
+        updateClusterState(trackMode, 1, recordsSizeDiff);
 
-            if (from > 0)
-              entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 0;
-            else
-              entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = 1;
+        final OClusterPosition clusterPosition = clusterPositionMap.add(firstPageIndex, firstPagePosition);
 
-            OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
+        endAtomicOperation(false);
 
-            final AddEntryResult addEntryResult = addEntry(recordVersion, entryContent, trackMode);
-            recordsSizeDiff += addEntryResult.recordsSizeDiff;
+        return createPhysicalPosition(recordType, clusterPosition, version);
+      } finally {
+        releaseExclusiveLock();
+      }
+    } finally {
+      externalModificationLock.releaseModificationLock();
+    }
+  }
 
-            if (firstPageIndex == -1) {
-              firstPageIndex = addEntryResult.pageIndex;
-              firstPagePosition = addEntryResult.pagePosition;
-              version = addEntryResult.recordVersion;
-            }
+  /**
+   * Splits record content on entries which fit into cluster page. Every entry is ended by flag which indicates whether it is the
+   * first entry of record and by pointer to the next entry which is filled during insertion.
+   */
+  private List<byte[]> splitOnEntryChunks(final byte[] content, final byte recordType) {
+    final int grownContentSize = (int) (config.recordGrowFactor * content.length);
+    final byte[] fullEntry = new byte[grownContentSize + OIntegerSerializer.INT_SIZE + OByteSerializer.BYTE_SIZE];
 
-            long addedPagePointer = createPagePointer(addEntryResult.pageIndex, addEntryResult.pagePosition);
-            if (prevPageRecordPointer >= 0) {
-              long prevPageIndex = prevPageRecordPointer >>> PAGE_INDEX_OFFSET;
-              int prevPageRecordPosition = (int) (prevPageRecordPointer & RECORD_POSITION_MASK);
+    int fullEntryPosition = 0;
+    fullEntry[fullEntryPosition] = recordType;
+    fullEntryPosition++;
 
-              final OCacheEntry prevPageCacheEntry = diskCache.load(fileId, prevPageIndex, false);
-              final OCachePointer prevPageMemoryPointer = prevPageCacheEntry.getCachePointer();
-              prevPageMemoryPointer.acquireExclusiveLock();
-              try {
-                final OClusterPage prevPage = new OClusterPage(prevPageMemoryPointer.getDataPointer(), false,
-                    ODurablePage.TrackMode.FULL);
-                prevPage.setRecordLongValue(prevPageRecordPosition, -OLongSerializer.LONG_SIZE, addedPagePointer);
+    OIntegerSerializer.INSTANCE.serializeNative(content.length, fullEntry, fullEntryPosition);
+    fullEntryPosition += OIntegerSerializer.INT_SIZE;
 
-                logPageChanges(prevPage, fileId, prevPageIndex, false);
+    System.arraycopy(content, 0, fullEntry, fullEntryPosition, content.length);
 
-                prevPageCacheEntry.markDirty();
-              } finally {
-                prevPageMemoryPointer.releaseExclusiveLock();
-                diskCache.release(prevPageCacheEntry);
-              }
-            }
+    final int maxChunkSize = OClusterPage.MAX_RECORD_SIZE - OByteSerializer.BYTE_SIZE - OLongSerializer.LONG_SIZE;
+    final List<byte[]> entryChunks = new ArrayList<byte[]>();
 
-            prevPageRecordPointer = addedPagePointer;
-            from = to;
-            to = to + (OClusterPage.MAX_RECORD_SIZE - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE);
-            if (to > fullEntry.length)
-              to = fullEntry.length;
+    int from = 0;
+    int to = Math.min(maxChunkSize, fullEntry.length);
 
-          } while (from < to);
+    do {
+      final byte[] entryContent = new byte[to - from + OByteSerializer.BYTE_SIZE + OLongSerializer.LONG_SIZE];
+      System.arraycopy(fullEntry, from, entryContent, 0, to - from);
 
-          updateClusterState(trackMode, 1, recordsSizeDiff);
+      entryContent[entryContent.length - OLongSerializer.LONG_SIZE - OByteSerializer.BYTE_SIZE] = from > 0 ? (byte) 0 : (byte) 1;
+      OLongSerializer.INSTANCE.serializeNative(-1L, entryContent, entryContent.length - OLongSerializer.LONG_SIZE);
 
-          OClusterPosition clusterPosition = clusterPositionMap.add(firstPageIndex, firstPagePosition);
+      entryChunks.add(entryContent);
 
-          endAtomicOperation(false);
+      from = to;
+      to = Math.min(to + maxChunkSize, fullEntry.length);
+    } while (from < to);
 
-          return createPhysicalPosition(recordType, clusterPosition, version);
-        }
-      } finally {
-        releaseExclusiveLock();
-      }
-    } finally {
-      externalModificationLock.releaseModificationLock();
-    }
+    return entryChunks;
   }
 
   private long createPagePointer(long pageIndex, int pagePosition) {
@@ -665,6 +637,7 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
   public boolean deleteRecord(OClusterPosition clusterPosition) throws IOException {
     externalModificationLock.requestModificationLock();
     try {
+      lockTillAtomicOperationCompletes();
       acquireExclusiveLock();
       try {
         OClusterPositionMapBucket.PositionEntry positionEntry = clusterPositionMap.get(clusterPosition);
@@ -739,8 +712,11 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
 
   public void updateRecord(OClusterPosition clusterPosition, byte[] content, final ORecordVersion recordVersion,
       final byte recordType) throws IOException {
+    content = compression.compress(content);
+
     externalModificationLock.requestModificationLock();
     try {
+      lockTillAtomicOperationCompletes();
       acquireExclusiveLock();
       try {
         OClusterPositionMapBucket.PositionEntry positionEntry = clusterPositionMap.get(clusterPosition);
@@ -753,8 +729,6 @@ public class OPaginatedCluster extends ODurableComponent implements OCluster {
         if (fullEntryContent == null)
           return;
 
-        content = compression.compress(content);
-
         int updatedContentLength = content.length + 2 * OByteSerializer.BYTE_SIZE + OIntegerSerializer.INT_SIZE
             + OLongSerializer.LONG_SIZE;
 
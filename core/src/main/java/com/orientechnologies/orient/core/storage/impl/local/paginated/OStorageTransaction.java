@@ -15,6 +15,10 @@
  */
 package com.orientechnologies.orient.core.storage.impl.local.paginated;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OLogSequenceNumber;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OOperationUnitId;
 import com.orientechnologies.orient.core.tx.OTransaction;
@@ -25,6 +29,7 @@ import com.orientechnologies.orient.core.tx.OTransaction;
  */
 public class OStorageTransaction {
   private final OTransaction clientTx;
+  private final Set<ORID>    lockedRecords = new HashSet<ORID>();
 
   public OStorageTransaction(OTransaction clientTx) {
     this.clientTx = clientTx;
@@ -33,4 +38,22 @@ public class OStorageTransaction {
   public OTransaction getClientTx() {
     return clientTx;
   }
+
+  /**
+   * Registers record which is locked till the end of transaction.
+   *
+   * @return <code>true</code> if record was not registered yet, so its lock should be acquired.
+   */
+  public boolean addLockedRecord(ORID rid) {
+    return lockedRecords.add(rid);
+  }
+
+  /**
+   * @return records which are locked till the end of transaction, registry is cleared by this call.
+   */
+  public Set<ORID> removeLockedRecords() {
+    final Set<ORID> records = new HashSet<ORID>(lockedRecords);
+    lockedRecords.clear();
+    return records;
+  }
 }
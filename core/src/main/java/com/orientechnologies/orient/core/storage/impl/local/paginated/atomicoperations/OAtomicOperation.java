@@ -31,6 +31,7 @@ import java.util.concurrent.locks.Lock;
 public class OAtomicOperation {
   private final OLogSequenceNumber startLSN;
   private final OOperationUnitId   operationUnitId;
+  private OLogSequenceNumber       endLSN;
 
   private int                      startCounter;
   private boolean                  rollback;
@@ -51,6 +52,17 @@ public class OAtomicOperation {
     return operationUnitId;
   }
 
+  /**
+   * @return LSN of the record which ends this operation, or <code>null</code> if operation is not completed yet.
+   */
+  public OLogSequenceNumber getEndLSN() {
+    return endLSN;
+  }
+
+  void setEndLSN(OLogSequenceNumber endLSN) {
+    this.endLSN = endLSN;
+  }
+
   void incrementCounter() {
     startCounter++;
   }
@@ -64,7 +76,7 @@ public class OAtomicOperation {
     rollback = true;
   }
 
-  boolean isRollback() {
+  public boolean isRollback() {
     return rollback;
   }
 
@@ -20,7 +20,10 @@ import com.orientechnologies.common.concur.lock.OLockManager;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.*;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * @author Andrey Lomakin <a href="mailto:lomakin.andrey@gmail.com">Andrey Lomakin</a>
@@ -32,6 +35,13 @@ public class OAtomicOperationsManager {
   private final OLockManager<Object, OAtomicOperationsManager> lockManager      = new OLockManager<Object, OAtomicOperationsManager>(
                                                                                     true, 300000);
 
+  /**
+   * Start LSNs of atomic operations which are not completed yet.
+   */
+  private final ConcurrentSkipListMap<OLogSequenceNumber, OOperationUnitId> activeOperations = new ConcurrentSkipListMap<OLogSequenceNumber, OOperationUnitId>();
+
+  private final ReadWriteLock                                              checkpointLock   = new ReentrantReadWriteLock();
+
   public OAtomicOperationsManager(OWriteAheadLog writeAheadLog) {
     this.writeAheadLog = writeAheadLog;
   }
@@ -47,7 +57,15 @@ public class OAtomicOperationsManager {
     }
 
     final OOperationUnitId unitId = OOperationUnitId.generateId();
-    final OLogSequenceNumber lsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+    final OLogSequenceNumber lsn;
+
+    checkpointLock.readLock().lock();
+    try {
+      lsn = writeAheadLog.log(new OAtomicUnitStartRecord(true, unitId));
+      activeOperations.put(lsn, unitId);
+    } finally {
+      checkpointLock.readLock().unlock();
+    }
 
     operation = new OAtomicOperation(lsn, unitId);
     currentOperation.set(operation);
@@ -60,6 +78,15 @@ public class OAtomicOperationsManager {
   }
 
   public OAtomicOperation endAtomicOperation(boolean rollback) throws IOException {
+    return endAtomicOperation(rollback, true);
+  }
+
+  /**
+   * Ends current atomic operation. If <code>releaseLocks</code> is <code>false</code> objects locked by operation are kept
+   * locked, so changes of rolled back operation can be reverted before they are seen by other operations. In such case locks
+   * should be released by {@link #releaseLocks(OAtomicOperation)} call.
+   */
+  public OAtomicOperation endAtomicOperation(boolean rollback, boolean releaseLocks) throws IOException {
     if (writeAheadLog == null)
       return null;
 
@@ -76,17 +103,60 @@ public class OAtomicOperationsManager {
     assert counter >= 0;
 
     if (counter == 0) {
-      for (Object lockObject : operation.lockedObjects())
-        lockManager.releaseLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
+      if (releaseLocks)
+        releaseLockedObjects(operation);
+
+      operation.setEndLSN(writeAheadLog.log(new OAtomicUnitEndRecord(operation.getOperationUnitId(), rollback)));
+
+      // RECORDS OF OPERATION ARE READ DURING ITS ROLLBACK, SO THEY ARE KEPT IN LOG TILL LOCKS ARE RELEASED
+      if (releaseLocks)
+        activeOperations.remove(operation.getStartLSN());
 
-      writeAheadLog.log(new OAtomicUnitEndRecord(operation.getOperationUnitId(), rollback));
       currentOperation.set(null);
     }
 
     return operation;
   }
 
+  /**
+   * Logs start of fuzzy checkpoint together with LSN of the oldest atomic operation which is not completed yet. New operations
+   * are not started while record is logged, so every operation which was started before the checkpoint is taken into account.
+   *
+   * @return LSN of checkpoint start record.
+   */
+  public OLogSequenceNumber logFuzzyCheckpointStart() throws IOException {
+    checkpointLock.writeLock().lock();
+    try {
+      final Map.Entry<OLogSequenceNumber, OOperationUnitId> oldestOperation = activeOperations.firstEntry();
+      return writeAheadLog.logFuzzyCheckPointStart(oldestOperation != null ? oldestOperation.getKey() : null);
+    } finally {
+      checkpointLock.writeLock().unlock();
+    }
+  }
+
+  public void releaseLocks(OAtomicOperation operation) {
+    releaseLockedObjects(operation);
+    activeOperations.remove(operation.getStartLSN());
+  }
+
+  private void releaseLockedObjects(OAtomicOperation operation) {
+    for (Object lockObject : operation.lockedObjects())
+      lockManager.releaseLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
+  }
+
   public void lockTillOperationComplete(Object lockObject) {
+    lockTillOperationComplete(lockObject, 0);
+  }
+
+  /**
+   * Locks object till the end of current atomic operation waiting for the lock no longer than passed in timeout.
+   *
+   * @param timeout
+   *          maximum time to wait for the lock in milliseconds, 0 means default timeout of operation locks.
+   * @throws com.orientechnologies.common.concur.lock.OLockException
+   *           if lock is not acquired in time.
+   */
+  public void lockTillOperationComplete(Object lockObject, long timeout) {
     final OAtomicOperation operation = currentOperation.get();
     if (operation == null)
       return;
@@ -94,7 +164,10 @@ public class OAtomicOperationsManager {
     if (operation.containsInLockedObjects(lockObject))
       return;
 
-    lockManager.acquireLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
+    if (timeout > 0)
+      lockManager.acquireLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE, timeout);
+    else
+      lockManager.acquireLock(this, lockObject, OLockManager.LOCK.EXCLUSIVE);
     operation.addLockedObject(lockObject);
   }
 }
@@ -81,7 +81,14 @@ public abstract class ODurableComponent extends OSharedResourceAdaptive {
   }
 
   protected void lockTillAtomicOperationCompletes() {
-    atomicOperationsManager.lockTillOperationComplete(this);
+    atomicOperationsManager.lockTillOperationComplete(getAtomicOperationLockObject());
+  }
+
+  /**
+   * @return object which is locked till the end of atomic operation which modifies this component.
+   */
+  protected Object getAtomicOperationLockObject() {
+    return this;
   }
 
   protected ODurablePage.TrackMode getTrackMode() {
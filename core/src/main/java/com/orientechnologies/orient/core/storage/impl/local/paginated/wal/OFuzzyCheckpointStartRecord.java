@@ -16,6 +16,8 @@
 
 package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+
 /**
  * @author Andrey Lomakin
  * @since 30.04.13
@@ -23,6 +25,11 @@ package com.orientechnologies.orient.core.storage.impl.local.paginated.wal;
 public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord {
   private OLogSequenceNumber lsn;
 
+  /**
+   * LSN of the oldest atomic operation which was not completed when checkpoint was started.
+   */
+  private OLogSequenceNumber oldestOperationLsn;
+
   public OFuzzyCheckpointStartRecord() {
   }
 
@@ -30,6 +37,11 @@ public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord
     super(previousCheckpoint);
   }
 
+  public OFuzzyCheckpointStartRecord(OLogSequenceNumber previousCheckpoint, OLogSequenceNumber oldestOperationLsn) {
+    super(previousCheckpoint);
+    this.oldestOperationLsn = oldestOperationLsn;
+  }
+
   @Override
   public OLogSequenceNumber getLsn() {
     return lsn;
@@ -40,6 +52,63 @@ public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord
     this.lsn = lsn;
   }
 
+  public OLogSequenceNumber getOldestOperationLsn() {
+    return oldestOperationLsn;
+  }
+
+  @Override
+  public int toStream(byte[] content, int offset) {
+    offset = super.toStream(content, offset);
+
+    if (oldestOperationLsn == null) {
+      content[offset] = 0;
+      offset++;
+      return offset;
+    }
+
+    content[offset] = 1;
+    offset++;
+
+    OLongSerializer.INSTANCE.serializeNative(oldestOperationLsn.getSegment(), content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    OLongSerializer.INSTANCE.serializeNative(oldestOperationLsn.getPosition(), content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    return offset;
+  }
+
+  @Override
+  public int fromStream(byte[] content, int offset) {
+    offset = super.fromStream(content, offset);
+
+    // RECORDS OF PREVIOUS VERSIONS DO NOT CONTAIN LSN OF THE OLDEST OPERATION
+    if (offset >= content.length || content[offset] == 0) {
+      offset++;
+      return offset;
+    }
+
+    offset++;
+
+    final long segment = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    final long position = OLongSerializer.INSTANCE.deserializeNative(content, offset);
+    offset += OLongSerializer.LONG_SIZE;
+
+    oldestOperationLsn = new OLogSequenceNumber(segment, position);
+
+    return offset;
+  }
+
+  @Override
+  public int serializedSize() {
+    if (oldestOperationLsn == null)
+      return super.serializedSize() + 1;
+
+    return super.serializedSize() + 2 * OLongSerializer.LONG_SIZE + 1;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o)
@@ -51,6 +120,6 @@ public class OFuzzyCheckpointStartRecord extends OAbstractCheckPointStartRecord
 
   @Override
   public String toString() {
-    return "OFuzzyCheckpointStartRecord{" + "lsn=" + lsn + "} " + super.toString();
+    return "OFuzzyCheckpointStartRecord{" + "lsn=" + lsn + ", oldestOperationLsn=" + oldestOperationLsn + "} " + super.toString();
   }
 }
@@ -20,10 +20,17 @@ import java.io.*;
 import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.CRC32;
 
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.log.OLogManager;
+import com.orientechnologies.common.profiler.OAbstractProfiler.OProfilerHookValue;
+import com.orientechnologies.common.profiler.OProfilerMBean;
+import com.orientechnologies.common.profiler.OProfilerMBean.METRIC_TYPE;
+import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
@@ -71,6 +78,22 @@ public class OWriteAheadLog {
 
   private boolean                     closed;
 
+  private final Lock                  groupCommitLock         = new ReentrantLock();
+  private final Condition             flushRequested          = groupCommitLock.newCondition();
+  private final Condition             commitFlushed           = groupCommitLock.newCondition();
+
+  private Thread                      groupCommitThread;
+  private boolean                     groupCommitStopped;
+  private int                         waitingCommitters;
+
+  /**
+   * Number of flushes started by group commit thread, number of the last of them which failed and its error.
+   */
+  private long                        groupCommitFlushes;
+  private long                        failedGroupCommitFlush;
+  private Throwable                   groupCommitError;
+  private volatile int                lastBatchSize;
+
   private static String calculateWalPath(OStorageLocalAbstract storage) {
     String walPath = OGlobalConfiguration.WAL_LOCATION.getValueAsString();
     if (walPath == null)
@@ -208,6 +231,124 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * Blocks till all records up to and including the record with passed in LSN are flushed to the disk.
+   *
+   * Committers which call this method concurrently are served by the single group commit thread, which flushes (and fsyncs if
+   * {@link OGlobalConfiguration#WAL_SYNC_ON_PAGE_FLUSH} is set) all records logged so far once per batch of waiting committers,
+   * so cost of a single flush is shared between all transactions which were committed while previous flush was in progress.
+   *
+   * If flush performed by group commit thread fails, only committers which wait for it get an exception. Group commit keeps
+   * running and the next batch of committers retries the flush.
+   *
+   * @param lsn
+   *          LSN of the last record which should become durable.
+   */
+  public void flushTill(OLogSequenceNumber lsn) {
+    if (isFlushed(lsn))
+      return;
+
+    groupCommitLock.lock();
+    try {
+      checkForClose();
+      startGroupCommitIfNeeded();
+
+      // RECORD IS ALREADY LOGGED, SO IT IS WRITTEN BY ANY FLUSH WHICH IS STARTED AFTER THIS POINT
+      final long flushesBefore = groupCommitFlushes;
+
+      waitingCommitters++;
+      try {
+        flushRequested.signal();
+
+        while (!isFlushed(lsn)) {
+          if (failedGroupCommitFlush > flushesBefore)
+            throw new OStorageException("Error during WAL group commit, record with LSN " + lsn + " was not flushed",
+                groupCommitError);
+
+          if (groupCommitStopped)
+            throw new OStorageException("WAL log " + walLocation + " has been closed");
+
+          commitFlushed.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new OStorageException("Thread was interrupted during waiting of WAL flush", e);
+      } finally {
+        waitingCommitters--;
+      }
+    } finally {
+      groupCommitLock.unlock();
+    }
+  }
+
+  private boolean isFlushed(OLogSequenceNumber lsn) {
+    final OLogSequenceNumber flushed = flushedLsn;
+    return flushed != null && flushed.compareTo(lsn) >= 0;
+  }
+
+  private void startGroupCommitIfNeeded() {
+    if (groupCommitThread != null)
+      return;
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.registerHookValue(profiler.getDatabaseMetric(storage.getName(), "wal.groupCommit.lastBatchSize"),
+        "Amount of transactions which were made durable by last WAL group commit", METRIC_TYPE.SIZE, new OProfilerHookValue() {
+          @Override
+          public Object getValue() {
+            return lastBatchSize;
+          }
+        }, profiler.getDatabaseMetric(null, "wal.groupCommit.lastBatchSize"));
+
+    groupCommitThread = new Thread(new GroupCommitTask());
+    groupCommitThread.setDaemon(true);
+    groupCommitThread.setName("WAL Group Commit Task (" + storage.getName() + ")");
+    groupCommitThread.start();
+  }
+
+  private void stopGroupCommit() {
+    final Thread thread;
+
+    groupCommitLock.lock();
+    try {
+      thread = groupCommitThread;
+      if (thread == null || groupCommitStopped)
+        return;
+
+      groupCommitStopped = true;
+      flushRequested.signal();
+      commitFlushed.signalAll();
+    } finally {
+      groupCommitLock.unlock();
+    }
+
+    try {
+      thread.join(OGlobalConfiguration.WAL_SHUTDOWN_TIMEOUT.getValueAsInteger());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      OLogManager.instance().error(this, "Can not stop WAL group commit thread.");
+    }
+
+    final OProfilerMBean profiler = Orient.instance().getProfiler();
+    profiler.unregisterHookValue(profiler.getDatabaseMetric(storage.getName(), "wal.groupCommit.lastBatchSize"));
+  }
+
+  /**
+   * Writes (and fsyncs) records logged so far. Only the last segment is taken under the log monitor, pages are written outside of
+   * it, so records are appended to the log while flush is in progress and form the next group commit batch.
+   */
+  private void flushForGroupCommit() {
+    final LogSegment last;
+    synchronized (syncObject) {
+      if (closed)
+        return;
+
+      last = logSegments.get(logSegments.size() - 1);
+      last.flushNewData = true;
+    }
+
+    last.flush();
+  }
+
   private void fixMasterRecords() throws IOException {
     if (firstMasterRecord != null) {
       int index = (int) (firstMasterRecord.getSegment() - logSegments.get(0).getOrder());
@@ -297,10 +438,20 @@ public class OWriteAheadLog {
   }
 
   public OLogSequenceNumber logFuzzyCheckPointStart() throws IOException {
+    return logFuzzyCheckPointStart(null);
+  }
+
+  /**
+   * Logs start of fuzzy checkpoint.
+   *
+   * @param oldestOperationLsn
+   *          LSN of the oldest atomic operation which is not completed yet, restore should not start after it.
+   */
+  public OLogSequenceNumber logFuzzyCheckPointStart(OLogSequenceNumber oldestOperationLsn) throws IOException {
     synchronized (syncObject) {
       checkForClose();
 
-      OFuzzyCheckpointStartRecord record = new OFuzzyCheckpointStartRecord(lastCheckpoint);
+      OFuzzyCheckpointStartRecord record = new OFuzzyCheckpointStartRecord(lastCheckpoint, oldestOperationLsn);
       log(record);
       return record.getLsn();
     }
@@ -376,6 +527,71 @@ public class OWriteAheadLog {
     }
   }
 
+  /**
+   * @return amount of bytes which are logged after record with passed in LSN, or size of whole log if this record is already
+   *         removed.
+   */
+  public long sizeFrom(OLogSequenceNumber lsn) throws IOException {
+    synchronized (syncObject) {
+      checkForClose();
+
+      long size = 0;
+      for (LogSegment logSegment : logSegments) {
+        if (logSegment.getOrder() > lsn.getSegment())
+          size += logSegment.filledUpTo();
+        else if (logSegment.getOrder() == lsn.getSegment())
+          size += Math.max(0, logSegment.filledUpTo() - lsn.getPosition());
+      }
+
+      return size;
+    }
+  }
+
+  /**
+   * @return position in log which precedes its end by passed in amount of bytes, it is not necessarily position of a record, so
+   *         it should be used only for comparison with LSNs of records.
+   */
+  public OLogSequenceNumber positionBeforeEnd(long size) throws IOException {
+    synchronized (syncObject) {
+      checkForClose();
+
+      for (int i = logSegments.size() - 1; i >= 0; i--) {
+        final LogSegment logSegment = logSegments.get(i);
+        final long filledUpTo = logSegment.filledUpTo();
+        if (size <= filledUpTo)
+          return new OLogSequenceNumber(logSegment.getOrder(), filledUpTo - size);
+
+        size -= filledUpTo;
+      }
+
+      return new OLogSequenceNumber(logSegments.get(0).getOrder(), 0);
+    }
+  }
+
+  /**
+   * Removes log segments which contain only records preceding passed in LSN. The last segment is never removed.
+   */
+  public void cutTill(OLogSequenceNumber lsn) throws IOException {
+    synchronized (syncObject) {
+      checkForClose();
+
+      boolean removed = false;
+      while (logSegments.size() > 1 && logSegments.get(0).getOrder() < lsn.getSegment()) {
+        final LogSegment first = logSegments.get(0);
+        first.stopFlush(false);
+
+        logSize -= first.filledUpTo();
+
+        first.delete(false);
+        logSegments.remove(0);
+        removed = true;
+      }
+
+      if (removed)
+        fixMasterRecords();
+    }
+  }
+
   public void truncate() throws IOException {
     synchronized (syncObject) {
       if (logSegments.size() < 2)
@@ -395,6 +611,11 @@ public class OWriteAheadLog {
   }
 
   public void close(boolean flush) throws IOException {
+    if (flush)
+      flushForGroupCommit();
+
+    stopGroupCommit();
+
     synchronized (syncObject) {
       if (closed)
         return;
@@ -419,6 +640,8 @@ public class OWriteAheadLog {
   }
 
   public void delete(boolean flush) throws IOException {
+    stopGroupCommit();
+
     synchronized (syncObject) {
       close(flush);
 
@@ -554,6 +777,76 @@ public class OWriteAheadLog {
     }
   }
 
+  private final class GroupCommitTask implements Runnable {
+    @Override
+    public void run() {
+      final OProfilerMBean profiler = Orient.instance().getProfiler();
+      final String storageName = storage.getName();
+
+      while (true) {
+        final int batchSize;
+        final long flush;
+
+        groupCommitLock.lock();
+        try {
+          while (waitingCommitters == 0 && !groupCommitStopped)
+            flushRequested.await();
+
+          if (groupCommitStopped)
+            return;
+
+          batchSize = waitingCommitters;
+          flush = ++groupCommitFlushes;
+        } catch (InterruptedException e) {
+          OLogManager.instance().error(this, "WAL group commit thread was interrupted.");
+          return;
+        } finally {
+          groupCommitLock.unlock();
+        }
+
+        final long startTime = profiler.startChrono();
+        try {
+          flushForGroupCommit();
+        } catch (Throwable e) {
+          // ONLY COMMITTERS OF THIS BATCH FAIL, NEXT BATCH TRIES TO FLUSH THE LOG AGAIN
+          OLogManager.instance().error(this, "Error during WAL group commit, %d transaction(s) of the batch are not durable", e,
+              batchSize);
+          if (profiler.isRecording())
+            profiler.updateCounter(profiler.getDatabaseMetric(storageName, "wal.groupCommit.errors"),
+                "Amount of WAL flushes performed by group commit which failed", +1, "db.*.wal.groupCommit.errors");
+
+          groupCommitLock.lock();
+          try {
+            groupCommitError = e;
+            failedGroupCommitFlush = flush;
+            commitFlushed.signalAll();
+          } finally {
+            groupCommitLock.unlock();
+          }
+          continue;
+        }
+
+        if (profiler.isRecording()) {
+          profiler.stopChrono(profiler.getDatabaseMetric(storageName, "wal.groupCommit.flush"),
+              "Time spent on WAL flush performed by group commit", startTime, "db.*.wal.groupCommit.flush");
+          profiler.updateCounter(profiler.getDatabaseMetric(storageName, "wal.groupCommit.batches"),
+              "Amount of WAL flushes performed by group commit", +1, "db.*.wal.groupCommit.batches");
+          profiler.updateCounter(profiler.getDatabaseMetric(storageName, "wal.groupCommit.committers"),
+              "Amount of transactions made durable by WAL group commit", batchSize, "db.*.wal.groupCommit.committers");
+        }
+
+        lastBatchSize = batchSize;
+
+        groupCommitLock.lock();
+        try {
+          commitFlushed.signalAll();
+        } finally {
+          groupCommitLock.unlock();
+        }
+      }
+    }
+  }
+
   private final class LogSegment implements Comparable<LogSegment> {
     private final RandomAccessFile                rndFile;
     private final File                            file;
@@ -584,6 +877,12 @@ public class OWriteAheadLog {
 
     private volatile boolean                      flushNewData   = true;
 
+    /**
+     * Serializes flushes of the segment, they are requested by background task, by group commit outside of the log monitor and
+     * by close of the segment.
+     */
+    private final Object                          flushLock      = new Object();
+
     private LogSegment(File file, int maxPagesCacheSize) throws IOException {
       this.file = file;
       this.maxPagesCacheSize = maxPagesCacheSize;
@@ -599,18 +898,20 @@ public class OWriteAheadLog {
     }
 
     public void stopFlush(boolean flush) {
-      if (flush)
-        flush();
-
-      if (!commitExecutor.isShutdown()) {
-        commitExecutor.shutdown();
-        try {
-          if (!commitExecutor
-              .awaitTermination(OGlobalConfiguration.WAL_SHUTDOWN_TIMEOUT.getValueAsInteger(), TimeUnit.MILLISECONDS))
-            throw new OStorageException("WAL flush task for " + getPath() + " segment can not be stopped.");
-
-        } catch (InterruptedException e) {
-          OLogManager.instance().error(this, "Can not shutdown background WAL commit thread.");
+      try {
+        if (flush)
+          flush();
+      } finally {
+        if (!commitExecutor.isShutdown()) {
+          commitExecutor.shutdown();
+          try {
+            if (!commitExecutor.awaitTermination(OGlobalConfiguration.WAL_SHUTDOWN_TIMEOUT.getValueAsInteger(),
+                TimeUnit.MILLISECONDS))
+              throw new OStorageException("WAL flush task for " + getPath() + " segment can not be stopped.");
+
+          } catch (InterruptedException e) {
+            OLogManager.instance().error(this, "Can not shutdown background WAL commit thread.");
+          }
         }
       }
     }
@@ -889,18 +1190,22 @@ public class OWriteAheadLog {
 
     public void close(boolean flush) throws IOException {
       if (!closed) {
-        stopFlush(flush);
+        try {
+          stopFlush(flush);
+        } finally {
+          synchronized (flushLock) {
+            rndFile.close();
 
-        rndFile.close();
+            closed = true;
 
-        closed = true;
+            if (!pagesCache.isEmpty()) {
+              for (OWALPage page : pagesCache)
+                page.getPagePointer().free();
+            }
 
-        if (!pagesCache.isEmpty()) {
-          for (OWALPage page : pagesCache)
-            page.getPagePointer().free();
+            currentPage = null;
+          }
         }
-
-        currentPage = null;
       }
     }
 
@@ -930,19 +1235,27 @@ public class OWriteAheadLog {
     public void flush() {
       if (!commitExecutor.isShutdown()) {
         try {
-          commitExecutor.submit(new FlushTask()).get();
+          commitExecutor.submit((Callable<Void>) new FlushTask()).get();
         } catch (InterruptedException e) {
           Thread.interrupted();
           throw new OStorageException("Thread was interrupted during flush", e);
         } catch (ExecutionException e) {
-          throw new OStorageException("Error during WAL segment " + getPath() + " flush.");
+          throw new OStorageException("Error during WAL segment " + getPath() + " flush.", e.getCause());
         }
       } else {
-        new FlushTask().run();
+        try {
+          new FlushTask().call();
+        } catch (IOException e) {
+          throw new OStorageException("Error during WAL segment " + getPath() + " flush.", e);
+        }
       }
     }
 
-    private final class FlushTask implements Runnable {
+    /**
+     * Writes cached pages of segment. Errors of periodical background flush are logged, errors of flush requested by caller are
+     * rethrown to it.
+     */
+    private final class FlushTask implements Runnable, Callable<Void> {
       private FlushTask() {
       }
 
@@ -955,7 +1268,22 @@ public class OWriteAheadLog {
         }
       }
 
+      @Override
+      public Void call() throws IOException {
+        commit();
+        return null;
+      }
+
       private void commit() throws IOException {
+        synchronized (flushLock) {
+          if (closed)
+            return;
+
+          commitPages();
+        }
+      }
+
+      private void commitPages() throws IOException {
         if (pagesCache.isEmpty())
           return;
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli(at)orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.orientechnologies.orient.core.tx;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+
+/**
+ * Counts transactions of a storage which are begun but not completed yet. Transactions are counted by epochs: beginning and
+ * completion of transaction only change counter of its epoch, so they never lock. A waiter starts new epoch and waits till
+ * counters of previous epochs drop to zero, only then completed transactions notify the waiter.
+ */
+public class OActiveTransactions {
+  private final AtomicReference<Epoch> currentEpoch = new AtomicReference<Epoch>(new Epoch(null));
+
+  public static final class Epoch {
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean    closed;
+    private volatile Epoch      previous;
+
+    private Epoch(Epoch previous) {
+      this.previous = previous;
+    }
+
+    /**
+     * Marks transaction of this epoch as completed.
+     */
+    public void complete() {
+      if (active.decrementAndGet() == 0 && closed)
+        synchronized (this) {
+          notifyAll();
+        }
+    }
+
+    private void await(long deadline, long timeout) throws InterruptedException {
+      synchronized (this) {
+        while (active.get() > 0) {
+          final long timeLeft = deadline - System.currentTimeMillis();
+          if (timeLeft <= 0)
+            throw new OTimeoutException(active.get() + " transaction(s) which were begun before the call are not completed in "
+                + timeout + " ms");
+
+          wait(timeLeft);
+        }
+      }
+    }
+  }
+
+  /**
+   * Registers begun transaction.
+   *
+   * @return epoch of transaction which should be completed once transaction is committed, rolled back or closed.
+   */
+  public Epoch begin() {
+    final Epoch epoch = currentEpoch.get();
+    epoch.active.incrementAndGet();
+    return epoch;
+  }
+
+  /**
+   * Waits till transactions which are begun before the call are completed. Transactions which are begun later are not waited for.
+   *
+   * @throws OTimeoutException
+   *           if transactions are not completed in <code>iTimeout</code> milliseconds.
+   */
+  public void waitForCompletion(final long iTimeout) throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + iTimeout;
+
+    Epoch epoch = currentEpoch.get();
+    while (!currentEpoch.compareAndSet(epoch, new Epoch(epoch)))
+      epoch = currentEpoch.get();
+
+    final Epoch lastEpoch = epoch;
+    while (epoch != null) {
+      epoch.closed = true;
+      epoch.await(deadline, iTimeout);
+      epoch = epoch.previous;
+    }
+
+    // ALL EPOCHS BEFORE THE LAST ONE ARE COMPLETED, SO THEY ARE NOT WAITED FOR ANY MORE
+    lastEpoch.previous = null;
+  }
+}
@@ -26,6 +26,7 @@ import com.orientechnologies.orient.core.db.record.ODatabaseRecordTx;
 import com.orientechnologies.orient.core.db.record.ORecordOperation;
 import com.orientechnologies.orient.core.engine.local.OEngineLocal;
 import com.orientechnologies.orient.core.engine.local.OEngineLocalPaginated;
+import com.orientechnologies.orient.core.exception.OCommitDurabilityException;
 import com.orientechnologies.orient.core.exception.ODatabaseException;
 import com.orientechnologies.orient.core.hook.ORecordHook.TYPE;
 import com.orientechnologies.orient.core.id.OClusterPositionFactory;
@@ -54,6 +55,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -64,19 +66,77 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
   private static AtomicInteger txSerial    = new AtomicInteger();
   private int                  autoRetries = OGlobalConfiguration.TX_AUTO_RETRY.getValueAsInteger();
 
+  /**
+   * Epoch of active transactions of the storage this transaction is registered in, <code>null</code> if transaction is not
+   * active.
+   */
+  private OActiveTransactions.Epoch activeEpoch;
+
   public OTransactionOptimistic(final ODatabaseRecordTx iDatabase) {
     super(iDatabase, txSerial.incrementAndGet());
     usingLog = OGlobalConfiguration.TX_USE_LOG.getValueAsBoolean();
   }
 
+  /**
+   * Waits till transactions of the storage which are active at the moment of the call are completed. Transactions which are begun
+   * later are not waited for.
+   * 
+   * @throws OTimeoutException
+   *           if transactions are not completed in <code>iTimeout</code> milliseconds.
+   */
+  public static void waitForActiveTransactions(final OStorage iStorage, final long iTimeout) throws InterruptedException {
+    final OStorage storage = iStorage.getUnderlying();
+    if (storage instanceof OStorageEmbedded)
+      ((OStorageEmbedded) storage).getActiveTransactions().waitForCompletion(iTimeout);
+  }
+
+  private void registerActive() {
+    if (activeEpoch != null)
+      return;
+
+    // ONLY TRANSACTIONS OF EMBEDDED STORAGES ARE WAITED FOR BY ONLINE INDEX BUILD
+    final OStorage storage = database.getStorage().getUnderlying();
+    if (storage instanceof OStorageEmbedded)
+      activeEpoch = ((OStorageEmbedded) storage).getActiveTransactions().begin();
+  }
+
+  private void unregisterActive() {
+    if (activeEpoch == null)
+      return;
+
+    activeEpoch.complete();
+    activeEpoch = null;
+  }
+
   public void begin() {
     status = TXSTATUS.BEGUN;
+    registerActive();
+  }
+
+  @Override
+  public void close() {
+    unregisterActive();
+    super.close();
   }
 
   public void commit() {
     checkTransaction();
     status = TXSTATUS.COMMITTING;
 
+    try {
+      commitToStorage();
+    } catch (OCommitDurabilityException e) {
+      // TRANSACTION IS APPLIED TO THE STORAGE, SO IT IS COMPLETED AND CAN NOT BE ROLLED BACK
+      status = TXSTATUS.COMPLETED;
+      unregisterActive();
+      throw e;
+    }
+
+    status = TXSTATUS.COMPLETED;
+    unregisterActive();
+  }
+
+  private void commitToStorage() {
     if (OScenarioThreadLocal.INSTANCE.get() != RUN_MODE.RUNNING_DISTRIBUTED && !(database.getStorage() instanceof OStorageEmbedded))
       database.getStorage().commit(this, null);
     else {
@@ -148,7 +208,8 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
               public void run() {
                 final ODocument indexEntries = getIndexChanges();
                 if (indexEntries != null) {
-                  final Map<String, OIndexInternal<?>> indexesToCommit = new HashMap<String, OIndexInternal<?>>();
+                  // INDEXES ARE COMMITTED IN ORDER OF THEIR NAMES, SO CONCURRENT COMMITS LOCK THEM IN THE SAME ORDER
+                  final Map<String, OIndexInternal<?>> indexesToCommit = new TreeMap<String, OIndexInternal<?>>();
 
                   for (Entry<String, Object> indexEntry : indexEntries) {
                     final OIndexInternal<?> index = indexes.get(indexEntry.getKey()).getInternal();
@@ -223,12 +284,11 @@ public class OTransactionOptimistic extends OTransactionRealAbstract {
         }
       }
     }
-
-    status = TXSTATUS.COMPLETED;
   }
 
   public void rollback() {
     checkTransaction();
+    unregisterActive();
 
     status = TXSTATUS.ROLLBACKING;
 
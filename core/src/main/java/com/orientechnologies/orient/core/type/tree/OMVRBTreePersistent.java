@@ -598,6 +598,26 @@ public abstract class OMVRBTreePersistent<K, V> extends OMVRBTree<K, V> {
     }
   }
 
+  @Override
+  public List<V> getAll(final List<? extends K> iSortedKeys) {
+    final long timer = PROFILER.startChrono();
+    try {
+
+      for (int i = 0; i < OPTIMIZE_MAX_RETRY; ++i) {
+        try {
+          return super.getAll(iSortedKeys);
+        } catch (OLowMemoryException e) {
+          OLogManager.instance().debug(this, "Optimization required during node search %d/%d", i, OPTIMIZE_MAX_RETRY);
+          freeMemory(i);
+        }
+      }
+
+      throw new OLowMemoryException("OMVRBTreePersistent.getAll()");
+    } finally {
+      PROFILER.stopChrono(PROFILER.getProcessMetric("mvrbtree.getAll"), "Get values of several keys from a MVRBTree", timer);
+    }
+  }
+
   @Override
   public boolean containsKey(final Object iKey) {
     for (int i = 0; i < OPTIMIZE_MAX_RETRY; ++i) {
@@ -0,0 +1,146 @@
+package com.orientechnologies.orient.core.index;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.index.engine.OIndexBloomFilter;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Checks that indexes with Bloom filter find all present keys, reject absent ones and keep working after database is reopened.
+ */
+@Test
+public class IndexBloomFilterTest {
+  private static final int    DOCUMENTS_COUNT = 10000;
+
+  private ODatabaseDocumentTx databaseDocumentTx;
+  private String              buildDirectory;
+
+  @BeforeClass
+  public void beforeClass() {
+    buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/indexBloomFilterTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    final OClass bloomClass = databaseDocumentTx.getMetadata().getSchema().createClass("BloomFilterTest");
+    bloomClass.createProperty("id", OType.INTEGER);
+    bloomClass.createProperty("hashId", OType.INTEGER);
+    bloomClass.createProperty("group", OType.STRING);
+
+    final ODocument metadata = new ODocument();
+    metadata.field(OIndexManagerShared.METADATA_BLOOM_FILTER, true);
+
+    final ODocument tunedMetadata = new ODocument();
+    tunedMetadata.field(OIndexManagerShared.METADATA_BLOOM_FILTER,
+        new ODocument().field(OIndexManagerShared.METADATA_BLOOM_FILTER_FALSE_POSITIVE_RATE, 0.001));
+
+    createIndex("BloomFilterTest.id", OClass.INDEX_TYPE.UNIQUE, "id", OType.INTEGER, metadata);
+    createIndex("BloomFilterTest.hashId", OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, "hashId", OType.INTEGER, metadata);
+    createIndex("BloomFilterTest.group", OClass.INDEX_TYPE.NOTUNIQUE, "group", OType.STRING, tunedMetadata);
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("BloomFilterTest");
+      document.field("id", i * 2);
+      document.field("hashId", i * 2);
+      document.field("group", "group" + (i % 100));
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    databaseDocumentTx.drop();
+  }
+
+  public void testLookups() {
+    assertLookups();
+  }
+
+  @Test(dependsOnMethods = "testLookups")
+  public void testUniqueConstraint() {
+    for (String field : new String[] { "id", "hashId" }) {
+      final ODocument document = new ODocument("BloomFilterTest");
+      document.field(field, 42);
+      try {
+        document.save();
+        Assert.fail("Duplicate of key of index BloomFilterTest." + field + " was saved");
+      } catch (ORecordDuplicatedException e) {
+      }
+    }
+  }
+
+  @Test(dependsOnMethods = "testUniqueConstraint")
+  public void testReopen() {
+    final OStorage storage = databaseDocumentTx.getStorage();
+    databaseDocumentTx.close();
+    storage.close(true, false);
+
+    final File storageDirectory = new File(buildDirectory, "indexBloomFilterTest");
+    Assert.assertTrue(new File(storageDirectory, "BloomFilterTest.id" + OIndexBloomFilter.FILE_EXTENSION).exists());
+
+    databaseDocumentTx.open("admin", "admin");
+    assertLookups();
+
+    // FILTER IS CONSUMED BY LOAD, SO ONE MISSED BY UNCLEAN SHUTDOWN IS NEVER USED
+    Assert.assertFalse(new File(storageDirectory, "BloomFilterTest.id" + OIndexBloomFilter.FILE_EXTENSION).exists());
+
+    final ODocument document = new ODocument("BloomFilterTest");
+    document.field("id", -1);
+    document.field("hashId", -1);
+    document.save();
+
+    Assert.assertNotNull(getIndex("BloomFilterTest.id").get(-1));
+    Assert.assertNotNull(getIndex("BloomFilterTest.hashId").get(-1));
+  }
+
+  private void assertLookups() {
+    final OIndex<?> idIndex = getIndex("BloomFilterTest.id");
+    final OIndex<?> hashIdIndex = getIndex("BloomFilterTest.hashId");
+    final OIndex<?> groupIndex = getIndex("BloomFilterTest.group");
+
+    for (int i = 0; i < DOCUMENTS_COUNT * 2; i++) {
+      if (i % 2 == 0) {
+        Assert.assertTrue(idIndex.contains(i));
+        Assert.assertEquals(((OIdentifiable) idIndex.get(i)).getRecord(), ((OIdentifiable) hashIdIndex.get(i)).getRecord());
+      } else {
+        Assert.assertFalse(idIndex.contains(i));
+        Assert.assertNull(idIndex.get(i));
+        Assert.assertNull(hashIdIndex.get(i));
+      }
+    }
+
+    Assert.assertEquals(((Collection<?>) groupIndex.get("group7")).size(), DOCUMENTS_COUNT / 100);
+    Assert.assertTrue(((Collection<?>) groupIndex.get("absent")).isEmpty());
+  }
+
+  private void createIndex(String indexName, OClass.INDEX_TYPE indexType, String field, OType type, ODocument metadata) {
+    databaseDocumentTx
+        .getMetadata()
+        .getIndexManager()
+        .createIndex(indexName, indexType.toString(), new OPropertyIndexDefinition("BloomFilterTest", field, type),
+            new int[] { databaseDocumentTx.getClusterIdByName("BloomFilterTest") }, null, metadata);
+  }
+
+  private OIndex<?> getIndex(String indexName) {
+    return databaseDocumentTx.getMetadata().getIndexManager().getIndex(indexName);
+  }
+}
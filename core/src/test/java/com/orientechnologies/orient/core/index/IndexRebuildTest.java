@@ -0,0 +1,136 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Checks that index rebuilt by several threads, each of which scans its own clusters, has the same content as index rebuilt by
+ * single thread.
+ */
+@Test
+public class IndexRebuildTest {
+  private static final int    CLUSTERS_COUNT  = 4;
+  private static final int    DOCUMENTS_COUNT = 20000;
+
+  private ODatabaseDocumentTx databaseDocumentTx;
+  private int                 rebuildThreads;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/indexRebuildTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    final OClass rebuildClass = databaseDocumentTx.getMetadata().getSchema().createClass("RebuildTest");
+    for (int i = 1; i < CLUSTERS_COUNT; i++)
+      rebuildClass.addClusterId(databaseDocumentTx.addCluster("rebuildtest" + i, OStorage.CLUSTER_TYPE.PHYSICAL));
+
+    rebuildClass.createProperty("id", OType.INTEGER);
+    rebuildClass.createProperty("group", OType.INTEGER);
+    rebuildClass.createProperty("name", OType.STRING);
+    rebuildClass.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+
+    final int[] clusterIds = rebuildClass.getClusterIds();
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("RebuildTest");
+      document.field("id", i);
+      document.field("group", i % 100);
+      document.field("name", "name" + i);
+      document.field("tags", Arrays.asList("tag" + (i % 10), "tag" + (i % 7)));
+      document.save(databaseDocumentTx.getClusterNameById(clusterIds[i % clusterIds.length]));
+    }
+
+    rebuildThreads = OGlobalConfiguration.INDEX_REBUILD_THREADS.getValueAsInteger();
+
+    // INDEXES ARE POPULATED IN PARALLEL DURING CREATION TOO
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(CLUSTERS_COUNT);
+
+    rebuildClass.createIndex("RebuildTest.id", OClass.INDEX_TYPE.UNIQUE, "id");
+    rebuildClass.createIndex("RebuildTest.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+    rebuildClass.createIndex("RebuildTest.name", OClass.INDEX_TYPE.UNIQUE_HASH_INDEX, "name");
+    rebuildClass.createIndex("RebuildTest.tags", OClass.INDEX_TYPE.NOTUNIQUE_HASH_INDEX, "tags");
+
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(rebuildThreads);
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(rebuildThreads);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    databaseDocumentTx.drop();
+  }
+
+  public void testUniqueIndexBulkLoad() {
+    assertRebuild("RebuildTest.id", DOCUMENTS_COUNT);
+  }
+
+  public void testNotUniqueIndexBulkLoad() {
+    assertRebuild("RebuildTest.group", 100);
+  }
+
+  public void testUniqueHashIndex() {
+    assertRebuild("RebuildTest.name", DOCUMENTS_COUNT);
+  }
+
+  public void testNotUniqueHashIndexOfCollection() {
+    assertRebuild("RebuildTest.tags", 10);
+  }
+
+  private void assertRebuild(String indexName, int keysCount) {
+    final OIndex<?> index = databaseDocumentTx.getMetadata().getIndexManager().getIndex(indexName);
+
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(1);
+    Assert.assertEquals(index.rebuild(), DOCUMENTS_COUNT);
+    final long sequentialSize = index.getSize();
+    final long sequentialKeySize = index.getKeySize();
+
+    OGlobalConfiguration.INDEX_REBUILD_THREADS.setValue(CLUSTERS_COUNT);
+    Assert.assertEquals(index.rebuild(), DOCUMENTS_COUNT);
+
+    Assert.assertEquals(index.getSize(), sequentialSize);
+    Assert.assertEquals(index.getKeySize(), sequentialKeySize);
+    Assert.assertEquals(index.getKeySize(), keysCount);
+
+    for (ODocument document : databaseDocumentTx.browseClass("RebuildTest")) {
+      final Object key = index.getDefinition().getDocumentValueToIndex(document);
+      if (key instanceof Collection) {
+        for (Object keyItem : (Collection<?>) key)
+          assertIndexed(index.get(keyItem), document);
+      } else
+        assertIndexed(index.get(key), document);
+    }
+  }
+
+  private static void assertIndexed(Object value, ODocument document) {
+    if (value instanceof Set)
+      Assert.assertTrue(((Set<?>) value).contains(document.getIdentity()));
+    else
+      Assert.assertEquals(((OIdentifiable) value).getIdentity(), document.getIdentity());
+  }
+}
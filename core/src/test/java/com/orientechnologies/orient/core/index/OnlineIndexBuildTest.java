@@ -0,0 +1,290 @@
+package com.orientechnologies.orient.core.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Checks that index which is built online contains all records of class which were created, updated and deleted by concurrent
+ * writers during the build.
+ */
+@Test
+public class OnlineIndexBuildTest {
+  private static final int    DOCUMENTS_COUNT = 20000;
+  private static final int    WRITERS_COUNT   = 2;
+
+  private ODatabaseDocumentTx databaseDocumentTx;
+  private String              url;
+  private final AtomicInteger idGenerator     = new AtomicInteger(DOCUMENTS_COUNT);
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    url = "plocal:" + buildDirectory + "/onlineIndexBuildTest";
+    databaseDocumentTx = new ODatabaseDocumentTx(url);
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    final OClass onlineClass = databaseDocumentTx.getMetadata().getSchema().createClass("OnlineBuildTest");
+    onlineClass.createProperty("id", OType.INTEGER);
+    onlineClass.createProperty("group", OType.INTEGER);
+
+    final OClass txClass = databaseDocumentTx.getMetadata().getSchema().createClass("OnlineBuildTxTest");
+    txClass.createProperty("id", OType.INTEGER);
+    txClass.createProperty("name", OType.STRING);
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("OnlineBuildTest");
+      document.field("id", i);
+      document.field("group", i % 100);
+      document.save();
+    }
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    ODatabaseRecordThreadLocal.INSTANCE.set(databaseDocumentTx);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    databaseDocumentTx.drop();
+  }
+
+  public void testUniqueIndex() throws Exception {
+    assertOnlineBuild("OnlineBuildTest.id", OClass.INDEX_TYPE.UNIQUE, "id");
+  }
+
+  public void testNotUniqueIndex() throws Exception {
+    assertOnlineBuild("OnlineBuildTest.group", OClass.INDEX_TYPE.NOTUNIQUE, "group");
+  }
+
+  public void testTransactionBegunBeforeBuild() throws Exception {
+    for (int i = 0; i < 1000; i++)
+      new ODocument("OnlineBuildTxTest").field("id", i).save();
+
+    final CountDownLatch saved = new CountDownLatch(1);
+    final CountDownLatch commit = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final Future<ODocument> transaction = executor.submit(new TransactionWriter(1000, saved, commit));
+
+    saved.await();
+    final OIndex<?> index = createOnlineIndex("OnlineBuildTxTest.id", OClass.INDEX_TYPE.UNIQUE, "OnlineBuildTxTest", "id",
+        OType.INTEGER);
+
+    // RECORD OF THE TRANSACTION HAS NO CHANGES OF THE INDEX, SO IT IS INDEXED ONLY IF BUILD WAITS FOR THE TRANSACTION
+    Thread.sleep(500);
+    commit.countDown();
+    final ODocument document = transaction.get();
+    executor.shutdown();
+
+    while (index.getInternal().isRebuiding())
+      Thread.sleep(50);
+
+    Assert.assertEquals(((OIdentifiable) index.get(1000)).getIdentity(), document.getIdentity());
+    Assert.assertEquals(index.getSize(), 1001);
+  }
+
+  @Test(dependsOnMethods = "testTransactionBegunBeforeBuild")
+  public void testDuplicateKeyFailsBuild() throws Exception {
+    final CountDownLatch saved = new CountDownLatch(1);
+    final CountDownLatch commit = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final Future<ODocument> transaction = executor.submit(new TransactionWriter(2000, saved, commit));
+
+    saved.await();
+    createOnlineIndex("OnlineBuildTxTest.name", OClass.INDEX_TYPE.UNIQUE, "OnlineBuildTxTest", "name", OType.STRING);
+
+    // BUILD WAITS FOR THE TRANSACTION, SO BOTH RECORDS ARE SAVED BEFORE THE SCAN AND THE SECOND ONE IS REPLAYED FROM THE LOG
+    new ODocument("OnlineBuildTxTest").field("id", 3000).field("name", "duplicate").save();
+    new ODocument("OnlineBuildTxTest").field("id", 3001).field("name", "duplicate").save();
+
+    commit.countDown();
+    transaction.get();
+    executor.shutdown();
+
+    final long start = System.currentTimeMillis();
+    while (databaseDocumentTx.getMetadata().getIndexManager().getIndex("OnlineBuildTxTest.name") != null
+        && System.currentTimeMillis() - start < 60000)
+      Thread.sleep(50);
+
+    Assert.assertNull(databaseDocumentTx.getMetadata().getIndexManager().getIndex("OnlineBuildTxTest.name"));
+  }
+
+  private OIndex<?> createOnlineIndex(String indexName, OClass.INDEX_TYPE indexType, String className, String field, OType type) {
+    final ODocument metadata = new ODocument();
+    metadata.field(OIndexManagerShared.METADATA_ONLINE_BUILD, true);
+
+    return databaseDocumentTx
+        .getMetadata()
+        .getIndexManager()
+        .createIndex(indexName, indexType.toString(), new OPropertyIndexDefinition(className, field, type),
+            new int[] { databaseDocumentTx.getClusterIdByName(className) }, null, metadata);
+  }
+
+  private void assertOnlineBuild(String indexName, OClass.INDEX_TYPE indexType, String field) throws Exception {
+    final AtomicBoolean stop = new AtomicBoolean();
+
+    final ExecutorService executor = Executors.newFixedThreadPool(WRITERS_COUNT);
+    final List<Future<Integer>> writers = new ArrayList<Future<Integer>>();
+    for (int i = 0; i < WRITERS_COUNT; i++)
+      writers.add(executor.submit(new Writer(stop, idGenerator, i % 2 == 0)));
+
+    final OIndex<?> index;
+    try {
+      final ODocument metadata = new ODocument();
+      metadata.field(OIndexManagerShared.METADATA_ONLINE_BUILD, true);
+
+      index = databaseDocumentTx
+          .getMetadata()
+          .getIndexManager()
+          .createIndex(indexName, indexType.toString(),
+              new OPropertyIndexDefinition("OnlineBuildTest", field, OType.INTEGER), new int[] { databaseDocumentTx.getClusterIdByName("OnlineBuildTest") },
+              null, metadata);
+
+      while (index.getInternal().isRebuiding())
+        Thread.sleep(50);
+    } finally {
+      stop.set(true);
+      executor.shutdown();
+    }
+
+    int operations = 0;
+    for (Future<Integer> writer : writers)
+      operations += writer.get();
+
+    Assert.assertTrue(operations > 0);
+    Assert.assertNotNull(databaseDocumentTx.getMetadata().getIndexManager().getIndex(indexName));
+
+    long documentsCount = 0;
+    for (ODocument document : databaseDocumentTx.browseClass("OnlineBuildTest")) {
+      final Object value = index.get(document.field(field));
+      if (value instanceof Set)
+        Assert.assertTrue(((Set<?>) value).contains(document.getIdentity()));
+      else
+        Assert.assertEquals(((OIdentifiable) value).getIdentity(), document.getIdentity());
+
+      documentsCount++;
+    }
+
+    Assert.assertEquals(index.getSize(), documentsCount);
+  }
+
+  /**
+   * Saves record with given id in transaction and commits it when it is allowed.
+   */
+  private final class TransactionWriter implements Callable<ODocument> {
+    private final int            id;
+    private final CountDownLatch saved;
+    private final CountDownLatch commit;
+
+    private TransactionWriter(int id, CountDownLatch saved, CountDownLatch commit) {
+      this.id = id;
+      this.saved = saved;
+      this.commit = commit;
+    }
+
+    @Override
+    public ODocument call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+      db.open("admin", "admin");
+      try {
+        db.begin();
+        final ODocument document = new ODocument("OnlineBuildTxTest").field("id", id);
+        document.save();
+        saved.countDown();
+
+        commit.await();
+        db.commit();
+        return document;
+      } finally {
+        db.close();
+      }
+    }
+  }
+
+  private final class Writer implements Callable<Integer> {
+    private final AtomicBoolean stop;
+    private final AtomicInteger idGenerator;
+    private final boolean       useTransactions;
+
+    private Writer(AtomicBoolean stop, AtomicInteger idGenerator, boolean useTransactions) {
+      this.stop = stop;
+      this.idGenerator = idGenerator;
+      this.useTransactions = useTransactions;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(url);
+      db.open("admin", "admin");
+      try {
+        final Random random = new Random();
+        final List<ODocument> created = new ArrayList<ODocument>();
+
+        int operations = 0;
+        while (!stop.get()) {
+          if (useTransactions)
+            db.begin();
+
+          final int id = idGenerator.getAndIncrement();
+          final ODocument document = new ODocument("OnlineBuildTest");
+          document.field("id", id);
+          document.field("group", id % 100);
+          document.save();
+
+          if (!created.isEmpty() && random.nextBoolean()) {
+            final ODocument previous = created.remove(random.nextInt(created.size()));
+            if (random.nextBoolean())
+              previous.delete();
+            else {
+              final int newId = idGenerator.getAndIncrement();
+              previous.field("id", newId);
+              previous.field("group", newId % 100);
+              previous.save();
+              created.add(previous);
+            }
+          }
+
+          if (useTransactions)
+            db.commit();
+
+          created.add(document);
+          operations++;
+        }
+
+        return operations;
+      } finally {
+        db.close();
+      }
+    }
+  }
+}
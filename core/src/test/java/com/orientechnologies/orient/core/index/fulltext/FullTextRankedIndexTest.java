@@ -0,0 +1,251 @@
+package com.orientechnologies.orient.core.index.fulltext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.OIndexFullTextRanked;
+import com.orientechnologies.orient.core.index.OPropertyIndexDefinition;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks analyzer of ranked full-text index, content of index after updates and order of search results.
+ */
+@Test
+public class FullTextRankedIndexTest {
+  private ODatabaseDocumentTx  databaseDocumentTx;
+  private OIndexFullTextRanked index;
+
+  private ODocument            shortDocument;
+  private ODocument            longDocument;
+  private ODocument            frequentDocument;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/fullTextRankedIndexTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    final OClass textClass = databaseDocumentTx.getMetadata().getSchema().createClass("RankedText");
+    textClass.createProperty("text", OType.STRING);
+
+    final ODocument analyzer = new ODocument();
+    analyzer.field("stopWords", Arrays.asList("the", "a", "of"));
+    analyzer.field("stemming", true);
+
+    final ODocument metadata = new ODocument();
+    metadata.field(OIndexFullTextRanked.CONFIG_ANALYZER, analyzer);
+
+    databaseDocumentTx
+        .getMetadata()
+        .getIndexManager()
+        .createIndex("RankedText.text", OClass.INDEX_TYPE.FULLTEXT_RANKED.toString(),
+            new OPropertyIndexDefinition("RankedText", "text", OType.STRING),
+            new int[] { databaseDocumentTx.getClusterIdByName("RankedText") }, null, metadata);
+
+    index = (OIndexFullTextRanked) databaseDocumentTx.getMetadata().getIndexManager().getIndex("RankedText.text").getInternal();
+
+    shortDocument = createDocument("Indexing of documents");
+    longDocument = createDocument("The database keeps documents in clusters, every cluster contains records of one class and "
+        + "records are found by indexes");
+    frequentDocument = createDocument("Documents, documents and documents everywhere");
+    for (int i = 0; i < 100; i++)
+      createDocument("Record number " + i + " of cluster");
+  }
+
+  @AfterClass
+  public void afterClass() {
+    databaseDocumentTx.drop();
+  }
+
+  public void testAnalyzer() {
+    final OFullTextAnalyzer analyzer = index.getAnalyzer();
+
+    Assert.assertEquals(analyzer.analyze("The Indexing of Documents"), Arrays.asList("index", "document"));
+    Assert.assertEquals(analyzer.analyze("stopped,running\tclusters"), Arrays.asList("stop", "run", "cluster"));
+
+    final OFullTextAnalyzer restored = new OFullTextAnalyzer(analyzer.toConfiguration());
+    Assert.assertEquals(restored.analyze("The Indexing of Documents"), Arrays.asList("index", "document"));
+  }
+
+  public void testPostingListStream() {
+    final OFullTextPostingList postingList = new OFullTextPostingList(10);
+    for (int i = 0; i < 500; i++)
+      postingList.put(new ORecordId(10, OClusterPositionFactory.INSTANCE.valueOf(i * 3)), i % 5 + 1, i);
+
+    final OVarIntStream stream = new OVarIntStream(16);
+    postingList.toStream(stream);
+
+    final OFullTextPostingList restored = OFullTextPostingList.fromStream(new OVarIntStream(stream.toByteArray(), 0));
+    Assert.assertEquals(restored, postingList);
+    for (int i = 0; i < postingList.size(); i++) {
+      Assert.assertEquals(restored.getRid(i), postingList.getRid(i));
+      Assert.assertEquals(restored.getFrequency(i), postingList.getFrequency(i));
+      Assert.assertEquals(restored.getLength(i), postingList.getLength(i));
+    }
+  }
+
+  public void testGetIntersectsTerms() {
+    final Collection<?> documents = (Collection<?>) index.get("documents");
+    Assert.assertEquals(documents.size(), 3);
+    Assert.assertTrue(documents.contains(shortDocument.getIdentity()));
+    Assert.assertTrue(documents.contains(longDocument.getIdentity()));
+    Assert.assertTrue(documents.contains(frequentDocument.getIdentity()));
+
+    final Collection<?> clusterDocuments = (Collection<?>) index.get("document cluster");
+    Assert.assertEquals(clusterDocuments.size(), 1);
+    Assert.assertTrue(clusterDocuments.contains(longDocument.getIdentity()));
+
+    Assert.assertEquals(((Collection<?>) index.get("cluster")).size(), 101);
+    Assert.assertTrue(((Collection<?>) index.get("missing")).isEmpty());
+  }
+
+  public void testSearchRanking() {
+    final Map<OIdentifiable, Double> result = index.search("document", 10);
+    Assert.assertEquals(new ArrayList<OIdentifiable>(result.keySet()),
+        Arrays.<OIdentifiable> asList(frequentDocument.getIdentity(), shortDocument.getIdentity(), longDocument.getIdentity()));
+
+    final List<OIdentifiable> lazyResult = new ArrayList<OIdentifiable>(index.search("document"));
+    Assert.assertEquals(lazyResult, new ArrayList<OIdentifiable>(result.keySet()));
+
+    // RARE TERM IS MORE IMPORTANT THAN FREQUENT ONE
+    final Map<OIdentifiable, Double> rareTermResult = index.search("cluster indexes", 1);
+    Assert.assertEquals(rareTermResult.keySet().iterator().next(), longDocument.getIdentity());
+  }
+
+  public void testSQLSearch() {
+    final List<ODocument> result = databaseDocumentTx.query(new OSQLSynchQuery<ODocument>(
+        "select from RankedText where text SEARCHTEXT 'document' limit 2"));
+    Assert.assertEquals(result.size(), 2);
+    Assert.assertEquals(result.get(0).getIdentity(), frequentDocument.getIdentity());
+    Assert.assertEquals(result.get(1).getIdentity(), shortDocument.getIdentity());
+
+    final List<ODocument> notIndexedResult = databaseDocumentTx.query(new OSQLSynchQuery<ODocument>(
+        "select from RankedText where text.toLowerCase() SEARCHTEXT 'everywhere'"));
+    Assert.assertEquals(notIndexedResult.size(), 1);
+    Assert.assertEquals(notIndexedResult.get(0).getIdentity(), frequentDocument.getIdentity());
+  }
+
+  @Test(dependsOnMethods = { "testGetIntersectsTerms", "testSearchRanking", "testSQLSearch" })
+  public void testUpdateAndDelete() {
+    final ODocument document = createDocument("Temporary text about unicorns");
+    Assert.assertEquals(((Collection<?>) index.get("unicorn")).size(), 1);
+
+    document.field("text", "Permanent text about dragons");
+    document.save();
+    Assert.assertTrue(((Collection<?>) index.get("unicorn")).isEmpty());
+    Assert.assertEquals(((Collection<?>) index.get("dragon")).size(), 1);
+
+    databaseDocumentTx.begin();
+    document.field("text", "Text about griffins");
+    document.save();
+    databaseDocumentTx.commit();
+    Assert.assertTrue(((Collection<?>) index.get("dragon")).isEmpty());
+    Assert.assertEquals(((Collection<?>) index.get("griffin")).size(), 1);
+
+    databaseDocumentTx.begin();
+    document.delete();
+    databaseDocumentTx.rollback();
+    Assert.assertEquals(((Collection<?>) index.get("griffin")).size(), 1);
+
+    document.delete();
+    Assert.assertTrue(((Collection<?>) index.get("griffin")).isEmpty());
+    Assert.assertTrue(index.search("griffin", 10).isEmpty());
+  }
+
+  @Test(dependsOnMethods = "testUpdateAndDelete")
+  public void testRecordWithSeveralTextsIsCountedOnce() {
+    final long documents = index.getDocuments();
+
+    final ODocument document = createDocument("Text about phoenix");
+    index.put("Second text about chimeras", document);
+    Assert.assertEquals(index.getDocuments(), documents + 1);
+    Assert.assertEquals(((Collection<?>) index.get("chimera")).size(), 1);
+
+    Assert.assertTrue(index.remove("Second text about chimeras", document));
+    Assert.assertEquals(index.getDocuments(), documents + 1);
+    Assert.assertTrue(((Collection<?>) index.get("chimera")).isEmpty());
+    Assert.assertEquals(((Collection<?>) index.get("phoenix")).size(), 1);
+
+    document.delete();
+    Assert.assertEquals(index.getDocuments(), documents);
+  }
+
+  @Test(dependsOnMethods = "testRecordWithSeveralTextsIsCountedOnce")
+  public void testRemoveKeyUpdatesStatistics() {
+    final long documents = index.getDocuments();
+    final long size = index.getSize();
+
+    createDocument("Basilisk venom");
+    createDocument("Basilisk eggs");
+    Assert.assertEquals(index.getDocuments(), documents + 2);
+    Assert.assertEquals(index.getSize(), size + 4);
+
+    Assert.assertTrue(index.remove("basilisks"));
+    Assert.assertEquals(index.getDocuments(), documents);
+    Assert.assertTrue(index.search("basilisk", 10).isEmpty());
+  }
+
+  @Test(dependsOnMethods = "testRemoveKeyUpdatesStatistics")
+  public void testRemoveKeyCountsRepeatedTerms() {
+    final double averageLength = index.getAverageLength();
+
+    final ODocument document = createDocument("Wyvern scales");
+    final double documentAverageLength = index.getAverageLength();
+
+    index.put("wyvern wyvern wyvern", document);
+    Assert.assertTrue(index.remove("wyvern wyvern wyvern"));
+    Assert.assertEquals(index.getAverageLength(), documentAverageLength, 0.0001);
+
+    document.delete();
+    Assert.assertEquals(index.getAverageLength(), averageLength, 0.0001);
+  }
+
+  @Test(dependsOnMethods = "testRemoveKeyCountsRepeatedTerms")
+  public void testStatisticsOfSeveralClusters() {
+    final long documents = index.getDocuments();
+    final double averageLength = index.getAverageLength();
+
+    final ORecordId firstRid = new ORecordId(100, OClusterPositionFactory.INSTANCE.valueOf(1));
+    final ORecordId secondRid = new ORecordId(101, OClusterPositionFactory.INSTANCE.valueOf(1));
+
+    index.put("Hydra heads", firstRid);
+    index.put("Hydra of Lerna", secondRid);
+    Assert.assertEquals(index.getDocuments(), documents + 2);
+    Assert.assertEquals(((Collection<?>) index.get("hydra")).size(), 2);
+
+    Assert.assertTrue(index.remove("Hydra heads", firstRid));
+    Assert.assertTrue(index.remove("Hydra of Lerna", secondRid));
+    Assert.assertEquals(index.getDocuments(), documents);
+    Assert.assertEquals(index.getAverageLength(), averageLength, 0.0001);
+  }
+
+  private static ODocument createDocument(String text) {
+    final ODocument document = new ODocument("RankedText");
+    document.field("text", text);
+    document.save();
+    return document;
+  }
+}
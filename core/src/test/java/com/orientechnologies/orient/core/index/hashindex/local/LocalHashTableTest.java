@@ -1,7 +1,15 @@
 package com.orientechnologies.orient.core.index.hashindex.local;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.testng.Assert;
 import org.testng.annotations.*;
@@ -63,6 +71,81 @@ public class LocalHashTableTest {
     localHashTable.clear();
   }
 
+  public void testConcurrentPutUpdateRemove() throws Exception {
+    final int writersCount = 4;
+    final int keysPerWriter = 100000;
+
+    final ExecutorService executorService = Executors.newCachedThreadPool();
+    final AtomicBoolean writersCompleted = new AtomicBoolean();
+
+    try {
+      final List<Future<Void>> writers = new ArrayList<Future<Void>>();
+      for (int i = 0; i < writersCount; i++) {
+        final int writerIndex = i;
+        writers.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            final List<Integer> keys = new ArrayList<Integer>(keysPerWriter);
+            for (int n = 0; n < keysPerWriter; n++)
+              keys.add(n * writersCount + writerIndex);
+
+            Collections.shuffle(keys);
+
+            for (int key : keys)
+              localHashTable.put(key, key + "");
+
+            for (int key : keys) {
+              if (key % 3 == 0)
+                localHashTable.put(key, key + "updated");
+              else if (key % 10 == 1)
+                Assert.assertEquals(localHashTable.remove(key), key + "");
+            }
+
+            return null;
+          }
+        }));
+      }
+
+      final Future<Void> reader = executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final MersenneTwisterFast random = new MersenneTwisterFast();
+          while (!writersCompleted.get()) {
+            final int key = random.nextInt(writersCount * keysPerWriter);
+            final String value = localHashTable.get(key);
+            if (value != null)
+              Assert.assertTrue(value.equals(key + "") || value.equals(key + "updated"), value);
+          }
+
+          return null;
+        }
+      });
+
+      for (Future<Void> writer : writers)
+        writer.get();
+
+      writersCompleted.set(true);
+      reader.get();
+    } finally {
+      executorService.shutdown();
+    }
+
+    int expectedSize = 0;
+    for (int key = 0; key < writersCount * keysPerWriter; key++) {
+      if (key % 3 == 0)
+        Assert.assertEquals(localHashTable.get(key), key + "updated");
+      else if (key % 10 == 1)
+        Assert.assertNull(localHashTable.get(key));
+      else
+        Assert.assertEquals(localHashTable.get(key), key + "");
+
+      if (key % 3 == 0 || key % 10 != 1)
+        expectedSize++;
+    }
+
+    Assert.assertEquals(localHashTable.size(), expectedSize);
+  }
+
   public void testKeyPut() {
     for (int i = 0; i < KEYS_COUNT; i++) {
       localHashTable.put(i, i + "");
@@ -78,6 +161,28 @@ public class LocalHashTableTest {
     }
   }
 
+  public void testGetAll() {
+    for (int i = 0; i < KEYS_COUNT; i += 2)
+      localHashTable.put(i, i + "");
+
+    final List<Integer> keys = new ArrayList<Integer>();
+    final Set<Integer> expectedKeys = new HashSet<Integer>();
+    for (int i = 0; i < KEYS_COUNT + 30; i += 3) {
+      keys.add(i);
+      if (i < KEYS_COUNT && i % 2 == 0)
+        expectedKeys.add(i);
+    }
+
+    final Set<Integer> foundKeys = new HashSet<Integer>();
+    for (OHashIndexBucket.Entry<Integer, String> entry : localHashTable.getAll(keys)) {
+      Assert.assertEquals(entry.value, entry.key + "");
+      Assert.assertTrue(foundKeys.add(entry.key));
+    }
+
+    Assert.assertEquals(foundKeys.size(), expectedKeys.size());
+    Assert.assertTrue(foundKeys.containsAll(expectedKeys));
+  }
+
   public void testKeyPutRandomUniform() {
     final Set<Integer> keys = new HashSet<Integer>();
     final MersenneTwisterFast random = new MersenneTwisterFast();
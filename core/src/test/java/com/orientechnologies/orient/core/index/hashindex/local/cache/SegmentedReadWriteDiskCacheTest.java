@@ -0,0 +1,217 @@
+package com.orientechnologies.orient.core.index.hashindex.local.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.Orient;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
+
+@Test
+public class SegmentedReadWriteDiskCacheTest {
+  private static final int             THREAD_COUNT = 8;
+  private static final int             PAGE_COUNT   = 512;
+
+  private final int                    systemOffset = OIntegerSerializer.INT_SIZE + 3 * OLongSerializer.LONG_SIZE;
+  private final int                    pageSize     = 8 + systemOffset;
+
+  private OSegmentedReadWriteDiskCache buffer;
+  private OLocalPaginatedStorage       storageLocal;
+  private String                       fileName;
+
+  @BeforeClass
+  public void beforeClass() throws IOException {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    storageLocal = (OLocalPaginatedStorage) Orient.instance().loadStorage(
+        "plocal:" + buildDirectory + "/SegmentedReadWriteDiskCacheTest");
+
+    fileName = "segmentedReadWriteDiskCacheTest.tst";
+  }
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    closeBufferAndDeleteFile();
+
+    buffer = new OSegmentedReadWriteDiskCache(null, 128 * pageSize, 15000 * pageSize, pageSize, 10000, -1, storageLocal, null, true,
+        false, 8);
+  }
+
+  @AfterClass
+  public void afterClass() throws IOException {
+    closeBufferAndDeleteFile();
+
+    storageLocal.delete();
+  }
+
+  private void closeBufferAndDeleteFile() throws IOException {
+    if (buffer != null) {
+      buffer.close();
+      buffer = null;
+    }
+
+    File testFile = new File(storageLocal.getConfiguration().getDirectory() + "/" + fileName);
+    if (testFile.exists())
+      Assert.assertTrue(testFile.delete());
+
+    File idMapFile = new File(storageLocal.getConfiguration().getDirectory() + "/name_id_map.cm");
+    if (idMapFile.exists())
+      Assert.assertTrue(idMapFile.delete());
+  }
+
+  public void testSegmentsAreShrunkForSmallCache() throws IOException {
+    Assert.assertEquals(buffer.getSegmentsCount(), 8);
+    Assert.assertEquals(buffer.getMaxSize(), 128);
+
+    buffer.close();
+
+    buffer = new OSegmentedReadWriteDiskCache(null, 4 * pageSize, 15000 * pageSize, pageSize, 10000, -1, storageLocal, null, true,
+        false, 8);
+
+    Assert.assertEquals(buffer.getSegmentsCount(), 1);
+    Assert.assertEquals(buffer.getMaxSize(), 4);
+  }
+
+  public void testConcurrentLoadAndUpdate() throws Exception {
+    final long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final OCacheEntry cacheEntry = buffer.allocateNewPage(fileId);
+      Assert.assertEquals(cacheEntry.getPageIndex(), i);
+
+      cacheEntry.getCachePointer().acquireExclusiveLock();
+      cacheEntry.getCachePointer().getDataPointer().set(systemOffset, new byte[] { (byte) i, 0, 0, 0, 0, 0, 0, (byte) i }, 0, 8);
+      cacheEntry.markDirty();
+      cacheEntry.getCachePointer().releaseExclusiveLock();
+
+      buffer.release(cacheEntry);
+    }
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    for (int n = 0; n < THREAD_COUNT; n++) {
+      final int threadIndex = n;
+      futures.add(executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final Random random = new Random();
+
+          for (int i = 0; i < 10000; i++) {
+            final int pageIndex = random.nextInt(PAGE_COUNT);
+            final OCacheEntry cacheEntry = buffer.load(fileId, pageIndex, false);
+            final OCachePointer cachePointer = cacheEntry.getCachePointer();
+
+            if (pageIndex % THREAD_COUNT == threadIndex) {
+              cachePointer.acquireExclusiveLock();
+              try {
+                final byte counter = cachePointer.getDataPointer().getByte(systemOffset + 1);
+                cachePointer.getDataPointer().setByte(systemOffset + 1, (byte) (counter + 1));
+                cacheEntry.markDirty();
+              } finally {
+                cachePointer.releaseExclusiveLock();
+              }
+            } else {
+              cachePointer.acquireSharedLock();
+              try {
+                final byte[] content = cachePointer.getDataPointer().get(systemOffset, 8);
+                Assert.assertEquals(content[0], (byte) pageIndex);
+                Assert.assertEquals(content[7], (byte) pageIndex);
+              } finally {
+                cachePointer.releaseSharedLock();
+              }
+            }
+
+            buffer.release(cacheEntry);
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    executorService.shutdown();
+
+    Assert.assertTrue(buffer.getSize() <= buffer.getMaxSize());
+
+    buffer.flushBuffer();
+    buffer.clear();
+
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      final byte[] content = cacheEntry.getCachePointer().getDataPointer().get(systemOffset, 8);
+      Assert.assertEquals(content[0], (byte) i);
+      Assert.assertEquals(content[7], (byte) i);
+      buffer.release(cacheEntry);
+    }
+  }
+
+  public void testReadAheadOfSequentialReads() throws Exception {
+    buffer.close();
+
+    final int readAheadPages = OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.getValueAsInteger();
+    OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.setValue(32);
+    try {
+      buffer = new OSegmentedReadWriteDiskCache(null, 1024 * pageSize, 15000 * pageSize, pageSize, 10000, -1, storageLocal, null,
+          true, false, 8);
+    } finally {
+      OGlobalConfiguration.DISK_CACHE_READ_AHEAD_PAGES.setValue(readAheadPages);
+    }
+
+    final long fileId = buffer.openFile(fileName);
+
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final OCacheEntry cacheEntry = buffer.allocateNewPage(fileId);
+
+      cacheEntry.getCachePointer().acquireExclusiveLock();
+      cacheEntry.getCachePointer().getDataPointer().set(systemOffset, new byte[] { (byte) i, 0, 0, 0, 0, 0, 0, (byte) i }, 0, 8);
+      cacheEntry.markDirty();
+      cacheEntry.getCachePointer().releaseExclusiveLock();
+
+      buffer.release(cacheEntry);
+    }
+
+    buffer.flushBuffer();
+    buffer.clear();
+
+    final int sequentialReads = OReadAhead.SEQUENTIAL_READS_THRESHOLD + 1;
+    for (int i = 0; i < sequentialReads; i++)
+      buffer.release(buffer.load(fileId, i, false));
+
+    long endTime = System.currentTimeMillis() + 10000;
+    while (buffer.getSize() <= sequentialReads && System.currentTimeMillis() < endTime)
+      Thread.sleep(10);
+
+    Assert.assertTrue(buffer.getSize() > sequentialReads);
+
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final OCacheEntry cacheEntry = buffer.load(fileId, i, false);
+      final byte[] content = cacheEntry.getCachePointer().getDataPointer().get(systemOffset, 8);
+      Assert.assertEquals(content[0], (byte) i);
+      Assert.assertEquals(content[7], (byte) i);
+      buffer.release(cacheEntry);
+    }
+  }
+}
@@ -244,6 +244,113 @@ public class WOWCacheTest {
     }
   }
 
+  public void testFlushInSeveralThreads() throws Exception {
+    wowCache.close();
+
+    final int flushThreads = OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_THREADS.getValueAsInteger();
+    OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_THREADS.setValue(4);
+    try {
+      initBuffer();
+    } finally {
+      OGlobalConfiguration.DISK_WRITE_CACHE_FLUSH_THREADS.setValue(flushThreads);
+    }
+
+    Random random = new Random();
+
+    byte[][] pageData = new byte[200][];
+    long fileId = wowCache.openFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] data = new byte[8];
+      random.nextBytes(data);
+
+      pageData[i] = data;
+
+      final OCachePointer cachePointer = wowCache.load(fileId, i);
+      cachePointer.acquireExclusiveLock();
+      cachePointer.getDataPointer().set(systemOffset, data, 0, data.length);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, i, cachePointer);
+      cachePointer.decrementReferrer();
+    }
+
+    Assert.assertTrue(wowCache.getOldestDirtyPageAge() >= 0);
+
+    Thread.sleep(5000);
+
+    Assert.assertEquals(wowCache.getOldestDirtyPageAge(), 0);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] dataContent = pageData[i];
+      assertFile(i, dataContent, new OLogSequenceNumber(0, 0));
+    }
+  }
+
+  public void testCompressedPagesLoadStore() throws Exception {
+    wowCache.close();
+
+    final int compressedPageSize = 1024;
+    final String pageCompression = OGlobalConfiguration.DISK_CACHE_PAGE_COMPRESSION.getValueAsString();
+    OGlobalConfiguration.DISK_CACHE_PAGE_COMPRESSION.setValue("snappy");
+    try {
+      wowCache = new OWOWCache(true, compressedPageSize, 10000, writeAheadLog, 10, 100, storageLocal, false);
+    } finally {
+      OGlobalConfiguration.DISK_CACHE_PAGE_COMPRESSION.setValue(pageCompression);
+    }
+
+    Random random = new Random();
+
+    byte[][] pageData = new byte[200][];
+    long fileId = wowCache.openFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] data = new byte[8];
+      random.nextBytes(data);
+
+      pageData[i] = data;
+
+      final OCachePointer cachePointer = wowCache.load(fileId, i);
+      cachePointer.acquireExclusiveLock();
+      cachePointer.getDataPointer().set(systemOffset, data, 0, data.length);
+      cachePointer.releaseExclusiveLock();
+
+      wowCache.store(fileId, i, cachePointer);
+      cachePointer.decrementReferrer();
+    }
+
+    wowCache.flush();
+
+    Assert.assertEquals(wowCache.checkStoredPages(null).length, 0);
+
+    OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(storageLocal.getConfiguration().getDirectory() + File.separator + fileName, "r");
+    fileClassic.open();
+
+    Assert.assertEquals(fileClassic.getFilledUpTo(), pageData.length * compressedPageSize);
+    for (int i = 0; i < pageData.length; i++) {
+      byte[] header = new byte[OLongSerializer.LONG_SIZE];
+      fileClassic.read(i * compressedPageSize, header, header.length);
+      long magicNumber = OLongSerializer.INSTANCE.deserializeNative(header, 0);
+      Assert.assertEquals(magicNumber, OWOWCache.COMPRESSED_PAGE_MAGIC);
+    }
+
+    fileClassic.close();
+
+    // COMPRESSED PAGES ARE READ EVEN IF COMPRESSION IS SWITCHED OFF
+    wowCache.close();
+    wowCache = new OWOWCache(true, compressedPageSize, 10000, writeAheadLog, 10, 100, storageLocal, false);
+    fileId = wowCache.openFile(fileName);
+
+    for (int i = 0; i < pageData.length; i++) {
+      OCachePointer cachePointer = wowCache.load(fileId, i);
+      byte[] data = cachePointer.getDataPointer().get(systemOffset, 8);
+      cachePointer.decrementReferrer();
+
+      Assert.assertEquals(data, pageData[i]);
+    }
+  }
+
   private void assertFile(long pageIndex, byte[] value, OLogSequenceNumber lsn) throws IOException {
     String path = storageLocal.getConfiguration().getDirectory() + File.separator + fileName;
 
@@ -0,0 +1,125 @@
+package com.orientechnologies.orient.core.index.sbtree;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+
+@Test
+public class SBTreeBulkLoadSorterTest {
+  private File directory;
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    directory = new File(buildDirectory);
+  }
+
+  public void testSortInMemory() {
+    assertSorted(new OSBTreeBulkLoadSorter<Integer>(OIntegerSerializer.INSTANCE, null, 100000, directory), 10000);
+  }
+
+  public void testSortWithTemporaryFiles() {
+    assertSorted(new OSBTreeBulkLoadSorter<Integer>(OIntegerSerializer.INSTANCE, null, 1000, directory), 10500);
+  }
+
+  public void testTemporaryFilesAreRemoved() {
+    final int filesBefore = countTemporaryFiles();
+
+    final OSBTreeBulkLoadSorter<Integer> sorter = new OSBTreeBulkLoadSorter<Integer>(OIntegerSerializer.INSTANCE, null, 10,
+        directory);
+    for (int i = 0; i < 100; i++)
+      sorter.add(i, new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(i)));
+
+    Assert.assertTrue(countTemporaryFiles() > filesBefore);
+
+    final Iterator<Map.Entry<Integer, OIdentifiable>> iterator = sorter.sortedIterator();
+    iterator.next();
+    sorter.close();
+
+    Assert.assertEquals(countTemporaryFiles(), filesBefore);
+  }
+
+  public void testMergeOfSorters() {
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    final List<OSBTreeBulkLoadSorter<Integer>> sorters = new ArrayList<OSBTreeBulkLoadSorter<Integer>>();
+    final List<Iterator<Map.Entry<Integer, OIdentifiable>>> sortedIterators = new ArrayList<Iterator<Map.Entry<Integer, OIdentifiable>>>();
+    try {
+      for (int n = 0; n < 4; n++) {
+        final OSBTreeBulkLoadSorter<Integer> sorter = new OSBTreeBulkLoadSorter<Integer>(OIntegerSerializer.INSTANCE, null, 1000,
+            directory);
+        sorters.add(sorter);
+
+        for (int i = 0; i < 2500; i++) {
+          final int key = random.nextInt(1000);
+          sorter.add(key, new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(random.nextInt(100))));
+        }
+
+        sortedIterators.add(sorter.sortedIterator());
+      }
+
+      assertSorted(OSBTreeBulkLoadSorter.merge(sortedIterators), 10000);
+    } finally {
+      for (OSBTreeBulkLoadSorter<Integer> sorter : sorters)
+        sorter.close();
+    }
+  }
+
+  private void assertSorted(OSBTreeBulkLoadSorter<Integer> sorter, int count) {
+    final MersenneTwisterFast random = new MersenneTwisterFast();
+    try {
+      for (int i = 0; i < count; i++) {
+        final int key = random.nextInt(count / 10);
+        sorter.add(key, new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(random.nextInt(100))));
+      }
+
+      Assert.assertEquals(sorter.size(), count);
+
+      assertSorted(sorter.sortedIterator(), count);
+    } finally {
+      sorter.close();
+    }
+  }
+
+  private void assertSorted(Iterator<Map.Entry<Integer, OIdentifiable>> iterator, int count) {
+    Map.Entry<Integer, OIdentifiable> prev = null;
+    int read = 0;
+    while (iterator.hasNext()) {
+      final Map.Entry<Integer, OIdentifiable> entry = iterator.next();
+      if (prev != null) {
+        Assert.assertTrue(prev.getKey() <= entry.getKey());
+        if (prev.getKey().equals(entry.getKey()))
+          Assert.assertTrue(prev.getValue().getIdentity().compareTo(entry.getValue().getIdentity()) <= 0);
+      }
+
+      prev = entry;
+      read++;
+    }
+
+    Assert.assertEquals(read, count);
+  }
+
+  private int countTemporaryFiles() {
+    final File[] files = directory.listFiles();
+    int count = 0;
+    for (File file : files)
+      if (file.getName().startsWith("sbtreebulkload"))
+        count++;
+
+    return count;
+  }
+}
@@ -0,0 +1,178 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.sbtree.OTreeInternal;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+@Test
+public class SBTreeConcurrencyTest {
+  private static final int                  WRITERS_COUNT    = 8;
+  private static final int                  READERS_COUNT    = 4;
+  private static final int                  KEYS_PER_WRITER  = 50000;
+
+  private ODatabaseDocumentTx               databaseDocumentTx;
+
+  private OSBTree<Integer, OIdentifiable>   sbTree;
+
+  private final ExecutorService             executorService  = Executors.newCachedThreadPool();
+  private final AtomicBoolean               writersCompleted = new AtomicBoolean();
+
+  @BeforeClass
+  public void beforeClass() {
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeConcurrencyTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeConcurrency", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying());
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.clear();
+    writersCompleted.set(false);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    executorService.shutdown();
+
+    sbTree.delete();
+    databaseDocumentTx.drop();
+  }
+
+  public void testConcurrentPutRemoveAndRangeScan() throws Exception {
+    final List<Future<Void>> writers = new ArrayList<Future<Void>>();
+    for (int i = 0; i < WRITERS_COUNT; i++)
+      writers.add(executorService.submit(new Writer(i)));
+
+    final List<Future<Void>> readers = new ArrayList<Future<Void>>();
+    for (int i = 0; i < READERS_COUNT; i++)
+      readers.add(executorService.submit(new Reader(i % 2 == 0)));
+
+    for (Future<Void> writer : writers)
+      writer.get();
+
+    writersCompleted.set(true);
+
+    for (Future<Void> reader : readers)
+      reader.get();
+
+    int expectedSize = 0;
+    for (int i = 0; i < WRITERS_COUNT * KEYS_PER_WRITER; i++) {
+      final int key = i;
+      if (isRemoved(key))
+        Assert.assertNull(sbTree.get(key));
+      else {
+        Assert.assertEquals(sbTree.get(key), createValue(key));
+        expectedSize++;
+      }
+    }
+
+    Assert.assertEquals(sbTree.size(), expectedSize);
+    Assert.assertEquals((int) sbTree.firstKey(), 0);
+    Assert.assertEquals((int) sbTree.lastKey(), WRITERS_COUNT * KEYS_PER_WRITER - 1);
+    Assert.assertEquals(sbTree.getValuesMajor(0, true, -1).size(), expectedSize);
+  }
+
+  private static boolean isRemoved(int key) {
+    return key % 10 == 1;
+  }
+
+  private static ORecordId createValue(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+
+  private final class Writer implements Callable<Void> {
+    private final int writerIndex;
+
+    private Writer(int writerIndex) {
+      this.writerIndex = writerIndex;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      final List<Integer> keys = new ArrayList<Integer>(KEYS_PER_WRITER);
+      for (int i = 0; i < KEYS_PER_WRITER; i++)
+        keys.add(i * WRITERS_COUNT + writerIndex);
+
+      Collections.shuffle(keys);
+
+      for (int key : keys)
+        sbTree.put(key, createValue(key));
+
+      for (int key : keys)
+        if (isRemoved(key))
+          Assert.assertEquals(sbTree.remove(key), createValue(key));
+
+      return null;
+    }
+  }
+
+  private final class Reader implements Callable<Void> {
+    private final boolean ascending;
+
+    private Reader(boolean ascending) {
+      this.ascending = ascending;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      while (!writersCompleted.get()) {
+        final List<Integer> keys = new ArrayList<Integer>();
+        final OTreeInternal.RangeResultListener<Integer, OIdentifiable> listener = new OTreeInternal.RangeResultListener<Integer, OIdentifiable>() {
+          @Override
+          public boolean addResult(Map.Entry<Integer, OIdentifiable> entry) {
+            Assert.assertEquals(entry.getValue(), createValue(entry.getKey()));
+            keys.add(entry.getKey());
+            return true;
+          }
+        };
+
+        if (ascending)
+          sbTree.loadEntriesMajor(0, true, listener);
+        else
+          sbTree.loadEntriesMinor(Integer.MAX_VALUE, true, listener);
+
+        for (int i = 1; i < keys.size(); i++) {
+          if (ascending)
+            Assert.assertTrue(keys.get(i - 1) < keys.get(i));
+          else
+            Assert.assertTrue(keys.get(i - 1) > keys.get(i));
+        }
+      }
+
+      return null;
+    }
+  }
+}
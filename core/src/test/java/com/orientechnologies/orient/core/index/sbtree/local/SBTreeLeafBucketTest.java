@@ -7,6 +7,7 @@ import org.testng.annotations.Test;
 
 import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.common.serialization.types.OStringSerializer;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.OClusterPositionFactory;
 import com.orientechnologies.orient.core.id.ORecordId;
@@ -266,6 +267,139 @@ public class SBTreeLeafBucketTest {
     pointer.free();
   }
 
+  public void testPrefixCompressedKeys() throws Exception {
+    long seed = System.currentTimeMillis();
+    System.out.println("testPrefixCompressedKeys seed : " + seed);
+
+    TreeSet<String> keys = new TreeSet<String>();
+    Random random = new Random(seed);
+
+    while (keys.size() < OSBTreeBucket.MAX_PAGE_SIZE_BYTES / 8)
+      keys.add("http://www.orientechnologies.com/documentation/" + random.nextInt(Integer.MAX_VALUE));
+
+    ODirectMemoryPointer compressedPointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    OSBTreeBucket<String, OIdentifiable> compressedBucket = new OSBTreeBucket<String, OIdentifiable>(compressedPointer, true, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    ODirectMemoryPointer plainPointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    OSBTreeBucket<String, OIdentifiable> plainBucket = new OSBTreeBucket<String, OIdentifiable>(plainPointer, true, false,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    int compressedSize = fillBucket(compressedBucket, keys);
+    int plainSize = fillBucket(plainBucket, keys);
+
+    Assert.assertEquals(compressedBucket.size(), compressedSize);
+    Assert.assertTrue(compressedSize > plainSize);
+
+    compressedBucket = new OSBTreeBucket<String, OIdentifiable>(compressedPointer, OStringSerializer.INSTANCE, null,
+        OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+    Assert.assertTrue(compressedBucket.isLeaf());
+    assertBucketContent(compressedBucket, keys, compressedSize);
+
+    compressedBucket.shrink(compressedSize / 2);
+    assertBucketContent(compressedBucket, keys, compressedSize / 2);
+
+    compressedPointer.free();
+    plainPointer.free();
+  }
+
+  public void testPrefixCompressedKeysWithoutCommonPrefix() throws Exception {
+    ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    OSBTreeBucket<String, OIdentifiable> treeBucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+
+    TreeSet<String> keys = new TreeSet<String>();
+    for (int i = 0; i < 100; i++)
+      keys.add("prefix" + i);
+
+    treeBucket.addAll(createEntries(keys));
+    assertBucketContent(treeBucket, keys, keys.size());
+
+    keys.add("another");
+    keys.add("pre");
+    keys.add("prefiy");
+    keys.add("zzz");
+
+    for (String key : new String[] { "another", "pre", "prefiy", "zzz" })
+      Assert.assertTrue(treeBucket.addEntry(-treeBucket.find(key) - 1, createEntry(key, keys.headSet(key).size()), false));
+
+    for (String key : keys)
+      Assert.assertEquals(treeBucket.getKey(treeBucket.find(key)), key);
+
+    while (!treeBucket.isEmpty())
+      treeBucket.remove(0);
+
+    Assert.assertEquals(treeBucket.getFreeSpace(), new OSBTreeBucket<String, OIdentifiable>(pointer, true, true,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL).getFreeSpace());
+
+    pointer.free();
+  }
+
+  public void testUncompressedBucketIsReadable() throws Exception {
+    TreeSet<String> keys = new TreeSet<String>();
+    for (int i = 0; i < 100; i++)
+      keys.add("key" + i);
+
+    ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
+    OSBTreeBucket<String, OIdentifiable> treeBucket = new OSBTreeBucket<String, OIdentifiable>(pointer, true, false,
+        OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE, ODurablePage.TrackMode.FULL);
+    treeBucket.addAll(createEntries(keys));
+
+    treeBucket = new OSBTreeBucket<String, OIdentifiable>(pointer, OStringSerializer.INSTANCE, null, OLinkSerializer.INSTANCE,
+        ODurablePage.TrackMode.FULL);
+    Assert.assertTrue(treeBucket.isLeaf());
+    assertBucketContent(treeBucket, keys, keys.size());
+
+    Assert.assertTrue(treeBucket.addEntry(keys.size(), createEntry("key999", keys.size()), false));
+    Assert.assertEquals(treeBucket.getKey(keys.size()), "key999");
+
+    pointer.free();
+  }
+
+  private static int fillBucket(OSBTreeBucket<String, OIdentifiable> treeBucket, Set<String> keys) throws Exception {
+    int index = 0;
+    for (String key : keys) {
+      if (!treeBucket.addEntry(index, createEntry(key, index), false))
+        break;
+
+      index++;
+    }
+
+    return index;
+  }
+
+  private static void assertBucketContent(OSBTreeBucket<String, OIdentifiable> treeBucket, Set<String> keys, int size) {
+    Assert.assertEquals(treeBucket.size(), size);
+
+    int index = 0;
+    for (String key : keys) {
+      if (index >= size)
+        break;
+
+      Assert.assertEquals(treeBucket.find(key), index);
+      Assert.assertEquals(treeBucket.getEntry(index), createEntry(key, index));
+      index++;
+    }
+  }
+
+  private static List<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>> createEntries(Set<String> keys) {
+    List<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>> entries = new ArrayList<OSBTreeBucket.SBTreeEntry<String, OIdentifiable>>(
+        keys.size());
+
+    int index = 0;
+    for (String key : keys) {
+      entries.add(createEntry(key, index));
+      index++;
+    }
+
+    return entries;
+  }
+
+  private static OSBTreeBucket.SBTreeEntry<String, OIdentifiable> createEntry(String key, int index) {
+    return new OSBTreeBucket.SBTreeEntry<String, OIdentifiable>(-1, -1, key, new OSBTreeValue<OIdentifiable>(false, -1,
+        new ORecordId(index, OClusterPositionFactory.INSTANCE.valueOf(index))));
+  }
+
   public void testSetLeftSibling() throws Exception {
     ODirectMemoryPointer pointer = new ODirectMemoryPointer(OSBTreeBucket.MAX_PAGE_SIZE_BYTES);
     OSBTreeBucket<Long, OIdentifiable> treeBucket = new OSBTreeBucket<Long, OIdentifiable>(pointer, true, OLongSerializer.INSTANCE,
@@ -0,0 +1,159 @@
+package com.orientechnologies.orient.core.index.sbtree.local;
+
+import java.io.IOException;
+import java.util.*;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OStringSerializer;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.hashindex.local.cache.ODiskCache;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Checks tree with long string keys which share common prefixes, so leaf buckets are prefix compressed and non-leaf buckets
+ * contain truncated separators.
+ */
+@Test
+public class SBTreeStringKeyTest {
+  private static final int               KEYS_COUNT = 200000;
+
+  private ODatabaseDocumentTx            databaseDocumentTx;
+
+  private OSBTree<String, OIdentifiable> sbTree;
+
+  private boolean                        keyCompression;
+
+  @BeforeClass
+  public void beforeClass() {
+    keyCompression = OGlobalConfiguration.SBTREE_KEY_COMPRESSION.getValueAsBoolean();
+    OGlobalConfiguration.SBTREE_KEY_COMPRESSION.setValue(true);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    databaseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDirectory + "/localSBTreeStringKeyTest");
+    if (databaseDocumentTx.exists()) {
+      databaseDocumentTx.open("admin", "admin");
+      databaseDocumentTx.drop();
+    }
+
+    databaseDocumentTx.create();
+
+    sbTree = new OSBTree<String, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeStringKey", OStringSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying());
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    sbTree.clear();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    sbTree.clear();
+    sbTree.delete();
+    databaseDocumentTx.drop();
+
+    OGlobalConfiguration.SBTREE_KEY_COMPRESSION.setValue(keyCompression);
+  }
+
+  public void testKeyPutRemoveRandom() {
+    long seed = System.currentTimeMillis();
+    System.out.println("testKeyPutRemoveRandom seed : " + seed);
+
+    final Random random = new Random(seed);
+    final TreeMap<String, OIdentifiable> keys = new TreeMap<String, OIdentifiable>();
+
+    while (keys.size() < KEYS_COUNT) {
+      final int number = random.nextInt(Integer.MAX_VALUE);
+      final String key = createKey(number);
+
+      final ORecordId value = createValue(number);
+      sbTree.put(key, value);
+      keys.put(key, value);
+    }
+
+    assertTreeContent(keys);
+
+    final Iterator<String> keysIterator = keys.keySet().iterator();
+    while (keysIterator.hasNext()) {
+      final String key = keysIterator.next();
+      if (random.nextInt(3) == 0) {
+        Assert.assertEquals(sbTree.remove(key), keys.get(key));
+        keysIterator.remove();
+      }
+    }
+
+    assertTreeContent(keys);
+
+    for (int i = 0; i < 1000; i++)
+      Assert.assertNull(sbTree.get(createKey(random.nextInt(Integer.MAX_VALUE)) + "-"));
+  }
+
+  public void testBulkLoad() {
+    final TreeMap<String, OIdentifiable> keys = new TreeMap<String, OIdentifiable>();
+    for (int i = 0; i < KEYS_COUNT; i++)
+      keys.put(createKey(i), createValue(i));
+
+    Assert.assertEquals(sbTree.bulkLoad(keys.entrySet().iterator(), 1.0f), KEYS_COUNT);
+
+    assertTreeContent(keys);
+  }
+
+  public void testBulkLoadWithFillFactorCompressesKeys() throws Exception {
+    final TreeMap<String, OIdentifiable> keys = new TreeMap<String, OIdentifiable>();
+    for (int i = 0; i < KEYS_COUNT; i++)
+      keys.put(createKey(i), createValue(i));
+
+    Assert.assertEquals(sbTree.bulkLoad(keys.entrySet().iterator(), 1.0f), KEYS_COUNT);
+    final long fullBucketsSize = getTreeFileSize();
+
+    sbTree.clear();
+
+    Assert.assertEquals(sbTree.bulkLoad(keys.entrySet().iterator(), 0.9f), KEYS_COUNT);
+    assertTreeContent(keys);
+
+    // FULL BUCKETS ARE COMPRESSED BECAUSE THEY ARE FULL, BUCKETS FILLED TILL FILL FACTOR SHOULD BE COMPRESSED TOO
+    Assert.assertTrue(getTreeFileSize() < fullBucketsSize * 1.25, "Tree file size " + getTreeFileSize()
+        + " is too big comparing with size of tree with full buckets " + fullBucketsSize);
+  }
+
+  private long getTreeFileSize() throws IOException {
+    final ODiskCache diskCache = ((OStorageLocalAbstract) databaseDocumentTx.getStorage().getUnderlying()).getDiskCache();
+    return diskCache.getFilledUpTo(diskCache.openFile("sbTreeStringKey.sbt"));
+  }
+
+  private void assertTreeContent(TreeMap<String, OIdentifiable> keys) {
+    for (Map.Entry<String, OIdentifiable> entry : keys.entrySet())
+      Assert.assertEquals(sbTree.get(entry.getKey()), entry.getValue());
+
+    Assert.assertEquals(sbTree.size(), keys.size());
+    Assert.assertEquals(sbTree.firstKey(), keys.firstKey());
+    Assert.assertEquals(sbTree.lastKey(), keys.lastKey());
+
+    final String middleKey = keys.keySet().toArray(new String[keys.size()])[keys.size() / 2];
+    Assert.assertEquals(sbTree.getValuesMajor(middleKey, true, -1), new ArrayList<OIdentifiable>(keys.tailMap(middleKey, true)
+        .values()));
+    Assert.assertEquals(sbTree.getValuesMinor(middleKey, false, -1).size(), keys.headMap(middleKey, false).size());
+  }
+
+  private static String createKey(int number) {
+    return "http://www.orientechnologies.com/documentation/" + number;
+  }
+
+  private static ORecordId createValue(int number) {
+    return new ORecordId(number % 32000, OClusterPositionFactory.INSTANCE.valueOf(number));
+  }
+}
@@ -302,6 +302,104 @@ public class SBTreeTest {
     Assert.assertEquals(sbTree.lastKey(), keyValues.lastKey());
   }
 
+  public void testLoadEntriesOfSortedKeys() {
+    for (int i = 0; i < KEYS_COUNT; i += 2)
+      sbTree.put(i, new ORecordId(i % 32000, OClusterPositionFactory.INSTANCE.valueOf(i)));
+
+    final List<Integer> keys = new ArrayList<Integer>();
+    final List<Integer> expectedKeys = new ArrayList<Integer>();
+    for (int i = -3; i < KEYS_COUNT + 30; i += 3) {
+      keys.add(i);
+      if (i >= 0 && i < KEYS_COUNT && i % 2 == 0)
+        expectedKeys.add(i);
+    }
+
+    final List<Integer> foundKeys = new ArrayList<Integer>();
+    sbTree.loadEntries(keys, new OSBTree.RangeResultListener<Integer, OIdentifiable>() {
+      @Override
+      public boolean addResult(Map.Entry<Integer, OIdentifiable> entry) {
+        final int key = entry.getKey();
+        Assert.assertEquals(entry.getValue(), new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key)));
+
+        foundKeys.add(key);
+        return true;
+      }
+    });
+
+    Assert.assertEquals(foundKeys, expectedKeys);
+
+    final List<Integer> limitedKeys = new ArrayList<Integer>();
+    sbTree.loadEntries(keys, new OSBTree.RangeResultListener<Integer, OIdentifiable>() {
+      @Override
+      public boolean addResult(Map.Entry<Integer, OIdentifiable> entry) {
+        limitedKeys.add(entry.getKey());
+        return limitedKeys.size() < 10;
+      }
+    });
+
+    Assert.assertEquals(limitedKeys, expectedKeys.subList(0, 10));
+  }
+
+  public void testBulkLoad() throws Exception {
+    NavigableMap<Integer, OIdentifiable> keyValues = new TreeMap<Integer, OIdentifiable>();
+    MersenneTwisterFast random = new MersenneTwisterFast();
+
+    while (keyValues.size() < KEYS_COUNT) {
+      int key = random.nextInt(Integer.MAX_VALUE);
+      keyValues.put(key, new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key)));
+    }
+
+    Assert.assertEquals(sbTree.bulkLoad(keyValues.entrySet().iterator(), 0.7f), KEYS_COUNT);
+    Assert.assertEquals(sbTree.size(), KEYS_COUNT);
+
+    for (Map.Entry<Integer, OIdentifiable> entry : keyValues.entrySet())
+      Assert.assertEquals(sbTree.get(entry.getKey()), entry.getValue());
+
+    Assert.assertEquals(sbTree.firstKey(), keyValues.firstKey());
+    Assert.assertEquals(sbTree.lastKey(), keyValues.lastKey());
+
+    NavigableMap<Integer, ORID> ridValues = new TreeMap<Integer, ORID>();
+    for (Map.Entry<Integer, OIdentifiable> entry : keyValues.entrySet())
+      ridValues.put(entry.getKey(), entry.getValue().getIdentity());
+
+    assertMajorValues(ridValues, random, true);
+    assertMinorValues(ridValues, random, false);
+    assertBetweenValues(ridValues, random, true, true);
+
+    for (int i = 0; i < 1000; i++) {
+      int key = random.nextInt(Integer.MAX_VALUE);
+      sbTree.put(key, new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key)));
+      ridValues.put(key, new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key)));
+    }
+
+    Assert.assertEquals(sbTree.size(), ridValues.size());
+    for (Map.Entry<Integer, ORID> entry : ridValues.entrySet())
+      Assert.assertEquals(sbTree.get(entry.getKey()), entry.getValue());
+  }
+
+  public void testBulkLoadSingleBucket() throws Exception {
+    NavigableMap<Integer, OIdentifiable> keyValues = new TreeMap<Integer, OIdentifiable>();
+    for (int i = 0; i < 10; i++)
+      keyValues.put(i, new ORecordId(i % 32000, OClusterPositionFactory.INSTANCE.valueOf(i)));
+
+    sbTree.bulkLoad(keyValues.entrySet().iterator(), 1.0f);
+
+    for (int i = 0; i < 10; i++)
+      Assert.assertEquals(sbTree.get(i), keyValues.get(i));
+
+    Assert.assertEquals(sbTree.firstKey(), keyValues.firstKey());
+    Assert.assertEquals(sbTree.lastKey(), keyValues.lastKey());
+  }
+
+  @Test(expectedExceptions = OSBTreeException.class)
+  public void testBulkLoadUnsortedKeys() throws Exception {
+    Map<Integer, OIdentifiable> keyValues = new LinkedHashMap<Integer, OIdentifiable>();
+    keyValues.put(2, new ORecordId(2, OClusterPositionFactory.INSTANCE.valueOf(2)));
+    keyValues.put(1, new ORecordId(1, OClusterPositionFactory.INSTANCE.valueOf(1)));
+
+    sbTree.bulkLoad(keyValues.entrySet().iterator(), 1.0f);
+  }
+
   public void testAddKeyValuesInTwoBucketsAndMakeFirstEmpty() throws Exception {
     for (int i = 0; i < 5167; i++)
       sbTree.put(i, new ORecordId(i % 32000, OClusterPositionFactory.INSTANCE.valueOf(i)));
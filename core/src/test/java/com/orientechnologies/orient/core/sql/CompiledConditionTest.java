@@ -0,0 +1,146 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks that compiled WHERE conditions select the same records as interpreted ones.
+ */
+@Test
+public class CompiledConditionTest {
+  private static final int    DOCUMENTS_COUNT = 200;
+
+  private ODatabaseDocumentTx db;
+  private Date                middleDate;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:compiledConditionTest");
+    db.create();
+
+    final OClass schemaClass = db.getMetadata().getSchema().createClass("CompiledTest");
+    schemaClass.createProperty("name", OType.STRING).setCollate("ci");
+
+    final long now = System.currentTimeMillis();
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("CompiledTest");
+      document.field("intValue", i);
+      document.field("longValue", (long) i * 3);
+      document.field("name", (i % 2 == 0 ? "Name" : "NAME") + (i % 10));
+      if (i % 7 != 0)
+        document.field("nullable", i % 3);
+      // SOME VALUES HAVE TO BE CONVERTED BEFORE COMPARISON
+      document.field("mixed", i % 4 == 0 ? (Object) String.valueOf(i) : (Object) Double.valueOf(i));
+      document.field("date", new Date(now + i * 1000L));
+      document.field("flag", i % 5 == 0);
+      document.save();
+
+      if (i == DOCUMENTS_COUNT / 2)
+        middleDate = document.field("date");
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.COMMAND_COMPILED_CONDITIONS.setValue(true);
+  }
+
+  public void testComparisons() {
+    assertSameResult("select from CompiledTest where intValue = 10");
+    assertSameResult("select from CompiledTest where intValue <> 10");
+    assertSameResult("select from CompiledTest where intValue > 150");
+    assertSameResult("select from CompiledTest where intValue >= 150");
+    assertSameResult("select from CompiledTest where intValue < 20");
+    assertSameResult("select from CompiledTest where intValue <= 20");
+    assertSameResult("select from CompiledTest where 20 > intValue");
+    assertSameResult("select from CompiledTest where 150 <= intValue");
+    assertSameResult("select from CompiledTest where flag = true");
+    assertSameResult("select from CompiledTest where @class = 'CompiledTest' and intValue < 3");
+  }
+
+  public void testConversions() {
+    assertSameResult("select from CompiledTest where longValue > 300");
+    assertSameResult("select from CompiledTest where intValue = '15'");
+    assertSameResult("select from CompiledTest where intValue < 20.5");
+    assertSameResult("select from CompiledTest where mixed > 100");
+    assertSameResult("select from CompiledTest where mixed = '40'");
+  }
+
+  public void testNulls() {
+    assertSameResult("select from CompiledTest where nullable = 1");
+    assertSameResult("select from CompiledTest where nullable <> 1");
+    assertSameResult("select from CompiledTest where nullable is null");
+    assertSameResult("select from CompiledTest where not (nullable = 1)");
+    assertSameResult("select from CompiledTest where missing = 1 or intValue < 5");
+  }
+
+  public void testCollate() {
+    assertSameResult("select from CompiledTest where name = 'name3'");
+    assertSameResult("select from CompiledTest where name > 'NAME7'");
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from CompiledTest where name = 'nAmE3'"));
+    Assert.assertEquals(result.size(), DOCUMENTS_COUNT / 10);
+  }
+
+  public void testLogicalOperators() {
+    assertSameResult("select from CompiledTest where intValue > 10 and intValue < 20");
+    assertSameResult("select from CompiledTest where intValue < 10 or intValue > 190");
+    assertSameResult("select from CompiledTest where not (intValue < 100)");
+    assertSameResult("select from CompiledTest where (intValue < 10 or flag = true) and (name = 'name0' or nullable = 2)");
+    assertSameResult("select from CompiledTest where intValue between 10 and 20 and name like 'name%'");
+    assertSameResult("select from CompiledTest where intValue in [1, 2, 3] or longValue > 500");
+  }
+
+  public void testParameters() {
+    final String sql = "select from CompiledTest where intValue >= ? and date < ? and name = ?";
+
+    final Set<Object> compiled = selectIds(sql, 50, middleDate, "name4");
+    final Set<Object> otherCompiled = selectIds(sql, 10, middleDate, "name2");
+
+    OGlobalConfiguration.COMMAND_COMPILED_CONDITIONS.setValue(false);
+    Assert.assertEquals(compiled, selectIds(sql, 50, middleDate, "name4"));
+    Assert.assertEquals(otherCompiled, selectIds(sql, 10, middleDate, "name2"));
+
+    Assert.assertFalse(compiled.isEmpty());
+    Assert.assertFalse(compiled.equals(otherCompiled));
+  }
+
+  private void assertSameResult(final String iSQL) {
+    OGlobalConfiguration.COMMAND_COMPILED_CONDITIONS.setValue(true);
+    final Set<Object> compiled = selectIds(iSQL);
+
+    OGlobalConfiguration.COMMAND_COMPILED_CONDITIONS.setValue(false);
+    final Set<Object> interpreted = selectIds(iSQL);
+
+    Assert.assertEquals(compiled, interpreted, iSQL);
+  }
+
+  private Set<Object> selectIds(final String iSQL, final Object... iArgs) {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(iSQL), iArgs);
+
+    final Set<Object> ids = new HashSet<Object>();
+    for (ODocument document : result)
+      ids.add(document.field("intValue"));
+    return ids;
+  }
+}
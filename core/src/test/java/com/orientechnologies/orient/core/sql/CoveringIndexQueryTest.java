@@ -0,0 +1,175 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks that queries which use only indexed fields are answered from index keys and return the same result as queries which
+ * read records.
+ */
+@Test
+public class CoveringIndexQueryTest {
+  private static final int    DOCUMENTS_COUNT = 1000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:coveringIndexQueryTest");
+    db.create();
+
+    final OClass coveringClass = db.getMetadata().getSchema().createClass("CoveringTest");
+    coveringClass.createProperty("group", OType.INTEGER).setNotNull(true);
+    coveringClass.createProperty("name", OType.STRING).setNotNull(true);
+    coveringClass.createProperty("nick", OType.STRING);
+    coveringClass.createProperty("payload", OType.STRING);
+
+    coveringClass.createIndex("CoveringTest.group_name", OClass.INDEX_TYPE.NOTUNIQUE, "group", "name");
+    coveringClass.createIndex("CoveringTest.nick", OClass.INDEX_TYPE.UNIQUE, "nick");
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("CoveringTest");
+      document.field("group", i % 10);
+      document.field("name", "name" + (i % 100));
+      if (i % 2 == 0)
+        document.field("nick", "nick" + i);
+      document.field("payload", "payload" + i);
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testEqualityPrefix() {
+    final List<ODocument> result = query("select name from CoveringTest where group = 3");
+    Assert.assertEquals(result.size(), DOCUMENTS_COUNT / 10);
+
+    final List<String> names = new ArrayList<String>();
+    for (ODocument document : result) {
+      Assert.assertEquals(document.fieldNames().length, 1);
+      names.add(document.<String> field("name"));
+    }
+
+    final List<String> expectedNames = new ArrayList<String>();
+    for (int i = 3; i < DOCUMENTS_COUNT; i += 10)
+      expectedNames.add("name" + (i % 100));
+
+    Collections.sort(names);
+    Collections.sort(expectedNames);
+    Assert.assertEquals(names, expectedNames);
+
+    assertCovered("select name from CoveringTest where group = 3", "CoveringTest.group_name");
+  }
+
+  public void testFullKeyAndRange() {
+    Assert.assertEquals(query("select group, name from CoveringTest where group = 3 and name = 'name13'").size(), 10);
+    Assert.assertEquals(query("select group, name from CoveringTest where group = 3 and name > 'name50'").size(), 50);
+    Assert.assertEquals(query("select group from CoveringTest where group >= 8").size(), 200);
+    Assert.assertEquals(query("select group from CoveringTest where group < 2 and name like 'name1%'").size(), 30);
+
+    assertCovered("select group, name from CoveringTest where group = 3 and name > 'name50'", "CoveringTest.group_name");
+  }
+
+  public void testCountAndAggregates() {
+    final ODocument count = query("select count(*) from CoveringTest where group = 5").get(0);
+    Assert.assertEquals(((Number) count.field("count")).intValue(), 100);
+
+    final ODocument aggregates = query(
+        "select min(name) as minName, max(name) as maxName, sum(group) as total from CoveringTest where group in [1, 2]").get(0);
+    Assert.assertEquals(aggregates.field("minName"), "name1");
+    Assert.assertEquals(aggregates.field("maxName"), "name92");
+    Assert.assertEquals(((Number) aggregates.field("total")).intValue(), 300);
+
+    final List<ODocument> groups = query("select group, count(*) as cnt from CoveringTest group by group");
+    Assert.assertEquals(groups.size(), 10);
+    for (ODocument group : groups)
+      Assert.assertEquals(((Number) group.field("cnt")).intValue(), 100);
+
+    assertCovered("select count(*) from CoveringTest where group = 5", "CoveringTest.group_name");
+  }
+
+  public void testMinMaxFromIndexBoundaries() {
+    Assert.assertEquals(query("select min(group) from CoveringTest").get(0).field("min"), 0);
+    Assert.assertEquals(query("select max(group) from CoveringTest").get(0).field("max"), 9);
+    Assert.assertEquals(query("select max(nick) from CoveringTest").get(0).field("max"), "nick998");
+
+    assertCovered("select max(group) from CoveringTest", "CoveringTest.group_name");
+  }
+
+  public void testNotCoveredQueries() {
+    // FIELD IS NOT INDEXED
+    assertNotCovered("select payload from CoveringTest where group = 3");
+    // RECORDS WITHOUT NICK ARE NOT IN INDEX
+    assertNotCovered("select nick from CoveringTest");
+    // RECORD ATTRIBUTES ARE NOT IN INDEX
+    assertNotCovered("select @rid, name from CoveringTest where group = 3");
+
+    final List<ODocument> nicks = query("select nick from CoveringTest");
+    Assert.assertEquals(nicks.size(), DOCUMENTS_COUNT);
+
+    Assert.assertEquals(query("select nick from CoveringTest where nick = 'nick10'").size(), 1);
+    assertCovered("select nick from CoveringTest where nick = 'nick10'", "CoveringTest.nick");
+  }
+
+  public void testLimitAndSkip() {
+    Assert.assertEquals(query("select name from CoveringTest where group = 1 limit 7").size(), 7);
+    Assert.assertEquals(query("select name from CoveringTest where group = 1 skip 95").size(), 5);
+  }
+
+  public void testKeysAreReadInSeveralBatches() {
+    final OClass batchClass = db.getMetadata().getSchema().createClass("CoveringBatchTest");
+    batchClass.createProperty("value", OType.INTEGER).setNotNull(true);
+    batchClass.createIndex("CoveringBatchTest.value", OClass.INDEX_TYPE.NOTUNIQUE, "value");
+
+    // KEYS ARE REPEATED, SO ENTRIES OF THE SAME KEY ARE MET ON BOUNDARIES OF BATCHES
+    for (int i = 0; i < 3500; i++) {
+      final ODocument document = new ODocument("CoveringBatchTest");
+      document.field("value", i % 700);
+      document.save();
+    }
+
+    final List<ODocument> values = query("select value from CoveringBatchTest");
+    Assert.assertEquals(values.size(), 3500);
+
+    final int[] counts = new int[700];
+    for (ODocument document : values)
+      counts[document.<Integer> field("value")]++;
+    for (int count : counts)
+      Assert.assertEquals(count, 5);
+
+    Assert.assertEquals(query("select value from CoveringBatchTest where value >= 100").size(), 3000);
+    Assert.assertEquals(query("select value from CoveringBatchTest where value between 50 and 649").size(), 3000);
+    Assert.assertEquals(query("select value from CoveringBatchTest where value <= 599").size(), 3000);
+
+    assertCovered("select value from CoveringBatchTest", "CoveringBatchTest.value");
+  }
+
+  private List<ODocument> query(String sql) {
+    return db.query(new OSQLSynchQuery<ODocument>(sql));
+  }
+
+  private void assertCovered(String sql, String indexName) {
+    final ODocument explain = db.command(new OCommandSQL("explain " + sql)).execute();
+    Assert.assertEquals(explain.field("coveringIndex"), indexName);
+  }
+
+  private void assertNotCovered(String sql) {
+    final ODocument explain = db.command(new OCommandSQL("explain " + sql)).execute();
+    Assert.assertNull(explain.field("coveringIndex"));
+  }
+}
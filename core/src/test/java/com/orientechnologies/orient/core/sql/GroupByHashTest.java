@@ -0,0 +1,179 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks results of GROUP BY with aggregate functions, both when all the groups fit in memory and when they are moved to temporary
+ * files.
+ */
+@Test
+public class GroupByHashTest {
+  private static final int    DOCUMENTS_COUNT = 1000;
+  private static final int    GROUPS_COUNT    = 50;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:groupByHashTest");
+    db.create();
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("GroupByTest");
+      if (i % 100 != 99)
+        document.field("name", "name" + (i % GROUPS_COUNT));
+      document.field("category", i % 3);
+      document.field("intValue", i);
+      document.field("longValue", (long) i * Integer.MAX_VALUE);
+      if (i % 2 == 0)
+        document.field("doubleValue", i / 4.0);
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @AfterMethod
+  public void afterMethod() {
+    OGlobalConfiguration.COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(-1);
+  }
+
+  public void testAggregates() {
+    assertAggregates();
+  }
+
+  public void testAggregatesOfSpilledGroups() {
+    OGlobalConfiguration.COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(7);
+    assertAggregates();
+
+    final ODocument explain = db.command(
+        new OCommandSQL("explain select name, count(*) from GroupByTest group by name")).execute();
+    Assert.assertTrue(((Number) explain.field("groupBySpilledGroups")).intValue() >= GROUPS_COUNT);
+  }
+
+  public void testMultipleFields() {
+    final String sql = "select name, category, count(*) as total from GroupByTest group by name, category";
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql));
+    OGlobalConfiguration.COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(3);
+    final List<ODocument> spilledResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+
+    Assert.assertEquals(result.size(), GROUPS_COUNT * 3 + 3);
+    Assert.assertEquals(spilledResult.size(), result.size());
+
+    final Map<String, Long> totals = new HashMap<String, Long>();
+    for (ODocument document : result)
+      totals.put(document.field("name") + "," + document.field("category"), document.<Long> field("total"));
+
+    long total = 0;
+    for (ODocument document : spilledResult) {
+      Assert.assertEquals(document.field("total"), totals.get(document.field("name") + "," + document.field("category")));
+      total += document.<Long> field("total");
+    }
+    Assert.assertEquals(total, DOCUMENTS_COUNT);
+  }
+
+  public void testPartitionsSplitAgain() {
+    // EVERY PARTITION HAS MORE GROUPS THAN FIT IN MEMORY
+    OGlobalConfiguration.COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(1);
+    assertAggregates();
+  }
+
+  public void testLimitAndOrderOfSpilledGroups() {
+    OGlobalConfiguration.COMMAND_GROUP_BY_MAX_GROUPS_IN_MEMORY.setValue(3);
+
+    final List<ODocument> limited = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, count(*) from GroupByTest where name is not null group by name skip 5 limit 10"));
+    Assert.assertEquals(limited.size(), 10);
+
+    final List<ODocument> ordered = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, max(intValue) as maxInt from GroupByTest where name is not null group by name order by maxInt desc"
+            + " skip 2 limit 5"));
+    Assert.assertEquals(ordered.size(), 5);
+    // MAXIMUM OF THE LAST GROUP IS SMALL BECAUSE RECORD 999 HAS NO NAME
+    for (int i = 0; i < ordered.size(); i++)
+      Assert.assertEquals(ordered.get(i).field("name"), "name" + (GROUPS_COUNT - 4 - i));
+  }
+
+  public void testGroupsOrder() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select name, count(*) from GroupByTest where name is not null group by name"));
+
+    Assert.assertEquals(result.size(), GROUPS_COUNT);
+    for (int i = 0; i < GROUPS_COUNT; i++)
+      Assert.assertEquals(result.get(i).field("name"), "name" + i);
+  }
+
+  private void assertAggregates() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select name, count(*) as total,"
+        + " count(doubleValue) as doubleCount, sum(intValue) as intSum, sum(longValue) as longSum, sum(doubleValue) as doubleSum,"
+        + " avg(intValue) as intAvg, avg(doubleValue) as doubleAvg, min(intValue) as minInt, max(longValue) as maxLong,"
+        + " max(doubleValue) as maxDouble from GroupByTest group by name"));
+
+    // RECORDS WITHOUT NAME ARE NOT GROUPED
+    Assert.assertEquals(result.size(), GROUPS_COUNT);
+
+    for (ODocument document : result) {
+      final int group = Integer.parseInt(document.<String> field("name").substring("name".length()));
+
+      long total = 0;
+      long doubleCount = 0;
+      int intSum = 0;
+      long longSum = 0;
+      double doubleSum = 0;
+      int minInt = Integer.MAX_VALUE;
+      long maxLong = Long.MIN_VALUE;
+      double maxDouble = Double.NEGATIVE_INFINITY;
+
+      for (int i = group; i < DOCUMENTS_COUNT; i += GROUPS_COUNT) {
+        if (i % 100 == 99)
+          continue;
+
+        total++;
+        intSum += i;
+        longSum += (long) i * Integer.MAX_VALUE;
+        minInt = Math.min(minInt, i);
+        maxLong = Math.max(maxLong, (long) i * Integer.MAX_VALUE);
+        if (i % 2 == 0) {
+          doubleCount++;
+          doubleSum += i / 4.0;
+          maxDouble = Math.max(maxDouble, i / 4.0);
+        }
+      }
+
+      Assert.assertEquals(document.field("total"), total);
+      Assert.assertEquals(document.field("doubleCount"), doubleCount);
+      Assert.assertEquals(document.field("intSum"), intSum);
+      Assert.assertEquals(document.field("longSum"), longSum);
+      Assert.assertEquals(document.field("intAvg"), (int) (intSum / total));
+      Assert.assertEquals(document.field("minInt"), minInt);
+      Assert.assertEquals(document.field("maxLong"), maxLong);
+
+      if (doubleCount > 0) {
+        Assert.assertEquals(document.<Double> field("doubleSum"), doubleSum, 0.0001);
+        Assert.assertEquals(document.<Double> field("doubleAvg"), doubleSum / doubleCount, 0.0001);
+        Assert.assertEquals(document.field("maxDouble"), maxDouble);
+      } else {
+        Assert.assertNull(document.field("doubleSum"));
+        Assert.assertNull(document.field("doubleAvg"));
+        Assert.assertNull(document.field("maxDouble"));
+      }
+    }
+  }
+}
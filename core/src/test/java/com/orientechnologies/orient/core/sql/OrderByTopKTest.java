@@ -0,0 +1,105 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks that ORDER BY with LIMIT returns the same records as ordering of all the records followed by SKIP and LIMIT.
+ */
+@Test
+public class OrderByTopKTest {
+  private static final int    DOCUMENTS_COUNT = 1000;
+
+  private ODatabaseDocumentTx db;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:orderByTopKTest");
+    db.create();
+
+    final OClass topKClass = db.getMetadata().getSchema().createClass("TopKTest");
+    topKClass.createProperty("id", OType.INTEGER);
+    topKClass.createProperty("score", OType.INTEGER);
+    topKClass.createProperty("rank", OType.INTEGER).setNotNull(true);
+    topKClass.createIndex("TopKTest.rank", OClass.INDEX_TYPE.NOTUNIQUE, "rank");
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("TopKTest");
+      document.field("id", (i * 7919) % DOCUMENTS_COUNT);
+      document.field("score", (i * 37) % 100);
+      document.field("rank", (i * 331) % DOCUMENTS_COUNT);
+      document.field("group", "group" + (i % 10));
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  public void testSkipAndLimit() {
+    final String sql = "select from TopKTest where id > 100 order by score desc, id asc";
+    final List<ODocument> allResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+
+    for (int[] skipAndLimit : new int[][] { { 0, 1 }, { 0, 10 }, { 5, 10 }, { 890, 10 }, { 895, 10 }, { 0, 2000 } }) {
+      final int skip = skipAndLimit[0];
+      final int limit = skipAndLimit[1];
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql + " skip " + skip + " limit " + limit));
+
+      Assert.assertEquals(result, allResult.subList(Math.min(skip, allResult.size()), Math.min(skip + limit, allResult.size())));
+    }
+  }
+
+  public void testEqualValuesKeepOrderOfScan() {
+    final String sql = "select from TopKTest order by score";
+    final List<ODocument> allResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql + " limit 55"));
+
+    Assert.assertEquals(result, allResult.subList(0, 55));
+  }
+
+  public void testProjections() {
+    final String sql = "select id, score from TopKTest order by score asc, id desc";
+    final List<ODocument> allResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql + " skip 3 limit 20"));
+
+    Assert.assertEquals(result.size(), 20);
+    for (int i = 0; i < result.size(); i++) {
+      Assert.assertEquals(result.get(i).field("id"), allResult.get(i + 3).field("id"));
+      Assert.assertEquals(result.get(i).field("score"), allResult.get(i + 3).field("score"));
+    }
+  }
+
+  public void testRequestLimit() {
+    final String sql = "select from TopKTest order by score desc, id asc";
+    final List<ODocument> allResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql, 15));
+
+    Assert.assertEquals(result, allResult.subList(0, 15));
+  }
+
+  public void testOrderedIndexWithCondition() {
+    final String sql = "select from TopKTest where group = 'group3' order by rank desc";
+    final List<ODocument> allResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+    Assert.assertEquals(allResult.size(), DOCUMENTS_COUNT / 10);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql + " skip 2 limit 5"));
+    Assert.assertEquals(result, allResult.subList(2, 7));
+
+    final ODocument explain = db.command(new OCommandSQL("explain " + sql + " skip 2 limit 5")).execute();
+    Assert.assertTrue(((Collection<?>) explain.field("involvedIndexes")).contains("TopKTest.rank"));
+    Assert.assertTrue(((Number) explain.field("documentReads")).intValue() < DOCUMENTS_COUNT);
+  }
+}
@@ -0,0 +1,97 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.io.File;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+
+/**
+ * Checks that SELECT with PARALLEL keyword on plocal storage stops workers, which read files of storage, when the query is
+ * completed before the end of scan, and storage is still readable after that.
+ */
+@Test
+public class ParallelSelectLocalTest {
+  private static final int    DOCUMENTS_COUNT = 20000;
+
+  private ODatabaseDocumentTx db;
+  private int                 scanThreads;
+  private int                 diskCacheSize;
+
+  @BeforeClass
+  public void beforeClass() {
+    scanThreads = OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.getValueAsInteger();
+    OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.setValue(4);
+
+    // RECORDS DO NOT FIT INTO DISK CACHE, SO WORKERS READ FILES OF STORAGE
+    diskCacheSize = OGlobalConfiguration.DISK_CACHE_SIZE.getValueAsInteger();
+    OGlobalConfiguration.DISK_CACHE_SIZE.setValue(1);
+
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    db = new ODatabaseDocumentTx("plocal:" + new File(buildDirectory, "parallelSelectLocalTest").getAbsolutePath());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    db.getMetadata().getSchema().createClass("ParallelLocalTest");
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("ParallelLocalTest");
+      document.field("id", i);
+      document.field("group", "group" + (i % 7));
+      document.field("text", "Text of record number " + i + " which makes records bigger than disk cache. "
+          + "Text of record number " + i + " which makes records bigger than disk cache.");
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.setValue(scanThreads);
+    OGlobalConfiguration.DISK_CACHE_SIZE.setValue(diskCacheSize);
+  }
+
+  public void testLimit() {
+    // RECORDS ARE NOT CACHED AFTER STORAGE IS REOPENED
+    reopen();
+
+    // WORKERS ARE STILL SCANNING WHEN EVERY OF THESE QUERIES IS COMPLETED
+    for (int i = 0; i < 20; i++) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from ParallelLocalTest parallel limit 10"));
+      Assert.assertEquals(result.size(), 10);
+    }
+
+    assertAllRecordsAreRead();
+
+    reopen();
+    assertAllRecordsAreRead();
+  }
+
+  private void reopen() {
+    final String url = db.getURL();
+    final OStorage storage = db.getStorage();
+    db.close();
+    storage.close(true, false);
+
+    db = new ODatabaseDocumentTx(url);
+    db.open("admin", "admin");
+  }
+
+  private void assertAllRecordsAreRead() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select count(*) as total from ParallelLocalTest"));
+    Assert.assertEquals(((Number) result.get(0).field("total")).intValue(), DOCUMENTS_COUNT);
+
+    final List<ODocument> parallelResult = db.query(new OSQLSynchQuery<ODocument>("select from ParallelLocalTest parallel"));
+    Assert.assertEquals(parallelResult.size(), DOCUMENTS_COUNT);
+  }
+}
@@ -0,0 +1,136 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks that SELECT with PARALLEL keyword returns the same records as serial scan of the class.
+ */
+@Test
+public class ParallelSelectTest {
+  private static final int    DOCUMENTS_COUNT = 5000;
+
+  private ODatabaseDocumentTx db;
+  private int                 scanThreads;
+
+  @BeforeClass
+  public void beforeClass() {
+    scanThreads = OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.getValueAsInteger();
+    OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.setValue(4);
+
+    db = new ODatabaseDocumentTx("memory:parallelSelectTest");
+    db.create();
+
+    final OClass parentClass = db.getMetadata().getSchema().createClass("ParallelTest");
+    db.getMetadata().getSchema().createClass("ParallelSubTest", parentClass);
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument(i % 5 == 0 ? "ParallelSubTest" : "ParallelTest");
+      document.field("id", i);
+      document.field("group", "group" + (i % 7));
+      document.save();
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.COMMAND_PARALLEL_SCAN_THREADS.setValue(scanThreads);
+  }
+
+  public void testAllRecords() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from ParallelTest parallel"));
+    Assert.assertEquals(toIds(result).size(), DOCUMENTS_COUNT);
+
+    final List<ODocument> subResult = db.query(new OSQLSynchQuery<ODocument>("select from ParallelSubTest parallel"));
+    Assert.assertEquals(toIds(subResult).size(), DOCUMENTS_COUNT / 5);
+
+    final ODocument explain = db.command(new OCommandSQL("explain select from ParallelTest parallel")).execute();
+    Assert.assertTrue(((Number) explain.field("parallelScanThreads")).intValue() > 1);
+    Assert.assertEquals(((Number) explain.field("documentReads")).intValue(), DOCUMENTS_COUNT);
+  }
+
+  public void testCondition() {
+    final String sql = "select from ParallelTest where id < ? and group = ?";
+
+    final List<ODocument> serialResult = db.query(new OSQLSynchQuery<ODocument>(sql), 3000, "group3");
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql + " parallel"), 3000, "group3");
+
+    Assert.assertFalse(serialResult.isEmpty());
+    Assert.assertEquals(toIds(result), toIds(serialResult));
+  }
+
+  public void testNamedParameters() {
+    final Map<String, Object> params = new HashMap<String, Object>();
+    params.put("from", 100);
+    params.put("to", 110);
+
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from ParallelTest where id >= :from and id < :to parallel"), params);
+    Assert.assertEquals(result.size(), 10);
+  }
+
+  public void testLimit() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select from ParallelTest where group = 'group1' parallel limit 20"));
+
+    Assert.assertEquals(result.size(), 20);
+    for (ODocument document : result)
+      Assert.assertEquals(document.field("group"), "group1");
+  }
+
+  public void testOrderBy() {
+    final String sql = "select id from ParallelTest where id between 1000 and 1200 order by id";
+
+    final List<ODocument> serialResult = db.query(new OSQLSynchQuery<ODocument>(sql));
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql + " parallel"));
+
+    Assert.assertEquals(result.size(), serialResult.size());
+    for (int i = 0; i < result.size(); i++)
+      Assert.assertEquals(result.get(i).field("id"), serialResult.get(i).field("id"));
+  }
+
+  public void testGroupBy() {
+    final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(
+        "select group, count(*) as total, sum(id) as idSum from ParallelTest group by group parallel"));
+
+    Assert.assertEquals(result.size(), 7);
+    for (ODocument document : result) {
+      final int group = Integer.parseInt(document.<String> field("group").substring("group".length()));
+
+      long total = 0;
+      int idSum = 0;
+      for (int i = group; i < DOCUMENTS_COUNT; i += 7) {
+        total++;
+        idSum += i;
+      }
+
+      Assert.assertEquals(document.field("total"), total);
+      Assert.assertEquals(document.field("idSum"), idSum);
+    }
+  }
+
+  private static Set<Object> toIds(final List<? extends OIdentifiable> result) {
+    final Set<Object> ids = new HashSet<Object>();
+    for (OIdentifiable identifiable : result)
+      ids.add(((ODocument) identifiable.getRecord()).field("id"));
+
+    Assert.assertEquals(ids.size(), result.size());
+    return ids;
+  }
+}
@@ -0,0 +1,126 @@
+package com.orientechnologies.orient.core.sql;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+
+/**
+ * Checks that statements reused from the cache of parsed statements return the same results as freshly parsed ones and that the
+ * cache is discarded when indexes are changed.
+ */
+@Test
+public class SQLStatementCacheTest {
+  private static final int    DOCUMENTS_COUNT = 100;
+
+  private ODatabaseDocumentTx db;
+  private OSQLStatementCache  statementCache;
+
+  @BeforeClass
+  public void beforeClass() {
+    db = new ODatabaseDocumentTx("memory:sqlStatementCacheTest");
+    db.create();
+
+    final OClass cachedClass = db.getMetadata().getSchema().createClass("StatementCacheTest");
+    cachedClass.createProperty("id", OType.INTEGER);
+    cachedClass.createProperty("name", OType.STRING);
+
+    for (int i = 0; i < DOCUMENTS_COUNT; i++) {
+      final ODocument document = new ODocument("StatementCacheTest");
+      document.field("id", i);
+      document.field("name", "name" + (i % 10));
+      document.save();
+    }
+
+    statementCache = OSQLStatementCache.get(db);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+  }
+
+  @BeforeMethod
+  public void beforeMethod() {
+    statementCache.invalidate();
+  }
+
+  public void testPositionalParameters() {
+    for (int i = 0; i < DOCUMENTS_COUNT; i += 7) {
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>("select from StatementCacheTest where id = ?"), i);
+      Assert.assertEquals(result.size(), 1);
+      Assert.assertEquals(result.get(0).field("id"), i);
+    }
+
+    Assert.assertEquals(statementCache.size(), 1);
+  }
+
+  public void testNamedParameters() {
+    final String sql = "select from StatementCacheTest where name = :name and id < :id";
+
+    for (int i = 0; i < 10; i++) {
+      final Map<String, Object> params = new HashMap<String, Object>();
+      params.put("name", "name" + i);
+      params.put("id", 50);
+
+      final List<ODocument> result = db.query(new OSQLSynchQuery<ODocument>(sql), params);
+      Assert.assertEquals(result.size(), 5);
+      for (ODocument document : result)
+        Assert.assertEquals(document.field("name"), "name" + i);
+    }
+
+    Assert.assertEquals(statementCache.size(), 1);
+  }
+
+  public void testLiteralConditions() {
+    final String sql = "select from StatementCacheTest where name = 'name3' and id >= 50";
+    for (int i = 0; i < 3; i++)
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(sql)).size(), 5);
+
+    Assert.assertEquals(statementCache.size(), 1);
+  }
+
+  public void testFunctionsAreNotCached() {
+    final String sql = "select from StatementCacheTest where id in (select id from StatementCacheTest where name = 'name1')";
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(sql)).size(), 10);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from StatementCacheTest where id.asString() = '5'")).size(),
+        1);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from StatementCacheTest where sysdate() is not null"))
+        .size(), DOCUMENTS_COUNT);
+
+    // ONLY THE SUB-QUERY AND THE METHOD CALL ARE REUSABLE
+    Assert.assertEquals(statementCache.size(), 2);
+  }
+
+  public void testIndexChangeInvalidatesCache() {
+    final String sql = "select from StatementCacheTest where name = ?";
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(sql), "name2").size(), 10);
+    Assert.assertEquals(statementCache.size(), 1);
+
+    db.getMetadata().getSchema().getClass("StatementCacheTest")
+        .createIndex("StatementCacheTest.name", OClass.INDEX_TYPE.NOTUNIQUE, "name");
+    Assert.assertEquals(statementCache.size(), 0);
+
+    for (int i = 0; i < 2; i++) {
+      final ODocument explain = db.command(new OCommandSQL("explain " + sql)).execute("name2");
+      Assert.assertEquals(((Number) explain.field("resultSize")).intValue(), 10);
+      Assert.assertTrue(((Collection<?>) explain.field("involvedIndexes")).contains("StatementCacheTest.name"));
+    }
+
+    db.getMetadata().getIndexManager().dropIndex("StatementCacheTest.name");
+    Assert.assertEquals(statementCache.size(), 0);
+    Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>(sql), "name2").size(), 10);
+  }
+}
@@ -1,6 +1,7 @@
 package com.orientechnologies.orient.core.storage.fs;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
@@ -70,4 +71,34 @@ public class FileClassicTest {
     fileClassicTwo.close();
     fileClassicTwo.delete();
   }
+
+  public void testReadIntoDirectBuffer() throws Exception {
+    OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(buildDirectory + File.separator + "file.tst", "rw");
+    fileClassic.create(-1);
+
+    final byte[] data = new byte[1024];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) i;
+
+    fileClassic.allocateSpace(data.length);
+    fileClassic.write(0, data);
+
+    // SPACE WHICH IS ALLOCATED BUT NOT WRITTEN YET
+    fileClassic.allocateSpace(512);
+
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+    fileClassic.read(512, buffer);
+    Assert.assertFalse(buffer.hasRemaining());
+
+    buffer.flip();
+    for (int i = 0; i < 512; i++)
+      Assert.assertEquals(buffer.get(), (byte) (i + 512));
+
+    for (int i = 0; i < 512; i++)
+      Assert.assertEquals(buffer.get(), (byte) 0);
+
+    fileClassic.close();
+    fileClassic.delete();
+  }
 }
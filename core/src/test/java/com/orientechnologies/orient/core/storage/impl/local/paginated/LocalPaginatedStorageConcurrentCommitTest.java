@@ -0,0 +1,207 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTxListener;
+
+/**
+ * Commits transactions which modify the same clusters and indexes in different order from several threads when
+ * {@link OGlobalConfiguration#STORAGE_CONCURRENT_COMMIT} is set, so all of them have to complete without deadlock.
+ */
+@Test
+public class LocalPaginatedStorageConcurrentCommitTest {
+  private static final int    THREADS      = 8;
+  private static final int    TRANSACTIONS = 100;
+
+  private ODatabaseDocumentTx db;
+  private boolean             concurrentCommit;
+
+  @BeforeClass
+  public void beforeClass() {
+    concurrentCommit = OGlobalConfiguration.STORAGE_CONCURRENT_COMMIT.getValueAsBoolean();
+    OGlobalConfiguration.STORAGE_CONCURRENT_COMMIT.setValue(true);
+
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    db = new ODatabaseDocumentTx("plocal:" + new File(buildDirectory, "localPaginatedStorageConcurrentCommitTest").getAbsolutePath());
+    if (db.exists()) {
+      db.open("admin", "admin");
+      db.drop();
+    }
+    db.create();
+
+    for (String className : new String[] { "First", "Second" }) {
+      final OClass schemaClass = db.getMetadata().getSchema().createClass(className);
+      schemaClass.createProperty("id", OType.INTEGER).createIndex(OClass.INDEX_TYPE.UNIQUE);
+    }
+  }
+
+  @AfterClass
+  public void afterClass() {
+    db.drop();
+    OGlobalConfiguration.STORAGE_CONCURRENT_COMMIT.setValue(concurrentCommit);
+  }
+
+  public void testCommitsInDifferentOrder() throws Exception {
+    final String url = db.getURL();
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int i = 0; i < THREADS; i++) {
+      final int thread = i;
+      futures.add(executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx(url);
+          threadDb.open("admin", "admin");
+          try {
+            startLatch.await();
+
+            for (int n = 0; n < TRANSACTIONS; n++) {
+              final int id = thread * TRANSACTIONS + n;
+
+              threadDb.begin();
+              // HALF OF THE THREADS MODIFY CLASSES IN REVERSE ORDER
+              if (thread % 2 == 0) {
+                new ODocument("First").field("id", id).save();
+                new ODocument("Second").field("id", id).save();
+              } else {
+                new ODocument("Second").field("id", id).save();
+                new ODocument("First").field("id", id).save();
+              }
+              threadDb.commit();
+            }
+          } finally {
+            threadDb.close();
+          }
+
+          return null;
+        }
+      }));
+    }
+
+    startLatch.countDown();
+    for (Future<Void> future : futures)
+      future.get(5, TimeUnit.MINUTES);
+
+    executor.shutdown();
+
+    Assert.assertEquals(db.countClass("First"), THREADS * TRANSACTIONS);
+    Assert.assertEquals(db.countClass("Second"), THREADS * TRANSACTIONS);
+    Assert.assertEquals(db.getMetadata().getIndexManager().getIndex("First.id").getSize(), THREADS * TRANSACTIONS);
+    Assert.assertEquals(db.getMetadata().getIndexManager().getIndex("Second.id").getSize(), THREADS * TRANSACTIONS);
+  }
+
+  public void testRecordIsNotReadBeforeCommitCompletes() throws Exception {
+    final String url = db.getURL();
+    final CountDownLatch readerOpened = new CountDownLatch(1);
+    final CountDownLatch recordWritten = new CountDownLatch(1);
+    final CountDownLatch completeCommit = new CountDownLatch(1);
+    final CountDownLatch recordRead = new CountDownLatch(1);
+    final ORID[] rid = new ORID[1];
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    // STORAGE IS OPENED AND CLOSED UNDER EXCLUSIVE LOCK, SO READER OPENS DATABASE BEFORE COMMIT STARTS AND SIGNALS AS SOON AS
+    // RECORD IS READ
+    final Future<ODocument> read = executor.submit(new Callable<ODocument>() {
+      @Override
+      public ODocument call() throws Exception {
+        final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx(url);
+        threadDb.open("admin", "admin");
+        try {
+          readerOpened.countDown();
+          recordWritten.await();
+
+          final ODocument document = threadDb.load(rid[0], null, true);
+          recordRead.countDown();
+          return document;
+        } finally {
+          threadDb.close();
+        }
+      }
+    });
+
+    final Future<Void> commit = executor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        final ODatabaseDocumentTx threadDb = new ODatabaseDocumentTx(url);
+        threadDb.open("admin", "admin");
+        try {
+          readerOpened.await();
+
+          threadDb.begin();
+          new ListenedDocument("Second", new OTxListener() {
+            @Override
+            public void onEvent(ORecordOperation iTxEntry, EVENT iEvent) {
+              if (iEvent != EVENT.AFTER_COMMIT)
+                return;
+
+              // RECORD IS ALREADY WRITTEN TO CLUSTER, BUT TRANSACTION IS NOT COMMITTED YET
+              rid[0] = iTxEntry.getRecord().getIdentity().copy();
+              recordWritten.countDown();
+              try {
+                completeCommit.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          }).field("id", -1).save();
+          threadDb.commit();
+        } finally {
+          threadDb.close();
+        }
+
+        return null;
+      }
+    });
+
+    try {
+      Assert.assertTrue(recordWritten.await(1, TimeUnit.MINUTES));
+      Assert.assertFalse(recordRead.await(500, TimeUnit.MILLISECONDS));
+    } finally {
+      completeCommit.countDown();
+    }
+
+    commit.get(1, TimeUnit.MINUTES);
+
+    final ODocument document = read.get(1, TimeUnit.MINUTES);
+    Assert.assertNotNull(document);
+    Assert.assertEquals(document.<Integer> field("id"), Integer.valueOf(-1));
+
+    executor.shutdown();
+  }
+
+  public static final class ListenedDocument extends ODocument implements OTxListener {
+    private final OTxListener listener;
+
+    public ListenedDocument(String className, OTxListener listener) {
+      super(className);
+      this.listener = listener;
+    }
+
+    @Override
+    public void onEvent(ORecordOperation iTxEntry, EVENT iEvent) {
+      listener.onEvent(iTxEntry, iEvent);
+    }
+  }
+}
@@ -0,0 +1,261 @@
+package com.orientechnologies.orient.core.storage.impl.local.paginated;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.db.tool.ODatabaseCompare;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.tx.OTxListener;
+
+/**
+ * Restores the same copy of storage, which contains rolled back and unfinished atomic operations, by one and by several threads
+ * and checks that both restored databases are equal.
+ */
+@Test
+public class LocalPaginatedStorageParallelRestoreTest {
+  private static final int    THREADS      = 4;
+  private static final int    TRANSACTIONS = 500;
+
+  private File                buildDir;
+  private ODatabaseDocumentTx baseDocumentTx;
+  private int                 restoreThreads;
+
+  @BeforeClass
+  public void beforeClass() {
+    restoreThreads = OGlobalConfiguration.WAL_RESTORE_THREADS.getValueAsInteger();
+
+    final String buildDirectory = System.getProperty("buildDirectory", ".");
+    buildDir = new File(buildDirectory, "localPaginatedStorageParallelRestoreTest");
+    if (buildDir.exists())
+      buildDir.delete();
+
+    buildDir.mkdir();
+
+    baseDocumentTx = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath() + "/baseParallelRestore");
+    if (baseDocumentTx.exists()) {
+      baseDocumentTx.open("admin", "admin");
+      baseDocumentTx.drop();
+    }
+
+    baseDocumentTx.create();
+
+    final OClass testClass = baseDocumentTx.getMetadata().getSchema().createClass("TestOne");
+    testClass.createProperty("intProp", OType.INTEGER).createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+    testClass.createProperty("stringProp", OType.STRING);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(restoreThreads);
+
+    for (String name : new String[] { "baseParallelRestore", "serialParallelRestore", "parallelParallelRestore" }) {
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath() + "/" + name);
+      if (db.exists()) {
+        db.open("admin", "admin");
+        db.drop();
+      }
+    }
+
+    buildDir.delete();
+  }
+
+  public void testParallelRestoreIsEqualToSerial() throws Exception {
+    final ExecutorService executor = Executors.newCachedThreadPool();
+
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+    for (int i = 0; i < THREADS; i++)
+      futures.add(executor.submit(new DataPropagationTask()));
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    // TRANSACTION IS STOPPED AFTER ITS RECORD IS WRITTEN, SO ITS ATOMIC OPERATION IS NOT FINISHED IN THE COPY OF STORAGE
+    final CountDownLatch recordWritten = new CountDownLatch(1);
+    final CountDownLatch completeCommit = new CountDownLatch(1);
+
+    final Future<Void> unfinishedCommit = executor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        final ODatabaseDocumentTx db = new ODatabaseDocumentTx(baseDocumentTx.getURL());
+        db.open("admin", "admin");
+        try {
+          db.begin();
+          new ODocument("TestOne").field("intProp", -1).save();
+          new LocalPaginatedStorageConcurrentCommitTest.ListenedDocument("TestOne", new OTxListener() {
+            @Override
+            public void onEvent(ORecordOperation iTxEntry, EVENT iEvent) {
+              if (iEvent != EVENT.AFTER_COMMIT)
+                return;
+
+              recordWritten.countDown();
+              try {
+                completeCommit.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            }
+          }).field("intProp", -2).save();
+          db.commit();
+        } finally {
+          db.close();
+        }
+
+        return null;
+      }
+    });
+
+    try {
+      Assert.assertTrue(recordWritten.await(1, TimeUnit.MINUTES));
+
+      // WAIT TILL WAL RECORDS ARE FLUSHED BY BACKGROUND TASK
+      Thread.sleep(1500);
+
+      copyStorage("baseParallelRestore", "serialParallelRestore");
+      copyStorage("baseParallelRestore", "parallelParallelRestore");
+    } finally {
+      completeCommit.countDown();
+    }
+
+    unfinishedCommit.get(1, TimeUnit.MINUTES);
+    executor.shutdown();
+
+    final OStorage baseStorage = baseDocumentTx.getStorage();
+    baseDocumentTx.close();
+    baseStorage.close();
+
+    final ODatabaseDocumentTx serialDocumentTx = openCopy("serialParallelRestore", 1);
+    final ODatabaseDocumentTx parallelDocumentTx = openCopy("parallelParallelRestore", THREADS);
+
+    final ODatabaseCompare databaseCompare = new ODatabaseCompare(serialDocumentTx.getURL(), parallelDocumentTx.getURL(), "admin",
+        "admin", new OCommandOutputListener() {
+          @Override
+          public void onMessage(String text) {
+            System.out.println(text);
+          }
+        });
+
+    Assert.assertTrue(databaseCompare.compare());
+  }
+
+  private ODatabaseDocumentTx openCopy(String name, int threads) {
+    OGlobalConfiguration.WAL_RESTORE_THREADS.setValue(threads);
+
+    final ODatabaseDocumentTx db = new ODatabaseDocumentTx("plocal:" + buildDir.getAbsolutePath() + "/" + name);
+    db.open("admin", "admin");
+    try {
+      // RECORDS OF UNFINISHED TRANSACTION ARE ROLLED BACK
+      Assert.assertEquals(db.query(new OSQLSynchQuery<ODocument>("select from TestOne where intProp < 0")).size(), 0);
+    } finally {
+      db.close();
+    }
+
+    return db;
+  }
+
+  private void copyStorage(String fromName, String toName) throws IOException {
+    final File fromDir = new File(buildDir, fromName);
+    final File toDir = new File(buildDir, toName);
+
+    Assert.assertTrue(!toDir.exists());
+    Assert.assertTrue(toDir.mkdir());
+
+    final File[] storageFiles = fromDir.listFiles();
+    Assert.assertNotNull(storageFiles);
+
+    for (File storageFile : storageFiles) {
+      String fileName = storageFile.getName();
+      // WAL FILES ARE NAMED AFTER STORAGE
+      if (fileName.startsWith(fromName + "."))
+        fileName = toName + fileName.substring(fromName.length());
+
+      copyFile(storageFile, new File(toDir, fileName));
+    }
+  }
+
+  private static void copyFile(File from, File to) throws IOException {
+    final BufferedInputStream fromStream = new BufferedInputStream(new FileInputStream(from));
+    final FileOutputStream toStream = new FileOutputStream(to);
+    try {
+      final byte[] data = new byte[1024];
+      int bytesRead = fromStream.read(data);
+      while (bytesRead > 0) {
+        toStream.write(data, 0, bytesRead);
+        bytesRead = fromStream.read(data);
+      }
+    } finally {
+      fromStream.close();
+      toStream.close();
+    }
+  }
+
+  private final class DataPropagationTask implements Callable<Void> {
+    @Override
+    public Void call() throws Exception {
+      final Random random = new Random();
+
+      final ODatabaseDocumentTx db = new ODatabaseDocumentTx(baseDocumentTx.getURL());
+      db.open("admin", "admin");
+      try {
+        final List<ORID> docs = new ArrayList<ORID>();
+
+        for (int i = 0; i < TRANSACTIONS; i++) {
+          try {
+            db.begin();
+
+            final ODocument doc = new ODocument("TestOne");
+            doc.field("intProp", random.nextInt(Integer.MAX_VALUE));
+            doc.field("stringProp", "value" + random.nextInt());
+            doc.save();
+
+            if (!docs.isEmpty() && random.nextDouble() <= 0.2)
+              db.delete(docs.remove(random.nextInt(docs.size())));
+
+            // UPDATE WITH WRONG VERSION ROLLS BACK ATOMIC OPERATION OF THE TRANSACTION DURING COMMIT
+            if (!docs.isEmpty() && random.nextDouble() <= 0.2) {
+              final ODocument conflictDoc = new ODocument();
+              conflictDoc.setIdentity(new ORecordId(docs.get(0)));
+              conflictDoc.setDirty();
+              conflictDoc.save();
+            }
+
+            db.commit();
+            docs.add(doc.getIdentity());
+          } catch (Exception e) {
+            db.rollback();
+          }
+        }
+      } finally {
+        db.close();
+      }
+
+      return null;
+    }
+  }
+}
@@ -6,11 +6,17 @@ import static org.mockito.Mockito.when;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -21,6 +27,7 @@ import org.testng.annotations.Test;
 
 import com.orientechnologies.common.serialization.types.OIntegerSerializer;
 import com.orientechnologies.common.serialization.types.OLongSerializer;
+import com.orientechnologies.orient.core.exception.OStorageException;
 import com.orientechnologies.orient.core.storage.impl.local.paginated.OLocalPaginatedStorage;
 
 /**
@@ -97,6 +104,65 @@ public class WriteAheadLogTest {
     Assert.assertEquals(writeAheadLog.end(), end);
   }
 
+  public void testLogFuzzyCheckpointWithOldestOperation() throws Exception {
+    OLogSequenceNumber operationLSN = writeAheadLog.log(new TestRecord(30, false));
+
+    OLogSequenceNumber checkPointOneLSN = writeAheadLog.logFuzzyCheckPointStart(operationLSN);
+    writeAheadLog.logFuzzyCheckPointEnd();
+
+    OLogSequenceNumber checkPointTwoLSN = writeAheadLog.logFuzzyCheckPointStart();
+    writeAheadLog.logFuzzyCheckPointEnd();
+
+    writeAheadLog.close();
+    writeAheadLog = createWAL();
+
+    OFuzzyCheckpointStartRecord checkpointOne = (OFuzzyCheckpointStartRecord) writeAheadLog.read(checkPointOneLSN);
+    OFuzzyCheckpointStartRecord checkpointTwo = (OFuzzyCheckpointStartRecord) writeAheadLog.read(checkPointTwoLSN);
+
+    Assert.assertEquals(checkpointOne.getOldestOperationLsn(), operationLSN);
+    Assert.assertNull(checkpointTwo.getOldestOperationLsn());
+    Assert.assertEquals(checkpointTwo.getPreviousCheckpoint(), checkPointOneLSN);
+  }
+
+  public void testCutTill() throws Exception {
+    List<OWALRecord> writtenRecords = new ArrayList<OWALRecord>();
+
+    OLogSequenceNumber end = null;
+    while (end == null || end.getSegment() < 3) {
+      OWALRecord walRecord = new TestRecord(OWALPage.PAGE_SIZE / 2, false);
+      end = writeAheadLog.log(walRecord);
+      writtenRecords.add(walRecord);
+    }
+
+    writeAheadLog.flush();
+
+    Assert.assertEquals(writeAheadLog.sizeFrom(new OLogSequenceNumber(0, 0)), writeAheadLog.size());
+    Assert.assertTrue(writeAheadLog.positionBeforeEnd(writeAheadLog.size()).compareTo(writeAheadLog.begin()) <= 0);
+
+    OLogSequenceNumber cutLSN = null;
+    for (OWALRecord walRecord : writtenRecords) {
+      if (walRecord.getLsn().getSegment() == 2) {
+        cutLSN = walRecord.getLsn();
+        break;
+      }
+    }
+
+    Assert.assertNotNull(cutLSN);
+
+    final long sizeFromCut = writeAheadLog.sizeFrom(cutLSN);
+    writeAheadLog.cutTill(cutLSN);
+
+    Assert.assertEquals(writeAheadLog.begin(), cutLSN);
+    Assert.assertEquals(writeAheadLog.sizeFrom(cutLSN), sizeFromCut);
+    Assert.assertEquals(writeAheadLog.end(), end);
+
+    int cutIndex = 0;
+    while (!writtenRecords.get(cutIndex).getLsn().equals(cutLSN))
+      cutIndex++;
+
+    assertLogContent(writeAheadLog, writtenRecords.subList(cutIndex, writtenRecords.size()));
+  }
+
   public void testWriteSingleRecord() throws Exception {
     Assert.assertNull(writeAheadLog.end());
 
@@ -570,6 +636,85 @@ public class WriteAheadLogTest {
     Assert.assertEquals(end.compareTo(lsn), -1);
   }
 
+  public void testFlushTillGroupCommit() throws Exception {
+    final int threads = 8;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+    List<Future<List<OLogSequenceNumber>>> futures = new ArrayList<Future<List<OLogSequenceNumber>>>();
+    for (int i = 0; i < threads; i++)
+      futures.add(executorService.submit(new Callable<List<OLogSequenceNumber>>() {
+        @Override
+        public List<OLogSequenceNumber> call() throws Exception {
+          startLatch.await();
+
+          List<OLogSequenceNumber> lsns = new ArrayList<OLogSequenceNumber>();
+          for (int n = 0; n < 5; n++) {
+            OLogSequenceNumber lsn = writeAheadLog.log(new TestRecord(100, false));
+            writeAheadLog.flushTill(lsn);
+
+            Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) >= 0);
+            lsns.add(lsn);
+          }
+
+          return lsns;
+        }
+      }));
+
+    startLatch.countDown();
+
+    List<OLogSequenceNumber> lsns = new ArrayList<OLogSequenceNumber>();
+    for (Future<List<OLogSequenceNumber>> future : futures)
+      lsns.addAll(future.get());
+
+    executorService.shutdown();
+
+    writeAheadLog.close(false);
+    writeAheadLog = createWAL();
+
+    for (OLogSequenceNumber lsn : lsns)
+      Assert.assertTrue(writeAheadLog.read(lsn) instanceof TestRecord);
+  }
+
+  public void testFlushTillRecoversAfterGroupCommitFailure() throws Exception {
+    OLogSequenceNumber lsn = writeAheadLog.log(new TestRecord(100, false));
+    writeAheadLog.flushTill(lsn);
+
+    // CLOSE FILE OF THE LAST SEGMENT SO NEXT FLUSHES FAIL
+    final Field segmentsField = OWriteAheadLog.class.getDeclaredField("logSegments");
+    segmentsField.setAccessible(true);
+    final List<?> segments = (List<?>) segmentsField.get(writeAheadLog);
+    final Object lastSegment = segments.get(segments.size() - 1);
+    final Field rndFileField = lastSegment.getClass().getDeclaredField("rndFile");
+    rndFileField.setAccessible(true);
+    ((RandomAccessFile) rndFileField.get(lastSegment)).close();
+
+    lsn = writeAheadLog.log(new TestRecord(100, false));
+    try {
+      writeAheadLog.flushTill(lsn);
+      Assert.fail();
+    } catch (OStorageException e) {
+    }
+
+    Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) < 0);
+
+    // ONCE FILE CAN BE WRITTEN AGAIN NEXT COMMITTERS ARE SERVED BY GROUP COMMIT, RECORDS OF THE FAILED BATCH ARE FLUSHED TOO
+    final Field fileField = lastSegment.getClass().getDeclaredField("file");
+    fileField.setAccessible(true);
+    rndFileField.set(lastSegment, new RandomAccessFile((File) fileField.get(lastSegment), "rw"));
+
+    final OLogSequenceNumber failedLsn = lsn;
+    lsn = writeAheadLog.log(new TestRecord(100, false));
+    writeAheadLog.flushTill(lsn);
+
+    Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(lsn) >= 0);
+    Assert.assertTrue(writeAheadLog.getFlushedLSN().compareTo(failedLsn) > 0);
+
+    final Field threadField = OWriteAheadLog.class.getDeclaredField("groupCommitThread");
+    threadField.setAccessible(true);
+    Assert.assertTrue(((Thread) threadField.get(writeAheadLog)).isAlive());
+  }
+
   public void testFlushedLSNOnePageWithLessThanMinRecordSpace() throws Exception {
     OWALRecord walRecord = new TestRecord(ONE_KB, false);
     writeAheadLog.log(walRecord);
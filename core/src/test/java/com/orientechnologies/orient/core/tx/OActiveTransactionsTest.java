@@ -0,0 +1,73 @@
+package com.orientechnologies.orient.core.tx;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.concur.OTimeoutException;
+
+@Test
+public class OActiveTransactionsTest {
+  public void testWaitWithoutTransactions() throws Exception {
+    new OActiveTransactions().waitForCompletion(100);
+  }
+
+  public void testTransactionBegunLaterIsNotWaited() throws Exception {
+    final OActiveTransactions activeTransactions = new OActiveTransactions();
+    final OActiveTransactions.Epoch before = activeTransactions.begin();
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final Future<Void> waiter = executor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        activeTransactions.waitForCompletion(60000);
+        return null;
+      }
+    });
+
+    Thread.sleep(100);
+    Assert.assertFalse(waiter.isDone());
+
+    final OActiveTransactions.Epoch after = activeTransactions.begin();
+    before.complete();
+
+    waiter.get(1, TimeUnit.MINUTES);
+    after.complete();
+
+    executor.shutdown();
+  }
+
+  public void testTransactionOfPreviousWaitIsWaited() throws Exception {
+    final OActiveTransactions activeTransactions = new OActiveTransactions();
+    final OActiveTransactions.Epoch first = activeTransactions.begin();
+
+    try {
+      activeTransactions.waitForCompletion(10);
+      Assert.fail();
+    } catch (OTimeoutException e) {
+    }
+
+    // SECOND WAIT STARTS NEW EPOCH, BUT TRANSACTION OF THE FIRST ONE IS STILL ACTIVE
+    final OActiveTransactions.Epoch second = activeTransactions.begin();
+    try {
+      activeTransactions.waitForCompletion(10);
+      Assert.fail();
+    } catch (OTimeoutException e) {
+    }
+
+    second.complete();
+    try {
+      activeTransactions.waitForCompletion(10);
+      Assert.fail();
+    } catch (OTimeoutException e) {
+    }
+
+    first.complete();
+    activeTransactions.waitForCompletion(10);
+  }
+}
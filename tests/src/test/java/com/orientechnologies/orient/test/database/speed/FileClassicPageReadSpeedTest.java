@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.File;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.directmemory.ODirectMemoryPointer;
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+
+/**
+ * Compares load of disk cache pages through heap array with load directly into off-heap memory, see
+ * {@link OGlobalConfiguration#DISK_CACHE_DIRECT_READ}.
+ */
+@Test(enabled = false)
+public class FileClassicPageReadSpeedTest extends SpeedTestMonoThread {
+  private static final int PAGE_SIZE  = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024;
+  private static final int PAGE_COUNT = 1024;
+
+  private OFileClassic     fileClassic;
+  private long             heapReadTime;
+  private long             directReadTime;
+
+  public FileClassicPageReadSpeedTest() {
+    super(100);
+  }
+
+  @Override
+  public void init() throws Exception {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    fileClassic = new OFileClassic();
+    fileClassic.init(buildDirectory + File.separator + "fileClassicPageReadSpeedTest.tst", "rw");
+    fileClassic.create(-1);
+
+    final byte[] page = new byte[PAGE_SIZE];
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      page[0] = (byte) i;
+      fileClassic.allocateSpace(PAGE_SIZE);
+      fileClassic.write((long) i * PAGE_SIZE, page);
+    }
+  }
+
+  @Override
+  public void cycle() throws Exception {
+    long startTime = System.nanoTime();
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final byte[] content = new byte[PAGE_SIZE];
+      fileClassic.read((long) i * PAGE_SIZE, content, PAGE_SIZE);
+
+      new ODirectMemoryPointer(content).free();
+    }
+    heapReadTime += System.nanoTime() - startTime;
+
+    startTime = System.nanoTime();
+    for (int i = 0; i < PAGE_COUNT; i++) {
+      final ODirectMemoryPointer pointer = new ODirectMemoryPointer(PAGE_SIZE);
+      fileClassic.read((long) i * PAGE_SIZE, pointer.asByteBuffer(0, PAGE_SIZE));
+
+      pointer.free();
+    }
+    directReadTime += System.nanoTime() - startTime;
+  }
+
+  @Override
+  public void deinit() throws Exception {
+    System.out.println("Read through heap array: " + heapReadTime / 1000000 + " ms, direct read: " + directReadTime / 1000000
+        + " ms");
+
+    fileClassic.delete();
+  }
+}
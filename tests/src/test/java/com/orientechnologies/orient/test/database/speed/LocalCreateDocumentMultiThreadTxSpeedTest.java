@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.test.database.base.OrientMultiThreadTest;
+import com.orientechnologies.orient.test.database.base.OrientThreadTest;
+
+/**
+ * Every thread commits small transactions into its own class, so commits do not share clusters and indexes and can be executed
+ * in parallel if {@link OGlobalConfiguration#STORAGE_CONCURRENT_COMMIT} is set.
+ */
+@Test(enabled = false)
+public class LocalCreateDocumentMultiThreadTxSpeedTest extends OrientMultiThreadTest {
+  private static final int           THREADS       = Runtime.getRuntime().availableProcessors() * 2;
+  private static final int           TX_SIZE       = 10;
+  private static final AtomicInteger threadCounter = new AtomicInteger();
+
+  private ODatabaseDocument          database;
+
+  public static void main(String[] iArgs) throws InstantiationException, IllegalAccessException {
+    // System.setProperty("url", "plocal:target/databases/txSpeedTest");
+    OGlobalConfiguration.STORAGE_CONCURRENT_COMMIT.setValue(true);
+
+    LocalCreateDocumentMultiThreadTxSpeedTest test = new LocalCreateDocumentMultiThreadTxSpeedTest();
+    test.data.go(test);
+  }
+
+  public LocalCreateDocumentMultiThreadTxSpeedTest() {
+    super(100000, THREADS, CreateObjectsThread.class);
+  }
+
+  @Override
+  public void init() {
+    database = new ODatabaseDocumentTx(System.getProperty("url"));
+    if (database.exists())
+      database.drop();
+
+    database.create();
+
+    for (int i = 0; i < THREADS; i++) {
+      final OClass accountClass = database.getMetadata().getSchema().createClass("Account" + i);
+      accountClass.createProperty("id", OType.LONG);
+      accountClass.createIndex("Account" + i + ".id", OClass.INDEX_TYPE.UNIQUE, "id");
+    }
+
+    threadCounter.set(0);
+  }
+
+  @Test(enabled = false)
+  public static class CreateObjectsThread extends OrientThreadTest {
+    private ODatabaseDocument database;
+    private String            className;
+    private Date              date = new Date();
+
+    @Override
+    public void init() {
+      database = new ODatabaseDocumentTx(System.getProperty("url")).open("admin", "admin");
+      className = "Account" + threadCounter.getAndIncrement();
+    }
+
+    public void cycle() {
+      database.begin();
+
+      for (int i = 0; i < TX_SIZE; i++) {
+        final ODocument record = new ODocument(className);
+        record.field("id", data.getCyclesDone() * TX_SIZE + i);
+        record.field("name", "Luca");
+        record.field("surname", "Garulli");
+        record.field("birthDate", date);
+        record.field("salary", 3000f + i);
+
+        record.save();
+      }
+
+      database.commit();
+    }
+
+    @Override
+    public void deinit() throws Exception {
+      if (database != null)
+        database.close();
+      super.deinit();
+    }
+  }
+
+  @Override
+  public void deinit() {
+    long total = 0;
+    for (int i = 0; i < THREADS; i++)
+      total += database.countClass("Account" + i);
+
+    System.out.println("\nTotal objects in Account classes after the test: " + total);
+    Assert.assertEquals(total, (threadCycles / THREADS) * THREADS * TX_SIZE);
+
+    if (database != null)
+      database.close();
+  }
+}
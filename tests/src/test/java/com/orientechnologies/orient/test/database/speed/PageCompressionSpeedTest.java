@@ -0,0 +1,127 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.orient.core.compression.OCompression;
+import com.orientechnologies.orient.core.compression.OCompressionFactory;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.storage.fs.OFileClassic;
+
+/**
+ * Measures ratio and speed of compression of cluster pages by compression methods which can be used for
+ * {@link OGlobalConfiguration#DISK_CACHE_PAGE_COMPRESSION}.
+ */
+@Test(enabled = false)
+public class PageCompressionSpeedTest extends SpeedTestMonoThread {
+  private static final int      PAGE_SIZE      = OGlobalConfiguration.DISK_CACHE_PAGE_SIZE.getValueAsInteger() * 1024;
+  private static final int      RECORDS        = 100000;
+  private static final String[] COMPRESSIONS   = { "snappy", "gzip" };
+
+  private final List<byte[]>    pages          = new ArrayList<byte[]>();
+  private final long[]          compressedSize = new long[COMPRESSIONS.length];
+  private final long[]          compressTime   = new long[COMPRESSIONS.length];
+  private final long[]          uncompressTime = new long[COMPRESSIONS.length];
+
+  private ODatabaseDocumentTx   database;
+
+  public PageCompressionSpeedTest() {
+    super(10);
+  }
+
+  @Override
+  public void init() throws Exception {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    final String path = buildDirectory + File.separator + "pageCompressionSpeedTest";
+    database = new ODatabaseDocumentTx("plocal:" + path);
+    if (database.exists()) {
+      database.open("admin", "admin");
+      database.drop();
+    }
+
+    database.create();
+    for (int i = 0; i < RECORDS; i++) {
+      final ODocument document = new ODocument("Account");
+      document.field("id", i);
+      document.field("name", "Luca" + i);
+      document.field("surname", "Garulli" + (i % 100));
+      document.field("city", "Rome");
+      document.save();
+    }
+    database.close();
+
+    final OFileClassic fileClassic = new OFileClassic();
+    fileClassic.init(path + File.separator + "account.pcl", "r");
+    fileClassic.open();
+    try {
+      for (long position = 0; position + PAGE_SIZE <= fileClassic.getFilledUpTo(); position += PAGE_SIZE) {
+        final byte[] page = new byte[PAGE_SIZE];
+        fileClassic.read(position, page, PAGE_SIZE);
+        pages.add(page);
+      }
+    } finally {
+      fileClassic.close();
+    }
+  }
+
+  @Override
+  public void cycle() throws Exception {
+    for (int n = 0; n < COMPRESSIONS.length; n++) {
+      final OCompression compression = OCompressionFactory.INSTANCE.getCompression(COMPRESSIONS[n]);
+      final byte[][] compressed = new byte[pages.size()][];
+
+      long startTime = System.nanoTime();
+      for (int i = 0; i < compressed.length; i++)
+        compressed[i] = compression.compress(pages.get(i));
+      compressTime[n] += System.nanoTime() - startTime;
+
+      startTime = System.nanoTime();
+      for (byte[] content : compressed)
+        compression.uncompress(content);
+      uncompressTime[n] += System.nanoTime() - startTime;
+
+      for (byte[] content : compressed)
+        compressedSize[n] += Math.min(content.length, PAGE_SIZE);
+    }
+  }
+
+  @Override
+  public void deinit() throws Exception {
+    final double processedMb = (double) pages.size() * PAGE_SIZE * data.getCycles() / (1024 * 1024);
+    System.out.println("Pages: " + pages.size());
+
+    for (int n = 0; n < COMPRESSIONS.length; n++)
+      System.out.printf("%s: ratio %.2f, compression %.1f MB/s, decompression %.1f MB/s%n", COMPRESSIONS[n],
+          (double) pages.size() * PAGE_SIZE * data.getCycles() / compressedSize[n], processedMb / (compressTime[n] / 1000000000.0),
+          processedMb / (uncompressTime[n] / 1000000000.0));
+
+    database.open("admin", "admin");
+    database.drop();
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2010-2012 Luca Garulli (l.garulli--at--orientechnologies.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.orientechnologies.orient.test.database.speed;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.testng.annotations.Test;
+
+import com.orientechnologies.common.serialization.types.OIntegerSerializer;
+import com.orientechnologies.common.test.SpeedTestMonoThread;
+import com.orientechnologies.common.util.MersenneTwisterFast;
+import com.orientechnologies.orient.core.config.OGlobalConfiguration;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.OClusterPositionFactory;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.index.sbtree.local.OSBTree;
+import com.orientechnologies.orient.core.serialization.serializer.binary.impl.OLinkSerializer;
+import com.orientechnologies.orient.core.storage.impl.local.OStorageLocalAbstract;
+
+/**
+ * Measures throughput of {@link OSBTree} under mixed workload of concurrent lookups and insertions. Every cycle is executed twice:
+ * with page latches only and with every operation guarded by single tree wide read-write lock, as it was before page latches were
+ * introduced.
+ */
+@Test(enabled = false)
+public class SBTreeConcurrencySpeedTest extends SpeedTestMonoThread {
+  private static final int                THREADS           = 8;
+  private static final int                OPERATIONS        = 200000;
+  private static final int                WRITES_PERCENT    = 20;
+  private static final int                INITIAL_KEYS      = 1000000;
+
+  private final ExecutorService           executorService   = Executors.newFixedThreadPool(THREADS);
+  private final ReadWriteLock             treeLock          = new ReentrantReadWriteLock();
+
+  private ODatabaseDocumentTx             database;
+  private OSBTree<Integer, OIdentifiable> sbTree;
+
+  private long                            latchedTime;
+  private long                            lockedTime;
+
+  public SBTreeConcurrencySpeedTest() {
+    super(10);
+  }
+
+  @Override
+  public void init() throws Exception {
+    OGlobalConfiguration.FILE_LOCK.setValue(Boolean.FALSE);
+
+    String buildDirectory = System.getProperty("buildDirectory");
+    if (buildDirectory == null)
+      buildDirectory = ".";
+
+    database = new ODatabaseDocumentTx("plocal:" + buildDirectory + File.separator + "sbTreeConcurrencySpeedTest");
+    if (database.exists()) {
+      database.open("admin", "admin");
+      database.drop();
+    }
+
+    database.create();
+
+    sbTree = new OSBTree<Integer, OIdentifiable>(".sbt", 1, false);
+    sbTree.create("sbTreeConcurrencySpeedTest", OIntegerSerializer.INSTANCE, OLinkSerializer.INSTANCE, null,
+        (OStorageLocalAbstract) database.getStorage().getUnderlying());
+
+    for (int i = 0; i < INITIAL_KEYS; i++)
+      sbTree.put(i * 2, createValue(i * 2));
+  }
+
+  @Override
+  public void cycle() throws Exception {
+    latchedTime += execute(false);
+    lockedTime += execute(true);
+  }
+
+  @Override
+  public void deinit() throws Exception {
+    final double operations = (double) THREADS * OPERATIONS * data.getCycles();
+
+    System.out.printf("Page latches: %.0f ops/s%n", operations / (latchedTime / 1000000000.0));
+    System.out.printf("Tree lock: %.0f ops/s%n", operations / (lockedTime / 1000000000.0));
+
+    executorService.shutdown();
+
+    sbTree.delete();
+    database.drop();
+  }
+
+  private long execute(final boolean lockTree) throws Exception {
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    final long startTime = System.nanoTime();
+    for (int i = 0; i < THREADS; i++)
+      futures.add(executorService.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final MersenneTwisterFast random = new MersenneTwisterFast();
+
+          for (int n = 0; n < OPERATIONS; n++) {
+            final int key = random.nextInt(INITIAL_KEYS * 2);
+
+            if (random.nextInt(100) < WRITES_PERCENT) {
+              if (lockTree)
+                treeLock.writeLock().lock();
+              try {
+                sbTree.put(key, createValue(key));
+              } finally {
+                if (lockTree)
+                  treeLock.writeLock().unlock();
+              }
+            } else {
+              if (lockTree)
+                treeLock.readLock().lock();
+              try {
+                sbTree.get(key);
+              } finally {
+                if (lockTree)
+                  treeLock.readLock().unlock();
+              }
+            }
+          }
+
+          return null;
+        }
+      }));
+
+    for (Future<Void> future : futures)
+      future.get();
+
+    return System.nanoTime() - startTime;
+  }
+
+  private static ORecordId createValue(int key) {
+    return new ORecordId(key % 32000, OClusterPositionFactory.INSTANCE.valueOf(key));
+  }
+}